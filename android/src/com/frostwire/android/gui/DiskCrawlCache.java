@@ -40,7 +40,7 @@ public final class DiskCrawlCache implements CrawlCache {
     private static final int MAX_DISK_CACHE_SIZE = 50 * 1024 * 1024; // 50MB
 
     private final File directory;
-    private DiskCache cache;
+    private volatile DiskCache cache;
 
     DiskCrawlCache(Context context) {
         this.directory = SystemUtils.getCacheDir(context, "search");
@@ -48,7 +48,7 @@ public final class DiskCrawlCache implements CrawlCache {
     }
 
     @Override
-    public byte[] get(String key) {
+    public synchronized byte[] get(String key) {
         byte[] data = null;
 
         if (cache != null) {
@@ -70,7 +70,7 @@ public final class DiskCrawlCache implements CrawlCache {
     }
 
     @Override
-    public void put(String key, byte[] data) {
+    public synchronized void put(String key, byte[] data) {
         if (cache != null) {
             try {
                 cache.put(key, data);
@@ -81,7 +81,7 @@ public final class DiskCrawlCache implements CrawlCache {
     }
 
     @Override
-    public void remove(String key) {
+    public synchronized void remove(String key) {
         if (cache != null) {
             try {
                 cache.remove(key);
@@ -92,7 +92,7 @@ public final class DiskCrawlCache implements CrawlCache {
     }
 
     @Override
-    public void clear() {
+    public synchronized void clear() {
         if (cache != null) {
             try {
                 cache.delete();
@@ -104,7 +104,7 @@ public final class DiskCrawlCache implements CrawlCache {
     }
 
     @Override
-    public long sizeInBytes() {
+    public synchronized long sizeInBytes() {
         long size = 0;
         if (cache != null) {
             try {
@@ -118,7 +118,7 @@ public final class DiskCrawlCache implements CrawlCache {
     }
 
     @Override
-    public long numEntries() {
+    public synchronized long numEntries() {
         long size = 0;
         if (cache != null) {
             try {
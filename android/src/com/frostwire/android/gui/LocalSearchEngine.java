@@ -17,29 +17,19 @@
 
 package com.frostwire.android.gui;
 
-import android.text.Html;
-
 import com.frostwire.android.gui.views.AbstractListAdapter;
 import com.frostwire.search.CrawlPagedWebSearchPerformer;
-import com.frostwire.search.CrawledSearchResult;
-import com.frostwire.search.FileSearchResult;
+import com.frostwire.search.ResultMerger;
 import com.frostwire.search.SearchError;
 import com.frostwire.search.SearchListener;
 import com.frostwire.search.SearchManager;
 import com.frostwire.search.SearchPerformer;
 import com.frostwire.search.SearchResult;
+import com.frostwire.search.SearchText;
 import com.frostwire.util.StringUtils;
 
-import java.text.Normalizer;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.Collections;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
 import java.util.List;
-import java.util.Locale;
-import java.util.Set;
 
 /**
  * @author gubatron
@@ -106,7 +96,7 @@ public final class LocalSearchEngine {
         manager.stop();
 
         currentSearchToken = Math.abs(System.nanoTime());
-        currentSearchTokens = tokenize(query);
+        currentSearchTokens = SearchText.tokenize(query);
         searchFinished = false;
 
         for (SearchEngine se : SearchEngine.getEngines()) {
@@ -151,10 +141,18 @@ public final class LocalSearchEngine {
         return sr != null && opened.contains(sr.uid());
     }
 
+    /**
+     * The copies of the result merged by the current search, null if
+     * no other copies arrived.
+     */
+    public ResultMerger.Merge getMerge(SearchResult sr) {
+        long token = currentSearchToken;
+        return token != 0 ? manager.getMerge(token, sr) : null;
+    }
+
     private void onResults(long token, List<? extends SearchResult> results) {
         if (token == currentSearchToken) { // one more additional protection
-            @SuppressWarnings("unchecked")
-            List<SearchResult> filtered = filter(results);
+            List<SearchResult> filtered = SearchText.filter(results, currentSearchTokens);
 
             if (!filtered.isEmpty()) {
                 if (listener != null) {
@@ -172,98 +170,4 @@ public final class LocalSearchEngine {
             }
         }
     }
-
-    private List<SearchResult> filter(List<? extends SearchResult> results) {
-        List<SearchResult> list;
-
-        if (currentSearchTokens == null || currentSearchTokens.isEmpty()) {
-            list = Collections.emptyList();
-        } else {
-            list = filter2(results);
-        }
-
-        return list;
-    }
-
-    private List<SearchResult> filter2(List<? extends SearchResult> results) {
-        List<SearchResult> list = new LinkedList<>();
-
-        try {
-            for (SearchResult sr : results) {
-                if (sr instanceof CrawledSearchResult) {
-                    if (filter(new LinkedList<>(currentSearchTokens), sr)) {
-                        list.add(sr);
-                    }
-                } else {
-                    list.add(sr);
-                }
-            }
-        } catch (Throwable e) {
-            // possible NPE due to cancel search or some inner error in search results, ignore it and cleanup list
-            list.clear();
-        }
-
-        return list;
-    }
-
-    private boolean filter(List<String> tokens, SearchResult sr) {
-        StringBuilder sb = new StringBuilder();
-
-        sb.append(sr.getDisplayName());
-        if (sr instanceof CrawledSearchResult) {
-            sb.append(((CrawledSearchResult) sr).getParent().getDisplayName());
-        }
-
-        if (sr instanceof FileSearchResult) {
-            sb.append(((FileSearchResult) sr).getFilename());
-        }
-
-        String str = sanitize(sb.toString());
-        str = normalize(str);
-
-        Iterator<String> it = tokens.iterator();
-        while (it.hasNext()) {
-            String token = it.next();
-            if (str.contains(token)) {
-                it.remove();
-            }
-        }
-
-        return tokens.isEmpty();
-    }
-
-    private String sanitize(String str) {
-        str = Html.fromHtml(str).toString();
-        str = str.replaceAll("\\.torrent|www\\.|\\.com|\\.net|[\\\\\\/%_;\\-\\.\\(\\)\\[\\]\\n\\rÐ&~{}\\*@\\^'=!,¡|#ÀÁ]", " ");
-        str = StringUtils.removeDoubleSpaces(str);
-
-        return str.trim();
-    }
-
-    private String normalize(String token) {
-        String norm = Normalizer.normalize(token, Normalizer.Form.NFKD);
-        norm = norm.replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
-        norm = norm.toLowerCase(Locale.US);
-
-        return norm;
-    }
-
-    private Set<String> normalizeTokens(Set<String> tokens) {
-        Set<String> normalizedTokens = new HashSet<>(0);
-
-        for (String token : tokens) {
-            String norm = normalize(token);
-            normalizedTokens.add(norm);
-        }
-
-        return normalizedTokens;
-    }
-
-    private List<String> tokenize(String keywords) {
-        keywords = sanitize(keywords);
-
-        Set<String> tokens = new HashSet<>(Arrays.asList(keywords.toLowerCase(Locale.US).split(" ")));
-
-        return new ArrayList<>(normalizeTokens(tokens));
-    }
 }
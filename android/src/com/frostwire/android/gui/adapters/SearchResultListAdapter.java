@@ -42,6 +42,7 @@ import com.frostwire.android.util.ImageLoader;
 import com.frostwire.licenses.Licenses;
 import com.frostwire.search.FileSearchResult;
 import com.frostwire.search.KeywordFilter;
+import com.frostwire.search.ResultMerger;
 import com.frostwire.search.SearchResult;
 import com.frostwire.search.StreamableSearchResult;
 import com.frostwire.search.soundcloud.SoundcloudSearchResult;
@@ -109,11 +110,12 @@ public abstract class SearchResultListAdapter extends AbstractListAdapter<Search
 
     @Override
     protected void populateView(View view, SearchResult sr) {
+        ResultMerger.Merge merge = LocalSearchEngine.instance().getMerge(sr);
         if (sr instanceof FileSearchResult) {
-            populateFilePart(view, (FileSearchResult) sr);
+            populateFilePart(view, (FileSearchResult) sr, merge);
         }
         if (sr instanceof TorrentSearchResult) {
-            populateTorrentPart(view, (TorrentSearchResult) sr);
+            populateTorrentPart(view, (TorrentSearchResult) sr, merge);
         }
         maybeMarkTitleOpened(view, sr);
         populateThumbnail(view, sr);
@@ -126,7 +128,7 @@ public abstract class SearchResultListAdapter extends AbstractListAdapter<Search
         title.setTextColor(LocalSearchEngine.instance().hasBeenOpened(sr) ? clickedColor : unclickedColor);
     }
 
-    private void populateFilePart(View view, FileSearchResult sr) {
+    private void populateFilePart(View view, FileSearchResult sr, ResultMerger.Merge merge) {
         ImageView fileTypeIcon = findView(view, R.id.view_bittorrent_search_result_list_item_filetype_icon);
         fileTypeIcon.setImageResource(getFileTypeIconId());
         TextView adIndicator = findView(view, R.id.view_bittorrent_search_result_list_item_ad_indicator);
@@ -145,7 +147,9 @@ public abstract class SearchResultListAdapter extends AbstractListAdapter<Search
         seeds.setText("");
         String license = sr.getLicense().equals(Licenses.UNKNOWN) ? "" : " - " + sr.getLicense();
         TextView sourceLink = findView(view, R.id.view_bittorrent_search_result_list_item_text_source);
-        sourceLink.setText(sr.getSource() + license); // TODO: ask for design
+        // the other engines that returned the same file
+        int others = merge != null ? merge.getSources().size() - 1 : 0;
+        sourceLink.setText(sr.getSource() + (others > 0 ? " +" + others : "") + license); // TODO: ask for design
         sourceLink.setTag(sr.getDetailsUrl());
         sourceLink.setPaintFlags(sourceLink.getPaintFlags() | Paint.UNDERLINE_TEXT_FLAG);
         sourceLink.setOnClickListener(linkListener);
@@ -172,10 +176,11 @@ public abstract class SearchResultListAdapter extends AbstractListAdapter<Search
         }
     }
 
-    private void populateTorrentPart(View view, TorrentSearchResult sr) {
+    private void populateTorrentPart(View view, TorrentSearchResult sr, ResultMerger.Merge merge) {
         TextView seeds = findView(view, R.id.view_bittorrent_search_result_list_item_text_seeds);
-        if (sr.getSeeds() > 0) {
-            seeds.setText(getContext().getResources().getQuantityString(R.plurals.count_seeds_source, sr.getSeeds(), sr.getSeeds()));
+        int n = merge != null ? merge.getSeeds() : sr.getSeeds();
+        if (n > 0) {
+            seeds.setText(getContext().getResources().getQuantityString(R.plurals.count_seeds_source, n, n));
         } else {
             seeds.setText("");
         }
@@ -44,13 +44,11 @@ import com.frostwire.jlibtorrent.swig.bloom_filter_256;
 import com.frostwire.jlibtorrent.swig.byte_vector;
 import com.frostwire.jlibtorrent.swig.sha1_hash;
 import com.frostwire.util.Hex;
+import com.frostwire.util.HttpClientFactory;
 import com.frostwire.util.Logger;
-import com.frostwire.util.http.OKHTTPClient;
 
 import java.io.File;
 
-import okhttp3.ConnectionPool;
-
 import static com.frostwire.android.util.Asyncs.async;
 
 /**
@@ -140,19 +138,7 @@ public class EngineService extends Service implements IEngineService {
     // what a bad design to properly shutdown the framework threads!
     // TODO: deal with potentially active connections
     private void stopOkHttp() {
-        ConnectionPool pool = OKHTTPClient.CONNECTION_POOL;
-        try {
-            pool.evictAll();
-        } catch (Throwable e) {
-            e.printStackTrace();
-        }
-        try {
-            synchronized (OKHTTPClient.CONNECTION_POOL) {
-                pool.notifyAll();
-            }
-        } catch (Throwable e) {
-            e.printStackTrace();
-        }
+        HttpClientFactory.evictAllConnections();
     }
 
     public CoreMediaPlayer getMediaPlayer() {
@@ -24,6 +24,7 @@ import com.frostwire.jlibtorrent.FileStorage;
 import com.frostwire.jlibtorrent.PiecesTracker;
 import com.frostwire.jlibtorrent.Priority;
 import com.frostwire.jlibtorrent.SessionHandle;
+import com.frostwire.jlibtorrent.Sha1Hash;
 import com.frostwire.jlibtorrent.TorrentFlags;
 import com.frostwire.jlibtorrent.TorrentHandle;
 import com.frostwire.jlibtorrent.TorrentInfo;
@@ -45,7 +46,6 @@ import com.frostwire.transfers.TransferItem;
 import com.frostwire.transfers.TransferState;
 import com.frostwire.util.Logger;
 
-import org.apache.commons.io.FileUtils;
 import org.apache.commons.io.FilenameUtils;
 
 import java.io.File;
@@ -80,6 +80,7 @@ public final class BTDownload implements BittorrentDownload {
 
     private final BTEngine engine;
     private final TorrentHandle th;
+    private final Sha1Hash infoHash;
     private final File savePath;
     private final Date created;
     private final PiecesTracker piecesTracker;
@@ -101,8 +102,9 @@ public final class BTDownload implements BittorrentDownload {
     public BTDownload(BTEngine engine, TorrentHandle th) {
         this.engine = engine;
         this.th = th;
+        this.infoHash = th.infoHash();
         this.savePath = new File(th.savePath());
-        this.created = new Date(th.status().addedTime());
+        this.created = new Date(status().addedTime());
         TorrentInfo ti = th.torrentFile();
         this.piecesTracker = ti != null ? new PiecesTracker(ti) : null;
         this.parts = ti != null ? new File(savePath, "." + ti.infoHash() + ".parts") : null;
@@ -150,11 +152,11 @@ public final class BTDownload implements BittorrentDownload {
     }
 
     public boolean isPaused() {
-        return th.isValid() && (isPaused(th.status()) || engine.isPaused() || !engine.isRunning());
+        return th.isValid() && (isPaused(status()) || engine.isPaused() || !engine.isRunning());
     }
 
     public boolean isSeeding() {
-        return th.isValid() && th.status().isSeeding();
+        return th.isValid() && status().isSeeding();
     }
 
     public boolean isFinished() {
@@ -162,7 +164,7 @@ public final class BTDownload implements BittorrentDownload {
     }
 
     public boolean isFinished(boolean force) {
-        return th.isValid() && th.status(force).isFinished();
+        return th.isValid() && engine.status(infoHash, th, force).isFinished();
     }
 
     public TransferState getState() {
@@ -178,7 +180,7 @@ public final class BTDownload implements BittorrentDownload {
             return TransferState.ERROR;
         }
 
-        final TorrentStatus status = th.status();
+        final TorrentStatus status = status();
         final boolean isPaused = isPaused(status);
 
         if (isPaused && status.isFinished()) {
@@ -240,7 +242,7 @@ public final class BTDownload implements BittorrentDownload {
             return 0;
         }
 
-        TorrentStatus ts = th.status();
+        TorrentStatus ts = status();
 
         if (ts == null) { // this can't never happens
             return 0;
@@ -267,27 +269,27 @@ public final class BTDownload implements BittorrentDownload {
     }
 
     public long getBytesReceived() {
-        return th.isValid() ? th.status().totalDone() : 0;
+        return th.isValid() ? status().totalDone() : 0;
     }
 
     public long getTotalBytesReceived() {
-        return th.isValid() ? th.status().allTimeDownload() : 0;
+        return th.isValid() ? status().allTimeDownload() : 0;
     }
 
     public long getBytesSent() {
-        return th.isValid() ? th.status().totalUpload() : 0;
+        return th.isValid() ? status().totalUpload() : 0;
     }
 
     public long getTotalBytesSent() {
-        return th.isValid() ? th.status().allTimeUpload() : 0;
+        return th.isValid() ? status().allTimeUpload() : 0;
     }
 
     public long getDownloadSpeed() {
-        return (!th.isValid() || isFinished() || isPaused() || isSeeding()) ? 0 : th.status().downloadPayloadRate();
+        return (!th.isValid() || isFinished() || isPaused() || isSeeding()) ? 0 : status().downloadPayloadRate();
     }
 
     public long getUploadSpeed() {
-        return (!th.isValid() || (isFinished() && !isSeeding()) || isPaused()) ? 0 : th.status().uploadPayloadRate();
+        return (!th.isValid() || (isFinished() && !isSeeding()) || isPaused()) ? 0 : status().uploadPayloadRate();
     }
 
     @Override
@@ -296,7 +298,7 @@ public final class BTDownload implements BittorrentDownload {
     }
 
     public int getConnectedPeers() {
-        return th.isValid() ? th.status().numPeers() : 0;
+        return th.isValid() ? status().numPeers() : 0;
     }
 
     public TorrentHandle getTorrentHandle() {
@@ -304,15 +306,15 @@ public final class BTDownload implements BittorrentDownload {
     }
 
     public int getTotalPeers() {
-        return th.isValid() ? th.status().listPeers() : 0;
+        return th.isValid() ? status().listPeers() : 0;
     }
 
     public int getConnectedSeeds() {
-        return th.isValid() ? th.status().numSeeds() : 0;
+        return th.isValid() ? status().numSeeds() : 0;
     }
 
     public int getTotalSeeds() {
-        return th.isValid() ? th.status().listSeeds() : 0;
+        return th.isValid() ? status().listSeeds() : 0;
     }
 
     @Override
@@ -334,7 +336,7 @@ public final class BTDownload implements BittorrentDownload {
     }
 
     public String getInfoHash() {
-        return th.infoHash().toString();
+        return infoHash.toString();
     }
 
     @Override
@@ -350,7 +352,7 @@ public final class BTDownload implements BittorrentDownload {
         if (ti == null) {
             return 0;
         }
-        TorrentStatus status = th.status();
+        TorrentStatus status = status();
         long left = ti.totalSize() - status.totalDone();
         long rate = status.downloadPayloadRate();
         if (left <= 0) {
@@ -371,6 +373,7 @@ public final class BTDownload implements BittorrentDownload {
 
         th.unsetFlags(TorrentFlags.AUTO_MANAGED);
         th.pause();
+        engine.invalidateStatus(infoHash);
 
         doResumeData(true);
     }
@@ -384,6 +387,7 @@ public final class BTDownload implements BittorrentDownload {
 
         th.setFlags(TorrentFlags.AUTO_MANAGED);
         th.resume();
+        engine.invalidateStatus(infoHash);
 
         doResumeData(true);
     }
@@ -417,7 +421,7 @@ public final class BTDownload implements BittorrentDownload {
             }
         }
 
-        engine.resumeDataFile(infoHash).delete();
+        engine.removeResumeData(infoHash);
         engine.resumeTorrentFile(infoHash).delete();
     }
 
@@ -651,7 +655,7 @@ public final class BTDownload implements BittorrentDownload {
             return false;
         }
 
-        torrent_flags_t flags = th.status().flags();
+        torrent_flags_t flags = status().flags();
         return flags.and_(TorrentFlags.SEQUENTIAL_DOWNLOAD).nonZero();
     }
 
@@ -665,6 +669,7 @@ public final class BTDownload implements BittorrentDownload {
         } else {
             th.unsetFlags(TorrentFlags.SEQUENTIAL_DOWNLOAD);
         }
+        engine.invalidateStatus(infoHash);
     }
 
     public File partsFile() {
@@ -684,10 +689,9 @@ public final class BTDownload implements BittorrentDownload {
         try {
             if (th.isValid()) {
                 String infoHash = th.infoHash().toString();
-                File file = engine.resumeDataFile(infoHash);
                 entry e = add_torrent_params.write_resume_data(alert.swig().getParams());
                 e.dict().set(EXTRA_DATA_KEY, Entry.fromMap(extra).swig());
-                FileUtils.writeByteArrayToFile(file, Vectors.byte_vector2bytes(e.bencode()));
+                engine.writeResumeData(infoHash, Vectors.byte_vector2bytes(e.bencode()));
             }
         } catch (Throwable e) {
             LOG.warn("Error saving resume data", e);
@@ -715,9 +719,8 @@ public final class BTDownload implements BittorrentDownload {
         Map<String, String> map = new HashMap<>();
         try {
             String infoHash = getInfoHash();
-            File file = engine.resumeDataFile(infoHash);
-            if (file.exists()) {
-                byte[] arr = FileUtils.readFileToByteArray(file);
+            byte[] arr = engine.readResumeData(infoHash);
+            if (arr != null) {
                 entry e = entry.bdecode(Vectors.bytes2byte_vector(arr));
                 string_entry_map d = e.dict();
                 if (d.has_key(EXTRA_DATA_KEY)) {
@@ -755,6 +758,13 @@ public final class BTDownload implements BittorrentDownload {
         return flag;
     }
 
+    /**
+     * Returns the last status snapshot of this torrent, see {@link BTEngine#status(Sha1Hash, TorrentHandle, boolean)}.
+     */
+    private TorrentStatus status() {
+        return engine.status(infoHash, th, false);
+    }
+
     private static boolean isPaused(TorrentStatus s) {
         return s.flags().and_(TorrentFlags.PAUSED).nonZero();
     }
@@ -23,17 +23,22 @@ import com.frostwire.jlibtorrent.Priority;
 import com.frostwire.jlibtorrent.SessionManager;
 import com.frostwire.jlibtorrent.SessionParams;
 import com.frostwire.jlibtorrent.SettingsPack;
+import com.frostwire.jlibtorrent.Sha1Hash;
 import com.frostwire.jlibtorrent.TcpEndpoint;
 import com.frostwire.jlibtorrent.TorrentHandle;
 import com.frostwire.jlibtorrent.TorrentInfo;
+import com.frostwire.jlibtorrent.TorrentStatus;
 import com.frostwire.jlibtorrent.Vectors;
+import com.frostwire.jlibtorrent.alerts.AddTorrentAlert;
 import com.frostwire.jlibtorrent.alerts.Alert;
 import com.frostwire.jlibtorrent.alerts.AlertType;
 import com.frostwire.jlibtorrent.alerts.ExternalIpAlert;
 import com.frostwire.jlibtorrent.alerts.FastresumeRejectedAlert;
 import com.frostwire.jlibtorrent.alerts.ListenFailedAlert;
 import com.frostwire.jlibtorrent.alerts.ListenSucceededAlert;
+import com.frostwire.jlibtorrent.alerts.StateUpdateAlert;
 import com.frostwire.jlibtorrent.alerts.TorrentAlert;
+import com.frostwire.jlibtorrent.alerts.TorrentRemovedAlert;
 import com.frostwire.jlibtorrent.swig.bdecode_node;
 import com.frostwire.jlibtorrent.swig.byte_vector;
 import com.frostwire.jlibtorrent.swig.entry;
@@ -41,6 +46,7 @@ import com.frostwire.jlibtorrent.swig.error_code;
 import com.frostwire.jlibtorrent.swig.libtorrent;
 import com.frostwire.jlibtorrent.swig.session_params;
 import com.frostwire.jlibtorrent.swig.settings_pack;
+import com.frostwire.jlibtorrent.swig.torrent_status;
 import com.frostwire.platform.FileSystem;
 import com.frostwire.platform.Platforms;
 import com.frostwire.search.torrent.TorrentCrawledSearchResult;
@@ -55,6 +61,7 @@ import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.CountDownLatch;
 
 import static com.frostwire.jlibtorrent.alerts.AlertType.ADD_TORRENT;
@@ -64,7 +71,9 @@ import static com.frostwire.jlibtorrent.alerts.AlertType.FASTRESUME_REJECTED;
 import static com.frostwire.jlibtorrent.alerts.AlertType.LISTEN_FAILED;
 import static com.frostwire.jlibtorrent.alerts.AlertType.LISTEN_SUCCEEDED;
 import static com.frostwire.jlibtorrent.alerts.AlertType.PEER_LOG;
+import static com.frostwire.jlibtorrent.alerts.AlertType.STATE_UPDATE;
 import static com.frostwire.jlibtorrent.alerts.AlertType.TORRENT_LOG;
+import static com.frostwire.jlibtorrent.alerts.AlertType.TORRENT_REMOVED;
 
 /**
  * @author gubatron
@@ -81,6 +90,8 @@ public final class BTEngine extends SessionManager {
             EXTERNAL_IP.swig(),
             FASTRESUME_REJECTED.swig(),
             DHT_BOOTSTRAP.swig(),
+            STATE_UPDATE.swig(),
+            TORRENT_REMOVED.swig(),
             TORRENT_LOG.swig(),
             PEER_LOG.swig(),
             AlertType.LOG.swig()
@@ -92,10 +103,15 @@ public final class BTEngine extends SessionManager {
     // incompatible with the previous version, it should only happen from
     // time to time, not in every version
     private static final String STATE_VERSION_VALUE = "1.2.0.6";
+    private static final long STATUS_UPDATES_RESOLUTION_MILLIS = 1000;
     public static BTContext ctx;
 
     private final InnerListener innerListener;
     private final Queue<RestoreDownloadTask> restoreDownloadsQueue;
+    private final Map<Sha1Hash, TorrentStatus> statusSnapshots;
+    private long lastStatusUpdatesRequestTime;
+    private volatile RestoreDownloadsPipeline restorePipeline;
+    private ResumeDataStore resumeStore;
 
     private BTEngineListener listener;
     private final static CountDownLatch ctxSetupLatch = new CountDownLatch(1);
@@ -104,6 +120,7 @@ public final class BTEngine extends SessionManager {
         super(false);
         this.innerListener = new InnerListener();
         this.restoreDownloadsQueue = new LinkedList<>();
+        this.statusSnapshots = new ConcurrentHashMap<>();
     }
 
     private static class Loader {
@@ -198,6 +215,8 @@ public final class BTEngine extends SessionManager {
 
     @Override
     protected void onAfterStop() {
+        statusSnapshots.clear();
+        closeResumeStore();
         fireStopped();
     }
 
@@ -445,25 +464,9 @@ public final class BTEngine extends SessionManager {
 
         File[] torrents = ctx.homeDir.listFiles((dir, name) -> name != null && FilenameUtils.getExtension(name).toLowerCase().equals("torrent"));
 
-        if (torrents != null) {
-            for (File t : torrents) {
-                try {
-                    String infoHash = FilenameUtils.getBaseName(t.getName());
-                    if (infoHash != null) {
-                        File resumeFile = resumeDataFile(infoHash);
-
-                        File savePath = readSavePath(infoHash);
-                        if (setupSaveDir(savePath) == null) {
-                            LOG.warn("Can't create data dir or mount point is not accessible");
-                            return;
-                        }
-
-                        restoreDownloadsQueue.add(new RestoreDownloadTask(t, null, null, resumeFile));
-                    }
-                } catch (Throwable e) {
-                    LOG.error("Error restoring torrent download: " + t, e);
-                }
-            }
+        if (torrents != null && torrents.length > 0) {
+            restorePipeline = new RestoreDownloadsPipeline(this, torrents);
+            new Thread(restorePipeline, "BTEngine-restoreDownloads").start();
         }
 
         migrateVuzeDownloads();
@@ -471,6 +474,51 @@ public final class BTEngine extends SessionManager {
         runNextRestoreDownloadTask();
     }
 
+    /**
+     * Returns the last status snapshot of the torrent. The snapshots of all
+     * the torrents are refreshed in a single batch with post_torrent_updates,
+     * requested at most once per second, and only the torrents that changed
+     * since the previous request are reported back in the state update alert.
+     * <p>
+     * The native status is queried directly only the first time or when
+     * {@code force} is true.
+     *
+     * @param infoHash the torrent info hash
+     * @param th       the torrent handle
+     * @param force    query the native status and refresh the snapshot
+     * @return the status snapshot
+     */
+    TorrentStatus status(Sha1Hash infoHash, TorrentHandle th, boolean force) {
+        requestStatusUpdates();
+
+        TorrentStatus status = force ? null : statusSnapshots.get(infoHash);
+        if (status == null) {
+            status = th.status(true);
+            statusSnapshots.put(infoHash, status);
+        }
+        return status;
+    }
+
+    /**
+     * Discards the status snapshot of the torrent, used after an operation
+     * that changes the status and should be visible before the next update.
+     *
+     * @param infoHash the torrent info hash
+     */
+    void invalidateStatus(Sha1Hash infoHash) {
+        statusSnapshots.remove(infoHash);
+    }
+
+    private void requestStatusUpdates() {
+        long now = System.currentTimeMillis();
+        if ((now - lastStatusUpdatesRequestTime) >= STATUS_UPDATES_RESOLUTION_MILLIS) {
+            lastStatusUpdatesRequestTime = now;
+            if (swig() != null) {
+                postTorrentUpdates();
+            }
+        }
+    }
+
     File settingsFile() {
         return new File(ctx.homeDir, "settings.dat");
     }
@@ -483,36 +531,117 @@ public final class BTEngine extends SessionManager {
         return new File(ctx.torrentsDir, name + ".torrent");
     }
 
-    File resumeDataFile(String infoHash) {
-        return new File(ctx.homeDir, infoHash + ".resume");
+    File resumeStoreFile() {
+        return new File(ctx.homeDir, "resume.dat");
     }
 
-    File readTorrentPath(String infoHash) {
-        File torrent = null;
+    byte[] readResumeData(String infoHash) {
+        ResumeDataStore store = resumeStore();
+        if (store == null) {
+            return null;
+        }
+        try {
+            return store.get(infoHash);
+        } catch (Throwable e) {
+            LOG.warn("Error reading resume data: " + infoHash, e);
+            return null;
+        }
+    }
 
+    void writeResumeData(String infoHash, byte[] data) {
+        ResumeDataStore store = resumeStore();
+        if (store == null) {
+            return;
+        }
         try {
-            byte[] arr = FileUtils.readFileToByteArray(resumeTorrentFile(infoHash));
-            entry e = entry.bdecode(Vectors.bytes2byte_vector(arr));
-            torrent = new File(e.dict().get(TORRENT_ORIG_PATH_KEY).string());
+            store.put(infoHash, data);
         } catch (Throwable e) {
-            // can't recover original torrent path
+            LOG.warn("Error writing resume data: " + infoHash, e);
         }
+    }
 
-        return torrent;
+    void removeResumeData(String infoHash) {
+        ResumeDataStore store = resumeStore();
+        if (store == null) {
+            return;
+        }
+        try {
+            store.remove(infoHash);
+        } catch (Throwable e) {
+            LOG.warn("Error removing resume data: " + infoHash, e);
+        }
+    }
+
+    private synchronized ResumeDataStore resumeStore() {
+        if (resumeStore == null && ctx != null && ctx.homeDir != null) {
+            File file = resumeStoreFile();
+            try {
+                resumeStore = new ResumeDataStore(file);
+            } catch (Throwable e) {
+                LOG.error("Unable to open resume data store, starting a new one", e);
+                File corrupt = new File(file.getPath() + ".corrupt");
+                corrupt.delete();
+                if (!file.renameTo(corrupt)) {
+                    file.delete();
+                }
+                try {
+                    resumeStore = new ResumeDataStore(file);
+                } catch (Throwable e2) {
+                    LOG.error("Unable to create resume data store", e2);
+                    return null;
+                }
+            }
+            migrateResumeFiles(resumeStore);
+        }
+        return resumeStore;
+    }
+
+    private synchronized void closeResumeStore() {
+        if (resumeStore != null) {
+            resumeStore.close();
+            resumeStore = null;
+        }
+    }
+
+    /**
+     * Moves the resume data of the old one file per torrent layout
+     * into the store, the files are deleted once migrated.
+     */
+    private void migrateResumeFiles(ResumeDataStore store) {
+        File[] files = ctx.homeDir.listFiles((dir, name) -> name != null && FilenameUtils.getExtension(name).toLowerCase().equals("resume"));
+        if (files == null || files.length == 0) {
+            return;
+        }
+
+        int n = 0;
+        for (File f : files) {
+            try {
+                String infoHash = FilenameUtils.getBaseName(f.getName());
+                if (!store.contains(infoHash)) {
+                    store.put(infoHash, FileUtils.readFileToByteArray(f));
+                    n++;
+                }
+            } catch (Throwable e) {
+                LOG.warn("Error migrating resume file: " + f, e);
+                continue;
+            }
+            f.delete();
+        }
+        LOG.info("Migrated " + n + " resume files to the resume data store");
     }
 
-    File readSavePath(String infoHash) {
-        File savePath = null;
+    File readTorrentPath(String infoHash) {
+        File torrent = null;
 
         try {
-            byte[] arr = FileUtils.readFileToByteArray(resumeDataFile(infoHash));
+            byte[] arr = FileUtils.readFileToByteArray(resumeTorrentFile(infoHash));
             entry e = entry.bdecode(Vectors.bytes2byte_vector(arr));
-            savePath = new File(e.dict().get("save_path").string());
+            torrent = new File(e.dict().get(TORRENT_ORIG_PATH_KEY).string());
         } catch (Throwable e) {
             // can't recover original torrent path
         }
 
-        return savePath;
+        return torrent;
     }
 
     private void saveTorrent(TorrentInfo ti) {
@@ -568,6 +697,16 @@ public final class BTEngine extends SessionManager {
         }
     }
 
+    void fireRestoreProgress(int restored, int total) {
+        if (listener != null) {
+            try {
+                listener.restoreProgress(this, restored, total);
+            } catch (Throwable e) {
+                LOG.error("Error calling listener (restoreProgress)", e);
+            }
+        }
+    }
+
     private void fireDownloadAdded(TorrentAlert<?> alert) {
         try {
             TorrentHandle th = find(alert.handle().infoHash());
@@ -653,7 +792,7 @@ public final class BTEngine extends SessionManager {
         }
     }
 
-    private File setupSaveDir(File saveDir) {
+    File setupSaveDir(File saveDir) {
         File result = null;
 
         if (saveDir == null) {
@@ -745,6 +884,9 @@ public final class BTEngine extends SessionManager {
                 case ADD_TORRENT:
                     TorrentAlert<?> torrentAlert = (TorrentAlert<?>) alert;
                     fireDownloadAdded(torrentAlert);
+                    if (restorePipeline != null) {
+                        restorePipeline.torrentAdded(((AddTorrentAlert) alert).params().infoHash());
+                    }
                     runNextRestoreDownloadTask();
                     break;
                 case LISTEN_SUCCEEDED:
@@ -762,6 +904,12 @@ public final class BTEngine extends SessionManager {
                 case DHT_BOOTSTRAP:
                     onDhtBootstrap();
                     break;
+                case STATE_UPDATE:
+                    onStateUpdate((StateUpdateAlert) alert);
+                    break;
+                case TORRENT_REMOVED:
+                    invalidateStatus(((TorrentRemovedAlert) alert).infoHash());
+                    break;
                 case TORRENT_LOG:
                 case PEER_LOG:
                 case LOG:
@@ -791,6 +939,19 @@ public final class BTEngine extends SessionManager {
         }
     }
 
+    private void onStateUpdate(StateUpdateAlert alert) {
+        try {
+            for (TorrentStatus s : alert.status()) {
+                // the alert status objects are only valid while the
+                // alert is alive, keep a copy as the snapshot
+                TorrentStatus snapshot = new TorrentStatus(new torrent_status(s.swig()));
+                statusSnapshots.put(snapshot.infoHash(), snapshot);
+            }
+        } catch (Throwable e) {
+            LOG.error("Error updating torrents status snapshots", e);
+        }
+    }
+
     private void onDhtBootstrap() {
         //long nodes = stats().dhtNodes();
         //LOG.info("DHT bootstrap, total nodes=" + nodes);
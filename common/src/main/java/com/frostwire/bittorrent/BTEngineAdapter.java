@@ -39,4 +39,8 @@ public class BTEngineAdapter implements BTEngineListener {
     @Override
     public void downloadUpdate(BTEngine engine, BTDownload dl) {
     }
+
+    @Override
+    public void restoreProgress(BTEngine engine, int restored, int total) {
+    }
 }
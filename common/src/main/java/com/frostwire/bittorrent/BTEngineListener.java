@@ -31,4 +31,14 @@ public interface BTEngineListener {
     void downloadAdded(BTEngine engine, BTDownload dl);
 
     void downloadUpdate(BTEngine engine, BTDownload dl);
+
+    /**
+     * Called from the alerts thread as the downloads of the previous
+     * session are added back to the engine.
+     *
+     * @param engine   the engine
+     * @param restored the number of downloads restored so far
+     * @param total    the total number of downloads to restore
+     */
+    void restoreProgress(BTEngine engine, int restored, int total);
 }
@@ -0,0 +1,241 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.bittorrent;
+
+import com.frostwire.jlibtorrent.Sha1Hash;
+import com.frostwire.jlibtorrent.TorrentFlags;
+import com.frostwire.jlibtorrent.TorrentInfo;
+import com.frostwire.jlibtorrent.Vectors;
+import com.frostwire.jlibtorrent.swig.add_torrent_params;
+import com.frostwire.jlibtorrent.swig.error_code;
+import com.frostwire.jlibtorrent.swig.session;
+import com.frostwire.jlibtorrent.swig.torrent_flags_t;
+import com.frostwire.util.Logger;
+import com.frostwire.util.ThreadPool;
+import org.apache.commons.io.FilenameUtils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Restores the downloads of a previous session.
+ * <p>
+ * The torrent and resume files are read and decoded in a bounded pool
+ * of threads, then the torrents are added to the session with
+ * {@code async_add_torrent}, active unfinished torrents first, keeping
+ * at most {@link #MAX_PENDING_ADDS} adds in flight.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+final class RestoreDownloadsPipeline implements Runnable {
+
+    private static final Logger LOG = Logger.getLogger(RestoreDownloadsPipeline.class);
+
+    private static final int MAX_PREFETCH_THREADS = 4;
+    private static final int MAX_PENDING_ADDS = 50;
+    private static final long ADD_TIMEOUT_SECONDS = 10;
+
+    // restore order, lower first
+    private static final int RANK_ACTIVE = 0;
+    private static final int RANK_PAUSED = 1;
+    private static final int RANK_FINISHED = 2;
+
+    private final BTEngine engine;
+    private final File[] torrents;
+
+    private final Semaphore pendingAdds;
+    private final ConcurrentHashMap<Sha1Hash, Boolean> pending;
+    private final AtomicInteger restored;
+
+    private volatile int total;
+    private long startTime;
+    private long prefetchTime;
+
+    RestoreDownloadsPipeline(BTEngine engine, File[] torrents) {
+        this.engine = engine;
+        this.torrents = torrents;
+
+        this.pendingAdds = new Semaphore(MAX_PENDING_ADDS);
+        this.pending = new ConcurrentHashMap<>();
+        this.restored = new AtomicInteger();
+    }
+
+    @Override
+    public void run() {
+        startTime = System.currentTimeMillis();
+
+        List<RestoreItem> items = prefetch();
+        prefetchTime = System.currentTimeMillis() - startTime;
+
+        Collections.sort(items, (o1, o2) -> Integer.compare(o1.rank, o2.rank));
+        total = items.size();
+
+        if (total == 0) {
+            logMetrics();
+            return;
+        }
+
+        for (RestoreItem item : items) {
+            session s = engine.swig();
+            if (s == null) {
+                LOG.warn("Session stopped, restored " + restored.get() + " of " + total + " downloads");
+                return;
+            }
+
+            try {
+                if (!pendingAdds.tryAcquire(ADD_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+                    LOG.warn("Timeout waiting for pending torrent adds, continuing");
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            try {
+                pending.put(item.infoHash, Boolean.TRUE);
+                s.async_add_torrent(item.params);
+            } catch (Throwable e) {
+                pending.remove(item.infoHash);
+                pendingAdds.release();
+                LOG.error("Unable to restore download from previous session. (" + item.torrent.getAbsolutePath() + ")", e);
+            }
+        }
+    }
+
+    /**
+     * Called from the alerts thread for every added torrent.
+     *
+     * @param infoHash the info hash of the added torrent
+     */
+    void torrentAdded(Sha1Hash infoHash) {
+        if (infoHash == null || pending.remove(infoHash) == null) {
+            return;
+        }
+
+        pendingAdds.release();
+
+        int n = restored.incrementAndGet();
+        engine.fireRestoreProgress(n, total);
+
+        if (n == total) {
+            logMetrics();
+        }
+    }
+
+    private List<RestoreItem> prefetch() {
+        int threads = Math.min(MAX_PREFETCH_THREADS, Runtime.getRuntime().availableProcessors());
+        ExecutorService pool = ThreadPool.newThreadPool("BTEngine-restore", Math.max(threads, 1), true);
+
+        List<Future<RestoreItem>> futures = new ArrayList<>(torrents.length);
+        for (final File t : torrents) {
+            futures.add(pool.submit(() -> prefetch(t)));
+        }
+
+        List<RestoreItem> items = new ArrayList<>(torrents.length);
+        for (int i = 0; i < futures.size(); i++) {
+            try {
+                RestoreItem item = futures.get(i).get();
+                if (item != null) {
+                    items.add(item);
+                }
+            } catch (Throwable e) {
+                LOG.error("Error restoring torrent download: " + torrents[i], e);
+            }
+        }
+
+        pool.shutdown();
+
+        return items;
+    }
+
+    private RestoreItem prefetch(File torrent) throws Exception {
+        String infoHash = FilenameUtils.getBaseName(torrent.getName());
+        if (infoHash == null) {
+            return null;
+        }
+
+        TorrentInfo ti = new TorrentInfo(torrent);
+
+        add_torrent_params p = null;
+        byte[] data = engine.readResumeData(infoHash);
+        if (data != null) {
+            error_code ec = new error_code();
+            p = add_torrent_params.read_resume_data(Vectors.bytes2byte_vector(data), ec);
+            if (ec.value() != 0) {
+                LOG.warn("Unable to read the resume data: " + infoHash + ", error: " + ec.message());
+                p = null;
+            }
+        }
+
+        int rank = RANK_PAUSED;
+        if (p != null) {
+            torrent_flags_t flags = p.getFlags();
+            if (p.getCompleted_time() > 0) {
+                rank = RANK_FINISHED;
+            } else if (!flags.and_(TorrentFlags.PAUSED).nonZero()) {
+                rank = RANK_ACTIVE;
+            }
+        } else {
+            p = add_torrent_params.create_instance();
+        }
+
+        String path = p.getSave_path();
+        File savePath = engine.setupSaveDir(path != null && !path.isEmpty() ? new File(path) : null);
+        if (savePath == null) {
+            LOG.warn("Can't create data dir or mount point is not accessible, skipping: " + torrent);
+            return null;
+        }
+
+        p.set_ti(ti.swig());
+        p.setInfo_hash(ti.swig().info_hash());
+        p.setSave_path(savePath.getAbsolutePath());
+        p.setFlags(p.getFlags().and_(TorrentFlags.AUTO_MANAGED.inv()));
+
+        return new RestoreItem(torrent, ti.infoHash(), p, rank);
+    }
+
+    private void logMetrics() {
+        long totalTime = System.currentTimeMillis() - startTime;
+        LOG.info("Restored " + restored.get() + " of " + torrents.length + " downloads in " + totalTime +
+                " ms (prefetch: " + prefetchTime + " ms, add: " + (totalTime - prefetchTime) + " ms)");
+    }
+
+    private static final class RestoreItem {
+
+        final File torrent;
+        final Sha1Hash infoHash;
+        final add_torrent_params params;
+        final int rank;
+
+        RestoreItem(File torrent, Sha1Hash infoHash, add_torrent_params params, int rank) {
+            this.torrent = torrent;
+            this.infoHash = infoHash;
+            this.params = params;
+            this.rank = rank;
+        }
+    }
+}
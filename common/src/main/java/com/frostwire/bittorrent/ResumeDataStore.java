@@ -0,0 +1,490 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.bittorrent;
+
+import com.frostwire.util.Logger;
+import com.frostwire.util.ThreadPool;
+
+import java.io.BufferedInputStream;
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, checksummed key/value log used to keep the resume data
+ * of all the torrents in a single file.
+ * <p>
+ * Every put or remove appends one record, the latest record of a key
+ * wins. Each record has a CRC32 of its payload, so a torn write at the
+ * end of the log (crash in the middle of a write) is detected and
+ * truncated when the log is opened. When the obsolete records take
+ * more space than the live ones, the log is compacted in a background
+ * thread, at most once per minute, into a new file that atomically
+ * replaces the old one. Writes are not blocked while the live records
+ * are copied.
+ * <p>
+ * Record layout: {@code [int payloadLength][int crc32][byte op][short keyLength][key][value]}.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+final class ResumeDataStore {
+
+    private static final Logger LOG = Logger.getLogger(ResumeDataStore.class);
+
+    private static final int MAGIC = 0x46575244; // FWRD
+    private static final int VERSION = 1;
+    private static final int FILE_HEADER_SIZE = 8;
+    private static final int RECORD_HEADER_SIZE = 8;
+
+    private static final byte OP_PUT = 1;
+    private static final byte OP_REMOVE = 2;
+
+    private static final long MIN_COMPACTION_SIZE = 1024 * 1024; // 1MB
+    private static final long SYNC_INTERVAL_MILLIS = 5000;
+    private static final long COMPACTION_INTERVAL_MILLIS = 60 * 1000;
+
+    private static final ExecutorService COMPACTION_POOL = ThreadPool.newThreadPool("ResumeData-compaction", 1, true);
+
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+
+    private final File file;
+    private final File tmpFile;
+
+    private final Map<String, Entry> index;
+
+    private RandomAccessFile raf;
+    private FileChannel channel;
+    private long liveBytes;
+    private long lastSyncTime;
+    private long lastCompactionTime;
+    private boolean compactionScheduled;
+    private boolean compacting;
+
+    ResumeDataStore(File file) throws IOException {
+        this.file = file;
+        this.tmpFile = new File(file.getPath() + ".tmp");
+        this.index = new HashMap<>();
+
+        recoverInterruptedCompaction();
+        open();
+    }
+
+    synchronized byte[] get(String key) throws IOException {
+        Entry e = index.get(key);
+        if (e == null) {
+            return null;
+        }
+
+        return read(channel, e);
+    }
+
+    synchronized void put(String key, byte[] value) throws IOException {
+        long offset = append(OP_PUT, key, value);
+
+        Entry old = index.put(key, new Entry(offset, key, value.length));
+        if (old != null) {
+            liveBytes -= old.recordSize();
+        }
+        liveBytes += recordSize(key, value.length);
+
+        afterWrite();
+    }
+
+    synchronized void remove(String key) throws IOException {
+        Entry old = index.remove(key);
+        if (old == null) {
+            return;
+        }
+
+        append(OP_REMOVE, key, new byte[0]);
+        liveBytes -= old.recordSize();
+
+        afterWrite();
+    }
+
+    synchronized boolean contains(String key) {
+        return index.containsKey(key);
+    }
+
+    synchronized Set<String> keys() {
+        return new HashSet<>(index.keySet());
+    }
+
+    synchronized int size() {
+        return index.size();
+    }
+
+    synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+        } catch (Throwable e) {
+            LOG.warn("Error syncing resume data log", e);
+        }
+        closeQuietly(raf);
+        raf = null;
+        channel = null;
+    }
+
+    /**
+     * Rewrites the log with only the live records.
+     * <p>
+     * The live records are copied without holding the lock, the records
+     * appended meanwhile are copied as they are before replacing the log.
+     */
+    void compact() throws IOException {
+        Map<String, Entry> snapshot;
+        FileChannel source;
+        long snapshotSize;
+        synchronized (this) {
+            if (channel == null || compacting) {
+                return;
+            }
+            compacting = true;
+            snapshot = new HashMap<>(index);
+            source = channel;
+            snapshotSize = channel.size();
+        }
+
+        RandomAccessFile out = null;
+        try {
+            out = new RandomAccessFile(tmpFile, "rw");
+            out.setLength(0);
+            FileChannel outChannel = out.getChannel();
+            writeFully(outChannel, fileHeader());
+
+            Map<String, Entry> compacted = new HashMap<>(snapshot.size());
+            for (Entry e : snapshot.values()) {
+                byte[] value = read(source, e);
+                ByteBuffer record = record(OP_PUT, e.key, value);
+                long offset = outChannel.position() + record.remaining() - value.length;
+                writeFully(outChannel, record);
+                compacted.put(e.key, new Entry(offset, e.key, value.length));
+            }
+
+            synchronized (this) {
+                if (channel != source) {
+                    // closed in the meantime
+                    return;
+                }
+
+                // records appended during the copy, if any
+                long tailOffset = outChannel.position();
+                long tailSize = channel.size() - snapshotSize;
+                long n = 0;
+                while (n < tailSize) {
+                    n += channel.transferTo(snapshotSize + n, tailSize - n, outChannel);
+                }
+                outChannel.force(true);
+                closeQuietly(out);
+                out = null;
+
+                Map<String, Entry> newIndex = new HashMap<>(index.size());
+                for (Entry e : index.values()) {
+                    if (snapshot.get(e.key) == e) {
+                        newIndex.put(e.key, compacted.get(e.key));
+                    } else {
+                        newIndex.put(e.key, new Entry(e.valueOffset - snapshotSize + tailOffset, e.key, e.valueLength));
+                    }
+                }
+
+                replace(newIndex);
+            }
+        } catch (ClosedChannelException e) {
+            // closed in the meantime
+        } finally {
+            closeQuietly(out);
+            tmpFile.delete();
+            synchronized (this) {
+                compacting = false;
+                compactionScheduled = false;
+                lastCompactionTime = System.currentTimeMillis();
+            }
+        }
+    }
+
+    /**
+     * Moves the compacted file over the log, the log is reopened even
+     * if the move fails.
+     */
+    private void replace(Map<String, Entry> newIndex) throws IOException {
+        closeQuietly(raf);
+        raf = null;
+        channel = null;
+
+        boolean replaced = false;
+        try {
+            moveAtomically(tmpFile, file);
+            replaced = true;
+        } finally {
+            raf = new RandomAccessFile(file, "rw");
+            channel = raf.getChannel();
+            channel.position(channel.size());
+
+            if (replaced) {
+                index.clear();
+                index.putAll(newIndex);
+            }
+            lastSyncTime = System.currentTimeMillis();
+        }
+    }
+
+    private void open() throws IOException {
+        raf = new RandomAccessFile(file, "rw");
+        channel = raf.getChannel();
+
+        if (channel.size() < FILE_HEADER_SIZE) {
+            channel.truncate(0);
+            writeFully(channel, fileHeader());
+            channel.force(true);
+            return;
+        }
+
+        long validSize = load();
+        if (validSize < channel.size()) {
+            LOG.warn("Truncating resume data log with a torn or corrupted tail, valid bytes: " + validSize + ", file size: " + channel.size());
+            channel.truncate(validSize);
+        }
+        channel.position(validSize);
+    }
+
+    /**
+     * Reads the log and builds the index.
+     *
+     * @return the size of the valid prefix of the log
+     */
+    private long load() throws IOException {
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file), 64 * 1024));
+        try {
+            if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+                throw new IOException("Unknown resume data log format: " + file);
+            }
+
+            long position = FILE_HEADER_SIZE;
+            long fileSize = channel.size();
+            CRC32 crc = new CRC32();
+
+            while (position + RECORD_HEADER_SIZE <= fileSize) {
+                int length = in.readInt();
+                int checksum = in.readInt();
+                if (length < 3 || position + RECORD_HEADER_SIZE + length > fileSize) {
+                    break;
+                }
+
+                byte[] payload = new byte[length];
+                in.readFully(payload);
+
+                crc.reset();
+                crc.update(payload, 0, length);
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+
+                byte op = payload[0];
+                int keyLength = ((payload[1] & 0xFF) << 8) | (payload[2] & 0xFF);
+                if (3 + keyLength > length) {
+                    break;
+                }
+                String key = new String(payload, 3, keyLength, UTF_8);
+                int valueLength = length - 3 - keyLength;
+
+                if (op == OP_PUT) {
+                    long valueOffset = position + RECORD_HEADER_SIZE + 3 + keyLength;
+                    Entry old = index.put(key, new Entry(valueOffset, key, valueLength));
+                    if (old != null) {
+                        liveBytes -= old.recordSize();
+                    }
+                    liveBytes += recordSize(key, valueLength);
+                } else if (op == OP_REMOVE) {
+                    Entry old = index.remove(key);
+                    if (old != null) {
+                        liveBytes -= old.recordSize();
+                    }
+                } else {
+                    break;
+                }
+
+                position += RECORD_HEADER_SIZE + length;
+            }
+
+            return position;
+        } catch (EOFException e) {
+            throw new IOException("Resume data log header is truncated: " + file, e);
+        } finally {
+            closeQuietly(in);
+        }
+    }
+
+    private long append(byte op, String key, byte[] value) throws IOException {
+        if (channel == null) {
+            throw new IOException("Resume data log is closed");
+        }
+
+        ByteBuffer record = record(op, key, value);
+        long position = channel.size();
+        channel.position(position);
+        writeFully(channel, record);
+
+        return position + RECORD_HEADER_SIZE + 3 + key.getBytes(UTF_8).length;
+    }
+
+    private void afterWrite() throws IOException {
+        long now = System.currentTimeMillis();
+        long size = channel.size();
+        if (size > MIN_COMPACTION_SIZE && size - FILE_HEADER_SIZE > 2 * liveBytes &&
+                !compactionScheduled && now - lastCompactionTime >= COMPACTION_INTERVAL_MILLIS) {
+            // not in the caller thread, puts come from the libtorrent alerts thread
+            compactionScheduled = true;
+            COMPACTION_POOL.execute(() -> {
+                try {
+                    compact();
+                } catch (Throwable e) {
+                    LOG.warn("Error compacting resume data log", e);
+                }
+            });
+        }
+
+        if (now - lastSyncTime >= SYNC_INTERVAL_MILLIS) {
+            channel.force(false);
+            lastSyncTime = now;
+        }
+    }
+
+    private void recoverInterruptedCompaction() {
+        if (tmpFile.exists()) {
+            if (!file.exists()) {
+                // the compacted file was complete but not renamed yet
+                if (!tmpFile.renameTo(file)) {
+                    LOG.warn("Unable to recover compacted resume data log: " + tmpFile);
+                }
+            } else {
+                tmpFile.delete();
+            }
+        }
+    }
+
+    private static byte[] read(FileChannel channel, Entry e) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(e.valueLength);
+        long position = e.valueOffset;
+        while (buffer.hasRemaining()) {
+            int n = channel.read(buffer, position);
+            if (n < 0) {
+                throw new EOFException("Unexpected end of resume data log");
+            }
+            position += n;
+        }
+        return buffer.array();
+    }
+
+    private static void moveAtomically(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } catch (LinkageError e) {
+            // no java.nio.file in old Android versions, rename(2) replaces the target atomically there
+            if (!source.renameTo(target)) {
+                throw new IOException("Unable to move " + source + " to " + target);
+            }
+        }
+    }
+
+    private static ByteBuffer fileHeader() {
+        ByteBuffer b = ByteBuffer.allocate(FILE_HEADER_SIZE);
+        b.putInt(MAGIC);
+        b.putInt(VERSION);
+        b.flip();
+        return b;
+    }
+
+    private static ByteBuffer record(byte op, String key, byte[] value) {
+        byte[] k = key.getBytes(UTF_8);
+        if (k.length > 0xFFFF) {
+            throw new IllegalArgumentException("Key too long");
+        }
+        int length = 3 + k.length + value.length;
+
+        ByteBuffer b = ByteBuffer.allocate(RECORD_HEADER_SIZE + length);
+        b.putInt(length);
+        b.putInt(0); // checksum placeholder
+        b.put(op);
+        b.putShort((short) k.length);
+        b.put(k);
+        b.put(value);
+
+        CRC32 crc = new CRC32();
+        crc.update(b.array(), RECORD_HEADER_SIZE, length);
+        b.putInt(4, (int) crc.getValue());
+
+        b.flip();
+        return b;
+    }
+
+    private static long recordSize(String key, int valueLength) {
+        return RECORD_HEADER_SIZE + 3 + key.getBytes(UTF_8).length + valueLength;
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static void closeQuietly(java.io.Closeable c) {
+        if (c != null) {
+            try {
+                c.close();
+            } catch (Throwable e) {
+                // ignore
+            }
+        }
+    }
+
+    private static final class Entry {
+
+        final long valueOffset;
+        final String key;
+        final int valueLength;
+
+        Entry(long valueOffset, String key, int valueLength) {
+            this.valueOffset = valueOffset;
+            this.key = key;
+            this.valueLength = valueLength;
+        }
+
+        long recordSize() {
+            return ResumeDataStore.recordSize(key, valueLength);
+        }
+    }
+}
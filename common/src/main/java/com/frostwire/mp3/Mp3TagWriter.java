@@ -0,0 +1,129 @@
+package com.frostwire.mp3;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileChannel;
+
+/**
+ * Replaces the tags of an mp3 file without scanning the mpeg frames like
+ * {@link Mp3File} does. Everything between the ID3v2 tag and the ID3v1 tag
+ * is taken as audio and left untouched.
+ */
+public final class Mp3TagWriter {
+
+	private Mp3TagWriter() {
+	}
+
+	/**
+	 * Rewrites the tags in place, only possible if the file already has an
+	 * ID3v2 tag with room enough for the new one, the rest is filled with padding.
+	 *
+	 * @return false if the new tag doesn't fit, the file is not modified in that case
+	 */
+	public static boolean update(String filename, ID3v2 id3v2Tag, ID3v1 id3v1Tag) throws IOException, NotSupportedException {
+		RandomAccessFile file = new RandomAccessFile(filename, "rw");
+		try {
+			int tagLength = id3v2Length(file);
+			if (id3v2Tag == null || tagLength == 0 || id3v2Tag.hasFooter()) {
+				return false;
+			}
+			byte[] bytes = id3v2Tag.toBytes();
+			if (bytes.length > tagLength) {
+				return false;
+			}
+
+			byte[] tag = new byte[tagLength];
+			System.arraycopy(bytes, 0, tag, 0, bytes.length);
+			BufferTools.packSynchsafeInteger(tagLength - AbstractID3v2Tag.HEADER_LENGTH, tag, AbstractID3v2Tag.DATA_LENGTH_OFFSET);
+			file.seek(0);
+			file.write(tag);
+
+			long audioEnd = audioEnd(file);
+			if (id3v1Tag != null) {
+				file.seek(audioEnd);
+				file.write(id3v1Tag.toBytes());
+				file.setLength(audioEnd + ID3v1Tag.TAG_LENGTH);
+			} else {
+				file.setLength(audioEnd);
+			}
+			return true;
+		} finally {
+			file.close();
+		}
+	}
+
+	/**
+	 * Writes a copy of the file with the new tags, the audio is moved in a
+	 * single {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)} pass.
+	 */
+	public static void save(String filename, String newFilename, ID3v2 id3v2Tag, ID3v1 id3v1Tag) throws IOException, NotSupportedException {
+		if (filename.compareToIgnoreCase(newFilename) == 0) {
+			throw new IllegalArgumentException("Save filename same as source filename");
+		}
+		RandomAccessFile file = new RandomAccessFile(filename, "r");
+		try {
+			RandomAccessFile saveFile = new RandomAccessFile(newFilename, "rw");
+			try {
+				saveFile.setLength(0);
+				if (id3v2Tag != null) {
+					saveFile.write(id3v2Tag.toBytes());
+				}
+
+				FileChannel in = file.getChannel();
+				FileChannel out = saveFile.getChannel();
+				long position = id3v2Length(file);
+				long end = audioEnd(file);
+				out.position(saveFile.getFilePointer());
+				while (position < end) {
+					long n = in.transferTo(position, end - position, out);
+					if (n <= 0) {
+						throw new IOException("Unable to copy mpeg frames");
+					}
+					position += n;
+				}
+
+				if (id3v1Tag != null) {
+					saveFile.write(id3v1Tag.toBytes());
+				}
+			} finally {
+				saveFile.close();
+			}
+		} finally {
+			file.close();
+		}
+	}
+
+	static int id3v2Length(RandomAccessFile file) throws IOException {
+		byte[] bytes = new byte[AbstractID3v2Tag.HEADER_LENGTH];
+		file.seek(0);
+		if (file.read(bytes, 0, bytes.length) < bytes.length) {
+			return 0;
+		}
+		try {
+			ID3v2TagFactory.sanityCheckTag(bytes);
+		} catch (NoSuchTagException | UnsupportedTagException e) {
+			return 0;
+		}
+		int length = AbstractID3v2Tag.HEADER_LENGTH + BufferTools.unpackSynchsafeInteger(bytes[AbstractID3v2Tag.DATA_LENGTH_OFFSET], bytes[AbstractID3v2Tag.DATA_LENGTH_OFFSET + 1], bytes[AbstractID3v2Tag.DATA_LENGTH_OFFSET + 2], bytes[AbstractID3v2Tag.DATA_LENGTH_OFFSET + 3]);
+		if ((bytes[AbstractID3v2Tag.FLAGS_OFFSET] & (1 << AbstractID3v2Tag.FOOTER_BIT)) != 0) {
+			length += AbstractID3v2Tag.FOOTER_LENGTH;
+		}
+		return (int) Math.min(length, file.length());
+	}
+
+	static long audioEnd(RandomAccessFile file) throws IOException {
+		long length = file.length();
+		if (length < ID3v1Tag.TAG_LENGTH) {
+			return length;
+		}
+		byte[] bytes = new byte[ID3v1Tag.TAG_LENGTH];
+		file.seek(length - ID3v1Tag.TAG_LENGTH);
+		file.readFully(bytes);
+		try {
+			new ID3v1Tag(bytes);
+			return length - ID3v1Tag.TAG_LENGTH;
+		} catch (NoSuchTagException e) {
+			return length;
+		}
+	}
+}
@@ -56,6 +56,11 @@ final class IO {
             throw new IllegalArgumentException("len argument must be > 0");
         }
 
+        if (ch.isFile()) {
+            ch.skip(len);
+            return;
+        }
+
         int size = buf.clear().capacity();
         long a = len / size;
         int b = (int) (len % size);
@@ -119,6 +124,12 @@ final class IO {
             throw new IllegalArgumentException("len argument must be > 0");
         }
 
+        // media data between files, no need to bring it up to the heap
+        if (src.isFile() && dst.isFile()) {
+            src.transferTo(dst, len);
+            return;
+        }
+
         int size = buf.clear().capacity();
         long a = len / size;
         int b = (int) (len % size);
@@ -17,8 +17,10 @@
 
 package com.frostwire.mp4;
 
+import java.io.EOFException;
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.ReadableByteChannel;
 
 /**
@@ -39,6 +41,53 @@ final class InputChannel implements ReadableByteChannel {
         return count;
     }
 
+    /**
+     * Returns true if the channel is backed by a file, a requirement for
+     * {@link #transferTo(OutputChannel, long)} and {@link #skip(long)}.
+     */
+    boolean isFile() {
+        return ch instanceof FileChannel;
+    }
+
+    /**
+     * Copies {@code len} bytes to {@code dst} without passing them through
+     * the java heap, the kernel moves them directly when it can. The output
+     * must be backed by a file too.
+     */
+    void transferTo(OutputChannel dst, long len) throws IOException {
+        FileChannel fc = (FileChannel) ch;
+        long position = fc.position();
+        long end = position + len;
+        try {
+            while (position < end) {
+                long n = dst.transferFrom(fc, position, end - position);
+                if (n <= 0 && position >= fc.size()) {
+                    throw new EOFException();
+                }
+                position += n;
+                count += n;
+            }
+        } finally {
+            fc.position(position);
+        }
+    }
+
+    /**
+     * Moves the position {@code len} bytes forward without reading them, with
+     * an {@link EOFException} if that goes past the end of the file.
+     */
+    void skip(long len) throws IOException {
+        FileChannel fc = (FileChannel) ch;
+        long position = fc.position();
+        long size = fc.size();
+        long n = Math.min(len, Math.max(0, size - position));
+        fc.position(position + n);
+        count += n;
+        if (n < len) {
+            throw new EOFException();
+        }
+    }
+
     @Override
     public int read(ByteBuffer dst) throws IOException {
         int n = ch.read(dst);
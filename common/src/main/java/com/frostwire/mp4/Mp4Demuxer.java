@@ -22,6 +22,8 @@ import java.io.File;
 import java.io.IOException;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
 import java.util.LinkedList;
 import java.util.ListIterator;
 
@@ -77,6 +79,156 @@ public final class Mp4Demuxer {
         }
     }
 
+    /**
+     * Merges fragmented (DASH) inputs into a fragmented output, one moof/mdat
+     * pair at a time as the inputs are read, only the fragments being copied
+     * are kept in memory. Unlike {@link #muxFragments(File, File, File, Mp4Info, DemuxerListener)}
+     * the sample tables are not rebuilt, so the output is never sought back.
+     */
+    public static void muxFragmented(File video, File audio, File output, Mp4Info inf, DemuxerListener l) throws IOException {
+        RandomAccessFile v_in = new RandomAccessFile(video, "r");
+        RandomAccessFile a_in = new RandomAccessFile(audio, "r");
+        RandomAccessFile out = new RandomAccessFile(output, "rw");
+
+        out.setLength(0);
+
+        try {
+            muxFragmented(new ReadableByteChannel[]{v_in.getChannel(), a_in.getChannel()}, out.getChannel(), inf, l);
+        } finally {
+            IO.close(v_in);
+            IO.close(a_in);
+            IO.close(out);
+        }
+    }
+
+    /**
+     * Same as {@link #muxFragmented(File, File, File, Mp4Info, DemuxerListener)}, the
+     * channels can be sequential, for instance a download in progress, and each one
+     * must contain a single track. An input ends when no other fragment header
+     * can be read from it.
+     */
+    public static void muxFragmented(ReadableByteChannel[] inputs, WritableByteChannel output, Mp4Info inf, DemuxerListener l) throws IOException {
+        int n = inputs.length;
+        InputChannel[] ins = new InputChannel[n];
+        for (int i = 0; i < n; i++) {
+            ins[i] = new InputChannel(inputs[i]);
+        }
+        OutputChannel out = new OutputChannel(output);
+        ByteBuffer buf = ByteBuffer.allocate(100 * 1024);
+
+        LinkedList<Box> boxes = new LinkedList<>();
+
+        FileTypeBox ftyp = new FileTypeBox();
+        ftyp.major_brand = inf.majorBrand;
+        ftyp.minor_version = 0;
+        ftyp.compatible_brands = inf.compatibleBrands;
+        boxes.add(ftyp);
+
+        MovieBox moov = new MovieBox();
+        MovieExtendsBox mvex = new MovieExtendsBox();
+        for (int i = 0; i < n; i++) {
+            Box b = readUntil(ins[i], Box.moov, buf);
+            if (b == null || b.type != Box.moov) {
+                throw new IOException("Movie header not found in input " + i);
+            }
+
+            if (i == 0) {
+                MovieHeaderBox mvhd = b.findFirst(Box.mvhd);
+                mvhd.next_track_ID = n + 1;
+                moov.boxes.add(mvhd);
+            }
+
+            TrackBox trak = b.findFirst(Box.trak);
+            TrackHeaderBox tkhd = trak.findFirst(Box.tkhd);
+            tkhd.trackId(i + 1);
+            tkhd.enabled(true);
+            tkhd.inMovie(true);
+            tkhd.inPreview(true);
+            tkhd.inPoster(true);
+            MediaHeaderBox mdhd = trak.findFirst(Box.mdhd);
+            mdhd.language("eng");
+            moov.boxes.add(trak);
+
+            TrackExtendsBox trex = b.findFirst(Box.trex);
+            trex.track_ID = i + 1;
+            mvex.boxes.add(trex);
+        }
+        moov.boxes.add(mvex);
+
+        UserDataBox udta = createUdta(inf);
+        moov.boxes.add(udta);
+        boxes.add(moov);
+
+        ContainerBox.length(boxes); // this update the boxes
+        IsoMedia.write(out, boxes, buf, IsoMedia.OnBoxListener.ALL);
+
+        boolean[] ended = new boolean[n];
+        int active = n;
+        int sequenceNumber = 1;
+
+        while (active > 0) {
+            long readCount = 0;
+
+            for (int i = 0; i < n; i++) {
+                if (!ended[i]) {
+                    if (copyFragment(ins[i], out, i + 1, sequenceNumber, buf)) {
+                        sequenceNumber++;
+                    } else {
+                        ended[i] = true;
+                        active--;
+                    }
+                }
+                readCount += ins[i].count();
+            }
+
+            notifyCount(l, readCount);
+        }
+    }
+
+    private static boolean copyFragment(InputChannel in, OutputChannel out, int trackId, int sequenceNumber, ByteBuffer buf) throws IOException {
+        long moofPosition;
+        MovieFragmentBox moof;
+        MediaDataBox mdat;
+        try {
+            Box b;
+            do {
+                moofPosition = in.count();
+                b = readNext(in, buf);
+            } while (b.type != Box.moof);
+            moof = (MovieFragmentBox) b;
+
+            // the sample data offsets are relative to the moof
+            b = readNext(in, buf);
+            if (b.type != Box.mdat) {
+                throw new IOException("Media data not found right after fragment header");
+            }
+            mdat = (MediaDataBox) b;
+        } catch (EOFException e) {
+            return false;
+        }
+
+        MovieFragmentHeaderBox mfhd = moof.findFirst(Box.mfhd);
+        mfhd.sequence_number = sequenceNumber;
+        for (TrackFragmentHeaderBox tfhd : moof.<TrackFragmentHeaderBox>find(Box.tfhd)) {
+            tfhd.track_ID = trackId;
+            if (tfhd.baseDataOffsetPresent()) {
+                tfhd.base_data_offset += out.count() - moofPosition;
+            }
+        }
+
+        LinkedList<Box> boxes = new LinkedList<>();
+        boxes.add(moof);
+        boxes.add(mdat);
+        IsoMedia.write(out, boxes, buf, null);
+
+        long length = mdat.length();
+        if (length > 0) {
+            IO.copy(in, out, length, buf);
+        }
+
+        return true;
+    }
+
     private static void trackSimple(int id, RandomAccessFile input, RandomAccessFile output, Mp4Info inf, ByteBuffer buf, final DemuxerListener l) throws IOException {
         int trackId = id;
         final InputChannel in = new InputChannel(input.getChannel());
@@ -176,8 +328,10 @@ public final class Mp4Demuxer {
                 // we are at the end with no more data to copy
                 continue;
             }
-            IO.skip(in, skp, buf);
-            notifyCount(l, in.count());
+            if (skp > 0) {
+                IO.skip(in, skp, buf);
+                notifyCount(l, in.count());
+            }
 
             IO.copy(in, out, chunkSize[i], buf);
             notifyCount(l, in.count());
@@ -19,6 +19,7 @@ package com.frostwire.mp4;
 
 import java.io.IOException;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
 import java.nio.channels.WritableByteChannel;
 
 /**
@@ -39,6 +40,22 @@ final class OutputChannel implements WritableByteChannel {
         return count;
     }
 
+    boolean isFile() {
+        return ch instanceof FileChannel;
+    }
+
+    /**
+     * Writes up to {@code len} bytes of {@code src} starting at {@code position},
+     * see {@link FileChannel#transferTo(long, long, WritableByteChannel)}.
+     */
+    long transferFrom(FileChannel src, long position, long len) throws IOException {
+        long n = src.transferTo(position, len, ch);
+        if (n > 0) {
+            count += n;
+        }
+        return n;
+    }
+
     @Override
     public int write(ByteBuffer src) throws IOException {
         int n = ch.write(src);
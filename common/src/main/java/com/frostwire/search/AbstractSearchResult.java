@@ -28,6 +28,12 @@ public abstract class AbstractSearchResult implements SearchResult {
 
     private int uid = -1;
 
+    // texts derived from the result, cached like the uid since they don't change,
+    // see KeywordFilter, SearchText and ResultMerger
+    String keywordHaystack;
+    String searchText;
+    String mergeKey;
+
     @Override
     public License getLicense() {
         return Licenses.UNKNOWN;
@@ -35,10 +35,10 @@ public abstract class CrawlPagedWebSearchPerformer<T extends CrawlableSearchResu
     private static final Logger LOG = Logger.getLogger(CrawlPagedWebSearchPerformer.class);
 
     private static final int DEFAULT_CRAWL_TIMEOUT = 10000; // 10 seconds.
-    private static final int FAILED_CRAWL_URL_CACHE_LIFETIME = 600000; // 10 minutes.
     private static final int DEFAULT_MAGNET_DOWNLOAD_TIMEOUT_SECS = 20; // 20 seconds.
+    private static final long DEFAULT_MEMORY_CACHE_SIZE = 8 * 1024 * 1024; // 8MB
 
-    private static CrawlCache cache = null;
+    private static volatile MemoryCrawlCache cache = null;
     private static MagnetDownloader magnetDownloader = null;
 
     private int numCrawls;
@@ -59,8 +59,23 @@ public abstract class CrawlPagedWebSearchPerformer<T extends CrawlableSearchResu
         this.numCrawls = numCrawls;
     }
 
-    public static void setCache(CrawlCache cache) {
-        CrawlPagedWebSearchPerformer.cache = cache;
+    /**
+     * Sets the crawl cache, if it's not already a {@link MemoryCrawlCache}
+     * it's wrapped in one with the default memory size. The writer of the
+     * previous cache is stopped.
+     *
+     * @param cache the crawl cache
+     */
+    public static synchronized void setCache(CrawlCache cache) {
+        MemoryCrawlCache old = CrawlPagedWebSearchPerformer.cache;
+        if (cache == null || cache instanceof MemoryCrawlCache) {
+            CrawlPagedWebSearchPerformer.cache = (MemoryCrawlCache) cache;
+        } else {
+            CrawlPagedWebSearchPerformer.cache = new MemoryCrawlCache(cache, DEFAULT_MEMORY_CACHE_SIZE);
+        }
+        if (old != null && old != CrawlPagedWebSearchPerformer.cache) {
+            old.shutdown();
+        }
     }
 
     public static MagnetDownloader getMagnetDownloader() {
@@ -83,18 +98,11 @@ public abstract class CrawlPagedWebSearchPerformer<T extends CrawlableSearchResu
 
                 if (url != null) {
 
-                    // this block is an early check for failed in cache, quick return
-                    byte[] failed = cacheGet("failed:" + url);
-                    if (failed != null) {
-                        long failedWhen = array2long(failed);
-                        if ((System.currentTimeMillis() - failedWhen) < FAILED_CRAWL_URL_CACHE_LIFETIME) {
-                            //if the failed request is still fresh we stop
-                            //LOG.info("CrawlPagedWebSearchPerformer::crawl() - hit failed cache url");
-                            onResults(Collections.<SearchResult>emptyList());
-                            return;
-                        } else {
-                            cacheRemove("failed:" + url);
-                        }
+                    // this block is an early check for a recent failure, quick return
+                    if (SearchDomains.getInstance().isUrlFailed(url)) {
+                        //LOG.info("CrawlPagedWebSearchPerformer::crawl() - hit failed url");
+                        onResults(Collections.<SearchResult>emptyList());
+                        return;
                     }
 
 
@@ -110,14 +118,24 @@ public abstract class CrawlPagedWebSearchPerformer<T extends CrawlableSearchResu
                         }
                     }
 
+                    getMetrics().recordCache(data != null);
+
+                    if (data == null && !url.startsWith("magnet") && !SearchDomains.getInstance().get(url).allow()) {
+                        // the host keeps failing, don't wait for it and don't mark the url
+                        onResults(Collections.<SearchResult>emptyList());
+                        return;
+                    }
+
                     if (data == null) { // not a big deal about synchronization here
                         //LOG.debug("Downloading data for: " + url);
 
+                        long start = System.currentTimeMillis();
                         if (url.startsWith("magnet")) {
                             data = fetchMagnet(url);
                         } else {
                             data = fetchBytes(url, sr.getDetailsUrl(), DEFAULT_CRAWL_TIMEOUT);
                         }
+                        getMetrics().recordHttp(System.currentTimeMillis() - start);
 
                         //we put this here optimistically hoping this is actually
                         //valid data. if no data can be crawled from this we remove it
@@ -134,22 +152,26 @@ public abstract class CrawlPagedWebSearchPerformer<T extends CrawlableSearchResu
                             }
                         } else {
                             //LOG.warn("Failed to download data: " + url);
-                            cachePut("failed:" + url, long2array(System.currentTimeMillis()));
+                            getMetrics().recordError();
+                            SearchDomains.getInstance().urlFailed(url);
                         }
                     }
 
                     try {
                         if (data != null) {
+                            long start = System.currentTimeMillis();
                             List<? extends SearchResult> results = crawlResult(obj, data);
+                            getMetrics().recordParse(System.currentTimeMillis() - start);
                             if (results != null) {
                                 if (!results.isEmpty()) {
                                     onResults(results);
                                 } else {
-                                    cachePut("failed:" + url, long2array(System.currentTimeMillis()));
+                                    SearchDomains.getInstance().urlFailed(url);
                                 }
                             }
                         }
                     } catch (Throwable e) {
+                        getMetrics().recordError();
                         LOG.warn("Error creating crawled results from downloaded data: " + "url=" + url + ", e=" + e.getMessage());
                         cacheRemove(url); // invalidating cache data
                     }
@@ -181,32 +203,25 @@ public abstract class CrawlPagedWebSearchPerformer<T extends CrawlableSearchResu
     }
 
     private byte[] cacheGet(String key) {
-//        //UNCOMMENT TO TEST/DEBUG SEARCHES THAT KEEP FAILING
-//        if (key.startsWith("failed:")) {
-//            return null;
-//        }
+        MemoryCrawlCache cache = CrawlPagedWebSearchPerformer.cache;
         if (cache != null) {
-            synchronized (cache) {
-                return cache.get(key);
-            }
+            return cache.get(key);
         } else {
             return null;
         }
     }
 
     private void cachePut(String key, byte[] data) {
+        MemoryCrawlCache cache = CrawlPagedWebSearchPerformer.cache;
         if (cache != null) {
-            synchronized (cache) {
-                cache.put(key, data);
-            }
+            cache.put(key, data);
         }
     }
 
     private void cacheRemove(String key) {
+        MemoryCrawlCache cache = CrawlPagedWebSearchPerformer.cache;
         if (cache != null) {
-            synchronized (cache) {
-                cache.remove(key);
-            }
+            cache.remove(key);
         }
     }
 
@@ -221,78 +236,43 @@ public abstract class CrawlPagedWebSearchPerformer<T extends CrawlableSearchResu
         return null;
     }
 
-    private static byte[] long2array(long l) {
-        byte[] arr = new byte[Long.SIZE / Byte.SIZE];
-        longToByteArray(l, 0, arr, 0, arr.length);
-        return arr;
-    }
-
-    private static long array2long(byte[] arr) {
-        return byteArrayToLong(arr, 0, 0, 0, Long.SIZE / Byte.SIZE);
-    }
-
-
     public static void clearCache() {
+        MemoryCrawlCache cache = CrawlPagedWebSearchPerformer.cache;
         if (cache != null) {
-            synchronized (cache) {
-                cache.clear();
-            }
+            cache.clear();
         }
     }
 
     public static long getCacheNumEntries() {
+        MemoryCrawlCache cache = CrawlPagedWebSearchPerformer.cache;
         long result = 0;
         if (cache != null) {
-            synchronized (cache) {
-                result = cache.numEntries();
-            }
+            result = cache.numEntries();
         }
         return result;
     }
 
     public static long getCacheSize() {
+        MemoryCrawlCache cache = CrawlPagedWebSearchPerformer.cache;
         long result = 0;
         if (cache != null) {
-            synchronized (cache) {
-                result = cache.sizeInBytes();
-            }
+            result = cache.sizeInBytes();
         }
         return result;
     }
 
+    public static long getCacheHits() {
+        MemoryCrawlCache cache = CrawlPagedWebSearchPerformer.cache;
+        return cache != null ? cache.hits() : 0;
+    }
 
-    private static long byteArrayToLong(final byte[] src, final int srcPos, final long dstInit, final int dstPos,
-                                        final int nBytes) {
-        if ((src.length == 0 && srcPos == 0) || 0 == nBytes) {
-            return dstInit;
-        }
-        if ((nBytes - 1) * 8 + dstPos >= 64) {
-            throw new IllegalArgumentException("(nBytes-1)*8+dstPos is greater or equal to than 64");
-        }
-        long out = dstInit;
-        int shift;
-        for (int i = 0; i < nBytes; i++) {
-            shift = i * 8 + dstPos;
-            final long bits = (0xffL & src[i + srcPos]) << shift;
-            final long mask = 0xffL << shift;
-            out = (out & ~mask) | bits;
-        }
-        return out;
+    public static long getCacheMisses() {
+        MemoryCrawlCache cache = CrawlPagedWebSearchPerformer.cache;
+        return cache != null ? cache.misses() : 0;
     }
 
-    private static byte[] longToByteArray(final long src, final int srcPos, final byte[] dst, final int dstPos,
-                                          final int nBytes) {
-        if (0 == nBytes) {
-            return dst;
-        }
-        if ((nBytes - 1) * 8 + srcPos >= 64) {
-            throw new IllegalArgumentException("(nBytes-1)*8+srcPos is greater or equal to than 64");
-        }
-        int shift;
-        for (int i = 0; i < nBytes; i++) {
-            shift = i * 8 + srcPos;
-            dst[dstPos + i] = (byte) (0xff & (src >> shift));
-        }
-        return dst;
+    public static long getCacheEvictions() {
+        MemoryCrawlCache cache = CrawlPagedWebSearchPerformer.cache;
+        return cache != null ? cache.evictions() : 0;
     }
 }
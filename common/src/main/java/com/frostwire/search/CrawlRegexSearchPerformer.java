@@ -17,6 +17,12 @@
 
 package com.frostwire.search;
 
+import com.frostwire.util.Logger;
+import org.apache.commons.io.IOUtils;
+
+import java.io.IOException;
+import java.io.PushbackReader;
+import java.io.Reader;
 import java.util.Collections;
 import java.util.List;
 
@@ -26,6 +32,11 @@ import java.util.List;
  */
 public abstract class CrawlRegexSearchPerformer<T extends CrawlableSearchResult> extends CrawlPagedWebSearchPerformer<T> implements RegexSearchPerformer<T> {
 
+    private static final Logger LOG = Logger.getLogger(CrawlRegexSearchPerformer.class);
+
+    // the beginning of a streamed page passed to isValidHtml
+    private static final int VALID_HTML_HEAD_SIZE = 16 * 1024;
+
     private final int regexMaxResults;
 
     public CrawlRegexSearchPerformer(String domainName, long token, String keywords, int timeout, int pages, int numCrawls, int regexMaxResults) {
@@ -33,6 +44,50 @@ public abstract class CrawlRegexSearchPerformer<T extends CrawlableSearchResult>
         this.regexMaxResults = regexMaxResults;
     }
 
+    @Override
+    protected List<? extends SearchResult> searchPage(int page) {
+        HtmlStreamScanner scanner = getPageScanner();
+        if (scanner == null || getMaxConcurrentPages() > 1) {
+            return super.searchPage(page);
+        }
+
+        String url = null;
+        Reader reader = null;
+        try {
+            url = getUrl(page, getEncodedKeywords());
+            long start = System.currentTimeMillis();
+            reader = fetchReader(url);
+            long opened = System.currentTimeMillis();
+            getMetrics().recordHttp(opened - start);
+
+            PushbackReader in = new PushbackReader(reader, VALID_HTML_HEAD_SIZE);
+            char[] head = new char[VALID_HTML_HEAD_SIZE];
+            int n = readHead(in, head);
+            if (!isValidHtml(new String(head, 0, n))) {
+                return Collections.emptyList();
+            }
+            in.unread(head, 0, n);
+
+            if (!scanner.scan(in, getPattern(), new PageListener())) {
+                LOG.warn(getClass().getSimpleName() + " page prefix not found, issue fetching page or page changed. Notify developers at contact@frostwire.com");
+            }
+            // the body is downloaded while scanned, counted as parsing here
+            getMetrics().recordParse(System.currentTimeMillis() - opened);
+        } catch (Throwable e) {
+            getMetrics().recordError();
+            if (url == null) {
+                url = "n.a";
+            }
+            LOG.error("Error searching page [" + url + "]: " + e.getMessage());
+            return null;
+        } finally {
+            IOUtils.closeQuietly(reader);
+        }
+
+        // the results were already sent as they were found
+        return Collections.emptyList();
+    }
+
     @Override
     protected List<? extends SearchResult> searchPage(String page) {
         if (!isValidHtml(page)) {
@@ -48,6 +103,9 @@ public abstract class CrawlRegexSearchPerformer<T extends CrawlableSearchResult>
      * Give the opportunity to an implementor to specify if the unreduced HTML
      * that is about to be crawled is a valid one, and not report errors when
      * there is none.
+     * <p>
+     * When the page is scanned while it's downloaded, only its first 16KB are
+     * passed, since the results after them are sent before the page ends.
      *
      * @param html the unreduced html
      * @return {@code true} is valid and allowed to be processed, {@code false}
@@ -62,4 +120,44 @@ public abstract class CrawlRegexSearchPerformer<T extends CrawlableSearchResult>
     protected int preliminaryHtmlPrefixOffset(String page) {
         return 0;
     }
+
+    /**
+     * Return a scanner to match the search page while it's downloaded, sending
+     * each result as soon as it's found instead of once the whole page is read.
+     * Its markers take the place of the preliminary offsets, {@link #fetchSearchPage(String)}
+     * is not called and {@link #isValidHtml(String)} is called with the beginning of
+     * the page. It's not used when several pages are fetched at once.
+     *
+     * @return the scanner, or null (the default) to read the page as a string
+     */
+    protected HtmlStreamScanner getPageScanner() {
+        return null;
+    }
+
+    private static int readHead(Reader reader, char[] head) throws IOException {
+        int n = 0;
+        while (n < head.length) {
+            int r = reader.read(head, n, head.length - n);
+            if (r == -1) {
+                break;
+            }
+            n += r;
+        }
+        return n;
+    }
+
+    private final class PageListener implements HtmlStreamScanner.Listener {
+
+        private int count;
+
+        @Override
+        public boolean onMatch(SearchMatcher matcher) {
+            T sr = fromMatcher(matcher);
+            if (sr != null) {
+                onResults(Collections.singletonList(sr));
+                count++;
+            }
+            return count < regexMaxResults && !isStopped();
+        }
+    }
 }
@@ -0,0 +1,171 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import com.frostwire.regex.Pattern;
+
+import java.io.IOException;
+import java.io.Reader;
+
+/**
+ * Matches a pattern against a page while it's read, without holding the
+ * whole page in memory.
+ * <p>
+ * Only the text from the first {@code prefix} to the following {@code suffix}
+ * is kept, the same window {@link PerformersHelper#reduceHtml(String, int, int)}
+ * takes with offsets from {@code indexOf}. A null prefix starts at the beginning
+ * of the page and a null (or missing) suffix runs to the end.
+ * <p>
+ * With a {@code record} marker the window is cut in records, from one occurrence
+ * of the marker to the next, and each record is matched as soon as it's complete,
+ * the pattern must not match across records. Without it the window is matched
+ * once the page ends.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class HtmlStreamScanner {
+
+    private static final int BUFFER_SIZE = 8 * 1024;
+
+    private final String prefix;
+    private final String suffix;
+    private final String record;
+
+    public HtmlStreamScanner(String prefix, String suffix, String record) {
+        if ((prefix != null && prefix.isEmpty()) ||
+                (suffix != null && suffix.isEmpty()) ||
+                (record != null && record.isEmpty())) {
+            throw new IllegalArgumentException("Markers can't be empty");
+        }
+        this.prefix = prefix;
+        this.suffix = suffix;
+        this.record = record;
+    }
+
+    /**
+     * Reads the page until the end of the window or until the listener asks
+     * to stop. The reader is not closed.
+     *
+     * @return false if the prefix is not in the page
+     */
+    public boolean scan(Reader reader, Pattern pattern, Listener listener) throws IOException {
+        StringBuilder sb = new StringBuilder(2 * BUFFER_SIZE);
+        char[] buffer = new char[BUFFER_SIZE];
+
+        boolean inWindow = prefix == null;
+        boolean inRecord = false;
+        int suffixFrom = 0;
+        int recordFrom = 0;
+        boolean end = false;
+
+        while (!end) {
+            int n = reader.read(buffer, 0, buffer.length);
+            if (n == -1) {
+                end = true;
+            } else {
+                sb.append(buffer, 0, n);
+            }
+
+            if (!inWindow) {
+                int i = sb.indexOf(prefix);
+                if (i == -1) {
+                    if (end) {
+                        return false;
+                    }
+                    // only the start of a prefix split between reads is worth keeping
+                    sb.delete(0, Math.max(0, sb.length() - prefix.length() + 1));
+                    continue;
+                }
+                sb.delete(0, i);
+                inWindow = true;
+            }
+
+            if (suffix != null) {
+                int i = sb.indexOf(suffix, suffixFrom);
+                if (i != -1) {
+                    sb.setLength(i);
+                    end = true;
+                } else {
+                    suffixFrom = Math.max(0, sb.length() - suffix.length() + 1);
+                }
+            }
+
+            if (record == null) {
+                if (end) {
+                    match(sb.toString(), pattern, listener);
+                }
+                continue;
+            }
+
+            if (!inRecord) {
+                int i = sb.indexOf(record, recordFrom);
+                if (i == -1) {
+                    // nothing before the first record can match
+                    int discard = end ? sb.length() : Math.max(0, sb.length() - record.length() + 1);
+                    sb.delete(0, discard);
+                    suffixFrom = Math.max(0, suffixFrom - discard);
+                    recordFrom = 0;
+                    continue;
+                }
+                sb.delete(0, i);
+                suffixFrom = Math.max(0, suffixFrom - i);
+                inRecord = true;
+                recordFrom = record.length();
+            }
+
+            // the buffer always starts with the current record
+            int next;
+            while ((next = sb.indexOf(record, recordFrom)) != -1) {
+                if (!match(sb.substring(0, next), pattern, listener)) {
+                    return true;
+                }
+                sb.delete(0, next);
+                suffixFrom = Math.max(0, suffixFrom - next);
+                recordFrom = record.length();
+            }
+            recordFrom = Math.max(record.length(), sb.length() - record.length() + 1);
+
+            if (end) {
+                match(sb.toString(), pattern, listener);
+            }
+        }
+
+        return true;
+    }
+
+    private static boolean match(String text, Pattern pattern, Listener listener) {
+        SearchMatcher matcher = SearchMatcher.from(pattern.matcher(text));
+        while (matcher.find()) {
+            if (!listener.onMatch(matcher)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public interface Listener {
+
+        /**
+         * Called for every match, in page order.
+         *
+         * @return false to stop the scan
+         */
+        boolean onMatch(SearchMatcher matcher);
+    }
+}
@@ -24,6 +24,7 @@ import com.frostwire.util.ThreadPool;
 import org.apache.commons.io.FilenameUtils;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
@@ -54,6 +55,15 @@ public final class KeywordDetector {
             this.minimumTokenLength = minimumTokenLength;
             this.maximumTokenLength = maximumTokenLength;
         }
+
+        /**
+         * Every entry that passes the high pass filter has at least
+         * {@code filterThreshold} of the total count, so there can't be more
+         * than {@code 1 / filterThreshold} of them.
+         */
+        int maxFilteredKeys() {
+            return filterThreshold > 0 ? (int) Math.ceil(1 / filterThreshold) : Integer.MAX_VALUE;
+        }
     }
 
     private static final Logger LOG = Logger.getLogger(KeywordDetector.class);
@@ -62,6 +72,8 @@ public final class KeywordDetector {
     private static final Pattern REPLACE_ALL_PATTERN = Pattern.compile("[^\\p{L}0-9 .]|\\.{2,}");
 
     private final Map<Feature, HistoHashMap<String>> histoHashMaps;
+    // results already counted in the histograms, so they are fed only once
+    private final Set<SearchResult> fed;
     private KeywordDetectorListener keywordDetectorListener;
     private final HistogramUpdateRequestDispatcher histogramUpdateRequestsDispatcher;
     private ExecutorService threadPool;
@@ -70,9 +82,10 @@ public final class KeywordDetector {
     public KeywordDetector() {
         histoHashMaps = new HashMap<>();
         histogramUpdateRequestsDispatcher = new HistogramUpdateRequestDispatcher();
-        histoHashMaps.put(Feature.SEARCH_SOURCE, new HistoHashMap<>());
-        histoHashMaps.put(Feature.FILE_EXTENSION, new HistoHashMap<>());
-        histoHashMaps.put(Feature.FILE_NAME, new HistoHashMap<>());
+        fed = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        histoHashMaps.put(Feature.SEARCH_SOURCE, newHistoHashMap(Feature.SEARCH_SOURCE));
+        histoHashMaps.put(Feature.FILE_EXTENSION, newHistoHashMap(Feature.FILE_EXTENSION));
+        histoHashMaps.put(Feature.FILE_NAME, newHistoHashMap(Feature.FILE_NAME));
     }
 
     public int totalHistogramKeys() {
@@ -107,8 +120,15 @@ public final class KeywordDetector {
         }
     }
 
+    /**
+     * Counts the terms of the results not fed before, the ones already in the
+     * histograms are skipped.
+     */
     public void feedSearchResults(final List<? extends SearchResult> copiedResults) {
         for (SearchResult sr : copiedResults) {
+            if (sr == null || !fed.add(sr)) {
+                continue;
+            }
             addSearchTerms(KeywordDetector.Feature.SEARCH_SOURCE, sr.getSource());
             if (sr instanceof FileSearchResult) {
                 String fileName = ((FileSearchResult) sr).getFilename();
@@ -158,7 +178,7 @@ public final class KeywordDetector {
             HistoHashMap<String> histoHashMap = histoHashMaps.get(feature);
             if (histoHashMap.getKeyCount() > 0) {
                 List<Map.Entry<String, Integer>> histogram = histoHashMap.histogram();
-                List<Map.Entry<String, Integer>> filteredHistogram = highPassFilter(histogram, feature.filterThreshold);
+                List<Map.Entry<String, Integer>> filteredHistogram = highPassFilter(histogram, histoHashMap.getTotalCount(), feature.filterThreshold);
                 if (filteredHistogram.size() > 0) {
                     filteredHistograms.put(feature, filteredHistogram);
                     totalHistogramKeysCount += filteredHistogram.size();
@@ -170,16 +190,26 @@ public final class KeywordDetector {
     }
 
     public static List<Map.Entry<String, Integer>> highPassFilter(List<Map.Entry<String, Integer>> histogram, float threshold) {
+        long totalCount = 0;
+        for (Map.Entry<String, Integer> entry : histogram) {
+            totalCount += entry.getValue();
+        }
+        return highPassFilter(histogram, totalCount, threshold);
+    }
+
+    /**
+     * @param histogram  the top entries of the histogram, sorted or not
+     * @param totalCount the sum of the counts of all the keys, not only the ones in {@code histogram}
+     */
+    public static List<Map.Entry<String, Integer>> highPassFilter(List<Map.Entry<String, Integer>> histogram, long totalCount, float threshold) {
         int high = 0;
-        int totalCount = 0;
         for (Map.Entry<String, Integer> entry : histogram) {
             int count = entry.getValue();
-            totalCount += count;
             if (count > high) {
                 high = count;
             }
         }
-        List<Map.Entry<String, Integer>> filteredValues = new LinkedList<>();
+        List<Map.Entry<String, Integer>> filteredValues = new ArrayList<>();
         for (Map.Entry<String, Integer> entry : histogram) {
             float rate = (float) entry.getValue() / (high + totalCount);
             if (entry.getValue() > 1 && rate >= threshold) {
@@ -206,8 +236,7 @@ public final class KeywordDetector {
             if (keywordDetector != null) {
                 try {
                     if (filtered != null) {
-                        keywordDetector.reset();
-                        keywordDetector.feedSearchResults(filtered);
+                        keywordDetector.updateSearchResults(filtered);
                     }
                     keywordDetector.notifyKeywordDetectorListener();
                     keywordDetector.histogramUpdateRequestsDispatcher.onLastHistogramRequestFinished();
@@ -376,12 +405,37 @@ public final class KeywordDetector {
 
     public void reset() {
         histogramUpdateRequestsDispatcher.clear();
-        if (histoHashMaps != null && !histoHashMaps.isEmpty()) {
-            for (HistoHashMap<String> stringHistoHashMap : histoHashMaps.values()) {
-                stringHistoHashMap.reset();
+        resetHistograms();
+        notifyKeywordDetectorListener();
+    }
+
+    /**
+     * Makes the histograms count exactly the given results. Only the new ones
+     * are fed if all the results counted so far are still in the list,
+     * otherwise the histograms are rebuilt from scratch.
+     */
+    void updateSearchResults(List<? extends SearchResult> results) {
+        int known = 0;
+        for (SearchResult sr : results) {
+            if (sr != null && fed.contains(sr)) {
+                known++;
             }
         }
-        notifyKeywordDetectorListener();
+        if (known < fed.size()) {
+            resetHistograms();
+        }
+        feedSearchResults(results);
+    }
+
+    private void resetHistograms() {
+        fed.clear();
+        for (HistoHashMap<String> stringHistoHashMap : histoHashMaps.values()) {
+            stringHistoHashMap.reset();
+        }
+    }
+
+    private static HistoHashMap<String> newHistoHashMap(Feature feature) {
+        return new HistoHashMap<>(feature.maxFilteredKeys());
     }
 
     private static void feedStopWords(String... words) {
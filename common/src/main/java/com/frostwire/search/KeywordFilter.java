@@ -1,6 +1,6 @@
 /*
  * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
- * Copyright (c) 2011-2017, FrostWire(R). All rights reserved.
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,7 +19,10 @@ package com.frostwire.search;
 
 import com.frostwire.licenses.Licenses;
 
+import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * @author gubatron
@@ -27,6 +30,11 @@ import java.util.List;
  */
 public final class KeywordFilter {
 
+    private static final int MAX_PIPELINES = 32;
+
+    // compiled pipelines by filter list, the user goes back and forth between a few of them
+    private static final ConcurrentHashMap<List<KeywordFilter>, Pipeline> PIPELINES = new ConcurrentHashMap<>();
+
     private final boolean inclusive;
     private final String keyword;
     private KeywordDetector.Feature feature;
@@ -74,6 +82,20 @@ public final class KeywordFilter {
     }
 
     static String getSearchResultHaystack(SearchResult sr) {
+        if (!(sr instanceof AbstractSearchResult)) {
+            return buildSearchResultHaystack(sr);
+        }
+        // the haystack is asked for on every filter change
+        AbstractSearchResult asr = (AbstractSearchResult) sr;
+        String haystack = asr.keywordHaystack;
+        if (haystack == null) {
+            haystack = buildSearchResultHaystack(sr);
+            asr.keywordHaystack = haystack;
+        }
+        return haystack;
+    }
+
+    private static String buildSearchResultHaystack(SearchResult sr) {
         StringBuilder queryString = new StringBuilder();
         if (sr.getSource() == null) {
             System.err.println("WARNING: " + sr.getClass().getSimpleName() + " has no source!");
@@ -95,16 +117,61 @@ public final class KeywordFilter {
         return queryString.toString().toLowerCase();
     }
 
+    /**
+     * Checks the result against all the filters with a single pass over its haystack.
+     * The keywords of a pipeline are compiled once and reused every time a list with
+     * the same filters is passed in.
+     */
     public static boolean passesFilterPipeline(final SearchResult sr, final List<KeywordFilter> filterPipeline) {
         if (filterPipeline == null || filterPipeline.size() == 0) {
             return true;
         }
-        String haystack = getSearchResultHaystack(sr);
-        for (KeywordFilter filter : filterPipeline) {
-            if (!filter.accept(haystack)) {
-                return false;
+        return pipeline(filterPipeline).accept(getSearchResultHaystack(sr));
+    }
+
+    private static Pipeline pipeline(List<KeywordFilter> filterPipeline) {
+        Pipeline p = PIPELINES.get(filterPipeline);
+        if (p == null) {
+            if (PIPELINES.size() >= MAX_PIPELINES) {
+                PIPELINES.clear();
+            }
+            p = new Pipeline(filterPipeline);
+            // keyed by the copy, the list passed in is modified by the caller
+            PIPELINES.put(p.filters, p);
+        }
+        return p;
+    }
+
+    private static final class Pipeline {
+
+        private final List<KeywordFilter> filters;
+        private final KeywordMatcher matcher;
+        private final boolean onlyExclusive;
+
+        Pipeline(List<KeywordFilter> filters) {
+            this.filters = new ArrayList<>(filters);
+
+            List<String> keywords = new ArrayList<>(filters.size());
+            boolean onlyExclusive = true;
+            for (KeywordFilter f : this.filters) {
+                keywords.add(f.keyword);
+                onlyExclusive &= !f.inclusive;
             }
+            this.matcher = KeywordMatcher.compile(keywords);
+            this.onlyExclusive = onlyExclusive;
+        }
+
+        boolean accept(String haystack) {
+            if (onlyExclusive) {
+                return !matcher.matchesAny(haystack);
+            }
+            BitSet found = matcher.match(haystack);
+            for (int i = 0; i < filters.size(); i++) {
+                if (filters.get(i).inclusive != found.get(i)) {
+                    return false;
+                }
+            }
+            return true;
         }
-        return true;
     }
 }
@@ -0,0 +1,250 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * Finds any of a set of keywords in a text with a single pass over it,
+ * regardless of the number of keywords (Aho-Corasick).
+ * <p>
+ * Matching is case insensitive, text is lowercased one char at a time while
+ * it's scanned so callers don't need to build a lowercase copy. Instances are
+ * immutable and can be shared between threads.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class KeywordMatcher {
+
+    private static final int[] NO_OUTPUT = new int[0];
+    private static final int TERMINAL = Integer.MIN_VALUE;
+
+    private final int numKeywords;
+
+    // chars of the keywords mapped to 1..n, 0 is any other char
+    private final int[] asciiClass;
+    private final char[] otherChars;
+    private final int numClasses;
+
+    // complete transition table, table[offset + class] is the offset of the next state
+    // (state * numClasses), with the sign bit set if some keyword ends there
+    private final int[] table;
+    // keywords ending at each state, including the ones of its suffixes
+    private final int[][] output;
+
+    private KeywordMatcher(Collection<String> keywords) {
+        List<String> list = new ArrayList<>(keywords.size());
+        for (String k : keywords) {
+            list.add(normalize(k));
+        }
+        this.numKeywords = list.size();
+
+        // alphabet
+        BitSet chars = new BitSet();
+        for (String k : list) {
+            for (int i = 0; i < k.length(); i++) {
+                chars.set(k.charAt(i));
+            }
+        }
+        this.asciiClass = new int[128];
+        List<Character> others = new ArrayList<>();
+        int n = 1;
+        for (int c = chars.nextSetBit(0); c >= 0; c = chars.nextSetBit(c + 1)) {
+            if (c < 128) {
+                asciiClass[c] = n++;
+            } else {
+                others.add((char) c);
+            }
+        }
+        this.otherChars = new char[others.size()];
+        for (int i = 0; i < otherChars.length; i++) {
+            otherChars[i] = others.get(i);
+        }
+        this.numClasses = n + otherChars.length;
+
+        // trie
+        int maxStates = 1;
+        for (String k : list) {
+            maxStates += k.length();
+        }
+        int[] goTo = new int[maxStates * numClasses];
+        Arrays.fill(goTo, -1);
+        List<int[]> out = new ArrayList<>();
+        out.add(NO_OUTPUT);
+        int states = 1;
+        for (int idx = 0; idx < list.size(); idx++) {
+            String k = list.get(idx);
+            int s = 0;
+            for (int i = 0; i < k.length(); i++) {
+                int c = charClass(k.charAt(i));
+                int t = goTo[s * numClasses + c];
+                if (t == -1) {
+                    t = states++;
+                    goTo[s * numClasses + c] = t;
+                    out.add(NO_OUTPUT);
+                }
+                s = t;
+            }
+            out.set(s, append(out.get(s), idx));
+        }
+
+        // failure links, turning the trie into a complete automaton
+        int[] fail = new int[states];
+        int[] delta = Arrays.copyOf(goTo, states * numClasses);
+        ArrayDeque<Integer> queue = new ArrayDeque<>();
+        for (int c = 0; c < numClasses; c++) {
+            int t = delta[c];
+            if (t == -1) {
+                delta[c] = 0;
+            } else {
+                fail[t] = 0;
+                queue.add(t);
+            }
+        }
+        while (!queue.isEmpty()) {
+            int s = queue.poll();
+            int[] o = out.get(fail[s]);
+            for (int x : o) {
+                out.set(s, append(out.get(s), x));
+            }
+            for (int c = 0; c < numClasses; c++) {
+                int t = delta[s * numClasses + c];
+                int f = delta[fail[s] * numClasses + c];
+                if (t == -1) {
+                    delta[s * numClasses + c] = f;
+                } else {
+                    fail[t] = f;
+                    queue.add(t);
+                }
+            }
+        }
+        this.output = out.toArray(new int[0][]);
+
+        this.table = new int[delta.length];
+        for (int i = 0; i < delta.length; i++) {
+            int t = delta[i];
+            table[i] = t * numClasses | (output[t].length > 0 ? TERMINAL : 0);
+        }
+
+        // uppercase ASCII folds here, the common case skips Character.toLowerCase
+        for (int c = 'A'; c <= 'Z'; c++) {
+            asciiClass[c] = asciiClass[c + ('a' - 'A')];
+        }
+    }
+
+    /**
+     * Builds a matcher for the given keywords, the index of each keyword in
+     * the iteration order of the collection identifies it in {@link #match(CharSequence)}.
+     */
+    public static KeywordMatcher compile(Collection<String> keywords) {
+        return new KeywordMatcher(keywords);
+    }
+
+    public int size() {
+        return numKeywords;
+    }
+
+    /**
+     * Returns true as soon as any keyword is found in the text.
+     */
+    public boolean matchesAny(CharSequence text) {
+        if (output[0].length > 0) { // empty keyword
+            return true;
+        }
+        int s = 0;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            s = table[s + charClass(text.charAt(i))];
+            if (s < 0) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the indexes of all the keywords found in the text.
+     */
+    public BitSet match(CharSequence text) {
+        BitSet found = new BitSet(numKeywords);
+        for (int k : output[0]) {
+            found.set(k);
+        }
+        int s = 0;
+        for (int i = 0, len = text.length(); i < len; i++) {
+            s = table[s + charClass(text.charAt(i))];
+            if (s < 0) {
+                s &= ~TERMINAL;
+                for (int k : output[s / numClasses]) {
+                    found.set(k);
+                }
+            }
+        }
+        return found;
+    }
+
+    /**
+     * The normalization applied to keywords and text: lowercase, char by char.
+     */
+    public static String normalize(String s) {
+        StringBuilder sb = null;
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            char l = lower(c);
+            if (l != c && sb == null) {
+                sb = new StringBuilder(s.length());
+                sb.append(s, 0, i);
+            }
+            if (sb != null) {
+                sb.append(l);
+            }
+        }
+        return sb != null ? sb.toString() : s;
+    }
+
+    private int charClass(char c) {
+        if (c < 128) {
+            return asciiClass[c];
+        }
+        int i = Arrays.binarySearch(otherChars, Character.toLowerCase(c));
+        return i >= 0 ? numClasses - otherChars.length + i : 0;
+    }
+
+    private static char lower(char c) {
+        if (c < 128) {
+            return c >= 'A' && c <= 'Z' ? (char) (c + 32) : c;
+        }
+        return Character.toLowerCase(c);
+    }
+
+    private static int[] append(int[] arr, int v) {
+        for (int x : arr) {
+            if (x == v) {
+                return arr;
+            }
+        }
+        int[] r = Arrays.copyOf(arr, arr.length + 1);
+        r[arr.length] = v;
+        return r;
+    }
+}
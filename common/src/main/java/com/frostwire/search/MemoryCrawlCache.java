@@ -0,0 +1,314 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import com.frostwire.util.Logger;
+import com.frostwire.util.ThreadPool;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A bounded in-memory LRU tier in front of a persistent {@link CrawlCache}.
+ * <p>
+ * Reads are served from lock striped segments, writes are applied to
+ * memory right away and written through to the backend cache in a
+ * single background thread, so no global lock is needed by callers.
+ * The backend must be thread safe, misses read it directly.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class MemoryCrawlCache implements CrawlCache {
+
+    private static final Logger LOG = Logger.getLogger(MemoryCrawlCache.class);
+
+    private static final int NUM_SEGMENTS = 16; // power of two
+    private static final int NUM_VERSIONS = 64; // per segment, power of two
+
+    // marker for a pending backend remove
+    private static final byte[] REMOVED = new byte[0];
+
+    private final CrawlCache backend;
+    private final Segment[] segments;
+
+    // writes not yet applied to the backend, needed to avoid reading stale data
+    private final ConcurrentHashMap<String, byte[]> pending;
+    private final ExecutorService writer;
+    // backend clears not yet applied, the backend can't be read meanwhile
+    private final AtomicInteger pendingClears;
+
+    private final AtomicLong hits;
+    private final AtomicLong misses;
+    private final AtomicLong evictions;
+
+    public MemoryCrawlCache(CrawlCache backend, long maxSizeInBytes) {
+        if (backend == null) {
+            throw new IllegalArgumentException("Backend crawl cache can't be null");
+        }
+        this.backend = backend;
+        this.segments = new Segment[NUM_SEGMENTS];
+        for (int i = 0; i < NUM_SEGMENTS; i++) {
+            segments[i] = new Segment(maxSizeInBytes / NUM_SEGMENTS);
+        }
+        this.pending = new ConcurrentHashMap<>();
+        this.writer = ThreadPool.newThreadPool("CrawlCache-writer", 1, true);
+        this.pendingClears = new AtomicInteger();
+
+        this.hits = new AtomicLong();
+        this.misses = new AtomicLong();
+        this.evictions = new AtomicLong();
+    }
+
+    @Override
+    public byte[] get(String key) {
+        byte[] data = segment(key).get(key);
+        if (data != null) {
+            hits.incrementAndGet();
+            return data;
+        }
+
+        data = pending.get(key);
+        if (data != null) {
+            if (data == REMOVED) {
+                misses.incrementAndGet();
+                return null;
+            }
+            hits.incrementAndGet();
+            return data;
+        }
+
+        misses.incrementAndGet();
+        Segment segment = segment(key);
+        int version = segment.version(key);
+        if (pendingClears.get() > 0) {
+            // everything written after the clear is still pending
+            return null;
+        }
+        data = backend.get(key);
+        if (data != null) {
+            // a put or remove done while reading the backend wins over the read value
+            segment.fill(key, data, version);
+        }
+
+        return data;
+    }
+
+    @Override
+    public void put(final String key, final byte[] data) {
+        if (data == null) {
+            return;
+        }
+
+        segment(key).put(key, data);
+        pending.put(key, data);
+        writer.execute(() -> {
+            try {
+                backend.put(key, data);
+            } catch (Throwable e) {
+                LOG.warn("Error writing crawl cache data to backend, key: " + key, e);
+            } finally {
+                pending.remove(key, data);
+            }
+        });
+    }
+
+    @Override
+    public void remove(final String key) {
+        segment(key).remove(key);
+        pending.put(key, REMOVED);
+        writer.execute(() -> {
+            try {
+                backend.remove(key);
+            } catch (Throwable e) {
+                LOG.warn("Error removing crawl cache data from backend, key: " + key, e);
+            } finally {
+                pending.remove(key, REMOVED);
+            }
+        });
+    }
+
+    @Override
+    public void clear() {
+        // before the versions change, a get taking a new version must skip the backend
+        pendingClears.incrementAndGet();
+        for (Segment s : segments) {
+            s.clear();
+        }
+        pending.clear();
+        writer.execute(() -> {
+            try {
+                backend.clear();
+            } catch (Throwable e) {
+                LOG.warn("Error clearing backend crawl cache", e);
+            } finally {
+                pendingClears.decrementAndGet();
+            }
+        });
+    }
+
+    @Override
+    public long numEntries() {
+        return backend.numEntries();
+    }
+
+    @Override
+    public long sizeInBytes() {
+        return backend.sizeInBytes();
+    }
+
+    /**
+     * Stops the writer thread once the pending writes are applied to the backend.
+     */
+    public void shutdown() {
+        writer.shutdown();
+    }
+
+    public long hits() {
+        return hits.get();
+    }
+
+    public long misses() {
+        return misses.get();
+    }
+
+    public long evictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Number of entries and bytes held in memory, not the backend values.
+     */
+    public long memoryNumEntries() {
+        long n = 0;
+        for (Segment s : segments) {
+            n += s.numEntries();
+        }
+        return n;
+    }
+
+    public long memorySizeInBytes() {
+        long n = 0;
+        for (Segment s : segments) {
+            n += s.sizeInBytes();
+        }
+        return n;
+    }
+
+    private Segment segment(String key) {
+        return segments[hash(key) & (NUM_SEGMENTS - 1)];
+    }
+
+    private static int slot(String key) {
+        // the segment takes the low bits
+        return (hash(key) >>> 4) & (NUM_VERSIONS - 1);
+    }
+
+    private static int hash(String key) {
+        int h = key.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private final class Segment {
+
+        private final long maxSize;
+        private final LinkedHashMap<String, byte[]> map;
+        // bumped by every put and remove, keys sharing a slot only cause a skipped fill
+        private final int[] versions;
+        private long size;
+
+        Segment(long maxSize) {
+            this.maxSize = maxSize;
+            this.map = new LinkedHashMap<>(16, 0.75f, true);
+            this.versions = new int[NUM_VERSIONS];
+        }
+
+        synchronized byte[] get(String key) {
+            return map.get(key);
+        }
+
+        synchronized int version(String key) {
+            return versions[slot(key)];
+        }
+
+        /**
+         * Puts the data read from the backend, only if the key was not
+         * written or removed since {@code version} was taken.
+         */
+        synchronized void fill(String key, byte[] data, int version) {
+            if (versions[slot(key)] == version && !pending.containsKey(key)) {
+                store(key, data);
+            }
+        }
+
+        synchronized void put(String key, byte[] data) {
+            versions[slot(key)]++;
+            store(key, data);
+        }
+
+        private void store(String key, byte[] data) {
+            byte[] old = map.remove(key);
+            if (old != null) {
+                size -= old.length;
+            }
+            if (data.length > maxSize) {
+                // not worth to evict everything for it, backend only
+                return;
+            }
+            map.put(key, data);
+            size += data.length;
+
+            Iterator<Map.Entry<String, byte[]>> it = map.entrySet().iterator();
+            while (size > maxSize && it.hasNext()) {
+                Map.Entry<String, byte[]> e = it.next();
+                size -= e.getValue().length;
+                it.remove();
+                evictions.incrementAndGet();
+            }
+        }
+
+        synchronized void remove(String key) {
+            versions[slot(key)]++;
+            byte[] old = map.remove(key);
+            if (old != null) {
+                size -= old.length;
+            }
+        }
+
+        synchronized void clear() {
+            for (int i = 0; i < versions.length; i++) {
+                versions[i]++;
+            }
+            map.clear();
+            size = 0;
+        }
+
+        synchronized long numEntries() {
+            return map.size();
+        }
+
+        synchronized long sizeInBytes() {
+            return size;
+        }
+    }
+}
@@ -1,6 +1,6 @@
 /*
  * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
- * Copyright (c) 2011-2016, FrostWire(R). All rights reserved.
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -19,10 +19,22 @@
 package com.frostwire.search;
 
 import com.frostwire.util.Logger;
+import com.frostwire.util.ThreadPool;
 
 import java.io.IOException;
-import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * @author gubatron
@@ -32,6 +44,16 @@ public abstract class PagedWebSearchPerformer extends WebSearchPerformer {
 
     private static final Logger LOG = Logger.getLogger(PagedWebSearchPerformer.class);
 
+    /**
+     * Page requests in flight to the same domain, across all the performers.
+     */
+    static final int MAX_PAGES_PER_DOMAIN = 4;
+
+    private static final long POLL_MILLIS = 250;
+
+    private static final ExecutorService PAGES_POOL = ThreadPool.newThreadPool("PagedSearch-pages", 16, true);
+    private static final ConcurrentMap<String, Semaphore> DOMAIN_PERMITS = new ConcurrentHashMap<>();
+
     private final int pages;
 
     public PagedWebSearchPerformer(String domainName, long token, String keywords, int timeout, int pages) {
@@ -41,21 +63,123 @@ public abstract class PagedWebSearchPerformer extends WebSearchPerformer {
 
     @Override
     public void perform() {
-        for (int i = 1; !isStopped() && i <= pages; i++) {
-            onResults(searchPage(i));
+        if (!SearchDomains.getInstance().get(getDomainName()).allow()) {
+            LOG.info("Search skipped, circuit open for " + getDomainName());
+            return;
+        }
+        if (pages > 1 && getMaxConcurrentPages() > 1) {
+            performConcurrently();
+        } else {
+            for (int i = 1; !isStopped() && i <= pages; i++) {
+                onResults(searchPage(i));
+            }
+        }
+    }
+
+    /**
+     * The number of pages of this search fetched at the same time, 1 (the default)
+     * fetches them one after the other. Besides this limit, no more than
+     * {@link #MAX_PAGES_PER_DOMAIN} requests go to the same domain at once.
+     * <p>
+     * With more than one page at a time the results are sent as each page
+     * arrives, not in page order, and {@link #searchPage(int)} is called from
+     * several threads.
+     */
+    protected int getMaxConcurrentPages() {
+        return 1;
+    }
+
+    private void performConcurrently() {
+        Semaphore permits = domainPermits(getDomainName());
+        BlockingQueue<PageTask> completed = new LinkedBlockingQueue<>();
+        Map<Integer, PageTask> inFlight = new HashMap<>();
+
+        int maxConcurrentPages = getMaxConcurrentPages();
+        int next = 1;
+        int lastPage = pages;
+
+        try {
+            while (!isStopped()) {
+                while (next <= lastPage && inFlight.size() < maxConcurrentPages && permits.tryAcquire()) {
+                    PageTask task = new PageTask(next++, permits, completed);
+                    inFlight.put(task.page, task);
+                    PAGES_POOL.execute(task);
+                }
+
+                if (inFlight.isEmpty()) {
+                    if (next > lastPage) {
+                        break;
+                    }
+                    // other searches are using the domain, wait for a permit
+                    if (permits.tryAcquire(POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                        permits.release();
+                    }
+                    continue;
+                }
+
+                PageTask task = completed.poll(POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (task == null || isStopped()) {
+                    continue;
+                }
+                inFlight.remove(task.page);
+
+                List<? extends SearchResult> results = task.results();
+                if (results == null) {
+                    // the page failed, the next ones can still have results
+                    continue;
+                }
+                if (results.isEmpty()) {
+                    // no more results after this page
+                    lastPage = Math.min(lastPage, task.page - 1);
+                    for (PageTask t : inFlight.values()) {
+                        if (t.page > task.page) {
+                            t.cancel(true);
+                        }
+                    }
+                } else {
+                    onResults(results);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            for (PageTask t : inFlight.values()) {
+                t.cancel(true);
+            }
         }
     }
 
+    private static Semaphore domainPermits(String domainName) {
+        Semaphore permits = DOMAIN_PERMITS.get(domainName);
+        if (permits == null) {
+            permits = new Semaphore(MAX_PAGES_PER_DOMAIN);
+            Semaphore old = DOMAIN_PERMITS.putIfAbsent(domainName, permits);
+            if (old != null) {
+                permits = old;
+            }
+        }
+        return permits;
+    }
+
+    /**
+     * The results of the page, empty if it has none, null if it couldn't be
+     * fetched or parsed. Only an empty page ends the search early.
+     */
     protected List<? extends SearchResult> searchPage(int page) {
-        List<? extends SearchResult> result = Collections.emptyList();
+        List<? extends SearchResult> result = null;
         String url = null;
         try {
             url = getUrl(page, getEncodedKeywords());
+            long start = System.currentTimeMillis();
             String text = fetchSearchPage(url);
+            long fetched = System.currentTimeMillis();
+            getMetrics().recordHttp(fetched - start);
             if (text != null) {
                 result = searchPage(text);
+                getMetrics().recordParse(System.currentTimeMillis() - fetched);
             }
         } catch (Throwable e) {
+            getMetrics().recordError();
             if (url == null) {
                 url = "n.a";
             }
@@ -71,4 +195,59 @@ public abstract class PagedWebSearchPerformer extends WebSearchPerformer {
     protected abstract String getUrl(int page, String encodedKeywords);
 
     protected abstract List<? extends SearchResult> searchPage(String page);
+
+    private final class PageTask extends FutureTask<List<? extends SearchResult>> {
+
+        final int page;
+        private final Semaphore permits;
+        private final BlockingQueue<PageTask> completed;
+        private final AtomicBoolean released;
+        private volatile boolean started;
+
+        PageTask(final int page, Semaphore permits, BlockingQueue<PageTask> completed) {
+            super(() -> searchPage(page));
+            this.page = page;
+            this.permits = permits;
+            this.completed = completed;
+            this.released = new AtomicBoolean();
+        }
+
+        @Override
+        public void run() {
+            started = true;
+            try {
+                super.run();
+            } finally {
+                release();
+            }
+        }
+
+        @Override
+        protected void done() {
+            if (!started) { // cancelled before it was picked by the pool
+                release();
+            }
+            completed.add(this);
+        }
+
+        /**
+         * Same as {@link #searchPage(int)}, null if the page failed or was cancelled.
+         */
+        List<? extends SearchResult> results() {
+            try {
+                return get();
+            } catch (ExecutionException e) {
+                LOG.error("Error searching page " + page + ": " + e.getCause().getMessage());
+            } catch (Throwable e) {
+                // cancelled or interrupted
+            }
+            return null;
+        }
+
+        private void release() {
+            if (released.compareAndSet(false, true)) {
+                permits.release();
+            }
+        }
+    }
 }
@@ -142,7 +142,7 @@ public final class PerformersHelper {
                 return null;
             }
 
-            html = new String(html.substring(preOffset, sufOffset).toCharArray());
+            html = html.substring(preOffset, sufOffset);
         }
         return html;
     }
@@ -0,0 +1,218 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import com.frostwire.search.torrent.TorrentSearchResult;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Merges the copies of the same result coming from different engines during
+ * a search, only the first copy is sent to the listeners and crawled.
+ * <p>
+ * Torrents are the same if they have the same info hash, other files if
+ * they have the same normalized file name and size. The results of a crawl
+ * are never merged, they come from a single parent already, and neither are
+ * the incomplete ones, only sent to be crawled.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class ResultMerger {
+
+    // marks a result that can't be keyed, the null key isn't cached
+    private static final String NO_KEY = "";
+
+    private final Map<String, Merge> merges;
+    private final Set<String> crawled;
+    // keys of the merges with copies added since the last poll
+    private final Set<String> changed;
+
+    ResultMerger() {
+        this.merges = new HashMap<>();
+        this.crawled = new HashSet<>();
+        this.changed = new LinkedHashSet<>();
+    }
+
+    /**
+     * Returns the results seen for the first time, the others are added to
+     * the merge of their first copy.
+     */
+    public synchronized List<SearchResult> merge(List<? extends SearchResult> results) {
+        List<SearchResult> list = new ArrayList<>(results.size());
+        for (SearchResult sr : results) {
+            String key = isIncomplete(sr) ? null : key(sr);
+            if (key == null) {
+                list.add(sr);
+                continue;
+            }
+            Merge m = merges.get(key);
+            if (m == null) {
+                merges.put(key, new Merge(sr));
+                list.add(sr);
+            } else if (m.first != sr) {
+                m.add(sr);
+                changed.add(key);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * True the first time a result with this key is to be crawled in
+     * the search, or if it can't be keyed. The crawl of an incomplete
+     * result is not the same as the one of its complete version.
+     */
+    public synchronized boolean crawl(CrawlableSearchResult sr) {
+        String key = key(sr);
+        return key == null || crawled.add((sr.isComplete() ? "c:" : "i:") + key);
+    }
+
+    /**
+     * The merge of the first copy of a result, null if no other copies
+     * arrived for it.
+     */
+    public synchronized Merge get(SearchResult sr) {
+        String key = key(sr);
+        Merge m = key != null ? merges.get(key) : null;
+        return m != null && m.count > 1 ? m.copy() : null;
+    }
+
+    /**
+     * The merges that got other copies since the last call, for a UI to
+     * update only the results that changed.
+     */
+    public synchronized List<Merge> poll() {
+        if (changed.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<Merge> list = new ArrayList<>(changed.size());
+        for (String key : changed) {
+            list.add(merges.get(key).copy());
+        }
+        changed.clear();
+        return list;
+    }
+
+    private static boolean isIncomplete(SearchResult sr) {
+        return sr instanceof CrawlableSearchResult && !((CrawlableSearchResult) sr).isComplete();
+    }
+
+    static String key(SearchResult sr) {
+        if (!(sr instanceof AbstractSearchResult)) {
+            return buildKey(sr);
+        }
+        // asked for every time a UI looks the merge up
+        AbstractSearchResult asr = (AbstractSearchResult) sr;
+        String key = asr.mergeKey;
+        if (key == null) {
+            key = buildKey(sr);
+            asr.mergeKey = key != null ? key : NO_KEY;
+        }
+        return key != null && !key.isEmpty() ? key : null;
+    }
+
+    private static String buildKey(SearchResult sr) {
+        if (sr instanceof CrawledSearchResult) {
+            return null;
+        }
+        if (sr instanceof TorrentSearchResult) {
+            String hash = ((TorrentSearchResult) sr).getHash();
+            if (hash != null && !hash.isEmpty()) {
+                return "h:" + hash.toLowerCase();
+            }
+        }
+        if (sr instanceof FileSearchResult) {
+            FileSearchResult fsr = (FileSearchResult) sr;
+            String filename = fsr.getFilename();
+            long size = fsr.getSize();
+            if (filename != null && size > 0) {
+                return "f:" + size + ":" + SearchText.normalize(SearchText.sanitize(filename));
+            }
+        }
+        return null;
+    }
+
+    public static final class Merge {
+
+        private final SearchResult first;
+        private final List<String> sources;
+        private int seeds;
+        private int count;
+
+        Merge(SearchResult first) {
+            this.first = first;
+            this.sources = new ArrayList<>(2);
+            add(first);
+        }
+
+        private Merge(Merge m) {
+            this.first = m.first;
+            this.sources = Collections.unmodifiableList(new ArrayList<>(m.sources));
+            this.seeds = m.seeds;
+            this.count = m.count;
+        }
+
+        /**
+         * The copy sent to the listeners.
+         */
+        public SearchResult getFirst() {
+            return first;
+        }
+
+        /**
+         * The distinct sources of the copies, in arrival order.
+         */
+        public List<String> getSources() {
+            return sources;
+        }
+
+        /**
+         * The largest seed count reported by the copies, they share the same
+         * swarm so the counts can't be added, -1 if not a torrent.
+         */
+        public int getSeeds() {
+            return seeds;
+        }
+
+        public int getCount() {
+            return count;
+        }
+
+        private void add(SearchResult sr) {
+            count++;
+            String source = sr.getSource();
+            if (source != null && !sources.contains(source)) {
+                sources.add(source);
+            }
+            int s = sr instanceof TorrentSearchResult ? ((TorrentSearchResult) sr).getSeeds() : -1;
+            seeds = count == 1 ? s : Math.max(seeds, s);
+        }
+
+        private Merge copy() {
+            return new Merge(this);
+        }
+    }
+}
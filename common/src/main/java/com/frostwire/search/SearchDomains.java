@@ -0,0 +1,274 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import com.frostwire.util.Logger;
+import com.frostwire.util.RollingHistogram;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * Health of the hosts the search performers talk to, in memory only.
+ * <p>
+ * The request timeout of a host follows its observed p95 latency, rounded up
+ * to whole seconds so the http client keeps a few timeout variants, and after
+ * a few consecutive failures the host circuit opens, rejecting requests for
+ * a back-off that doubles every time the first request after it fails too.
+ * It also remembers for a while the URLs that failed to be crawled.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class SearchDomains {
+
+    private static final Logger LOG = Logger.getLogger(SearchDomains.class);
+
+    static final int MIN_TIMEOUT = 2000;
+    static final int TIMEOUT_STEP = 1000;
+    static final int MIN_SAMPLES = 10;
+    static final int MAX_FAILURES = 3;
+    static final long BASE_BACKOFF_MILLIS = 30 * 1000;
+    static final long MAX_BACKOFF_MILLIS = 30 * 60 * 1000;
+
+    private static final long WINDOW_MILLIS = 30 * 60 * 1000;
+    private static final int WINDOW_SLOTS = 6;
+
+    static final long FAILED_URL_LIFETIME = 10 * 60 * 1000;
+    private static final int MAX_FAILED_URLS = 4096;
+
+    private final ConcurrentMap<String, Domain> domains;
+    private final Map<String, Long> failedUrls; // guarded by itself
+
+    SearchDomains() {
+        this.domains = new ConcurrentHashMap<>();
+        this.failedUrls = new LinkedHashMap<String, Long>() {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Long> eldest) {
+                return size() > MAX_FAILED_URLS;
+            }
+        };
+    }
+
+    private static class Loader {
+        static final SearchDomains INSTANCE = new SearchDomains();
+    }
+
+    public static SearchDomains getInstance() {
+        return Loader.INSTANCE;
+    }
+
+    /**
+     * The domain of the host in {@code url}, or of {@code url} itself if
+     * it's just a host name.
+     */
+    public Domain get(String url) {
+        String host = host(url);
+        Domain d = domains.get(host);
+        if (d == null) {
+            d = new Domain(host);
+            Domain old = domains.putIfAbsent(host, d);
+            if (old != null) {
+                d = old;
+            }
+        }
+        return d;
+    }
+
+    public void urlFailed(String url) {
+        urlFailed(url, System.currentTimeMillis());
+    }
+
+    /**
+     * True if the URL failed in the last {@link #FAILED_URL_LIFETIME} milliseconds.
+     */
+    public boolean isUrlFailed(String url) {
+        return isUrlFailed(url, System.currentTimeMillis());
+    }
+
+    void urlFailed(String url, long now) {
+        synchronized (failedUrls) {
+            // re-insert to keep the map in failure order
+            failedUrls.remove(url);
+            failedUrls.put(url, now);
+        }
+    }
+
+    boolean isUrlFailed(String url, long now) {
+        synchronized (failedUrls) {
+            Long failed = failedUrls.get(url);
+            if (failed == null) {
+                return false;
+            }
+            if (now - failed < FAILED_URL_LIFETIME) {
+                return true;
+            }
+            failedUrls.remove(url);
+            return false;
+        }
+    }
+
+    static String host(String url) {
+        int start = url.indexOf("://");
+        start = start == -1 ? 0 : start + 3;
+        int end = start;
+        while (end < url.length()) {
+            char c = url.charAt(end);
+            if (c == '/' || c == ':' || c == '?' || c == '#') {
+                break;
+            }
+            end++;
+        }
+        return url.substring(start, end).toLowerCase();
+    }
+
+    public static final class Domain {
+
+        private final String host;
+        // full responses and, for the pages read as they arrive, time to the headers
+        private final RollingHistogram latency;
+        private final RollingHistogram headersLatency;
+
+        // guarded by this
+        private int failures;
+        private int opens;
+        private long openUntil;
+
+        Domain(String host) {
+            this.host = host;
+            this.latency = new RollingHistogram(WINDOW_MILLIS, WINDOW_SLOTS);
+            this.headersLatency = new RollingHistogram(WINDOW_MILLIS, WINDOW_SLOTS);
+        }
+
+        public String getHost() {
+            return host;
+        }
+
+        /**
+         * Twice the p95 latency of the full responses, rounded up to
+         * {@link #TIMEOUT_STEP} and within [{@link #MIN_TIMEOUT}, {@code timeout}],
+         * or {@code timeout} while there are not enough samples.
+         */
+        public int timeout(int timeout) {
+            return timeout(latency, timeout);
+        }
+
+        /**
+         * The same as {@link #timeout(int)}, with the time to the response headers.
+         */
+        public int headersTimeout(int timeout) {
+            return timeout(headersLatency, timeout);
+        }
+
+        /**
+         * False while the circuit is open, the request should not be made.
+         */
+        public boolean allow() {
+            return allow(System.currentTimeMillis());
+        }
+
+        public void success(long millis) {
+            latency.record(millis);
+            closeCircuit();
+        }
+
+        public void headersSuccess(long millis) {
+            headersLatency.record(millis);
+            closeCircuit();
+        }
+
+        public void failure() {
+            failure(System.currentTimeMillis());
+        }
+
+        /**
+         * A failure that also counts as a sample at the timeout, otherwise a host
+         * getting slower would keep the timeout its faster requests gave it.
+         */
+        public void timedOut(int timeout) {
+            latency.record(timeout);
+            failure();
+        }
+
+        public void headersTimedOut(int timeout) {
+            headersLatency.record(timeout);
+            failure();
+        }
+
+        /**
+         * Records the error of a request made with {@code timeout}, see {@link #timedOut(int)}.
+         * An interrupted request was cancelled by the search and says nothing
+         * about the host, it's not counted.
+         */
+        public void failed(IOException e, int timeout) {
+            failed(latency, e, timeout);
+        }
+
+        public void headersFailed(IOException e, int timeout) {
+            failed(headersLatency, e, timeout);
+        }
+
+        private void failed(RollingHistogram histogram, IOException e, int timeout) {
+            if (e instanceof SocketTimeoutException) {
+                histogram.record(timeout);
+                failure();
+            } else if (!(e instanceof InterruptedIOException) && !Thread.currentThread().isInterrupted()) {
+                failure();
+            }
+        }
+
+        private synchronized void closeCircuit() {
+            failures = 0;
+            opens = 0;
+            openUntil = 0;
+        }
+
+        synchronized boolean allow(long now) {
+            return now >= openUntil;
+        }
+
+        synchronized void failure(long now) {
+            if (now < openUntil) {
+                // a request started before the circuit opened
+                return;
+            }
+            // a failure after a back-off opens it again right away
+            if (++failures >= MAX_FAILURES || opens > 0) {
+                long backoff = Math.min(MAX_BACKOFF_MILLIS, BASE_BACKOFF_MILLIS << Math.min(opens, 16));
+                openUntil = now + backoff;
+                opens++;
+                failures = 0;
+                LOG.info("Circuit open for " + host + " during " + backoff / 1000 + "s");
+            }
+        }
+
+        private static int timeout(RollingHistogram histogram, int timeout) {
+            RollingHistogram.Snapshot s = histogram.snapshot();
+            if (s.count < MIN_SAMPLES) {
+                return timeout;
+            }
+            long t = (2 * s.p95 + TIMEOUT_STEP - 1) / TIMEOUT_STEP * TIMEOUT_STEP;
+            return (int) Math.max(Math.min(MIN_TIMEOUT, timeout), Math.min(timeout, t));
+        }
+    }
+}
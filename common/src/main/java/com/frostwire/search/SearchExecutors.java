@@ -0,0 +1,166 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import com.frostwire.util.Logger;
+import com.frostwire.util.ThreadPool;
+
+import java.lang.reflect.Method;
+import java.util.Locale;
+import java.util.concurrent.Executor;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Builds the executor for the search and crawl tasks of {@link SearchManager}.
+ * Tasks are ordered by ordinal, so when there is a backlog the first tasks of
+ * every search run before the crawls it spawned.
+ * <p>
+ * The mode is selected with the system property {@code frostwire.search.executor}:
+ * <ul>
+ * <li>{@code fixed}: a small pool of platform threads, crawls wait in the queue while
+ * the pool is busy with slow servers.</li>
+ * <li>{@code virtual}: one virtual thread per task, with up to {@link #MAX_IN_FLIGHT}
+ * tasks running at once. Needs a JVM with virtual threads, falls back to fixed.</li>
+ * <li>{@code auto}, the default: virtual when available, fixed otherwise (Android and
+ * older JVMs).</li>
+ * </ul>
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+final class SearchExecutors {
+
+    private static final Logger LOG = Logger.getLogger(SearchExecutors.class);
+
+    static final int FIXED_THREADS = 6;
+    static final int MAX_IN_FLIGHT = 1024;
+
+    private SearchExecutors() {
+    }
+
+    static Executor newExecutor() {
+        String mode = System.getProperty("frostwire.search.executor", "auto").toLowerCase(Locale.US);
+
+        if (!mode.equals("fixed")) {
+            Executor virtual = newVirtualThreadPerTaskExecutor();
+            if (virtual != null) {
+                LOG.info("Using virtual threads for search tasks");
+                return new BoundedPriorityExecutor(virtual, MAX_IN_FLIGHT);
+            }
+            if (mode.equals("virtual")) {
+                LOG.warn("Virtual threads not available, using fixed thread pool for search tasks");
+            }
+        }
+
+        return newFixedExecutor(FIXED_THREADS);
+    }
+
+    static Executor newFixedExecutor(int nThreads) {
+        return new ThreadPool("SearchManager", nThreads, nThreads, 1L, new PriorityBlockingQueue<Runnable>(), true);
+    }
+
+    /**
+     * Returns null if the JVM has no virtual threads, looked up by reflection
+     * since this code also targets Java 8 and Android.
+     */
+    private static Executor newVirtualThreadPerTaskExecutor() {
+        try {
+            Method m = java.util.concurrent.Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (Executor) m.invoke(null);
+        } catch (NoSuchMethodException e) {
+            return null;
+        } catch (Throwable e) {
+            LOG.warn("Unable to create virtual thread executor: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Runs up to {@code maxInFlight} tasks at once on a thread per task executor,
+     * the rest wait in a priority queue so the ordinal order is kept.
+     */
+    static final class BoundedPriorityExecutor implements Executor {
+
+        private final Executor executor;
+        private final int maxInFlight;
+
+        private final PriorityBlockingQueue<Runnable> queue;
+        private final AtomicInteger inFlight;
+
+        BoundedPriorityExecutor(Executor executor, int maxInFlight) {
+            this.executor = executor;
+            this.maxInFlight = maxInFlight;
+            this.queue = new PriorityBlockingQueue<>();
+            this.inFlight = new AtomicInteger();
+        }
+
+        /**
+         * The runnable must be {@link Comparable}, like the search tasks.
+         */
+        @Override
+        public void execute(Runnable command) {
+            queue.offer(command);
+            drain();
+        }
+
+        int inFlight() {
+            return inFlight.get();
+        }
+
+        int queued() {
+            return queue.size();
+        }
+
+        private void drain() {
+            while (true) {
+                int n = inFlight.get();
+                if (n >= maxInFlight) {
+                    return;
+                }
+                if (!inFlight.compareAndSet(n, n + 1)) {
+                    continue;
+                }
+
+                final Runnable task = queue.poll();
+                if (task == null) {
+                    inFlight.decrementAndGet();
+                    // a task offered meanwhile could have seen all the slots taken
+                    if (queue.isEmpty()) {
+                        return;
+                    }
+                    continue;
+                }
+
+                try {
+                    executor.execute(() -> {
+                        try {
+                            task.run();
+                        } finally {
+                            inFlight.decrementAndGet();
+                            drain();
+                        }
+                    });
+                } catch (Throwable e) {
+                    inFlight.decrementAndGet();
+                    LOG.error("Error submitting search task: " + task, e);
+                }
+            }
+        }
+    }
+}
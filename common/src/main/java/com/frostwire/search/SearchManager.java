@@ -20,15 +20,17 @@ package com.frostwire.search;
 import com.frostwire.search.filter.SearchTable;
 import com.frostwire.util.Logger;
 import com.frostwire.util.Ref;
-import com.frostwire.util.ThreadPool;
 
 import java.lang.ref.WeakReference;
 import java.util.Collections;
 import java.util.Iterator;
+import java.util.LinkedHashMap;
 import java.util.LinkedList;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.PriorityBlockingQueue;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 
 /**
  * @author gubatron
@@ -38,20 +40,30 @@ public final class SearchManager {
 
     private static final Logger LOG = Logger.getLogger(SearchManager.class);
 
-    private final ExecutorService executor;
-    private final List<SearchTask> tasks;
+    // the merges of the latest searches are kept for the UI to query
+    private static final int MAX_MERGERS = 16;
+
+    private final Executor executor;
+    private final ConcurrentHashMap<Long, TokenTasks> tasks;
     private final List<WeakReference<SearchTable>> tables;
+    private final Map<Long, ResultMerger> mergers; // guarded by itself
 
     private SearchListener listener;
 
-    private SearchManager(int nThreads) {
-        this.executor = new ThreadPool("SearchManager", nThreads, nThreads, 1L, new PriorityBlockingQueue<>(), true);
-        this.tasks = Collections.synchronizedList(new LinkedList<SearchTask>());
+    SearchManager(Executor executor) {
+        this.executor = executor;
+        this.tasks = new ConcurrentHashMap<>();
         this.tables = Collections.synchronizedList(new LinkedList<WeakReference<SearchTable>>());
+        this.mergers = new LinkedHashMap<Long, ResultMerger>(MAX_MERGERS, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, ResultMerger> eldest) {
+                return size() > MAX_MERGERS;
+            }
+        };
     }
 
     private static class Loader {
-        static final SearchManager INSTANCE = new SearchManager(6);
+        static final SearchManager INSTANCE = new SearchManager(SearchExecutors.newExecutor());
     }
 
     public static SearchManager getInstance() {
@@ -67,11 +79,13 @@ public final class SearchManager {
                 throw new IllegalArgumentException("Search token id must be >= 0");
             }
 
+            final SearchMetrics.Run metrics = SearchMetrics.getInstance().run(performer);
+
             performer.setListener(new SearchListener() {
                 @Override
                 public void onResults(long token, List<? extends SearchResult> results) {
                     if (performer.getToken() == token) {
-                        SearchManager.this.onResults(performer, results);
+                        SearchManager.this.onResults(performer, metrics, results);
                     } else {
                         LOG.warn("Performer token does not match listener onResults token, review your logic");
                     }
@@ -88,8 +102,7 @@ public final class SearchManager {
                 }
             });
 
-            SearchTask task = new PerformTask(this, performer, nextOrdinal(performer.getToken()));
-            submit(task);
+            submit(new PerformTask(this, performer, metrics));
         } else {
             LOG.warn("Search performer is null, review your logic");
         }
@@ -103,6 +116,30 @@ public final class SearchManager {
         stopTasks(token);
     }
 
+    /**
+     * The other copies of a result sent in the search, found by info hash
+     * or file name and size, null if there are none.
+     */
+    public ResultMerger.Merge getMerge(long token, SearchResult sr) {
+        ResultMerger merger;
+        synchronized (mergers) {
+            merger = mergers.get(token);
+        }
+        return merger != null ? merger.get(sr) : null;
+    }
+
+    /**
+     * The merges of the search that got other copies since the last call,
+     * empty if none or the search is no longer kept.
+     */
+    public List<ResultMerger.Merge> pollMerges(long token) {
+        ResultMerger merger;
+        synchronized (mergers) {
+            merger = mergers.get(token);
+        }
+        return merger != null ? merger.poll() : Collections.<ResultMerger.Merge>emptyList();
+    }
+
     public SearchListener getListener() {
         return listener;
     }
@@ -112,14 +149,40 @@ public final class SearchManager {
     }
 
     private void submit(SearchTask task) {
-        tasks.add(task);
+        long token = task.token();
+        while (true) {
+            TokenTasks t = tasks.get(token);
+            if (t == null) {
+                t = new TokenTasks();
+                TokenTasks old = tasks.putIfAbsent(token, t);
+                if (old != null) {
+                    t = old;
+                }
+            }
+            if (t.add(task)) {
+                break;
+            }
+            // finished right before this task, make room for a fresh one
+            tasks.remove(token, t);
+        }
+        task.metrics.submitted();
         executor.execute(task);
     }
 
-    private void onResults(SearchPerformer performer, List<? extends SearchResult> results) {
+    private void complete(SearchTask task) {
+        TokenTasks t = task.tokenTasks;
+        task.metrics.completed();
+        if (t != null && t.complete(task)) {
+            tasks.remove(task.token(), t);
+            onStopped(task.token());
+        }
+    }
+
+    private void onResults(SearchPerformer performer, SearchMetrics.Run metrics, List<? extends SearchResult> results) {
         List<SearchResult> list = new LinkedList<>();
+        ResultMerger merger = merger(performer.getToken());
 
-        for (SearchResult sr : results) {
+        for (SearchResult sr : merger.merge(results)) {
             if (sr instanceof CrawlableSearchResult) {
                 CrawlableSearchResult csr = (CrawlableSearchResult) sr;
 
@@ -127,13 +190,16 @@ public final class SearchManager {
                     list.add(sr);
                 }
 
-                crawl(performer, csr);
+                if (merger.crawl(csr)) {
+                    crawl(performer, metrics, csr);
+                }
             } else {
                 list.add(sr);
             }
         }
 
         if (!list.isEmpty()) {
+            metrics.results(list.size());
             onResults(performer.getToken(), list);
         }
     }
@@ -181,11 +247,21 @@ public final class SearchManager {
         }
     }
 
-    private void crawl(SearchPerformer performer, CrawlableSearchResult sr) {
+    private ResultMerger merger(long token) {
+        synchronized (mergers) {
+            ResultMerger merger = mergers.get(token);
+            if (merger == null) {
+                merger = new ResultMerger();
+                mergers.put(token, merger);
+            }
+            return merger;
+        }
+    }
+
+    private void crawl(SearchPerformer performer, SearchMetrics.Run metrics, CrawlableSearchResult sr) {
         if (performer != null && !performer.isStopped()) {
             try {
-                SearchTask task = new CrawlTask(this, performer, sr, nextOrdinal(performer.getToken()));
-                submit(task);
+                submit(new CrawlTask(this, performer, metrics, sr));
             } catch (Throwable e) {
                 LOG.warn("Error scheduling crawling of search result: " + sr);
             }
@@ -195,60 +271,90 @@ public final class SearchManager {
     }
 
     private void stopTasks(long token) {
-        synchronized (tasks) {
-            for (SearchTask task : tasks) {
-                if (token == -1L || task.token() == token) {
-                    task.stopSearch();
-                }
+        if (token == -1L) {
+            for (TokenTasks t : tasks.values()) {
+                t.stop();
+            }
+        } else {
+            TokenTasks t = tasks.get(token);
+            if (t != null) {
+                t.stop();
             }
         }
     }
 
-    private void checkIfFinished(long token) {
-        SearchTask pendingTask = null;
+    /**
+     * The tasks of a search token. The ordinal of a task is the number of tasks
+     * of the token still pending when it was submitted, so new searches get ahead
+     * of the crawls of older ones in the executor queue.
+     */
+    private static final class TokenTasks {
 
-        synchronized (tasks) {
-            Iterator<SearchTask> it = tasks.iterator();
-            while (it.hasNext() && pendingTask == null) {
-                SearchTask task = it.next();
-                if (task.token() == token && !task.stopped()) {
-                    pendingTask = task;
-                }
+        private final Set<SearchTask> tasks;
 
-                if (task.stopped()) {
-                    it.remove();
-                }
+        // guarded by this
+        private int pending;
+        private boolean finished;
+
+        TokenTasks() {
+            this.tasks = Collections.newSetFromMap(new ConcurrentHashMap<SearchTask, Boolean>());
+        }
+
+        synchronized boolean add(SearchTask task) {
+            if (finished) {
+                return false;
             }
+            task.tokenTasks = this;
+            task.ordinal = pending++;
+            tasks.add(task);
+            return true;
         }
 
-        if (pendingTask == null) {
-            onStopped(token);
+        /**
+         * Returns true if this was the last pending task of the token, or all
+         * the remaining ones belong to stopped performers.
+         */
+        synchronized boolean complete(SearchTask task) {
+            if (!tasks.remove(task) || finished) {
+                return false;
+            }
+            pending--;
+            if (pending == 0 || (task.stopped() && allStopped())) {
+                finished = true;
+            }
+            return finished;
         }
-    }
 
-    private int nextOrdinal(long token) {
-        int ordinal = 0;
-        synchronized (tasks) {
+        void stop() {
             for (SearchTask task : tasks) {
-                if (task.token() == token) {
-                    ordinal = ordinal + 1;
+                task.stopSearch();
+            }
+        }
+
+        private boolean allStopped() {
+            for (SearchTask task : tasks) {
+                if (!task.stopped()) {
+                    return false;
                 }
             }
+            return true;
         }
-        return ordinal;
     }
 
-    private static abstract class SearchTask extends Thread implements Comparable<SearchTask> {
+    private static abstract class SearchTask implements Runnable, Comparable<SearchTask> {
 
         protected final SearchManager manager;
         protected final SearchPerformer performer;
-        private final int ordinal;
+        protected final SearchMetrics.Run metrics;
+
+        // set once by TokenTasks.add, before the task is executed
+        private TokenTasks tokenTasks;
+        private int ordinal;
 
-        SearchTask(SearchManager manager, SearchPerformer performer, int ordinal) {
+        SearchTask(SearchManager manager, SearchPerformer performer, SearchMetrics.Run metrics) {
             this.manager = manager;
             this.performer = performer;
-            this.ordinal = ordinal;
-            this.setName(performer.getClass().getName() + "-SearchTask");
+            this.metrics = metrics;
         }
 
         public long token() {
@@ -269,26 +375,31 @@ public final class SearchManager {
             int y = o.ordinal;
             return (x < y) ? -1 : ((x == y) ? 0 : 1);
         }
+
+        @Override
+        public String toString() {
+            return performer.getClass().getName() + "-SearchTask";
+        }
     }
 
     private static final class PerformTask extends SearchTask {
 
-        PerformTask(SearchManager manager, SearchPerformer performer, int order) {
-            super(manager, performer, order);
+        PerformTask(SearchManager manager, SearchPerformer performer, SearchMetrics.Run metrics) {
+            super(manager, performer, metrics);
         }
 
         @Override
         public void run() {
             try {
                 if (!stopped()) {
+                    metrics.started();
                     performer.perform();
                 }
             } catch (Throwable e) {
+                metrics.error();
                 LOG.warn("Error performing search: " + performer + ", e=" + e.getMessage());
             } finally {
-                if (manager.tasks.remove(this)) {
-                    manager.checkIfFinished(performer.getToken());
-                }
+                manager.complete(this);
             }
         }
     }
@@ -297,8 +408,8 @@ public final class SearchManager {
 
         private final CrawlableSearchResult sr;
 
-        CrawlTask(SearchManager manager, SearchPerformer performer, CrawlableSearchResult sr, int order) {
-            super(manager, performer, order);
+        CrawlTask(SearchManager manager, SearchPerformer performer, SearchMetrics.Run metrics, CrawlableSearchResult sr) {
+            super(manager, performer, metrics);
             this.sr = sr;
         }
 
@@ -309,11 +420,10 @@ public final class SearchManager {
                     performer.crawl(sr);
                 }
             } catch (Throwable e) {
+                metrics.error();
                 LOG.warn("Error performing crawling of: " + sr + ", e=" + e.getMessage());
             } finally {
-                if (manager.tasks.remove(this)) {
-                    manager.checkIfFinished(performer.getToken());
-                }
+                manager.complete(this);
             }
         }
     }
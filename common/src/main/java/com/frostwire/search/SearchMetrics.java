@@ -0,0 +1,288 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import com.frostwire.util.JsonUtils;
+import com.frostwire.util.RollingHistogram;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Latency and yield of the search engines, one entry per performer class.
+ * <p>
+ * Times are in milliseconds and kept for the last hour, the counters since
+ * the start or the last {@link #reset()}.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class SearchMetrics {
+
+    private static final long WINDOW_MILLIS = 60 * 60 * 1000;
+    private static final int WINDOW_SLOTS = 6;
+
+    private final ConcurrentMap<String, Engine> engines;
+
+    SearchMetrics() {
+        this.engines = new ConcurrentHashMap<>();
+    }
+
+    private static class Loader {
+        static final SearchMetrics INSTANCE = new SearchMetrics();
+    }
+
+    public static SearchMetrics getInstance() {
+        return Loader.INSTANCE;
+    }
+
+    public Engine engine(SearchPerformer performer) {
+        return engine(performer.getClass().getSimpleName());
+    }
+
+    public Engine engine(String name) {
+        Engine e = engines.get(name);
+        if (e == null) {
+            e = new Engine(name);
+            Engine old = engines.putIfAbsent(name, e);
+            if (old != null) {
+                e = old;
+            }
+        }
+        return e;
+    }
+
+    /**
+     * The engines used so far, sorted by name.
+     */
+    public List<EngineSnapshot> snapshot() {
+        List<EngineSnapshot> list = new ArrayList<>(engines.size());
+        for (Engine e : engines.values()) {
+            list.add(e.snapshot());
+        }
+        Collections.sort(list, (a, b) -> a.name.compareTo(b.name));
+        return list;
+    }
+
+    public String toJson() {
+        return JsonUtils.toJson(snapshot(), true);
+    }
+
+    /**
+     * Writes {@link #toJson()} to the file, for offline analysis.
+     */
+    public void dump(File file) throws IOException {
+        Writer w = new OutputStreamWriter(new FileOutputStream(file), "UTF-8");
+        try {
+            w.write(toJson());
+        } finally {
+            w.close();
+        }
+    }
+
+    public void reset() {
+        for (Engine e : engines.values()) {
+            e.reset();
+        }
+    }
+
+    Run run(SearchPerformer performer) {
+        return new Run(engine(performer));
+    }
+
+    /**
+     * Tracks one search of an engine, from the start of the perform task
+     * until the last of its crawls completes.
+     */
+    static final class Run {
+
+        private final Engine engine;
+        private final AtomicInteger pending;
+        private final AtomicInteger results;
+        private volatile long started;
+
+        Run(Engine engine) {
+            this.engine = engine;
+            this.pending = new AtomicInteger();
+            this.results = new AtomicInteger();
+        }
+
+        void submitted() {
+            pending.incrementAndGet();
+        }
+
+        void started() {
+            started = System.currentTimeMillis();
+            engine.searches.incrementAndGet();
+        }
+
+        void results(int n) {
+            if (n <= 0) {
+                return;
+            }
+            if (results.getAndAdd(n) == 0 && started != 0) {
+                engine.firstResultTime.record(System.currentTimeMillis() - started);
+            }
+            engine.results.addAndGet(n);
+        }
+
+        void error() {
+            engine.errors.incrementAndGet();
+        }
+
+        void completed() {
+            if (pending.decrementAndGet() == 0 && started != 0) {
+                int n = results.get();
+                engine.yield.record(n);
+                if (n == 0) {
+                    engine.emptySearches.incrementAndGet();
+                }
+            }
+        }
+    }
+
+    public static final class Engine {
+
+        private final String name;
+
+        private final RollingHistogram httpTime;
+        private final RollingHistogram parseTime;
+        private final RollingHistogram firstResultTime;
+        private final RollingHistogram yield;
+
+        private final AtomicLong searches;
+        private final AtomicLong emptySearches;
+        private final AtomicLong results;
+        private final AtomicLong errors;
+        private final AtomicLong cacheHits;
+        private final AtomicLong cacheMisses;
+
+        Engine(String name) {
+            this.name = name;
+            this.httpTime = new RollingHistogram(WINDOW_MILLIS, WINDOW_SLOTS);
+            this.parseTime = new RollingHistogram(WINDOW_MILLIS, WINDOW_SLOTS);
+            this.firstResultTime = new RollingHistogram(WINDOW_MILLIS, WINDOW_SLOTS);
+            this.yield = new RollingHistogram(WINDOW_MILLIS, WINDOW_SLOTS);
+            this.searches = new AtomicLong();
+            this.emptySearches = new AtomicLong();
+            this.results = new AtomicLong();
+            this.errors = new AtomicLong();
+            this.cacheHits = new AtomicLong();
+            this.cacheMisses = new AtomicLong();
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * Time of a request, from the start until the body is read.
+         */
+        public void recordHttp(long millis) {
+            httpTime.record(millis);
+        }
+
+        /**
+         * Time to extract the results of a page or a crawled item.
+         */
+        public void recordParse(long millis) {
+            parseTime.record(millis);
+        }
+
+        public void recordError() {
+            errors.incrementAndGet();
+        }
+
+        public void recordCache(boolean hit) {
+            if (hit) {
+                cacheHits.incrementAndGet();
+            } else {
+                cacheMisses.incrementAndGet();
+            }
+        }
+
+        public EngineSnapshot snapshot() {
+            return new EngineSnapshot(this);
+        }
+
+        void reset() {
+            httpTime.reset();
+            parseTime.reset();
+            firstResultTime.reset();
+            yield.reset();
+            searches.set(0);
+            emptySearches.set(0);
+            results.set(0);
+            errors.set(0);
+            cacheHits.set(0);
+            cacheMisses.set(0);
+        }
+    }
+
+    public static final class EngineSnapshot {
+
+        public final String name;
+
+        public final RollingHistogram.Snapshot httpTime;
+        public final RollingHistogram.Snapshot parseTime;
+        public final RollingHistogram.Snapshot firstResultTime;
+        /**
+         * Results per search.
+         */
+        public final RollingHistogram.Snapshot yield;
+
+        public final long searches;
+        public final long emptySearches;
+        public final long results;
+        public final long errors;
+        public final long cacheHits;
+        public final long cacheMisses;
+
+        EngineSnapshot(Engine e) {
+            this.name = e.name;
+            this.httpTime = e.httpTime.snapshot();
+            this.parseTime = e.parseTime.snapshot();
+            this.firstResultTime = e.firstResultTime.snapshot();
+            this.yield = e.yield.snapshot();
+            this.searches = e.searches.get();
+            this.emptySearches = e.emptySearches.get();
+            this.results = e.results.get();
+            this.errors = e.errors.get();
+            this.cacheHits = e.cacheHits.get();
+            this.cacheMisses = e.cacheMisses.get();
+        }
+
+        /**
+         * The crawl cache hit ratio, between 0 and 1.
+         */
+        public double cacheHitRatio() {
+            long total = cacheHits + cacheMisses;
+            return total > 0 ? (double) cacheHits / total : 0;
+        }
+    }
+}
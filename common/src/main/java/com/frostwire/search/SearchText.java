@@ -0,0 +1,301 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+
+/**
+ * Normalization of queries and result names, used to check that the results
+ * of a search contain all the words of the query.
+ * <p>
+ * The text is sanitized (markup removed, separators and a few common noise
+ * words turned into spaces) and then lowercased without diacritics, in a
+ * single pass over the chars for plain ASCII text, which is most of it.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class SearchText {
+
+    // the chars replaced by a space, besides the words in isNoiseWord
+    private static final String SEPARATORS = "\\/%_;-.()[]\n\r\u00D0&~{}*@^'=!,\u00A1|#\u00C0\u00C1";
+
+    private static final boolean[] ASCII_SEPARATORS = new boolean[128];
+
+    static {
+        for (int i = 0; i < SEPARATORS.length(); i++) {
+            char c = SEPARATORS.charAt(i);
+            if (c < 128) {
+                ASCII_SEPARATORS[c] = true;
+            }
+        }
+    }
+
+    private SearchText() {
+    }
+
+    /**
+     * Splits the query in sanitized and normalized tokens, without duplicates.
+     */
+    public static List<String> tokenize(String query) {
+        String str = sanitize(query);
+        Set<String> tokens = new LinkedHashSet<>();
+        for (String token : str.split(" ")) {
+            tokens.add(normalize(token));
+        }
+        return new ArrayList<>(tokens);
+    }
+
+    /**
+     * Keeps the results that contain all the tokens, only crawled results
+     * are checked since the rest come from the search engine query itself.
+     */
+    public static List<SearchResult> filter(List<? extends SearchResult> results, List<String> tokens) {
+        if (tokens == null || tokens.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        List<SearchResult> list = new LinkedList<>();
+
+        try {
+            for (SearchResult sr : results) {
+                if (sr instanceof CrawledSearchResult) {
+                    if (matches(sr, tokens)) {
+                        list.add(sr);
+                    }
+                } else {
+                    list.add(sr);
+                }
+            }
+        } catch (Throwable e) {
+            // possible NPE due to cancel search or some inner error in search results, ignore it and cleanup list
+            list.clear();
+        }
+
+        return list;
+    }
+
+    /**
+     * Returns true if the normalized text of the result contains all the tokens.
+     */
+    public static boolean matches(SearchResult sr, List<String> tokens) {
+        String str = text(sr);
+        for (int i = 0; i < tokens.size(); i++) {
+            if (!str.contains(tokens.get(i))) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * The sanitized and normalized text of the names of the result, cached.
+     */
+    public static String text(SearchResult sr) {
+        if (!(sr instanceof AbstractSearchResult)) {
+            return buildText(sr);
+        }
+        // asked for with every query token
+        AbstractSearchResult asr = (AbstractSearchResult) sr;
+        String str = asr.searchText;
+        if (str == null) {
+            str = buildText(sr);
+            asr.searchText = str;
+        }
+        return str;
+    }
+
+    private static String buildText(SearchResult sr) {
+        StringBuilder sb = new StringBuilder();
+
+        sb.append(sr.getDisplayName());
+        if (sr instanceof CrawledSearchResult) {
+            sb.append(((CrawledSearchResult) sr).getParent().getDisplayName());
+        }
+        if (sr instanceof FileSearchResult) {
+            sb.append(((FileSearchResult) sr).getFilename());
+        }
+
+        return normalize(sanitize(sb.toString()));
+    }
+
+    /**
+     * Removes HTML tags and entities, replaces separators and the words
+     * ".torrent", "www.", ".com" and ".net" with a space, collapses runs
+     * of whitespace and trims.
+     */
+    public static String sanitize(String str) {
+        str = stripHtml(str);
+
+        int len = str.length();
+        char[] out = new char[len];
+        int n = 0;
+        boolean space = true; // at the start, so leading spaces are trimmed
+
+        int i = 0;
+        while (i < len) {
+            char c = str.charAt(i);
+            int noise = noiseWord(str, i);
+            if (noise > 0 || isSeparator(c) || isWhitespace(c)) {
+                if (!space) {
+                    out[n++] = ' ';
+                    space = true;
+                }
+                i += noise > 0 ? noise : 1;
+            } else {
+                out[n++] = c;
+                space = false;
+                i++;
+            }
+        }
+
+        // trim, including any remaining control char
+        int start = 0;
+        while (start < n && out[start] <= ' ') {
+            start++;
+        }
+        while (n > start && out[n - 1] <= ' ') {
+            n--;
+        }
+
+        return new String(out, start, n - start);
+    }
+
+    /**
+     * Lowercase, with the compatibility decomposition of the text and
+     * without combining diacritical marks.
+     */
+    public static String normalize(String str) {
+        int len = str.length();
+        int i = 0;
+        while (i < len && str.charAt(i) < 128) {
+            i++;
+        }
+
+        if (i == len) { // ASCII, decomposition does nothing
+            return toLowerCaseAscii(str);
+        }
+
+        String norm = Normalizer.normalize(str, Normalizer.Form.NFKD);
+        StringBuilder sb = new StringBuilder(norm.length());
+        for (int j = 0; j < norm.length(); j++) {
+            char c = norm.charAt(j);
+            if (c < '\u0300' || c > '\u036F') {
+                sb.append(c);
+            }
+        }
+        return sb.toString().toLowerCase(Locale.US);
+    }
+
+    // the same as removing "\\<.*?>" and "\\&.*?\;"
+    private static String stripHtml(String str) {
+        if (str.indexOf('<') == -1 && str.indexOf('&') == -1) {
+            return str;
+        }
+
+        StringBuilder sb = new StringBuilder(str.length());
+        int len = str.length();
+        int i = 0;
+        while (i < len) {
+            char c = str.charAt(i);
+            if (c == '<' || c == '&') {
+                int end = closing(str, i + 1, c == '<' ? '>' : ';');
+                if (end != -1) {
+                    i = end + 1;
+                    continue;
+                }
+            }
+            sb.append(c);
+            i++;
+        }
+        return sb.toString();
+    }
+
+    // the index of the closing char, if there is no line terminator before it
+    private static int closing(String str, int from, char close) {
+        for (int i = from; i < str.length(); i++) {
+            char c = str.charAt(i);
+            if (c == close) {
+                return i;
+            }
+            if (c == '\n' || c == '\r' || c == '\u0085' || c == '\u2028' || c == '\u2029') {
+                return -1;
+            }
+        }
+        return -1;
+    }
+
+    // the length of the noise word at i, 0 if none
+    private static int noiseWord(String str, int i) {
+        char c = str.charAt(i);
+        if (c == '.') {
+            if (str.startsWith(".torrent", i)) {
+                return 8;
+            }
+            if (str.startsWith(".com", i) || str.startsWith(".net", i)) {
+                return 4;
+            }
+        } else if (c == 'w' && str.startsWith("www.", i)) {
+            return 4;
+        }
+        return 0;
+    }
+
+    private static boolean isSeparator(char c) {
+        if (c < 128) {
+            return ASCII_SEPARATORS[c];
+        }
+        return c == '\u00D0' || c == '\u00A1' || c == '\u00C0' || c == '\u00C1';
+    }
+
+    // same as the regex \s
+    private static boolean isWhitespace(char c) {
+        return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+    }
+
+    private static String toLowerCaseAscii(String str) {
+        int len = str.length();
+        int i = 0;
+        while (i < len) {
+            char c = str.charAt(i);
+            if (c >= 'A' && c <= 'Z') {
+                break;
+            }
+            i++;
+        }
+        if (i == len) {
+            return str;
+        }
+
+        char[] chars = str.toCharArray();
+        for (; i < len; i++) {
+            char c = chars[i];
+            if (c >= 'A' && c <= 'Z') {
+                chars[i] = (char) (c + 32);
+            }
+        }
+        return new String(chars);
+    }
+}
@@ -25,6 +25,7 @@ import com.frostwire.util.UserAgentGenerator;
 import org.apache.commons.io.FilenameUtils;
 
 import java.io.IOException;
+import java.io.Reader;
 import java.util.Map;
 
 /**
@@ -46,6 +47,7 @@ public abstract class WebSearchPerformer extends AbstractSearchPerformer {
     private final String encodedKeywords;
     private final int timeout;
     private final HttpClient client;
+    private final SearchMetrics.Engine metrics;
 
     public WebSearchPerformer(String domainName, long token, String keywords, int timeout) {
         super(token);
@@ -59,6 +61,7 @@ public abstract class WebSearchPerformer extends AbstractSearchPerformer {
         this.encodedKeywords = UrlUtils.encode(keywords);
         this.timeout = timeout;
         this.client = HttpClientFactory.getInstance(HttpClientFactory.HttpContext.SEARCH);
+        this.metrics = SearchMetrics.getInstance().engine(this);
     }
 
     public final String getKeywords() {
@@ -76,6 +79,8 @@ public abstract class WebSearchPerformer extends AbstractSearchPerformer {
 
     /**
      * Allow to perform the HTTP operation using the same internal http client.
+     * The timeout adapts to the latency of the host, and no request is made
+     * while its circuit is open, see {@link SearchDomains}.
      * 
      * @param url
      * @return the web page (html)
@@ -85,13 +90,54 @@ public abstract class WebSearchPerformer extends AbstractSearchPerformer {
     }
 
     public String fetch(String url, String cookie, Map<String, String> customHeaders) throws IOException {
-        return client.get(url, timeout, DEFAULT_USER_AGENT, null, cookie, customHeaders);
+        SearchDomains.Domain domain = domain(url);
+        int t = domain.timeout(timeout);
+        long start = System.currentTimeMillis();
+        try {
+            String page = client.get(url, t, DEFAULT_USER_AGENT, null, cookie, customHeaders);
+            complete(domain, start, page != null);
+            return page;
+        } catch (IOException e) {
+            domain.failed(e, t);
+            throw e;
+        }
+    }
+
+    /**
+     * Same as {@link #fetch(String)} but the page can be read as it arrives,
+     * the caller is responsible for closing the reader.
+     *
+     * @param url
+     * @return the web page (html) reader
+     */
+    public Reader fetchReader(String url) throws IOException {
+        SearchDomains.Domain domain = domain(url);
+        int t = domain.headersTimeout(timeout);
+        long start = System.currentTimeMillis();
+        try {
+            Reader reader = client.openReader(url, t, DEFAULT_USER_AGENT, null, null, null);
+            // only the headers are in, not comparable with the full responses
+            domain.headersSuccess(System.currentTimeMillis() - start);
+            return reader;
+        } catch (IOException e) {
+            domain.headersFailed(e, t);
+            throw e;
+        }
     }
 
     public String post(String url, Map<String, String> formData) {
+        SearchDomains.Domain domain = SearchDomains.getInstance().get(url);
+        if (!domain.allow()) {
+            return null;
+        }
+        int t = domain.timeout(timeout);
+        long start = System.currentTimeMillis();
         try {
-            return client.post(url, timeout, DEFAULT_USER_AGENT, formData);
-        } catch (IOException throwable) {
+            String page = client.post(url, t, DEFAULT_USER_AGENT, formData);
+            complete(domain, start, page != null);
+            return page;
+        } catch (IOException e) {
+            domain.failed(e, t);
             return null;
         }
     }
@@ -108,12 +154,35 @@ public abstract class WebSearchPerformer extends AbstractSearchPerformer {
 
     protected final byte[] fetchBytes(String url, String referrer, int timeout) {
         if (url.startsWith("htt")) { // http(s)
-            return client.getBytes(url, timeout, DEFAULT_USER_AGENT, referrer);
+            SearchDomains.Domain domain = SearchDomains.getInstance().get(url);
+            if (!domain.allow()) {
+                return null;
+            }
+            long start = System.currentTimeMillis();
+            byte[] data = client.getBytes(url, domain.timeout(timeout), DEFAULT_USER_AGENT, referrer);
+            complete(domain, start, data != null);
+            return data;
         } else {
             return null;
         }
     }
 
+    private static SearchDomains.Domain domain(String url) throws IOException {
+        SearchDomains.Domain domain = SearchDomains.getInstance().get(url);
+        if (!domain.allow()) {
+            throw new IOException("Circuit open for " + domain.getHost() + ", request not made");
+        }
+        return domain;
+    }
+
+    private static void complete(SearchDomains.Domain domain, long start, boolean success) {
+        if (success) {
+            domain.success(System.currentTimeMillis() - start);
+        } else {
+            domain.failure();
+        }
+    }
+
     public static final boolean isStreamable(String filename) {
         String ext = FilenameUtils.getExtension(filename);
         for (String s : STREAMABLE_EXTENSIONS) {
@@ -128,4 +197,8 @@ public abstract class WebSearchPerformer extends AbstractSearchPerformer {
     public String getDomainName() {
         return domainName;
     }
+
+    protected final SearchMetrics.Engine getMetrics() {
+        return metrics;
+    }
 }
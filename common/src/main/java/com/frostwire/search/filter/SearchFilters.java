@@ -34,6 +34,17 @@ public final class SearchFilters {
         return new AddFilter(f1, f2);
     }
 
+    /**
+     * If {@code filter} was built as {@code add(base, f)} returns {@code f},
+     * null otherwise.
+     */
+    static SearchFilter refinement(SearchFilter filter, SearchFilter base) {
+        if (filter instanceof AddFilter && ((AddFilter) filter).f1 == base) {
+            return ((AddFilter) filter).f2;
+        }
+        return null;
+    }
+
     private static final class AddFilter implements SearchFilter {
 
         private final SearchFilter f1;
@@ -1,6 +1,6 @@
 /*
  * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
- * Copyright (c) 2011-2016, FrostWire(R). All rights reserved.
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
 
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -19,31 +19,93 @@ package com.frostwire.search.filter;
 
 import com.frostwire.search.SearchResult;
 
+import java.util.Arrays;
 import java.util.Collections;
-import java.util.SortedSet;
-import java.util.TreeSet;
+import java.util.Comparator;
+import java.util.List;
 
 /**
+ * The rows of a view that share the same {@link FilterKey}, ordered by the
+ * comparator of the filter. Results that compare equal are kept in the order
+ * they arrived. New rows are sorted and merged the next time the data is read.
+ *
  * @author gubatron
  * @author aldenml
  */
 public final class SearchGroup {
 
-    private final SortedSet<SearchResult> data;
+    private static final int[] EMPTY = new int[0];
+
+    private final SearchTable table;
+    private final Comparator<SearchResult> comparator;
+
+    // guarded by this
+    private int[] sorted;
+    private int[] pending;
+    private int pendingSize;
+
+    SearchGroup(SearchTable table, SearchFilter filter) {
+        this.table = table;
+        this.comparator = filter.comparator();
+        this.sorted = EMPTY;
+        this.pending = EMPTY;
+    }
+
+    public synchronized int size() {
+        return sorted.length + pendingSize;
+    }
+
+    public synchronized List<SearchResult> data() {
+        merge();
+        SearchResult[] arr = new SearchResult[sorted.length];
+        for (int i = 0; i < arr.length; i++) {
+            arr[i] = table.get(sorted[i]);
+        }
+        return Collections.unmodifiableList(Arrays.asList(arr));
+    }
 
-    SearchGroup(SearchFilter filter) {
-        this.data = new TreeSet<>(filter.comparator());
+    synchronized void add(int row) {
+        if (pendingSize == pending.length) {
+            pending = Arrays.copyOf(pending, Math.max(16, pendingSize * 2));
+        }
+        pending[pendingSize++] = row;
     }
 
-    public SortedSet<SearchResult> data() {
-        return Collections.unmodifiableSortedSet(data);
+    synchronized void clear() {
+        sorted = EMPTY;
+        pending = EMPTY;
+        pendingSize = 0;
     }
 
-    void add(SearchResult sr) {
-        data.add(sr);
+    private void merge() {
+        if (pendingSize == 0) {
+            return;
+        }
+
+        Integer[] tail = new Integer[pendingSize];
+        for (int i = 0; i < pendingSize; i++) {
+            tail[i] = pending[i];
+        }
+        Arrays.sort(tail, this::compare);
+
+        int[] merged = new int[sorted.length + tail.length];
+        int i = 0, j = 0, k = 0;
+        while (i < sorted.length && j < tail.length) {
+            merged[k++] = compare(sorted[i], tail[j]) <= 0 ? sorted[i++] : tail[j++];
+        }
+        while (i < sorted.length) {
+            merged[k++] = sorted[i++];
+        }
+        while (j < tail.length) {
+            merged[k++] = tail[j++];
+        }
+
+        sorted = merged;
+        pendingSize = 0;
     }
 
-    void clear() {
-        data.clear();
+    private int compare(int row1, int row2) {
+        int n = comparator.compare(table.get(row1), table.get(row2));
+        return n != 0 ? n : Integer.compare(row1, row2);
     }
 }
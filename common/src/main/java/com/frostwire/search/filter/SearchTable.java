@@ -1,6 +1,6 @@
 /*
  * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
- * Copyright (c) 2011-2016, FrostWire(R). All rights reserved.
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
 
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -24,49 +24,95 @@ import java.lang.ref.WeakReference;
 import java.util.*;
 
 /**
+ * Append only store of the results of a search. Rows are kept in fixed size
+ * chunks and published in batches, readers see a consistent snapshot without
+ * locking while the search threads keep adding.
+ *
  * @author gubatron
  * @author aldenml
  */
 public final class SearchTable {
 
+    private static final int CHUNK_SHIFT = 10;
+    private static final int CHUNK_SIZE = 1 << CHUNK_SHIFT;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private static final Rows EMPTY = new Rows(new SearchResult[0][], 0);
+
     private final long token;
-    private final LinkedList<SearchResult> data;
 
     private final LinkedList<WeakReference<SearchView>> views;
     private final Object lock;
 
+    private volatile Rows rows;
+
     public SearchTable(long token) {
         this.token = token;
-        this.data = new LinkedList<>();
 
         this.views = new LinkedList<>();
         this.lock = new Object();
+
+        this.rows = EMPTY;
     }
 
     public long token() {
         return token;
     }
 
+    public int size() {
+        return rows.size;
+    }
+
+    public SearchResult get(int row) {
+        return rows.get(row);
+    }
+
+    /**
+     * Returns an unmodifiable snapshot of the rows at the moment of the call.
+     */
     public List<SearchResult> data() {
-        return Collections.unmodifiableList(data);
+        return new RowsList(rows);
     }
 
     public SearchView view(SearchFilter filter) {
-        SearchView v = new SearchView(this, filter);
         synchronized (lock) {
+            SearchView v = new SearchView(this, filter);
             views.add(Ref.weak(v));
+            return v;
         }
-        return v;
     }
 
     public void add(List<? extends SearchResult> results) {
-        data.addAll(results);
+        if (results.isEmpty()) {
+            return;
+        }
+
         synchronized (lock) {
+            Rows r = rows;
+            SearchResult[][] chunks = r.chunks;
+            int n = r.size;
+
+            for (SearchResult sr : results) {
+                int c = n >>> CHUNK_SHIFT;
+                if (c == chunks.length) {
+                    chunks = Arrays.copyOf(chunks, Math.max(4, c * 2));
+                }
+                if (chunks[c] == null) {
+                    chunks[c] = new SearchResult[CHUNK_SIZE];
+                }
+                // beyond the size of any published snapshot
+                chunks[c][n & CHUNK_MASK] = sr;
+                n++;
+            }
+
+            int from = r.size;
+            rows = new Rows(chunks, n);
+
             Iterator<WeakReference<SearchView>> it = views.iterator();
             while (it.hasNext()) {
-                WeakReference<SearchView> r = it.next();
-                if (Ref.alive(r)) {
-                    r.get().add(results);
+                WeakReference<SearchView> ref = it.next();
+                if (Ref.alive(ref)) {
+                    ref.get().added(from, n);
                 } else {
                     it.remove();
                 }
@@ -75,8 +121,8 @@ public final class SearchTable {
     }
 
     public void clear() {
-        data.clear();
         synchronized (lock) {
+            // views first, their groups reference rows of this table
             Iterator<WeakReference<SearchView>> it = views.iterator();
             while (it.hasNext()) {
                 WeakReference<SearchView> r = it.next();
@@ -86,6 +132,8 @@ public final class SearchTable {
                     it.remove();
                 }
             }
+
+            rows = EMPTY;
         }
     }
 
@@ -98,4 +146,49 @@ public final class SearchTable {
     public void add(SearchResult sr) {
         add(Arrays.asList(sr));
     }
+
+    /**
+     * The lock held while rows are added, views take it to evaluate
+     * the table without missing concurrent additions.
+     */
+    Object lock() {
+        return lock;
+    }
+
+    private static final class Rows {
+
+        final SearchResult[][] chunks;
+        final int size;
+
+        Rows(SearchResult[][] chunks, int size) {
+            this.chunks = chunks;
+            this.size = size;
+        }
+
+        SearchResult get(int row) {
+            if (row < 0 || row >= size) {
+                throw new IndexOutOfBoundsException("row: " + row + ", size: " + size);
+            }
+            return chunks[row >>> CHUNK_SHIFT][row & CHUNK_MASK];
+        }
+    }
+
+    private static final class RowsList extends AbstractList<SearchResult> implements RandomAccess {
+
+        private final Rows rows;
+
+        RowsList(Rows rows) {
+            this.rows = rows;
+        }
+
+        @Override
+        public SearchResult get(int index) {
+            return rows.get(index);
+        }
+
+        @Override
+        public int size() {
+            return rows.size;
+        }
+    }
 }
@@ -1,6 +1,6 @@
 /*
  * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
- * Copyright (c) 2011-2016, FrostWire(R). All rights reserved.
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
 
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -20,79 +20,171 @@ package com.frostwire.search.filter;
 import com.frostwire.search.SearchResult;
 
 import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
 
 /**
+ * A filtered and grouped view of a {@link SearchTable}. New rows of the table
+ * are evaluated as they arrive and reported with {@link SearchViewListener#viewAdded},
+ * the view remembers the rows it accepted so a change of filter only evaluates the
+ * rows that could have a different outcome.
+ *
  * @author gubatron
  * @author aldenml
  */
 public final class SearchView {
 
     private final SearchTable table;
-    private final SearchFilter filter;
-    private final SortedMap<FilterKey, SearchGroup> groups;
+    private final ConcurrentSkipListMap<FilterKey, SearchGroup> groups;
+
+    // guarded by the table lock
+    private final BitSet accepted;
 
+    private volatile SearchFilter filter;
+    private volatile int size;
     private SearchViewListener listener;
 
     public SearchView(SearchTable table, SearchFilter filter) {
         this.table = table;
         this.filter = filter;
-        this.groups = new TreeMap<>();
+        this.groups = new ConcurrentSkipListMap<>();
+        this.accepted = new BitSet();
 
-        add(table.data());
+        synchronized (table.lock()) {
+            added(0, table.size());
+        }
     }
 
     public SearchFilter filter() {
         return filter;
     }
 
+    /**
+     * Changes the filter of the view. If the new filter is {@code SearchFilters.add(filter(), f)}
+     * only the rows already in the view are evaluated, and only with {@code f}. If the current
+     * filter is {@code SearchFilters.add(newFilter, f)} the rows in the view stay and only
+     * the rest are evaluated. Anything else evaluates the whole table.
+     */
+    public void filter(SearchFilter newFilter) {
+        synchronized (table.lock()) {
+            SearchFilter old = filter;
+            filter = newFilter;
+
+            int n = table.size();
+            BitSet previous = (BitSet) accepted.clone();
+            reset();
+
+            SearchFilter narrowing = SearchFilters.refinement(newFilter, old);
+            if (narrowing != null) {
+                for (int row = previous.nextSetBit(0); row >= 0; row = previous.nextSetBit(row + 1)) {
+                    SearchResult sr = table.get(row);
+                    if (narrowing.accept(sr)) {
+                        place(row, sr, newFilter);
+                    }
+                }
+            } else if (SearchFilters.refinement(old, newFilter) != null) {
+                for (int row = 0; row < n; row++) {
+                    SearchResult sr = table.get(row);
+                    if (previous.get(row) || newFilter.accept(sr)) {
+                        place(row, sr, newFilter);
+                    }
+                }
+            } else {
+                evaluate(0, n, null);
+            }
+
+            if (listener != null) {
+                listener.viewChanged(this);
+            }
+        }
+    }
+
     public SortedMap<FilterKey, SearchGroup> groups() {
         return Collections.unmodifiableSortedMap(groups);
     }
 
-    public void add(List<? extends SearchResult> results) {
-        LinkedList<SearchResult> added = new LinkedList<>();
-
-        for (SearchResult sr : results) {
-            if (filter.accept(sr)) {
-                FilterKey key = filter.key(sr);
-                SearchGroup group = groups.get(key);
+    /**
+     * Number of results in the view.
+     */
+    public int size() {
+        return size;
+    }
 
-                if (group == null) {
-                    group = new SearchGroup(filter);
-                    groups.put(key, group);
-                }
+    /**
+     * Evaluates the whole table again, meant for filters that changed
+     * their internal criteria.
+     */
+    public void refresh() {
+        synchronized (table.lock()) {
+            reset();
+            evaluate(0, table.size(), null);
 
-                group.add(sr);
-                added.add(sr);
+            if (listener != null) {
+                listener.viewChanged(this);
             }
         }
+    }
+
+    public SearchViewListener getListener() {
+        return listener;
+    }
+
+    public void setListener(SearchViewListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * Called by the table, holding its lock, with the range of the new rows.
+     */
+    void added(int from, int to) {
+        List<SearchResult> added = new ArrayList<>();
+        evaluate(from, to, added);
 
         if (listener != null && added.size() > 0) {
             listener.viewAdded(this, added);
         }
     }
 
-    public void refresh() {
-        clear();
-        add(table.data());
+    void clear() {
+        reset();
+
+        if (listener != null) {
+            listener.viewChanged(this);
+        }
     }
 
-    public SearchViewListener getListener() {
-        return listener;
+    private void evaluate(int from, int to, List<SearchResult> added) {
+        SearchFilter f = filter;
+        for (int row = from; row < to; row++) {
+            SearchResult sr = table.get(row);
+            if (f.accept(sr)) {
+                place(row, sr, f);
+                if (added != null) {
+                    added.add(sr);
+                }
+            }
+        }
     }
 
-    public void setListener(SearchViewListener listener) {
-        this.listener = listener;
+    private void place(int row, SearchResult sr, SearchFilter f) {
+        FilterKey key = f.key(sr);
+        SearchGroup group = groups.get(key);
+
+        if (group == null) {
+            group = new SearchGroup(table, f);
+            groups.put(key, group);
+        }
+
+        group.add(row);
+        accepted.set(row);
+        size++;
     }
 
-    public void clear() {
+    private void reset() {
         for (SearchGroup g : groups.values()) {
             g.clear();
         }
         groups.clear();
-
-        if (listener != null) {
-            listener.viewChanged(this);
-        }
+        accepted.clear();
+        size = 0;
     }
 }
@@ -58,14 +58,14 @@ public class FrostClickSearchPerformer extends PagedWebSearchPerformer {
         try {
             text = fetch(url, null, customHeaders);
         } catch (IOException e) {
-            return Collections.emptyList();
+            return null;
         }
         
         if (text != null) {
             return searchPage(text);
         } else {
             LOG.warn("Page content empty for url: " + url);
-            return Collections.emptyList();
+            return null;
         }
     }
 
@@ -19,6 +19,7 @@
 package com.frostwire.search.limetorrents;
 
 import com.frostwire.search.CrawlableSearchResult;
+import com.frostwire.search.HtmlStreamScanner;
 import com.frostwire.search.SearchMatcher;
 import com.frostwire.search.torrent.TorrentRegexSearchPerformer;
 
@@ -37,6 +38,7 @@ public class LimeTorrentsSearchPerformer extends TorrentRegexSearchPerformer<Lim
                     "<tr><td align=\"right\"><b>Added</b> :</td><td>(?<time>.*?) in.*?" +
                     "<tr><td align=\"right\"><b>Size</b> :</td><td>(?<filesize>.*?) (?<unit>[A-Z]+)</td></tr>.*?" +
                     "<a href=\"magnet:(?<magnet_part>.*?)\".*?></a>";
+    private static final HtmlStreamScanner PAGE_SCANNER = new HtmlStreamScanner(null, null, "<a href=\"http://itorrents.org/torrent/");
 
     public LimeTorrentsSearchPerformer(String domainName, long token, String keywords, int timeout) {
         super(domainName, token, keywords, timeout, 1, 2 * MAX_RESULTS, MAX_RESULTS, REGEX, HTML_REGEX);
@@ -55,6 +57,11 @@ public class LimeTorrentsSearchPerformer extends TorrentRegexSearchPerformer<Lim
         return new LimeTorrentsTempSearchResult(getDomainName(), transformedId);
     }
 
+    @Override
+    protected HtmlStreamScanner getPageScanner() {
+        return PAGE_SCANNER;
+    }
+
     @Override
     protected int htmlSuffixOffset(String html) {
         int offset = html.indexOf("<div><h3>Latest Searches</h3>");
@@ -18,6 +18,7 @@
 package com.frostwire.search.torlock;
 
 import com.frostwire.search.CrawlableSearchResult;
+import com.frostwire.search.HtmlStreamScanner;
 import com.frostwire.search.SearchMatcher;
 import com.frostwire.search.torrent.TorrentRegexSearchPerformer;
 
@@ -35,6 +36,7 @@ public final class TorLockSearchPerformer extends TorrentRegexSearchPerformer<To
             "<dt>SIZE</dt>.?<dd>(?<filesize>.*?) in.*?" +
             "<dt>ADDED</dt>.?<dd>Uploaded on (?<time>.*?) by.*?" +
             "<dt>SWARM</dt>.?<dd><b style=\"color:#FF5400\">(?<seeds>\\d*?)</b>";
+    private static final HtmlStreamScanner PAGE_SCANNER = new HtmlStreamScanner(null, null, "<a href=/torrent/");
 
     public TorLockSearchPerformer(String domainName, long token, String keywords, int timeout) {
         super(domainName, token, keywords, timeout, 1, 2 * MAX_RESULTS, MAX_RESULTS, REGEX, HTML_REGEX);
@@ -52,6 +54,11 @@ public final class TorLockSearchPerformer extends TorrentRegexSearchPerformer<To
         return new TorLockTempSearchResult(getDomainName(), itemId);
     }
 
+    @Override
+    protected HtmlStreamScanner getPageScanner() {
+        return PAGE_SCANNER;
+    }
+
     @Override
     protected int htmlPrefixOffset(String html) {
         int offset = html.indexOf("SIGN UP</a>");
@@ -19,6 +19,7 @@ package com.frostwire.search.tpb;
 
 import com.frostwire.regex.Pattern;
 import com.frostwire.search.CrawlRegexSearchPerformer;
+import com.frostwire.search.HtmlStreamScanner;
 import com.frostwire.search.PerformersHelper;
 import com.frostwire.search.SearchMatcher;
 import com.frostwire.search.SearchResult;
@@ -35,6 +36,7 @@ public class TPBSearchPerformer extends CrawlRegexSearchPerformer<TPBSearchResul
 
     private static final String REGEX = "(?is)<td class=\"vertTh\">.*?<a href=\"[^\"]*?\" title=\"More from this category\">(.*?)</a>.*?</td>.*?<a href=\"([^\"]*?)\" class=\"detLink\" title=\"Details for ([^\"]*?)\">.*?</a>.*?<a href=\\\"(magnet:\\?xt=urn:btih:.*?)\\\" title=\\\"Download this torrent using magnet\\\">.*?</a>.*?<font class=\"detDesc\">Uploaded ([^,]*?), Size (.*?), ULed.*?<td align=\"right\">(.*?)</td>\\s*<td align=\"right\">(.*?)</td>";
     private static final Pattern PATTERN = Pattern.compile(REGEX);
+    private static final HtmlStreamScanner PAGE_SCANNER = new HtmlStreamScanner(null, null, "<td class=\"vertTh\">");
 
     public TPBSearchPerformer(String domainName, long token, String keywords, int timeout) {
         super(domainName, token, keywords, timeout, 1, MAX_RESULTS, MAX_RESULTS);
@@ -65,6 +67,11 @@ public class TPBSearchPerformer extends CrawlRegexSearchPerformer<TPBSearchResul
         return PerformersHelper.crawlTorrent(this, sr, data);
     }
 
+    @Override
+    protected HtmlStreamScanner getPageScanner() {
+        return PAGE_SCANNER;
+    }
+
     @Override
     protected boolean isValidHtml(String html) {
         return html != null && !html.contains("Cloudflare");
@@ -18,6 +18,7 @@
 package com.frostwire.search.zooqle;
 
 import com.frostwire.search.CrawlableSearchResult;
+import com.frostwire.search.HtmlStreamScanner;
 import com.frostwire.search.SearchMatcher;
 import com.frostwire.search.torrent.TorrentRegexSearchPerformer;
 
@@ -37,6 +38,8 @@ public final class ZooqleSearchPerformer extends TorrentRegexSearchPerformer<Zoo
                     "<i class=\"zqf zqf-files text-muted3 pad-r2 trans80\"(?<sizedata>.*?)</span><span class=\"spacer\">.*" +
                     "<i class=\"zqf zqf-time text-muted3 pad-r2 trans80\" title=\"Date indexed\"></i>(?<month>.{3}) (?<day>\\d{1,2}), (?<year>\\d{4}) <span class=\"small pad-l\".*" +
                     "<a rel=\"nofollow\" href=\"magnet:\\?xt=urn:btih:(?<magnet>.*)\"><i class=\"spr dl-magnet pad-r2\"></i>Magnet.*?";
+    // same window as the preliminary offsets, matched at once since results don't start at a fixed tag
+    private static final HtmlStreamScanner PAGE_SCANNER = new HtmlStreamScanner("<i class=\"spr feed\"></i>", "Time:", null);
 
     public ZooqleSearchPerformer(String domainName, long token, String keywords, int timeout) {
         super(domainName, token, keywords, timeout, 1, 2 * MAX_RESULTS, MAX_RESULTS, PRELIMINARY_RESULTS_REGEX, HTML_DETAIL_REGEX);
@@ -57,6 +60,11 @@ public final class ZooqleSearchPerformer extends TorrentRegexSearchPerformer<Zoo
         return new ZooqleSearchResult(sr.getDetailsUrl(), "https://" + getDomainName(), matcher);
     }
 
+    @Override
+    protected HtmlStreamScanner getPageScanner() {
+        return PAGE_SCANNER;
+    }
+
     @Override
     protected int preliminaryHtmlPrefixOffset(String page) {
         return page.indexOf("<i class=\"spr feed\"></i>");
@@ -63,6 +63,8 @@ public abstract class BaseHttpDownload implements Transfer {
     protected SpeedStat stat;
     protected boolean complete;
 
+    private volatile SegmentedHttpDownloader segmented;
+
     protected BaseHttpDownload(Info info) {
         this.info = info;
 
@@ -175,11 +177,17 @@ public abstract class BaseHttpDownload implements Transfer {
 
         complete(state = TransferState.CANCELED);
 
+        SegmentedHttpDownloader segmented = this.segmented;
+        if (segmented != null) {
+            segmented.cancel();
+        }
+
         FileSystem fs = Platforms.fileSystem();
 
         if (fs.delete(tempPath)) {
             LOG.warn("Error deleting temporary file: " + tempPath);
         }
+        fs.delete(SegmentedHttpDownloader.mapFile(tempPath));
         if (deleteData) {
             if (fs.delete(savePath)) {
                 LOG.warn("Error deleting download data file: " + savePath);
@@ -200,8 +208,23 @@ public abstract class BaseHttpDownload implements Transfer {
                     }
 
                     state = TransferState.DOWNLOADING;
+                    DownloadListener listener = new DownloadListener();
+
+                    long size = info.size();
+                    if (size > 0 && size >= SegmentedHttpDownloader.MIN_SEGMENTED_SIZE) {
+                        segmented = new SegmentedHttpDownloader(url, temp, listener);
+                        if (complete) {
+                            // removed meanwhile
+                            segmented.cancel();
+                        }
+                        if (segmented.download(resume)) {
+                            onHttpComplete();
+                            return;
+                        }
+                    }
+
                     HttpClient client = HttpClientFactory.getInstance(HttpClientFactory.HttpContext.DOWNLOAD);
-                    client.setListener(new DownloadListener());
+                    client.setListener(listener);
                     client.save(url, temp, resume);
                 } catch (Throwable e) {
                     error(e);
@@ -298,7 +321,7 @@ public abstract class BaseHttpDownload implements Transfer {
         InputStream in = con.getInputStream();
         try {
 
-            byte[] b = new byte[1024];
+            byte[] b = new byte[16 * 1024];
             int n = 0;
             while ((n = in.read(b, 0, b.length)) != -1) {
                 out.write(b, 0, n);
@@ -339,7 +362,7 @@ public abstract class BaseHttpDownload implements Transfer {
         return filename;
     }
 
-    private final class DownloadListener extends HttpClient.HttpClientListenerAdapter {
+    private final class DownloadListener extends HttpClient.HttpClientListenerAdapter implements SegmentedHttpDownloader.Listener {
 
         @Override
         public void onHeaders(HttpClient httpClient, Map<String, List<String>> headerFields) {
@@ -352,6 +375,11 @@ public abstract class BaseHttpDownload implements Transfer {
 
         @Override
         public void onData(HttpClient client, byte[] buffer, int offset, int length) {
+            onData(length);
+        }
+
+        @Override
+        public void onData(int length) {
             stat.update(length);
             if (complete) {
                 // ok, this is not the most elegant solution but it effectively breaks the
@@ -0,0 +1,468 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.transfers;
+
+import com.frostwire.util.HttpClientFactory;
+import com.frostwire.util.Logger;
+import com.frostwire.util.ThreadPool;
+import com.frostwire.util.http.HttpClient;
+import com.frostwire.util.http.HttpClient.RangeNotSupportedException;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+/**
+ * Downloads a single HTTP resource over several connections, each one fetching
+ * a byte range that is written in place into a preallocated file.
+ * <p>
+ * When a connection finishes its range it takes over the second half of the
+ * range with the most bytes left, so a slow connection does not hold the whole
+ * download back. The pending ranges are saved next to the file from time to time,
+ * allowing an interrupted download to resume every range where it stopped. A
+ * partial file without ranges, left by a plain download, is resumed from its end.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+final class SegmentedHttpDownloader {
+
+    private static final Logger LOG = Logger.getLogger(SegmentedHttpDownloader.class);
+
+    private static final ExecutorService THREAD_POOL = ThreadPool.newThreadPool("HttpDownload-segments", 32, true);
+
+    static final int MAX_CONNECTIONS = 4;
+    static final long MIN_SEGMENTED_SIZE = 4 * 1024 * 1024; // not worth the extra connections below this
+    static final long MIN_SEGMENT_SIZE = 1024 * 1024;
+
+    private static final int TIMEOUT = 10000;
+    private static final int MAX_RETRIES = 3;
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long SAVE_MAP_INTERVAL_MILLIS = 2000;
+    private static final int MAP_MAGIC = 0x46575347;
+
+    private final String url;
+    private final File file;
+    private final File mapFile;
+    private final Listener listener;
+
+    private final List<Segment> segments;
+
+    private long size;
+    private FileChannel channel;
+    private volatile boolean aborted;
+    private volatile boolean cancelled;
+    private long lastMapSave;
+
+    SegmentedHttpDownloader(String url, File file, Listener listener) {
+        this.url = url;
+        this.file = file;
+        this.mapFile = mapFile(file);
+        this.listener = listener;
+        this.segments = new ArrayList<>();
+    }
+
+    /**
+     * Downloads the resource into the file, resuming the pending ranges of a
+     * previous attempt, or the end of a partial file, if {@code resume} is true.
+     *
+     * @return false if the server can't serve byte ranges or the resource is too
+     * small to be split, nothing is written in that case and the caller should fall
+     * back to a plain download
+     */
+    boolean download(boolean resume) throws IOException {
+        if (cancelled) {
+            throw new IOException("Download cancelled: " + url);
+        }
+
+        List<Segment> pending = resume ? loadMap() : null;
+
+        if (pending == null) {
+            if (!mapFile.delete() && mapFile.exists()) {
+                LOG.warn("Unable to delete old segments map: " + mapFile);
+            }
+            size = probe();
+            if (size < MIN_SEGMENTED_SIZE) {
+                return false;
+            }
+            // a partial file without ranges can only come from a plain download,
+            // a preallocated one (size == length) of a lost map is started over
+            long start = resume && file.length() < size ? file.length() : 0;
+            pending = split(start, size);
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(file, "rw");
+        try {
+            if (raf.length() != size) {
+                raf.setLength(size);
+            }
+            channel = raf.getChannel();
+
+            synchronized (segments) {
+                segments.addAll(pending);
+            }
+            saveMap();
+
+            List<Future<?>> futures = new ArrayList<>(pending.size());
+            for (final Segment s : pending) {
+                futures.add(THREAD_POOL.submit(() -> {
+                    work(s);
+                    return null;
+                }));
+            }
+
+            Throwable error = null;
+            for (Future<?> f : futures) {
+                try {
+                    f.get();
+                } catch (ExecutionException e) {
+                    if (error == null) {
+                        // stop the other connections, they are waited anyway
+                        aborted = true;
+                        error = e.getCause();
+                    }
+                } catch (InterruptedException e) {
+                    aborted = true;
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Interrupted while waiting for segments", e);
+                }
+            }
+
+            if (cancelled) {
+                // the transfer deleted it, but a connection could have saved it again
+                mapFile.delete();
+                throw new IOException("Download cancelled: " + url);
+            }
+            if (error != null) {
+                saveMap();
+                rethrow(error);
+            }
+        } finally {
+            channel = null;
+            raf.close();
+        }
+
+        if (!mapFile.delete()) {
+            LOG.warn("Unable to delete segments map: " + mapFile);
+        }
+
+        return true;
+    }
+
+    /**
+     * Stops the connections, the ranges map is not saved from now on.
+     */
+    void cancel() {
+        cancelled = true;
+        aborted = true;
+    }
+
+    static File mapFile(File file) {
+        return new File(file.getAbsolutePath() + ".segments");
+    }
+
+    private long probe() {
+        Map<String, List<String>> headers = new HashMap<>();
+        try {
+            HttpClient client = HttpClientFactory.getInstance(HttpClientFactory.HttpContext.DOWNLOAD);
+            client.openRange(url, 0, 0, TIMEOUT, null, headers).close();
+            return parseContentRangeSize(headers);
+        } catch (RangeNotSupportedException e) {
+            LOG.info("Server does not support ranges, using single connection for " + url);
+        } catch (IOException e) {
+            LOG.warn("Error probing range support for " + url + ": " + e.getMessage());
+        }
+        return -1;
+    }
+
+    // Content-Range: bytes 0-0/1234
+    static long parseContentRangeSize(Map<String, List<String>> headers) {
+        for (Map.Entry<String, List<String>> e : headers.entrySet()) {
+            if (e.getKey() != null && e.getKey().equalsIgnoreCase("Content-Range") &&
+                    e.getValue() != null && !e.getValue().isEmpty()) {
+                String value = e.getValue().get(0);
+                int slash = value.lastIndexOf('/');
+                if (slash != -1) {
+                    try {
+                        return Long.parseLong(value.substring(slash + 1).trim());
+                    } catch (NumberFormatException ignored) {
+                        // '*' for unknown size
+                    }
+                }
+            }
+        }
+        return -1;
+    }
+
+    private static List<Segment> split(long start, long size) {
+        long remaining = size - start;
+        int n = (int) Math.max(1, Math.min(MAX_CONNECTIONS, remaining / MIN_SEGMENT_SIZE));
+        long length = remaining / n;
+
+        List<Segment> list = new ArrayList<>(n);
+        for (int i = 0; i < n; i++) {
+            long position = start + i * length;
+            long end = i == n - 1 ? size : position + length;
+            list.add(new Segment(position, end));
+        }
+        return list;
+    }
+
+    private void work(Segment segment) throws IOException {
+        while (segment != null && !aborted) {
+            download(segment);
+            segment = steal();
+        }
+    }
+
+    private void download(Segment segment) throws IOException {
+        int retries = 0;
+        while (!aborted && segment.remaining() > 0) {
+            long position = segment.position;
+            try {
+                transfer(segment);
+            } catch (RangeNotSupportedException e) {
+                throw e;
+            } catch (IOException e) {
+                if (segment.position > position) {
+                    retries = 0;
+                }
+                if (aborted || ++retries > MAX_RETRIES) {
+                    throw e;
+                }
+                LOG.warn("Error downloading segment " + segment + " of " + url + ", retrying: " + e.getMessage());
+            }
+        }
+    }
+
+    private void transfer(Segment segment) throws IOException {
+        HttpClient client = HttpClientFactory.getInstance(HttpClientFactory.HttpContext.DOWNLOAD);
+        InputStream in = client.openRange(url, segment.position, segment.end - 1, TIMEOUT, null, null);
+        try {
+            byte[] b = new byte[BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(b);
+            int n;
+            while (!aborted && segment.remaining() > 0) {
+                if ((n = in.read(b, 0, b.length)) == -1) {
+                    throw new IOException("Connection closed before the end of segment " + segment);
+                }
+
+                long position;
+                int length;
+                synchronized (segments) {
+                    position = segment.position;
+                    length = (int) Math.min(n, segment.end - position);
+                }
+                if (length <= 0) {
+                    break;
+                }
+
+                buffer.clear();
+                buffer.limit(length);
+                long p = position;
+                while (buffer.hasRemaining()) {
+                    p += channel.write(buffer, p);
+                }
+
+                // the end could have moved if the segment was split during the write,
+                // the bytes past it are the same content, counted by the new segment
+                int counted;
+                synchronized (segments) {
+                    counted = (int) Math.max(0, Math.min(length, segment.end - position));
+                    segment.position = position + length;
+                }
+
+                if (counted > 0) {
+                    listener.onData(counted);
+                }
+                maybeSaveMap();
+            }
+        } finally {
+            try {
+                in.close();
+            } catch (Throwable e) {
+                // ignore
+            }
+        }
+    }
+
+    private Segment steal() {
+        synchronized (segments) {
+            if (aborted) {
+                return null;
+            }
+
+            Segment slowest = null;
+            for (Segment s : segments) {
+                if (slowest == null || s.remaining() > slowest.remaining()) {
+                    slowest = s;
+                }
+            }
+
+            if (slowest == null || slowest.remaining() < 2 * MIN_SEGMENT_SIZE) {
+                return null;
+            }
+
+            long middle = slowest.position + slowest.remaining() / 2;
+            Segment s = new Segment(middle, slowest.end);
+            slowest.end = middle;
+            segments.add(s);
+            return s;
+        }
+    }
+
+    private void maybeSaveMap() {
+        long now = System.currentTimeMillis();
+        synchronized (segments) {
+            if (now - lastMapSave < SAVE_MAP_INTERVAL_MILLIS) {
+                return;
+            }
+            lastMapSave = now;
+        }
+        saveMap();
+    }
+
+    private void saveMap() {
+        if (cancelled) {
+            return;
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            synchronized (segments) {
+                List<Segment> left = new ArrayList<>();
+                for (Segment s : segments) {
+                    if (s.remaining() > 0) {
+                        left.add(s);
+                    }
+                }
+                out.writeInt(MAP_MAGIC);
+                out.writeLong(size);
+                out.writeInt(left.size());
+                for (Segment s : left) {
+                    out.writeLong(s.position);
+                    out.writeLong(s.end);
+                }
+            }
+            out.flush();
+
+            FileOutputStream fos = new FileOutputStream(mapFile);
+            try {
+                fos.write(bytes.toByteArray());
+            } finally {
+                fos.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Error saving segments map: " + mapFile, e);
+        }
+    }
+
+    private List<Segment> loadMap() {
+        if (!mapFile.exists() || !file.exists()) {
+            return null;
+        }
+
+        try {
+            DataInputStream in = new DataInputStream(new FileInputStream(mapFile));
+            try {
+                if (in.readInt() != MAP_MAGIC) {
+                    return null;
+                }
+                long mapSize = in.readLong();
+                if (mapSize != file.length()) {
+                    return null;
+                }
+                int count = in.readInt();
+                List<Segment> list = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    long position = in.readLong();
+                    long end = in.readLong();
+                    if (position < 0 || end > mapSize || position >= end) {
+                        return null;
+                    }
+                    list.add(new Segment(position, end));
+                }
+                size = mapSize;
+                return list;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            LOG.warn("Error loading segments map, starting over: " + mapFile, e);
+            return null;
+        }
+    }
+
+    private static void rethrow(Throwable e) throws IOException {
+        if (e instanceof IOException) {
+            throw (IOException) e;
+        }
+        if (e instanceof RuntimeException) {
+            throw (RuntimeException) e;
+        }
+        if (e instanceof Error) {
+            throw (Error) e;
+        }
+        throw new IOException(e);
+    }
+
+    interface Listener {
+
+        /**
+         * Called from the connection threads after every write, throwing an
+         * exception aborts the whole download.
+         */
+        void onData(int length);
+    }
+
+    private static final class Segment {
+
+        volatile long position;
+        volatile long end; // exclusive
+
+        Segment(long position, long end) {
+            this.position = position;
+            this.end = end;
+        }
+
+        long remaining() {
+            return end - position;
+        }
+
+        @Override
+        public String toString() {
+            return "[" + position + "-" + end + ")";
+        }
+    }
+}
@@ -22,7 +22,7 @@ import com.frostwire.util.Logger;
 import com.frostwire.mp3.ID3Wrapper;
 import com.frostwire.mp3.ID3v1Tag;
 import com.frostwire.mp3.ID3v23Tag;
-import com.frostwire.mp3.Mp3File;
+import com.frostwire.mp3.Mp3TagWriter;
 import com.frostwire.search.soundcloud.SoundcloudSearchResult;
 
 import java.io.ByteArrayOutputStream;
@@ -55,9 +55,13 @@ public class SoundcloudDownload extends HttpDownload {
         if (file != null && file.exists() && file.length() <= COVERART_FETCH_THRESHOLD) {
             byte[] cover = downloadCoverArt(sr.getThumbnailUrl());
             if (cover != null && cover.length > 0) {
+                ID3Wrapper tags = createTags(sr, cover);
+                if (updateAlbumArt(tags, file.getAbsolutePath())) {
+                    return;
+                }
                 File temp = new File(file.getAbsolutePath() + ".tmp");
                 if (file.renameTo(temp)) {
-                    if (setAlbumArt(sr, cover, temp.getAbsolutePath(), file.getAbsolutePath())) {
+                    if (setAlbumArt(tags, temp.getAbsolutePath(), file.getAbsolutePath())) {
                         temp.delete();
                     } else {
                         temp.renameTo(file);
@@ -80,23 +84,32 @@ public class SoundcloudDownload extends HttpDownload {
         return null;
     }
 
-    private static boolean setAlbumArt(SoundcloudSearchResult sr, byte[] cover, String inPath, String outPath) {
-        try {
-            Mp3File mp3 = new Mp3File(inPath);
-
-            ID3Wrapper newId3Wrapper = new ID3Wrapper(new ID3v1Tag(), new ID3v23Tag());
-            newId3Wrapper.setAlbum(sr.getUsername() + ": " + sr.getDisplayName() + " via SoundCloud.com");
-            newId3Wrapper.setArtist(sr.getUsername());
-            newId3Wrapper.setTitle(sr.getDisplayName());
-            newId3Wrapper.setAlbumImage(cover, "image/jpg");
-            newId3Wrapper.setUrl(sr.getDetailsUrl());
-            newId3Wrapper.getId3v2Tag().setPadding(true);
-
-            mp3.setId3v1Tag(newId3Wrapper.getId3v1Tag());
-            mp3.setId3v2Tag(newId3Wrapper.getId3v2Tag());
+    private static ID3Wrapper createTags(SoundcloudSearchResult sr, byte[] cover) {
+        ID3Wrapper newId3Wrapper = new ID3Wrapper(new ID3v1Tag(), new ID3v23Tag());
+        newId3Wrapper.setAlbum(sr.getUsername() + ": " + sr.getDisplayName() + " via SoundCloud.com");
+        newId3Wrapper.setArtist(sr.getUsername());
+        newId3Wrapper.setTitle(sr.getDisplayName());
+        newId3Wrapper.setAlbumImage(cover, "image/jpg");
+        newId3Wrapper.setUrl(sr.getDetailsUrl());
+        newId3Wrapper.getId3v2Tag().setPadding(true);
+        return newId3Wrapper;
+    }
 
-            mp3.save(outPath);
+    /**
+     * Rewrites only the tag region if the current tag has room enough.
+     */
+    private static boolean updateAlbumArt(ID3Wrapper tags, String path) {
+        try {
+            return Mp3TagWriter.update(path, tags.getId3v2Tag(), tags.getId3v1Tag());
+        } catch (Throwable e) {
+            LOG.error("Error updating art information in place for soundcloud download", e);
+            return false;
+        }
+    }
 
+    private static boolean setAlbumArt(ID3Wrapper tags, String inPath, String outPath) {
+        try {
+            Mp3TagWriter.save(inPath, outPath, tags.getId3v2Tag(), tags.getId3v1Tag());
             return true;
         } catch (Throwable e) {
             LOG.error("Error setting art information for soundcloud download", e);
@@ -43,7 +43,8 @@ final class SpeedStat {
         return averageSpeed;
     }
 
-    public void update(long numBytes) {
+    // called from every connection of a segmented download
+    public synchronized void update(long numBytes) {
         long now = System.currentTimeMillis();
 
         totalBytes += numBytes;
@@ -1,7 +1,7 @@
 /*
  * Created by Angel Leon (@gubatron), Alden Torres (aldenml),
  *            Marcelina Knitter (@marcelinkaaa)
- * Copyright (c) 2011-2017, FrostWire(R). All rights reserved.
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
  *
  * Licensed under the Apache License, Version 2.0 (the "License");
  * you may not use this file except in compliance with the License.
@@ -15,24 +15,59 @@
  * See the License for the specific language governing permissions and
  * limitations under the License.
  */
-
 package com.frostwire.util;
 
+import java.util.AbstractMap.SimpleImmutableEntry;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
-import java.util.ConcurrentModificationException;
-import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map.Entry;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+/**
+ * Concurrent frequency counter that keeps the entries with the highest counts
+ * sorted without copying the whole map on every {@link #histogram()} call.
+ * <p>
+ * Counts only grow until {@link #reset()}, so a key can only get into the top
+ * entries by being updated past the count of the last of them. Those keys are
+ * remembered on update and merged with the previous top entries the next time
+ * the histogram is requested; if nothing was touched the last list is returned.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
 public final class HistoHashMap<K> {
 
-    private final HashMap<K, Integer> map = new HashMap<>();
+    private static final Comparator<Entry<?, Integer>> CMP = (o1, o2) -> o2.getValue().compareTo(o1.getValue());
+
+    private final int topK;
 
-    // creates the comparator as a field to avoid GC pressure every
-    // time histogram is called, but still not static (no need)
-    private final Comparator<Entry<K, Integer>> cmp = (o1, o2) -> o2.getValue().compareTo(o1.getValue());
+    // swapped as a whole on reset, updates racing with it land in the old state
+    private volatile State<K> state;
+
+    /**
+     * Keeps all the keys in the histogram.
+     */
+    public HistoHashMap() {
+        this(Integer.MAX_VALUE);
+    }
+
+    /**
+     * @param topK the maximum number of entries returned by {@link #histogram()}
+     */
+    public HistoHashMap(int topK) {
+        if (topK <= 0) {
+            throw new IllegalArgumentException("topK must be positive");
+        }
+        this.topK = topK;
+        this.state = new State<>();
+    }
 
     /**
      * (Cheap operation)
@@ -41,55 +76,98 @@ public final class HistoHashMap<K> {
      * @return the frequency
      */
     public int update(K key) {
-        int r = 1;
-        // This is a problematic operation in light of the heavy concurrency to which
-        // an instance of this class is subject to. The problem is that when the reset()
-        // is called, the following operations are not atomic and can yield a NPE.
-        // Still, there is no need of synchronization, since a simple call to map.getOrDefault
-        // could do the trick, but that method is not in android API 19.
-        if (map.containsKey(key)) {
-            Integer n = map.get(key);
-            if (n == null) {
-                // a reset was called in the middle, this key can't be considered
-                // since this update was called before the reset
-                r = 0;
-            } else {
-                r = 1 + n;
+        State<K> s = state;
+        AtomicInteger counter = s.map.get(key);
+        if (counter == null) {
+            counter = new AtomicInteger();
+            AtomicInteger old = s.map.putIfAbsent(key, counter);
+            if (old != null) {
+                counter = old;
             }
         }
-        map.put(key, r);
+        int r = counter.incrementAndGet();
+        s.total.incrementAndGet();
+        if (r >= s.threshold) {
+            s.touched.add(key);
+        }
         return r;
     }
 
     public int get(K key) {
-        return map.get(key);
+        AtomicInteger counter = state.map.get(key);
+        return counter != null ? counter.get() : 0;
     }
 
     /**
-     * (Expensive operation)
-     * Returns sorted list of entries.
+     * Returns the sorted list of the top entries, in descending order. The
+     * entries are a snapshot, they don't change with later updates.
+     * <p>
+     * Only the keys updated since the last call are looked at, which makes
+     * this cheap enough to be called on every UI refresh.
      *
      * @return the list
      */
     public List<Entry<K, Integer>> histogram() {
-        try {
-            ArrayList<Entry<K, Integer>> list = new ArrayList<>(map.entrySet());
-            Collections.sort(list, cmp);
-            return Collections.unmodifiableList(list);
-        } catch (ConcurrentModificationException e) {
-            // working with no synchronized structures, even with the copies
-            // it's possible that this exception can happens, but the cost
-            // of synchronization is bigger than the lack of accuracy
-            // ignore
-            return Collections.emptyList();
+        State<K> s = state;
+        synchronized (s) {
+            if (s.touched.isEmpty()) {
+                return s.top;
+            }
+
+            Set<K> candidates = new LinkedHashSet<>();
+            for (Entry<K, Integer> e : s.top) {
+                candidates.add(e.getKey());
+            }
+            // removing before reading the count, an update in between stays
+            // touched for the next call
+            Iterator<K> it = s.touched.iterator();
+            while (it.hasNext()) {
+                candidates.add(it.next());
+                it.remove();
+            }
+
+            ArrayList<Entry<K, Integer>> list = new ArrayList<>(candidates.size());
+            for (K key : candidates) {
+                AtomicInteger counter = s.map.get(key);
+                if (counter != null) {
+                    list.add(new SimpleImmutableEntry<>(key, counter.get()));
+                }
+            }
+            Collections.sort(list, CMP);
+            if (list.size() > topK) {
+                list.subList(topK, list.size()).clear();
+                list.trimToSize();
+            }
+
+            s.threshold = list.size() < topK ? 0 : list.get(list.size() - 1).getValue();
+            s.top = Collections.unmodifiableList(list);
+            return s.top;
         }
     }
 
     public int getKeyCount() {
-        return map.size();
+        return state.map.size();
+    }
+
+    /**
+     * @return the sum of all the counts, including the keys out of the top
+     */
+    public long getTotalCount() {
+        return state.total.get();
     }
 
     public void reset() {
-        map.clear();
+        state = new State<>();
+    }
+
+    private static final class State<K> {
+
+        final ConcurrentHashMap<K, AtomicInteger> map = new ConcurrentHashMap<>();
+        final Set<K> touched = Collections.newSetFromMap(new ConcurrentHashMap<>());
+        final AtomicLong total = new AtomicLong();
+
+        // count of the last top entry, zero while the top is not full
+        volatile int threshold;
+        List<Entry<K, Integer>> top = Collections.emptyList();
     }
 }
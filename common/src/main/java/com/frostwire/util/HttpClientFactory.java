@@ -21,10 +21,13 @@ import com.frostwire.util.http.HttpClient;
 import com.frostwire.util.http.JdkHttpClient;
 import com.frostwire.util.http.OKHTTPClient;
 
-import java.util.HashMap;
+import okhttp3.ConnectionPool;
+
+import java.util.EnumMap;
 import java.util.Locale;
 import java.util.Map;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 
@@ -33,14 +36,15 @@ import java.util.concurrent.LinkedBlockingQueue;
  *
  */
 public class HttpClientFactory {
+
+    private static final Logger LOG = Logger.getLogger(HttpClientFactory.class);
+
     public enum HttpContext {
         SEARCH,
         DOWNLOAD,
         MISC
     }
 
-    private static Map<HttpContext, ThreadPool> okHttpClientPools = null;
-
     private HttpClientFactory() {
     }
 
@@ -53,23 +57,52 @@ public class HttpClientFactory {
             return new JdkHttpClient();
         }
 
-        if (okHttpClientPools == null) {
-            okHttpClientPools = buildThreadPools();
+        return new OKHTTPClient(getSharedClient(context));
+    }
+
+    /**
+     * Returns the okhttp client shared by every http client of the given context,
+     * useful to check the utilization of its connection pool.
+     */
+    public static OKHTTPClient.SharedClient getSharedClient(HttpContext context) {
+        return SharedClients.map.get(context);
+    }
+
+    /**
+     * Closes all the idle pooled connections, meant to be called on shutdown.
+     */
+    public static void evictAllConnections() {
+        for (OKHTTPClient.SharedClient client : SharedClients.map.values()) {
+            try {
+                client.evictAll();
+            } catch (Throwable e) {
+                LOG.warn("Error evicting http connections", e);
+            }
         }
-        return new OKHTTPClient(okHttpClientPools.get(context));
     }
 
-    private static Map<HttpContext, ThreadPool> buildThreadPools() {
-        final HashMap<HttpContext, ThreadPool> map = new HashMap<>();
-        map.put(HttpContext.SEARCH, new ThreadPool("OkHttpClient-searches", 1, 5, 60, new LinkedBlockingQueue<Runnable>(), true));
-        map.put(HttpContext.DOWNLOAD, new ThreadPool("OkHttpClient-downloads", 1, 10, 5, new LinkedBlockingQueue<Runnable>(), true));
-        map.put(HttpContext.MISC, new ThreadPool("OkHttpClient-misc", 2, 10, 30, new LinkedBlockingQueue<Runnable>(), true));
+    private static Map<HttpContext, OKHTTPClient.SharedClient> buildSharedClients() {
+        final Map<HttpContext, OKHTTPClient.SharedClient> map = new EnumMap<>(HttpContext.class);
+        // searches and crawls fan out to many hosts at once, keep more connections around
+        map.put(HttpContext.SEARCH, buildSharedClient(new ThreadPool("OkHttpClient-searches", 1, 5, 60, new LinkedBlockingQueue<Runnable>(), true), 32, 2));
+        map.put(HttpContext.DOWNLOAD, buildSharedClient(new ThreadPool("OkHttpClient-downloads", 1, 10, 5, new LinkedBlockingQueue<Runnable>(), true), 16, 1));
+        map.put(HttpContext.MISC, buildSharedClient(new ThreadPool("OkHttpClient-misc", 2, 10, 30, new LinkedBlockingQueue<Runnable>(), true), 8, 1));
         return map;
     }
 
+    private static OKHTTPClient.SharedClient buildSharedClient(ThreadPool pool, int maxIdleConnections, int keepAliveMinutes) {
+        ConnectionPool connectionPool = new ConnectionPool(maxIdleConnections, keepAliveMinutes, TimeUnit.MINUTES);
+        return new OKHTTPClient.SharedClient(OKHTTPClient.newOkHttpClient(pool, connectionPool).build());
+    }
+
     private static boolean isWindowsXP() {
         String os = System.getProperty("os.name");
         os = os.toLowerCase(Locale.US);
         return os.contains("windows xp");
     }
+
+    private static final class SharedClients {
+        // lazily built on first use
+        static final Map<HttpContext, OKHTTPClient.SharedClient> map = buildSharedClients();
+    }
 }
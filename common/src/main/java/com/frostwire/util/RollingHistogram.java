@@ -0,0 +1,187 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.util;
+
+import java.util.Arrays;
+
+/**
+ * A histogram of the values recorded in the last {@code window} milliseconds,
+ * made of a ring of slots so old values expire a slot at a time.
+ * <p>
+ * The buckets grow exponentially with four per power of two, the percentiles
+ * are within 12.5% of the recorded values. Values are clamped to [0, 2^40).
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class RollingHistogram {
+
+    private static final int SUB_BUCKETS = 4;
+    private static final int MAX_EXP = 40;
+    private static final long MAX_VALUE = (1L << MAX_EXP) - 1;
+    private static final int NUM_BUCKETS = SUB_BUCKETS + (MAX_EXP - 2) * SUB_BUCKETS;
+
+    private final long slotMillis;
+    private final Slot[] slots;
+
+    public RollingHistogram(long window, int numSlots) {
+        if (window <= 0 || numSlots <= 0) {
+            throw new IllegalArgumentException("window and numSlots must be > 0");
+        }
+        this.slotMillis = Math.max(1, window / numSlots);
+        this.slots = new Slot[numSlots];
+        for (int i = 0; i < numSlots; i++) {
+            slots[i] = new Slot();
+        }
+    }
+
+    public void record(long value) {
+        record(value, System.currentTimeMillis());
+    }
+
+    public Snapshot snapshot() {
+        return snapshot(System.currentTimeMillis());
+    }
+
+    public synchronized void reset() {
+        for (Slot s : slots) {
+            s.clear(0);
+        }
+    }
+
+    synchronized void record(long value, long now) {
+        value = Math.max(0, Math.min(MAX_VALUE, value));
+        long epoch = now / slotMillis;
+        Slot s = slots[(int) (epoch % slots.length)];
+        if (s.epoch != epoch) {
+            s.clear(epoch);
+        }
+        s.buckets[bucket(value)]++;
+        s.count++;
+        s.sum += value;
+        if (value > s.max) {
+            s.max = value;
+        }
+    }
+
+    synchronized Snapshot snapshot(long now) {
+        long epoch = now / slotMillis;
+        long[] buckets = new long[NUM_BUCKETS];
+        long count = 0;
+        long sum = 0;
+        long max = 0;
+        for (Slot s : slots) {
+            if (s.count == 0 || epoch - s.epoch >= slots.length) {
+                continue;
+            }
+            for (int i = 0; i < NUM_BUCKETS; i++) {
+                buckets[i] += s.buckets[i];
+            }
+            count += s.count;
+            sum += s.sum;
+            max = Math.max(max, s.max);
+        }
+
+        if (count == 0) {
+            return new Snapshot(0, 0, 0, 0, 0, 0, 0);
+        }
+
+        return new Snapshot(count, sum / count,
+                percentile(buckets, count, max, 0.5),
+                percentile(buckets, count, max, 0.9),
+                percentile(buckets, count, max, 0.95),
+                percentile(buckets, count, max, 0.99),
+                max);
+    }
+
+    static int bucket(long value) {
+        if (value < SUB_BUCKETS) {
+            return (int) value;
+        }
+        int exp = 63 - Long.numberOfLeadingZeros(value);
+        int sub = (int) (value >>> (exp - 2)) & (SUB_BUCKETS - 1);
+        return SUB_BUCKETS + (exp - 2) * SUB_BUCKETS + sub;
+    }
+
+    static long lowerBound(int bucket) {
+        if (bucket < SUB_BUCKETS) {
+            return bucket;
+        }
+        int exp = (bucket - SUB_BUCKETS) / SUB_BUCKETS + 2;
+        int sub = (bucket - SUB_BUCKETS) % SUB_BUCKETS;
+        return (long) (SUB_BUCKETS + sub) << (exp - 2);
+    }
+
+    private static long percentile(long[] buckets, long count, long max, double p) {
+        long rank = (long) Math.ceil(p * count);
+        long seen = 0;
+        for (int i = 0; i < buckets.length; i++) {
+            seen += buckets[i];
+            if (seen >= rank) {
+                // middle of the bucket, never above the largest value seen
+                long lower = lowerBound(i);
+                long upper = i + 1 < buckets.length ? lowerBound(i + 1) : Long.MAX_VALUE;
+                return Math.min(max, lower + (upper - lower - 1) / 2);
+            }
+        }
+        return max;
+    }
+
+    public static final class Snapshot {
+
+        public final long count;
+        public final long mean;
+        public final long p50;
+        public final long p90;
+        public final long p95;
+        public final long p99;
+        public final long max;
+
+        Snapshot(long count, long mean, long p50, long p90, long p95, long p99, long max) {
+            this.count = count;
+            this.mean = mean;
+            this.p50 = p50;
+            this.p90 = p90;
+            this.p95 = p95;
+            this.p99 = p99;
+            this.max = max;
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count + ", mean=" + mean + ", p50=" + p50 + ", p90=" + p90 + ", p95=" + p95 + ", p99=" + p99 + ", max=" + max;
+        }
+    }
+
+    private static final class Slot {
+
+        final int[] buckets = new int[NUM_BUCKETS];
+        long epoch = -1;
+        long count;
+        long sum;
+        long max;
+
+        void clear(long epoch) {
+            this.epoch = epoch;
+            Arrays.fill(buckets, 0);
+            count = 0;
+            sum = 0;
+            max = 0;
+        }
+    }
+}
@@ -24,6 +24,9 @@ import java.io.Closeable;
 import java.io.File;
 import java.io.IOException;
 import java.io.UnsupportedEncodingException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
 import java.util.List;
 import java.util.Map;
 
@@ -35,6 +38,7 @@ public abstract class AbstractHttpClient implements HttpClient {
     private static final Logger LOG = Logger.getLogger(AbstractHttpClient.class);
     protected static final int DEFAULT_TIMEOUT = 10000;
     protected static final String DEFAULT_USER_AGENT = UserAgentGenerator.getUserAgent();
+    private static final long SAVE_FLUSH_INTERVAL_NANOS = 250 * 1000000L;
     protected HttpClientListener listener;
     protected boolean canceled = false;
 
@@ -191,6 +195,42 @@ public abstract class AbstractHttpClient implements HttpClient {
         return sb.toString().getBytes("UTF-8");
     }
 
+    /**
+     * Streams {@code in} into {@code out} until the end of the input or until the client
+     * is canceled. Reads are accumulated in a pooled buffer which is written to disk, and
+     * reported with {@link #onData(byte[], int, int)} with a null buffer, once it is full
+     * or every {@link #SAVE_FLUSH_INTERVAL_NANOS}, whatever happens first.
+     */
+    protected final void transfer(ReadableByteChannel in, FileChannel out) throws IOException {
+        ByteBuffer buffer = ByteBufferPool.acquire();
+        try {
+            long lastFlush = System.nanoTime();
+            while (!canceled && in.read(buffer) != -1) {
+                long now = System.nanoTime();
+                if (buffer.hasRemaining() && now - lastFlush < SAVE_FLUSH_INTERVAL_NANOS) {
+                    continue;
+                }
+                flush(buffer, out);
+                lastFlush = now;
+            }
+            flush(buffer, out);
+        } finally {
+            ByteBufferPool.release(buffer);
+        }
+    }
+
+    private void flush(ByteBuffer buffer, FileChannel out) throws IOException {
+        buffer.flip();
+        int n = buffer.remaining();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+        if (n > 0) {
+            onData(null, 0, n);
+        }
+    }
+
     protected static void closeQuietly(Closeable closeable) {
         try {
             if (closeable != null) {
@@ -0,0 +1,63 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.util.http;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A small pool of direct buffers for the save paths of the http clients, to
+ * avoid allocating a new buffer for every download. When the pool is empty
+ * a heap buffer is handed out and simply dropped on release.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+final class ByteBufferPool {
+
+    static final int BUFFER_SIZE = 128 * 1024;
+
+    private static final int MAX_POOLED_BUFFERS = 16;
+
+    private static final ConcurrentLinkedQueue<ByteBuffer> buffers = new ConcurrentLinkedQueue<>();
+    private static final AtomicInteger allocated = new AtomicInteger();
+
+    private ByteBufferPool() {
+    }
+
+    static ByteBuffer acquire() {
+        ByteBuffer buffer = buffers.poll();
+        if (buffer == null) {
+            if (allocated.incrementAndGet() <= MAX_POOLED_BUFFERS) {
+                buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+            } else {
+                allocated.decrementAndGet();
+                buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            }
+        }
+        buffer.clear();
+        return buffer;
+    }
+
+    static void release(ByteBuffer buffer) {
+        if (buffer.isDirect()) {
+            buffers.offer(buffer);
+        }
+    }
+}
@@ -0,0 +1,74 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.util.http;
+
+import okhttp3.Dns;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps the resolved addresses of a host for a minute, shared by all the okhttp
+ * clients so the many requests a search or a crawl makes to the same hosts don't
+ * hit the system resolver every time (Android caches lookups for a few seconds only).
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+final class CachingDns implements Dns {
+
+    static final CachingDns INSTANCE = new CachingDns();
+
+    private static final long TTL_MILLIS = 60 * 1000;
+    private static final int MAX_ENTRIES = 512;
+
+    private final ConcurrentHashMap<String, Entry> cache;
+
+    private CachingDns() {
+        this.cache = new ConcurrentHashMap<>();
+    }
+
+    @Override
+    public List<InetAddress> lookup(String hostname) throws UnknownHostException {
+        long now = System.currentTimeMillis();
+        Entry e = cache.get(hostname);
+        if (e != null && now - e.timestamp < TTL_MILLIS) {
+            return e.addresses;
+        }
+
+        List<InetAddress> addresses = Dns.SYSTEM.lookup(hostname);
+        if (cache.size() >= MAX_ENTRIES) {
+            cache.clear();
+        }
+        cache.put(hostname, new Entry(addresses, now));
+        return addresses;
+    }
+
+    private static final class Entry {
+
+        final List<InetAddress> addresses;
+        final long timestamp;
+
+        Entry(List<InetAddress> addresses, long timestamp) {
+            this.addresses = addresses;
+            this.timestamp = timestamp;
+        }
+    }
+}
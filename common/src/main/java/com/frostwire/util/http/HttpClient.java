@@ -19,6 +19,8 @@ package com.frostwire.util.http;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.Reader;
 import java.util.List;
 import java.util.Map;
 
@@ -75,6 +77,22 @@ public interface HttpClient {
 
     void save(String url, File file, boolean resume, int timeout, String userAgent, String referrer) throws IOException;
 
+    /**
+     * Opens a GET request for the bytes {@code [rangeStart, rangeEnd]} (inclusive, a negative
+     * {@code rangeEnd} reads until the end of the resource) and returns the body stream, the
+     * caller is responsible for closing it. The response headers are copied into
+     * {@code outputHeaders} if not null.
+     *
+     * @throws RangeNotSupportedException if the server does not reply with partial content
+     */
+    InputStream openRange(String url, long rangeStart, long rangeEnd, int timeout, String userAgent, Map<String, List<String>> outputHeaders) throws IOException;
+
+    /**
+     * Opens a GET request and returns the body as text while it arrives, decoded with the
+     * charset of the response (UTF-8 if none). The caller is responsible for closing it.
+     */
+    Reader openReader(String url, int timeout, String userAgent, String referrer, String cookie, Map<String, String> customHeaders) throws IOException;
+
     String post(String url, int timeout, String userAgent, Map<String, String> formData) throws IOException;
 
     String post(String url, int timeout, String userAgent, String content, boolean gzip) throws IOException;
@@ -89,6 +107,11 @@ public interface HttpClient {
 
         void onError(HttpClient client, Throwable e);
 
+        /**
+         * Called as data arrives. When saving to a file the data is already on disk
+         * and the calls are coalesced, {@code buffer} is null and {@code length}
+         * is the number of bytes written since the previous call.
+         */
         void onData(HttpClient client, byte[] buffer, int offset, int length);
 
         void onComplete(HttpClient client);
@@ -25,6 +25,8 @@ import java.io.*;
 import java.net.HttpURLConnection;
 import java.net.URL;
 import java.net.URLConnection;
+import java.nio.channels.Channels;
+import java.nio.charset.Charset;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -290,12 +292,17 @@ public final class JdkHttpClient extends AbstractHttpClient {
         checkRangeSupport(rangeStart, conn);
 
         try {
-            byte[] b = new byte[4096];
-            int n;
-            while (!canceled && (n = in.read(b, 0, b.length)) != -1) {
-                if (!canceled) {
-                    out.write(b, 0, n);
-                    onData(b, 0, n);
+            if (out instanceof FileOutputStream) {
+                // saving to disk, the listeners only count bytes
+                transfer(Channels.newChannel(in), ((FileOutputStream) out).getChannel());
+            } else {
+                byte[] b = new byte[4096];
+                int n;
+                while (!canceled && (n = in.read(b, 0, b.length)) != -1) {
+                    if (!canceled) {
+                        out.write(b, 0, n);
+                        onData(b, 0, n);
+                    }
                 }
             }
 
@@ -314,6 +321,92 @@ public final class JdkHttpClient extends AbstractHttpClient {
         }
     }
 
+    @Override
+    public InputStream openRange(String url, long rangeStart, long rangeEnd, int timeout, String userAgent, Map<String, List<String>> outputHeaders) throws IOException {
+        final HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+
+        conn.setConnectTimeout(timeout);
+        conn.setReadTimeout(timeout);
+        conn.setRequestProperty("User-Agent", userAgent != null ? userAgent : DEFAULT_USER_AGENT);
+        conn.setInstanceFollowRedirects(true);
+
+        if (conn instanceof HttpsURLConnection) {
+            setHostnameVerifier((HttpsURLConnection) conn);
+        }
+
+        conn.setRequestProperty("Range", "bytes=" + rangeStart + "-" + (rangeEnd >= rangeStart ? rangeEnd : ""));
+
+        int httpResponseCode = getResponseCode(conn);
+        copyMultiMap(conn.getHeaderFields(), outputHeaders);
+
+        if (httpResponseCode != HttpURLConnection.HTTP_PARTIAL) {
+            closeQuietly(conn);
+            if (httpResponseCode == HttpURLConnection.HTTP_OK) {
+                throw new RangeNotSupportedException("Server does not support bytes range request");
+            }
+            throw new ResponseCodeNotSupportedException(httpResponseCode);
+        }
+
+        return conn.getInputStream();
+    }
+
+    @Override
+    public Reader openReader(String url, int timeout, String userAgent, String referrer, String cookie, Map<String, String> customHeaders) throws IOException {
+        final HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+
+        conn.setConnectTimeout(timeout);
+        conn.setReadTimeout(timeout);
+        conn.setRequestProperty("User-Agent", userAgent != null ? userAgent : DEFAULT_USER_AGENT);
+        conn.setInstanceFollowRedirects(true);
+
+        if (referrer != null) {
+            conn.setRequestProperty("Referer", referrer);
+        }
+
+        if (cookie != null) {
+            conn.setRequestProperty("Cookie", cookie);
+        }
+
+        if (conn instanceof HttpsURLConnection) {
+            setHostnameVerifier((HttpsURLConnection) conn);
+        }
+
+        if (customHeaders != null && customHeaders.size() > 0) {
+            setCustomHeaders(conn, customHeaders);
+        }
+
+        InputStream in = conn.getInputStream();
+        if ("gzip".equals(conn.getContentEncoding())) {
+            in = new GZIPInputStream(in);
+        }
+
+        return new InputStreamReader(in, charset(conn.getContentType()));
+    }
+
+    /**
+     * The charset parameter of the Content-Type, UTF-8 if there is none or
+     * it's not supported.
+     */
+    static Charset charset(String contentType) {
+        if (contentType != null) {
+            for (String param : contentType.split(";")) {
+                param = param.trim();
+                if (param.regionMatches(true, 0, "charset=", 0, 8)) {
+                    String name = param.substring(8).trim();
+                    if (name.length() > 1 && name.startsWith("\"") && name.endsWith("\"")) {
+                        name = name.substring(1, name.length() - 1);
+                    }
+                    try {
+                        return Charset.forName(name);
+                    } catch (Throwable e) {
+                        LOG.warn("Unsupported charset in Content-Type: " + contentType + ", using UTF-8");
+                    }
+                }
+            }
+        }
+        return Charset.forName("UTF-8");
+    }
+
     private void post(String url, OutputStream out, int timeout, String userAgent, Map<String, String> formData) throws IOException {
         canceled = false;
         final URL u = new URL(url);
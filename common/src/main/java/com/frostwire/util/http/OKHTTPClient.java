@@ -31,10 +31,12 @@ import java.io.File;
 import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.Reader;
 import java.net.HttpURLConnection;
 import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
 
 /**
@@ -46,34 +48,39 @@ import java.util.concurrent.TimeUnit;
 public class OKHTTPClient extends AbstractHttpClient {
 
     private static final Logger LOG = Logger.getLogger(OKHTTPClient.class);
-    private final ThreadPool pool;
 
-    public static final ConnectionPool CONNECTION_POOL = new ConnectionPool(5, 10, TimeUnit.SECONDS);
+    private final SharedClient client;
 
     public OKHTTPClient(final ThreadPool pool) {
-        this.pool = pool;
+        this(new SharedClient(newOkHttpClient(pool, new ConnectionPool(5, 10, TimeUnit.SECONDS)).build()));
+    }
+
+    public OKHTTPClient(SharedClient client) {
+        this.client = client;
     }
 
     @Override
     public int head(String url, int connectTimeoutInMillis, Map<String, List<String>> outputHeaders) throws IOException {
-        final OkHttpClient.Builder okHttpClient = newOkHttpClient();
-        okHttpClient.connectTimeout(connectTimeoutInMillis, TimeUnit.MILLISECONDS);
-        okHttpClient.followRedirects(false);
+        final OkHttpClient okHttpClient = client.get(connectTimeoutInMillis, false, false);
         Request req = new Request.Builder().
                 url(url).
                 header("User-Agent", DEFAULT_USER_AGENT).
                 head().
                 build();
-        Response resp = okHttpClient.build().newCall(req).execute();
-        copyMultiMap(resp.headers().toMultimap(), outputHeaders);
-        return resp.code();
+        Response resp = okHttpClient.newCall(req).execute();
+        try {
+            copyMultiMap(resp.headers().toMultimap(), outputHeaders);
+            return resp.code();
+        } finally {
+            resp.close();
+        }
     }
 
     @Override
     public byte[] getBytes(String url, int timeout, String userAgent, String referrer, String cookies) {
         byte[] result = null;
-        final OkHttpClient.Builder okHttpClient = newOkHttpClient();
-        final Request.Builder builder = prepareRequestBuilder(okHttpClient, url, timeout, userAgent, referrer, cookies);
+        final OkHttpClient okHttpClient = client.get(timeout, true, false);
+        final Request.Builder builder = prepareRequestBuilder(url, userAgent, referrer, cookies);
         ResponseBody responseBody = null;
         try {
             responseBody = getSyncResponse(okHttpClient, builder).body();
@@ -91,8 +98,8 @@ public class OKHTTPClient extends AbstractHttpClient {
     @Override
     public String get(String url, int timeout, String userAgent, String referrer, String cookie, Map<String, String> customHeaders) throws IOException {
         String result = null;
-        final OkHttpClient.Builder okHttpClient = newOkHttpClient();
-        final Request.Builder builder = prepareRequestBuilder(okHttpClient, url, timeout, userAgent, referrer, cookie);
+        final OkHttpClient okHttpClient = client.get(timeout, true, false);
+        final Request.Builder builder = prepareRequestBuilder(url, userAgent, referrer, cookie);
         addCustomHeaders(customHeaders, builder);
         ResponseBody responseBody = null;
         try {
@@ -124,24 +131,18 @@ public class OKHTTPClient extends AbstractHttpClient {
             rangeStart = -1;
         }
 
-        final OkHttpClient.Builder okHttpClient = newOkHttpClient();
-        final Request.Builder builder = prepareRequestBuilder(okHttpClient, url, timeout, userAgent, referrer, null);
+        final OkHttpClient okHttpClient = client.get(timeout, true, false);
+        final Request.Builder builder = prepareRequestBuilder(url, userAgent, referrer, null);
         addRangeHeader(rangeStart, -1, builder);
         final Response response = getSyncResponse(okHttpClient, builder);
         final Headers headers = response.headers();
         onHeaders(headers);
-        final InputStream in = response.body().byteStream();
-
-        byte[] b = new byte[4096];
-        int n;
-        while (!canceled && (n = in.read(b, 0, b.length)) != -1) {
-            if (!canceled) {
-                fos.write(b, 0, n);
-                onData(b, 0, n);
-            }
+        try {
+            transfer(response.body().source(), fos.getChannel());
+        } finally {
+            closeQuietly(fos);
+            closeQuietly(response.body());
         }
-        closeQuietly(fos);
-        closeQuietly(response.body());
         if (canceled) {
             onCancel();
         } else {
@@ -149,6 +150,32 @@ public class OKHTTPClient extends AbstractHttpClient {
         }
     }
 
+    @Override
+    public InputStream openRange(String url, long rangeStart, long rangeEnd, int timeout, String userAgent, Map<String, List<String>> outputHeaders) throws IOException {
+        final OkHttpClient okHttpClient = client.get(timeout, true, false);
+        final Request.Builder builder = prepareRequestBuilder(url, userAgent, null, null);
+        addRangeHeader(rangeStart, rangeEnd, builder);
+        final Response response = getSyncResponse(okHttpClient, builder);
+        copyMultiMap(response.headers().toMultimap(), outputHeaders);
+        int code = response.code();
+        if (code != HttpURLConnection.HTTP_PARTIAL) {
+            closeQuietly(response.body());
+            if (code == HttpURLConnection.HTTP_OK) {
+                throw new RangeNotSupportedException("Server does not support bytes range request");
+            }
+            throw new ResponseCodeNotSupportedException(code);
+        }
+        return response.body().byteStream();
+    }
+
+    @Override
+    public Reader openReader(String url, int timeout, String userAgent, String referrer, String cookie, Map<String, String> customHeaders) throws IOException {
+        final OkHttpClient okHttpClient = client.get(timeout, true, false);
+        final Request.Builder builder = prepareRequestBuilder(url, userAgent, referrer, cookie);
+        addCustomHeaders(customHeaders, builder);
+        return getSyncResponse(okHttpClient, builder).body().charStream();
+    }
+
     private void onHeaders(Headers headers) {
         if (getListener() != null) {
             try {
@@ -171,17 +198,15 @@ public class OKHTTPClient extends AbstractHttpClient {
 
     private String post(String url, int timeout, String userAgent, String postContentType, byte[] postData, boolean gzip) throws IOException {
         canceled = false;
-        final OkHttpClient.Builder okHttpClient = newOkHttpClient();
-        final Request.Builder builder = prepareRequestBuilder(okHttpClient, url, timeout, userAgent, null, null);
+        final OkHttpClient okHttpClient = client.get(timeout, false, gzip);
+        final Request.Builder builder = prepareRequestBuilder(url, userAgent, null, null);
         final RequestBody requestBody = RequestBody.create(MediaType.parse(postContentType), postData);
-        prepareOkHttpClientForPost(okHttpClient, gzip);
         builder.post(requestBody);
-        return getPostSyncResponse(builder);
+        return getPostSyncResponse(okHttpClient, builder);
     }
 
-    private String getPostSyncResponse(Request.Builder builder) throws IOException {
+    private String getPostSyncResponse(OkHttpClient okHttpClient, Request.Builder builder) throws IOException {
         String result = null;
-        final OkHttpClient.Builder okHttpClient = newOkHttpClient();
         final Response response = this.getSyncResponse(okHttpClient, builder);
         try {
             int httpResponseCode = response.code();
@@ -203,16 +228,6 @@ public class OKHTTPClient extends AbstractHttpClient {
         return result;
     }
 
-    private void prepareOkHttpClientForPost(OkHttpClient.Builder okHttpClient, boolean gzip) {
-        okHttpClient.followRedirects(false);
-        if (gzip) {
-            if (okHttpClient.interceptors().size() > 0) {
-                okHttpClient.interceptors().remove(0);
-                okHttpClient.interceptors().add(0, new GzipRequestInterceptor());
-            }
-        }
-    }
-
     private void addRangeHeader(long rangeStart, long rangeEnd, Request.Builder builderRef) {
         if (rangeStart < 0) {
             return;
@@ -221,17 +236,13 @@ public class OKHTTPClient extends AbstractHttpClient {
         sb.append("bytes=");
         sb.append(String.valueOf(rangeStart));
         sb.append('-');
-        if (rangeEnd > 0 && rangeEnd > rangeStart) {
+        if (rangeEnd >= rangeStart) {
             sb.append(String.valueOf(rangeEnd));
         }
         builderRef.addHeader("Range", sb.toString());
     }
 
-    private Request.Builder prepareRequestBuilder(OkHttpClient.Builder okHttpClient, String url, int timeout, String userAgent, String referrer, String cookie) {
-        okHttpClient.connectTimeout(timeout, TimeUnit.MILLISECONDS);
-        okHttpClient.readTimeout(timeout, TimeUnit.MILLISECONDS);
-        okHttpClient.writeTimeout(timeout, TimeUnit.MILLISECONDS);
-        okHttpClient.interceptors().clear();
+    private Request.Builder prepareRequestBuilder(String url, String userAgent, String referrer, String cookie) {
         Request.Builder builder = new Request.Builder();
         builder.url(url);
         if (!StringUtils.isNullOrEmpty(userAgent)) {
@@ -263,26 +274,24 @@ public class OKHTTPClient extends AbstractHttpClient {
         }
     }
 
-    private Response getSyncResponse(OkHttpClient.Builder okHttpClient, Request.Builder builder) throws IOException {
+    private Response getSyncResponse(OkHttpClient okHttpClient, Request.Builder builder) throws IOException {
         final Request request = builder.build();
-        return okHttpClient.build().newCall(request).execute();
+        return okHttpClient.newCall(request).execute();
     }
 
-    private OkHttpClient.Builder newOkHttpClient() {
-        return newOkHttpClient(pool);
-    }
-
-    public static OkHttpClient.Builder newOkHttpClient(ThreadPool pool) {
+    public static OkHttpClient.Builder newOkHttpClient(ThreadPool pool, ConnectionPool connectionPool) {
         OkHttpClient.Builder searchClient = new OkHttpClient.Builder();
         searchClient.dispatcher(new Dispatcher(pool));
-        searchClient.connectionPool(CONNECTION_POOL);
+        searchClient.connectionPool(connectionPool);
+        searchClient.dns(CachingDns.INSTANCE);
+        searchClient.protocols(Arrays.asList(Protocol.HTTP_2, Protocol.HTTP_1_1));
         searchClient.followRedirects(true);
         searchClient.connectTimeout(DEFAULT_TIMEOUT, TimeUnit.MILLISECONDS);
 
+        // the null socket factory is a single instance, so TLS sessions are
+        // resumed across all the clients
         searchClient = configNullSsl(searchClient);
 
-        // Maybe we should use a custom connection pool here. Using default.
-        //searchClient.setConnectionPool(?);
         return searchClient;
     }
 
@@ -309,10 +318,82 @@ public class OKHTTPClient extends AbstractHttpClient {
         return b.build();
     }
 
+    /**
+     * An okhttp client shared by all the {@link OKHTTPClient} instances of a context.
+     * Variants with other timeouts or redirect policies are derived on first use and
+     * cached, all of them share the connection pool, dispatcher and dns cache.
+     */
+    public static final class SharedClient {
+
+        private static final int MAX_VARIANTS = 32;
+
+        private final OkHttpClient base;
+        private final ConcurrentHashMap<Long, OkHttpClient> variants;
+
+        public SharedClient(OkHttpClient base) {
+            this.base = base;
+            this.variants = new ConcurrentHashMap<>();
+        }
+
+        OkHttpClient get(int timeout, boolean followRedirects, boolean gzip) {
+            long key = ((long) timeout << 2) | (followRedirects ? 1 : 0) | (gzip ? 2 : 0);
+            OkHttpClient client = variants.get(key);
+            if (client == null) {
+                OkHttpClient.Builder b = base.newBuilder();
+                b.connectTimeout(timeout, TimeUnit.MILLISECONDS);
+                b.readTimeout(timeout, TimeUnit.MILLISECONDS);
+                b.writeTimeout(timeout, TimeUnit.MILLISECONDS);
+                b.followRedirects(followRedirects);
+                if (gzip) {
+                    b.addInterceptor(new GzipRequestInterceptor());
+                }
+                client = b.build();
+                if (variants.size() < MAX_VARIANTS) {
+                    OkHttpClient old = variants.putIfAbsent(key, client);
+                    if (old != null) {
+                        client = old;
+                    }
+                }
+            }
+            return client;
+        }
+
+        public int connectionCount() {
+            return base.connectionPool().connectionCount();
+        }
+
+        public int idleConnectionCount() {
+            return base.connectionPool().idleConnectionCount();
+        }
+
+        public int runningCallsCount() {
+            return base.dispatcher().runningCallsCount();
+        }
+
+        public int queuedCallsCount() {
+            return base.dispatcher().queuedCallsCount();
+        }
+
+        public void evictAll() {
+            ConnectionPool pool = base.connectionPool();
+            pool.evictAll();
+            // wake up the cleanup thread so it can finish
+            synchronized (pool) {
+                pool.notifyAll();
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "connections=" + connectionCount() + ", idle=" + idleConnectionCount() +
+                    ", running=" + runningCallsCount() + ", queued=" + queuedCallsCount();
+        }
+    }
+
     /**
      * This interceptor compresses the HTTP request body. Many web servers can't handle this!
      */
-    class GzipRequestInterceptor implements Interceptor {
+    static final class GzipRequestInterceptor implements Interceptor {
         @Override
         public Response intercept(Chain chain) throws IOException {
             Request originalRequest = chain.request();
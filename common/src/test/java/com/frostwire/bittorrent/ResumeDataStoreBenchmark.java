@@ -0,0 +1,89 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.bittorrent;
+
+import org.apache.commons.io.FileUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+/**
+ * Saves and loads of the resume data of many torrents, one file per torrent
+ * against the {@link ResumeDataStore}. Not part of the unit tests, run its main.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class ResumeDataStoreBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int numTorrents = 2000;
+        int rounds = 3;
+        byte[] data = new byte[4 * 1024];
+        new Random(0).nextBytes(data);
+
+        File dir = File.createTempFile("resume", "benchmark");
+        dir.delete();
+        dir.mkdirs();
+        try {
+            File filesDir = new File(dir, "files");
+            filesDir.mkdirs();
+
+            long start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (int i = 0; i < numTorrents; i++) {
+                    FileUtils.writeByteArrayToFile(new File(filesDir, i + ".resume"), data);
+                }
+            }
+            long filesTime = System.nanoTime() - start;
+
+            ResumeDataStore store = new ResumeDataStore(new File(dir, "resume.dat"));
+            start = System.nanoTime();
+            for (int r = 0; r < rounds; r++) {
+                for (int i = 0; i < numTorrents; i++) {
+                    store.put(String.valueOf(i), data);
+                }
+            }
+            store.close();
+            long storeTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            for (int i = 0; i < numTorrents; i++) {
+                FileUtils.readFileToByteArray(new File(filesDir, i + ".resume"));
+            }
+            long filesReadTime = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            store = new ResumeDataStore(new File(dir, "resume.dat"));
+            for (int i = 0; i < numTorrents; i++) {
+                store.get(String.valueOf(i));
+            }
+            store.close();
+            long storeReadTime = System.nanoTime() - start;
+
+            System.out.println("Resume data, " + numTorrents + " torrents x " + rounds + " saves");
+            System.out.println("  write, one file per torrent: " + filesTime / 1000000 + " ms");
+            System.out.println("  write, resume data store:    " + storeTime / 1000000 + " ms");
+            System.out.println("  read, one file per torrent:  " + filesReadTime / 1000000 + " ms");
+            System.out.println("  read, resume data store:     " + storeReadTime / 1000000 + " ms");
+        } finally {
+            FileUtils.deleteDirectory(dir);
+        }
+    }
+}
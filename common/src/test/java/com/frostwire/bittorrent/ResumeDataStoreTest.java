@@ -0,0 +1,195 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.bittorrent;
+
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class ResumeDataStoreTest {
+
+    private File dir;
+
+    @Before
+    public void setUp() throws IOException {
+        dir = File.createTempFile("resume", "test");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testPutGetReopen() throws IOException {
+        File f = new File(dir, "resume.dat");
+
+        ResumeDataStore store = new ResumeDataStore(f);
+        store.put("a", new byte[]{1, 2, 3});
+        store.put("b", new byte[]{4});
+        store.put("a", new byte[]{5, 6});
+        store.remove("b");
+        store.close();
+
+        store = new ResumeDataStore(f);
+        assertEquals(1, store.size());
+        assertArrayEquals(new byte[]{5, 6}, store.get("a"));
+        assertNull(store.get("b"));
+        store.close();
+    }
+
+    @Test
+    public void testTornTail() throws IOException {
+        File f = new File(dir, "resume.dat");
+
+        ResumeDataStore store = new ResumeDataStore(f);
+        store.put("a", new byte[]{1, 2, 3});
+        store.put("b", new byte[100]);
+        store.close();
+
+        // simulate a crash in the middle of the last write
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        raf.setLength(raf.length() - 10);
+        raf.close();
+
+        store = new ResumeDataStore(f);
+        assertArrayEquals(new byte[]{1, 2, 3}, store.get("a"));
+        assertFalse(store.contains("b"));
+
+        store.put("c", new byte[]{7});
+        store.close();
+
+        store = new ResumeDataStore(f);
+        assertEquals(2, store.size());
+        assertArrayEquals(new byte[]{7}, store.get("c"));
+        store.close();
+    }
+
+    @Test
+    public void testCompaction() throws IOException {
+        File f = new File(dir, "resume.dat");
+
+        ResumeDataStore store = new ResumeDataStore(f);
+        byte[] data = new byte[64 * 1024];
+        for (int i = 0; i < 100; i++) {
+            Arrays.fill(data, (byte) i);
+            store.put("a", data);
+        }
+        store.put("b", new byte[]{1});
+        store.compact();
+
+        // 100 versions of 64KB would be 6.4MB without compaction
+        assertTrue(f.length() < 2 * 1024 * 1024);
+        assertEquals(99, store.get("a")[0]);
+        store.close();
+
+        store = new ResumeDataStore(f);
+        assertEquals(2, store.size());
+        assertEquals(99, store.get("a")[data.length - 1]);
+        store.close();
+    }
+
+    @Test
+    public void testBackgroundCompaction() throws Exception {
+        File f = new File(dir, "resume.dat");
+
+        ResumeDataStore store = new ResumeDataStore(f);
+        byte[] data = new byte[64 * 1024];
+        for (int i = 0; i < 20; i++) {
+            Arrays.fill(data, (byte) i);
+            store.put("a", data);
+        }
+
+        // compacted in the background, the puts are not blocked
+        long deadline = System.currentTimeMillis() + 5000;
+        while (f.length() > 512 * 1024) {
+            assertTrue("log not compacted", System.currentTimeMillis() < deadline);
+            Thread.sleep(10);
+        }
+        store.put("b", new byte[]{1});
+        assertEquals(19, store.get("a")[0]);
+        store.close();
+
+        store = new ResumeDataStore(f);
+        assertEquals(2, store.size());
+        assertEquals(19, store.get("a")[data.length - 1]);
+        assertArrayEquals(new byte[]{1}, store.get("b"));
+        store.close();
+    }
+
+    @Test
+    public void testCompactionKeepsConcurrentWrites() throws Exception {
+        File f = new File(dir, "resume.dat");
+
+        ResumeDataStore store = new ResumeDataStore(f);
+        byte[] data = new byte[16 * 1024];
+        for (int i = 0; i < 200; i++) {
+            store.put(String.valueOf(i % 50), data);
+        }
+
+        Thread writer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 200; i++) {
+                    store.put(String.valueOf(i % 60), new byte[]{(byte) i});
+                    if (i % 7 == 0) {
+                        store.remove(String.valueOf(i % 60));
+                    }
+                }
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+        writer.start();
+        store.compact();
+        writer.join();
+
+        ResumeDataStore expected = new ResumeDataStore(new File(dir, "expected.dat"));
+        for (int i = 0; i < 200; i++) {
+            expected.put(String.valueOf(i % 50), data);
+        }
+        for (int i = 0; i < 200; i++) {
+            expected.put(String.valueOf(i % 60), new byte[]{(byte) i});
+            if (i % 7 == 0) {
+                expected.remove(String.valueOf(i % 60));
+            }
+        }
+
+        store.close();
+        ResumeDataStore reopened = new ResumeDataStore(f);
+        assertEquals(expected.keys(), reopened.keys());
+        for (String key : expected.keys()) {
+            assertArrayEquals(expected.get(key), reopened.get(key));
+        }
+        reopened.close();
+        expected.close();
+    }
+}
@@ -0,0 +1,61 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.mp3;
+
+import java.io.File;
+
+/**
+ * Retagging time of {@link Mp3File} against {@link Mp3TagWriter} on a long
+ * mix, not part of the unit tests since it writes about 200 MB of temporary
+ * files. Run its main.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class Mp3TagWriterBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        // about 100 MB, a long mix
+        File f = Mp3TagWriterTest.createMp3(240000, Mp3TagWriterTest.tags("old", new byte[30000], true));
+        File out = File.createTempFile("benchmark", ".mp3");
+        try {
+            ID3Wrapper tags = Mp3TagWriterTest.tags("new", new byte[30000], true);
+
+            long start = System.nanoTime();
+            Mp3File mp3 = new Mp3File(f.getAbsolutePath());
+            mp3.setId3v1Tag(tags.getId3v1Tag());
+            mp3.setId3v2Tag(tags.getId3v2Tag());
+            mp3.save(out.getAbsolutePath());
+            long mp3File = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            Mp3TagWriter.save(f.getAbsolutePath(), out.getAbsolutePath(), tags.getId3v2Tag(), tags.getId3v1Tag());
+            long save = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            boolean updated = Mp3TagWriter.update(f.getAbsolutePath(), tags.getId3v2Tag(), tags.getId3v1Tag());
+            long update = System.nanoTime() - start;
+
+            System.out.println("Retagging " + (f.length() >> 20) + " MB: Mp3File " + mp3File / 1000000 + "ms, Mp3TagWriter.save " +
+                    save / 1000000 + "ms, Mp3TagWriter.update " + (updated ? update / 1000000 + "ms" : "no room"));
+        } finally {
+            f.delete();
+            out.delete();
+        }
+    }
+}
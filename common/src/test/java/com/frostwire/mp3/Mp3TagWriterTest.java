@@ -0,0 +1,135 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.mp3;
+
+import org.junit.Test;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class Mp3TagWriterTest {
+
+    // MPEG 1 layer III, 128 kbps, 44100 Hz, no padding
+    private static final byte[] FRAME_HEADER = {(byte) 0xFF, (byte) 0xFB, (byte) 0x90, (byte) 0x64};
+    private static final int FRAME_LENGTH = 417;
+
+    @Test
+    public void testSaveSameAsMp3File() throws Exception {
+        File f = createMp3(1000, tags("old", new byte[100], false));
+        File expected = File.createTempFile("expected", ".mp3");
+        File actual = File.createTempFile("actual", ".mp3");
+        try {
+            ID3Wrapper tags = tags("new", new byte[2000], true);
+
+            Mp3File mp3 = new Mp3File(f.getAbsolutePath());
+            mp3.setId3v1Tag(tags.getId3v1Tag());
+            mp3.setId3v2Tag(tags.getId3v2Tag());
+            mp3.save(expected.getAbsolutePath());
+
+            Mp3TagWriter.save(f.getAbsolutePath(), actual.getAbsolutePath(), tags.getId3v2Tag(), tags.getId3v1Tag());
+
+            assertTrue(Arrays.equals(Files.readAllBytes(expected.toPath()), Files.readAllBytes(actual.toPath())));
+        } finally {
+            f.delete();
+            expected.delete();
+            actual.delete();
+        }
+    }
+
+    @Test
+    public void testUpdateInPlace() throws Exception {
+        // a big cover leaves room for a smaller tag
+        File f = createMp3(1000, tags("old", new byte[8000], true));
+        try {
+            long length = f.length();
+            assertTrue(Mp3TagWriter.update(f.getAbsolutePath(), tags("new", new byte[2000], true).getId3v2Tag(), new ID3v1Tag()));
+            assertEquals(length, f.length());
+
+            Mp3File mp3 = new Mp3File(f.getAbsolutePath());
+            assertEquals(1000, mp3.getFrameCount());
+            assertEquals("new", mp3.getId3v2Tag().getTitle());
+            assertEquals(2000, mp3.getId3v2Tag().getAlbumImage().length);
+            assertTrue(mp3.hasId3v1Tag());
+
+            // too big, nothing changes
+            byte[] before = Files.readAllBytes(f.toPath());
+            assertFalse(Mp3TagWriter.update(f.getAbsolutePath(), tags("big", new byte[20000], true).getId3v2Tag(), null));
+            assertTrue(Arrays.equals(before, Files.readAllBytes(f.toPath())));
+
+            // dropping the ID3v1 tag
+            assertTrue(Mp3TagWriter.update(f.getAbsolutePath(), tags("new", new byte[10], false).getId3v2Tag(), null));
+            assertEquals(length - ID3v1Tag.TAG_LENGTH, f.length());
+            mp3 = new Mp3File(f.getAbsolutePath());
+            assertEquals(1000, mp3.getFrameCount());
+            assertFalse(mp3.hasId3v1Tag());
+        } finally {
+            f.delete();
+        }
+    }
+
+    @Test
+    public void testUpdateWithoutTag() throws Exception {
+        File f = createMp3(10, null);
+        try {
+            assertFalse(Mp3TagWriter.update(f.getAbsolutePath(), tags("new", new byte[10], true).getId3v2Tag(), null));
+        } finally {
+            f.delete();
+        }
+    }
+
+    static ID3Wrapper tags(String title, byte[] cover, boolean padding) {
+        ID3Wrapper tags = new ID3Wrapper(new ID3v1Tag(), new ID3v23Tag());
+        tags.setTitle(title);
+        tags.setArtist("artist");
+        tags.setAlbumImage(cover, "image/jpg");
+        tags.getId3v2Tag().setPadding(padding);
+        return tags;
+    }
+
+    static File createMp3(int frames, ID3Wrapper tags) throws IOException, NotSupportedException {
+        File f = File.createTempFile("test", ".mp3");
+        OutputStream out = new FileOutputStream(f);
+        try {
+            if (tags != null) {
+                out.write(tags.getId3v2Tag().toBytes());
+            }
+            byte[] frame = new byte[FRAME_LENGTH];
+            System.arraycopy(FRAME_HEADER, 0, frame, 0, FRAME_HEADER.length);
+            for (int i = 0; i < frames; i++) {
+                frame[FRAME_LENGTH - 1] = (byte) i;
+                out.write(frame);
+            }
+            if (tags != null) {
+                out.write(tags.getId3v1Tag().toBytes());
+            }
+        } finally {
+            out.close();
+        }
+        return f;
+    }
+}
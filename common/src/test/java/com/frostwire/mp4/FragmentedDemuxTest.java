@@ -20,10 +20,20 @@ package com.frostwire.mp4;
 import org.junit.Test;
 
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.RandomAccessFile;
 import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+import java.util.ArrayList;
 import java.util.LinkedList;
+import java.util.List;
+
+import static org.junit.Assert.*;
 
 /**
  * @author gubatron
@@ -265,4 +275,209 @@ public class FragmentedDemuxTest {
 
         Mp4Demuxer.muxFragments(fIn1, fIn2, fOut, tags, null);
     }
+
+    @Test
+    public void testMuxFragmentedStreaming() throws IOException {
+        File fVideo = File.createTempFile("dash_video", ".mp4");
+        File fAudio = File.createTempFile("dash_audio", ".m4a");
+        File fOut = File.createTempFile("dash_out", ".mp4");
+        try {
+            int videoFragments = 30;
+            int audioFragments = 45;
+            // the audio uses absolute offsets, they must be moved to the output positions
+            writeDash(fVideo, Box.vide, new VideoMediaHeaderBox(), 1, videoFragments, 256 * 1024, false);
+            writeDash(fAudio, Box.soun, new SoundMediaHeaderBox(), 2, audioFragments, 4 * 1024, true);
+
+            Mp4Info inf = new Mp4Info();
+            inf.majorBrand = Box.dash;
+            inf.compatibleBrands = new int[]{Box.iso6, Box.mp41};
+            inf.title = "ti";
+
+            // plain streams, no way to seek in any of them
+            InputStream videoIn = new FileInputStream(fVideo);
+            InputStream audioIn = new FileInputStream(fAudio);
+            OutputStream out = new FileOutputStream(fOut);
+            final long[] lastCount = {0};
+            try {
+                Mp4Demuxer.muxFragmented(new ReadableByteChannel[]{Channels.newChannel(videoIn), Channels.newChannel(audioIn)},
+                        Channels.newChannel(out), inf, count -> {
+                            assertTrue(count >= lastCount[0]);
+                            lastCount[0] = count;
+                        });
+            } finally {
+                videoIn.close();
+                audioIn.close();
+                out.close();
+            }
+            assertEquals(fVideo.length() + fAudio.length(), lastCount[0]);
+
+            verifyFragmented(fOut, videoFragments, audioFragments);
+        } finally {
+            fVideo.delete();
+            fAudio.delete();
+            fOut.delete();
+        }
+    }
+
+    private static void verifyFragmented(File f, int videoFragments, int audioFragments) throws IOException {
+        final List<Box> top = new ArrayList<>();
+        final List<Long> positions = new ArrayList<>();
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try {
+            final InputChannel ch = new InputChannel(raf.getChannel());
+            ByteBuffer buf = ByteBuffer.allocate(100 * 1024);
+            IsoMedia.read(ch, f.length(), null, buf, b -> {
+                if (b.parent == null) {
+                    top.add(b);
+                    // the start of the moof, the start of the payload for the mdat
+                    positions.add(b.type == Box.moof ? ch.count() - 8 : ch.count());
+                }
+                return true;
+            });
+
+            assertEquals(Box.ftyp, top.get(0).type);
+            assertEquals(Box.moov, top.get(1).type);
+            MovieBox moov = (MovieBox) top.get(1);
+            assertEquals(2, moov.find(Box.trak).size());
+            List<TrackExtendsBox> trex = moov.find(Box.trex);
+            assertEquals(1, trex.get(0).track_ID);
+            assertEquals(2, trex.get(1).track_ID);
+
+            assertEquals(2 + 2 * (videoFragments + audioFragments), top.size());
+            int[] fragments = new int[3];
+            for (int i = 2; i < top.size(); i += 2) {
+                MovieFragmentBox moof = (MovieFragmentBox) top.get(i);
+                assertEquals(Box.mdat, top.get(i + 1).type);
+
+                MovieFragmentHeaderBox mfhd = moof.findFirst(Box.mfhd);
+                assertEquals(i / 2, mfhd.sequence_number);
+
+                TrackFragmentHeaderBox tfhd = moof.findFirst(Box.tfhd);
+                TrackRunBox trun = moof.findFirst(Box.trun);
+                long base = tfhd.baseDataOffsetPresent() ? tfhd.base_data_offset : positions.get(i);
+                long payload = positions.get(i + 1);
+                assertEquals(payload, base + trun.data_offset);
+
+                int track = tfhd.track_ID;
+                byte[] data = new byte[trun.entries[0].sample_size];
+                raf.seek(payload);
+                raf.readFully(data);
+                for (int j = 0; j < data.length; j += 509) {
+                    assertEquals(fill(track, fragments[track], j), data[j]);
+                }
+                fragments[track]++;
+            }
+            assertEquals(videoFragments, fragments[1]);
+            assertEquals(audioFragments, fragments[2]);
+        } finally {
+            raf.close();
+        }
+    }
+
+    static void writeDash(File f, int handlerType, Box mediaHeader, int trackId, int fragments, int fragmentSize, boolean absoluteOffsets) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            raf.setLength(0);
+            ByteBuffer buf = ByteBuffer.allocate(100 * 1024);
+            OutputChannel out = new OutputChannel(raf.getChannel());
+
+            LinkedList<Box> boxes = new LinkedList<>();
+            FileTypeBox ftyp = new FileTypeBox();
+            ftyp.major_brand = Box.dash;
+            ftyp.compatible_brands = new int[]{Box.iso6, Box.mp41};
+            boxes.add(ftyp);
+            boxes.add(createDashMoov(handlerType, mediaHeader, trackId));
+            ContainerBox.length(boxes);
+            IsoMedia.write(out, boxes, buf, IsoMedia.OnBoxListener.ALL);
+
+            byte[] data = new byte[fragmentSize];
+            for (int i = 0; i < fragments; i++) {
+                MovieFragmentBox moof = new MovieFragmentBox();
+                MovieFragmentHeaderBox mfhd = new MovieFragmentHeaderBox();
+                mfhd.sequence_number = i + 1;
+                moof.boxes.add(mfhd);
+                TrackFragmentBox traf = new TrackFragmentBox();
+                moof.boxes.add(traf);
+                TrackFragmentHeaderBox tfhd = new TrackFragmentHeaderBox();
+                tfhd.track_ID = trackId;
+                tfhd.flags = absoluteOffsets ? 0x1 : 0x20000; // base-data-offset-present or default-base-is-moof
+                traf.boxes.add(tfhd);
+                TrackFragmentBaseMediaDecodeTimeBox tfdt = new TrackFragmentBaseMediaDecodeTimeBox();
+                tfdt.base_media_decode_time = i * 1024L;
+                traf.boxes.add(tfdt);
+                TrackRunBox trun = new TrackRunBox();
+                trun.flags = 0x1 | 0x200; // data-offset-present, sample-size-present
+                trun.sample_count = 1;
+                trun.entries = new TrackRunBox.Entry[]{new TrackRunBox.Entry()};
+                trun.entries[0].sample_size = fragmentSize;
+                traf.boxes.add(trun);
+
+                MediaDataBox mdat = new MediaDataBox();
+                mdat.length(fragmentSize);
+
+                LinkedList<Box> fragment = new LinkedList<>();
+                fragment.add(moof);
+                fragment.add(mdat);
+                ContainerBox.length(fragment);
+
+                if (absoluteOffsets) {
+                    tfhd.base_data_offset = out.count() + moof.size + 8;
+                    trun.data_offset = 0;
+                } else {
+                    trun.data_offset = moof.size + 8;
+                }
+                IsoMedia.write(out, fragment, buf, null);
+
+                for (int j = 0; j < data.length; j++) {
+                    data[j] = fill(trackId, i, j);
+                }
+                ByteBuffer b = ByteBuffer.wrap(data);
+                while (b.hasRemaining()) {
+                    out.write(b);
+                }
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static MovieBox createDashMoov(int handlerType, Box mediaHeader, int trackId) {
+        MovieBox moov = new MovieBox();
+        moov.boxes.add(new MovieHeaderBox());
+
+        TrackBox trak = new TrackBox();
+        TrackHeaderBox tkhd = new TrackHeaderBox();
+        tkhd.trackId(trackId);
+        trak.boxes.add(tkhd);
+        MediaBox mdia = new MediaBox();
+        mdia.boxes.add(new MediaHeaderBox());
+        HandlerBox hdlr = new HandlerBox();
+        hdlr.handler_type = handlerType;
+        mdia.boxes.add(hdlr);
+        trak.boxes.add(mdia);
+        MediaInformationBox minf = new MediaInformationBox();
+        minf.boxes.add(mediaHeader);
+        mdia.boxes.add(minf);
+        SampleTableBox stbl = new SampleTableBox();
+        stbl.boxes.add(new SampleDescriptionBox());
+        stbl.boxes.add(new TimeToSampleBox());
+        stbl.boxes.add(new SampleToChunkBox());
+        stbl.boxes.add(new SampleSizeBox());
+        stbl.boxes.add(new ChunkOffsetBox());
+        minf.boxes.add(stbl);
+        moov.boxes.add(trak);
+
+        MovieExtendsBox mvex = new MovieExtendsBox();
+        TrackExtendsBox trex = new TrackExtendsBox();
+        trex.track_ID = trackId;
+        trex.default_sample_description_index = 1;
+        mvex.boxes.add(trex);
+        moov.boxes.add(mvex);
+
+        return moov;
+    }
+
+    private static byte fill(int track, int fragment, int i) {
+        return (byte) (track * 37 + fragment * 13 + i);
+    }
 }
@@ -0,0 +1,145 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.mp4;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.ReadableByteChannel;
+
+/**
+ * Throughput of the demuxer over big synthetic files, not part of the unit
+ * tests since it writes a few hundred MB of temporary files. Run its main.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class Mp4DemuxBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        audio();
+        copy();
+        muxFragmented();
+    }
+
+    private static void audio() throws IOException {
+        File fIn = File.createTempFile("demux_in", ".mp4");
+        File fOut = File.createTempFile("demux_out", ".m4a");
+        try {
+            SimpleDemuxTest.writeSynthetic(fIn, 200, 256 * 1024, 16 * 1024);
+
+            Mp4Info inf = new Mp4Info();
+            inf.compatibleBrands = new int[]{Bits.make4cc("M4A "), Bits.make4cc("mp42")};
+            inf.title = "ti";
+
+            long start = System.nanoTime();
+            Mp4Demuxer.audio(fIn, fOut, inf, null);
+            long elapsed = System.nanoTime() - start;
+
+            System.out.println("Mp4Demuxer audio: " + mbps(fIn.length(), elapsed) + " MB/s read");
+        } finally {
+            fIn.delete();
+            fOut.delete();
+        }
+    }
+
+    private static void copy() throws IOException {
+        File fIn = File.createTempFile("copy_in", ".mp4");
+        File fOut = File.createTempFile("copy_out", ".mp4");
+        try {
+            SimpleDemuxTest.writeSynthetic(fIn, 100, 1024 * 1024, 64 * 1024);
+            long len = fIn.length();
+            ByteBuffer buf = ByteBuffer.allocate(100 * 1024);
+
+            RandomAccessFile in = new RandomAccessFile(fIn, "r");
+            RandomAccessFile out = new RandomAccessFile(fOut, "rw");
+            long buffered;
+            long transferred;
+            try {
+                // wrapped channels are not files, forcing the copy through the buffer
+                InputChannel chIn = new InputChannel(Channels.newChannel(Channels.newInputStream(in.getChannel())));
+                OutputChannel chOut = new OutputChannel(Channels.newChannel(Channels.newOutputStream(out.getChannel())));
+                long start = System.nanoTime();
+                IO.copy(chIn, chOut, len, buf);
+                buffered = System.nanoTime() - start;
+
+                in.seek(0);
+                out.seek(0);
+                chIn = new InputChannel(in.getChannel());
+                chOut = new OutputChannel(out.getChannel());
+                start = System.nanoTime();
+                IO.copy(chIn, chOut, len, buf);
+                transferred = System.nanoTime() - start;
+            } finally {
+                in.close();
+                out.close();
+            }
+
+            System.out.println("IO.copy " + (len >> 20) + " MB: buffered " + mbps(len, buffered) +
+                    " MB/s, transferTo " + mbps(len, transferred) + " MB/s");
+        } finally {
+            fIn.delete();
+            fOut.delete();
+        }
+    }
+
+    private static void muxFragmented() throws IOException {
+        File fVideo = File.createTempFile("dash_video", ".mp4");
+        File fAudio = File.createTempFile("dash_audio", ".m4a");
+        File fOut = File.createTempFile("dash_out", ".mp4");
+        try {
+            FragmentedDemuxTest.writeDash(fVideo, Box.vide, new VideoMediaHeaderBox(), 1, 400, 256 * 1024, false);
+            FragmentedDemuxTest.writeDash(fAudio, Box.soun, new SoundMediaHeaderBox(), 2, 600, 16 * 1024, true);
+
+            Mp4Info inf = new Mp4Info();
+            inf.majorBrand = Box.dash;
+            inf.compatibleBrands = new int[]{Box.iso6, Box.mp41};
+            inf.title = "ti";
+
+            InputStream videoIn = new FileInputStream(fVideo);
+            InputStream audioIn = new FileInputStream(fAudio);
+            OutputStream out = new FileOutputStream(fOut);
+            long start = System.nanoTime();
+            try {
+                Mp4Demuxer.muxFragmented(new ReadableByteChannel[]{Channels.newChannel(videoIn), Channels.newChannel(audioIn)},
+                        Channels.newChannel(out), inf, null);
+            } finally {
+                videoIn.close();
+                audioIn.close();
+                out.close();
+            }
+            long elapsed = System.nanoTime() - start;
+
+            System.out.println("Mp4Demuxer muxFragmented: " + mbps(fOut.length(), elapsed) + " MB/s written");
+        } finally {
+            fVideo.delete();
+            fAudio.delete();
+            fOut.delete();
+        }
+    }
+
+    static long mbps(long bytes, long nanos) {
+        return (bytes * 1000000000L / Math.max(1, nanos)) >> 20;
+    }
+}
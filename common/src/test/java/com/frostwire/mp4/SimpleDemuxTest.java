@@ -21,6 +21,14 @@ import org.junit.Test;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.LinkedList;
+
+import static org.junit.Assert.*;
 
 /**
  * @author gubatron
@@ -42,4 +50,220 @@ public class SimpleDemuxTest {
 
         Mp4Demuxer.audio(fIn, fOut, tags, null);
     }
+
+    @Test
+    public void testSyntheticAudio() throws IOException {
+        File fIn = File.createTempFile("demux_in", ".mp4");
+        File fOut = File.createTempFile("demux_out", ".m4a");
+        try {
+            // interleaved video and audio chunks, as in youtube videos
+            int chunks = 50;
+            int videoChunkSize = 64 * 1024;
+            int audioChunkSize = 16 * 1024;
+            writeSynthetic(fIn, chunks, videoChunkSize, audioChunkSize);
+
+            Mp4Info inf = new Mp4Info();
+            inf.compatibleBrands = new int[]{Bits.make4cc("M4A "), Bits.make4cc("mp42")};
+            inf.title = "ti";
+
+            final long[] lastCount = {0};
+            Mp4Demuxer.audio(fIn, fOut, inf, count -> {
+                assertTrue(count >= lastCount[0]);
+                lastCount[0] = count;
+            });
+
+            // progress counts every byte up to the last audio chunk, the end of the file
+            assertEquals(fIn.length(), lastCount[0]);
+            assertEquals(chunks * audioChunkSize, fOut.length() - headerLength(fOut));
+
+            // audio chunks copied in order and byte for byte
+            RandomAccessFile out = new RandomAccessFile(fOut, "r");
+            try {
+                out.seek(headerLength(fOut));
+                byte[] b = new byte[audioChunkSize];
+                for (int i = 0; i < chunks; i++) {
+                    out.readFully(b);
+                    for (int j = 0; j < b.length; j += 1021) {
+                        assertEquals(fill(i, true, j), b[j]);
+                    }
+                }
+            } finally {
+                out.close();
+            }
+        } finally {
+            fIn.delete();
+            fOut.delete();
+        }
+    }
+
+    @Test
+    public void testCopy() throws IOException {
+        File fIn = File.createTempFile("copy_in", ".mp4");
+        File fOut = File.createTempFile("copy_out", ".mp4");
+        try {
+            writeSynthetic(fIn, 8, 1024 * 1024, 64 * 1024);
+            long len = fIn.length();
+            ByteBuffer buf = ByteBuffer.allocate(100 * 1024);
+
+            RandomAccessFile in = new RandomAccessFile(fIn, "r");
+            RandomAccessFile out = new RandomAccessFile(fOut, "rw");
+            try {
+                // wrapped channels are not files, forcing the copy through the buffer
+                InputChannel chIn = new InputChannel(Channels.newChannel(Channels.newInputStream(in.getChannel())));
+                OutputChannel chOut = new OutputChannel(Channels.newChannel(Channels.newOutputStream(out.getChannel())));
+                IO.copy(chIn, chOut, len, buf);
+                assertEquals(len, chIn.count());
+                assertEquals(len, chOut.count());
+
+                in.seek(0);
+                out.seek(0);
+                chIn = new InputChannel(in.getChannel());
+                chOut = new OutputChannel(out.getChannel());
+                assertTrue(chIn.isFile() && chOut.isFile());
+                IO.copy(chIn, chOut, len, buf);
+                assertEquals(len, chIn.count());
+                assertEquals(len, chOut.count());
+                assertEquals(len, in.getFilePointer());
+                assertEquals(len, out.getFilePointer());
+            } finally {
+                in.close();
+                out.close();
+            }
+            assertTrue(Arrays.equals(Files.readAllBytes(fIn.toPath()), Files.readAllBytes(fOut.toPath())));
+        } finally {
+            fIn.delete();
+            fOut.delete();
+        }
+    }
+
+    static void writeSynthetic(File f, int chunks, int videoChunkSize, int audioChunkSize) throws IOException {
+        LinkedList<Box> boxes = new LinkedList<>();
+
+        FileTypeBox ftyp = new FileTypeBox();
+        ftyp.major_brand = Bits.make4cc("isom");
+        ftyp.compatible_brands = new int[]{Bits.make4cc("isom"), Bits.make4cc("mp42")};
+        boxes.add(ftyp);
+
+        MovieBox moov = new MovieBox();
+        moov.boxes.add(new MovieHeaderBox());
+        ChunkOffsetBox videoStco = addTrak(moov, 1, Bits.make4cc("vide"), new VideoMediaHeaderBox(), chunks, videoChunkSize);
+        ChunkOffsetBox audioStco = addTrak(moov, 2, Bits.make4cc("soun"), new SoundMediaHeaderBox(), chunks, audioChunkSize);
+        boxes.add(moov);
+
+        MediaDataBox mdat = new MediaDataBox();
+        mdat.length(0);
+        boxes.add(mdat);
+
+        long offset = ContainerBox.length(boxes);
+        long dataLength = (long) chunks * (videoChunkSize + audioChunkSize);
+        mdat.length(dataLength);
+        for (int i = 0; i < chunks; i++) {
+            videoStco.entries[i].chunk_offset = (int) offset;
+            offset += videoChunkSize;
+            audioStco.entries[i].chunk_offset = (int) offset;
+            offset += audioChunkSize;
+        }
+
+        RandomAccessFile raf = new RandomAccessFile(f, "rw");
+        try {
+            raf.setLength(0);
+            ByteBuffer buf = ByteBuffer.allocate(100 * 1024);
+            OutputChannel out = new OutputChannel(raf.getChannel());
+            IsoMedia.write(out, boxes, buf, IsoMedia.OnBoxListener.ALL);
+
+            byte[] video = new byte[videoChunkSize];
+            byte[] audio = new byte[audioChunkSize];
+            for (int i = 0; i < chunks; i++) {
+                for (int j = 0; j < video.length; j++) {
+                    video[j] = fill(i, false, j);
+                }
+                for (int j = 0; j < audio.length; j++) {
+                    audio[j] = fill(i, true, j);
+                }
+                raf.write(video);
+                raf.write(audio);
+            }
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static ChunkOffsetBox addTrak(MovieBox moov, int id, int handlerType, Box mediaHeader, int chunks, int chunkSize) {
+        TrackBox trak = new TrackBox();
+        TrackHeaderBox tkhd = new TrackHeaderBox();
+        tkhd.trackId(id);
+        trak.boxes.add(tkhd);
+
+        MediaBox mdia = new MediaBox();
+        mdia.boxes.add(new MediaHeaderBox());
+        HandlerBox hdlr = new HandlerBox();
+        hdlr.handler_type = handlerType;
+        mdia.boxes.add(hdlr);
+        trak.boxes.add(mdia);
+
+        MediaInformationBox minf = new MediaInformationBox();
+        minf.boxes.add(mediaHeader);
+        mdia.boxes.add(minf);
+
+        SampleTableBox stbl = new SampleTableBox();
+        minf.boxes.add(stbl);
+
+        stbl.boxes.add(new SampleDescriptionBox());
+
+        TimeToSampleBox stts = new TimeToSampleBox();
+        stts.entry_count = 1;
+        stts.entries = new TimeToSampleBox.Entry[]{new TimeToSampleBox.Entry()};
+        stts.entries[0].sample_count = chunks;
+        stts.entries[0].sample_delta = 1024;
+        stbl.boxes.add(stts);
+
+        // one sample per chunk, with an entry per chunk since the demuxer
+        // takes the last entry as a single chunk
+        SampleToChunkBox stsc = new SampleToChunkBox();
+        stsc.entry_count = chunks;
+        stsc.entries = new SampleToChunkBox.Entry[chunks];
+        for (int i = 0; i < chunks; i++) {
+            stsc.entries[i] = new SampleToChunkBox.Entry();
+            stsc.entries[i].first_chunk = i + 1;
+            stsc.entries[i].samples_per_chunk = 1;
+            stsc.entries[i].sample_description_index = 1;
+        }
+        stbl.boxes.add(stsc);
+
+        SampleSizeBox stsz = new SampleSizeBox();
+        stsz.sample_count = chunks;
+        stsz.entries = new SampleSizeBox.Entry[chunks];
+        for (int i = 0; i < chunks; i++) {
+            stsz.entries[i] = new SampleSizeBox.Entry();
+            stsz.entries[i].entry_size = chunkSize;
+        }
+        stbl.boxes.add(stsz);
+
+        ChunkOffsetBox stco = new ChunkOffsetBox();
+        stco.entry_count = chunks;
+        stco.entries = new ChunkOffsetBox.Entry[chunks];
+        for (int i = 0; i < chunks; i++) {
+            stco.entries[i] = new ChunkOffsetBox.Entry();
+        }
+        stbl.boxes.add(stco);
+
+        moov.boxes.add(trak);
+        return stco;
+    }
+
+    private static long headerLength(File f) throws IOException {
+        RandomAccessFile raf = new RandomAccessFile(f, "r");
+        try {
+            ByteBuffer buf = ByteBuffer.allocate(100 * 1024);
+            LinkedList<Box> head = IsoFile.head(raf, buf);
+            ChunkOffsetBox stco = Box.findFirst(head, Box.stco);
+            return stco.entries[0].chunk_offset;
+        } finally {
+            raf.close();
+        }
+    }
+
+    private static byte fill(int chunk, boolean audio, int i) {
+        return (byte) (chunk * 31 + i + (audio ? 7 : 0));
+    }
 }
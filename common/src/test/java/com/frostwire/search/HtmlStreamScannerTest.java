@@ -0,0 +1,167 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.frostwire.search;
+
+import com.frostwire.regex.Pattern;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class HtmlStreamScannerTest {
+
+    private static final Pattern PATTERN = Pattern.compile("(?is)<tr class=\"row\"><td>(?<name>.*?)</td><td>(?<seeds>\\d+)</td>");
+
+    @Test
+    public void testRecords() throws IOException {
+        String page = page(50);
+        HtmlStreamScanner scanner = new HtmlStreamScanner(null, null, "<tr class=\"row\">");
+
+        for (int chunk : new int[]{1, 3, 7, 64, page.length()}) {
+            List<String> names = new ArrayList<>();
+            assertTrue(scanner.scan(new ChunkedReader(page, chunk), PATTERN, collect(names, Integer.MAX_VALUE)));
+            assertEquals(regexNames(page), names);
+        }
+    }
+
+    @Test
+    public void testWindow() throws IOException {
+        String page = "<tr class=\"row\"><td>before</td><td>1</td>" +
+                "<table id=\"results\">" + page(3) + "</table>" +
+                "<tr class=\"row\"><td>after</td><td>1</td>";
+
+        for (String record : new String[]{"<tr class=\"row\">", null}) {
+            HtmlStreamScanner scanner = new HtmlStreamScanner("<table id=\"results\">", "</table>", record);
+            List<String> names = new ArrayList<>();
+            assertTrue(scanner.scan(new ChunkedReader(page, 5), PATTERN, collect(names, Integer.MAX_VALUE)));
+            assertEquals(3, names.size());
+            assertEquals("name 0", names.get(0));
+            assertEquals("name 2", names.get(2));
+        }
+    }
+
+    @Test
+    public void testPrefixNotFound() throws IOException {
+        HtmlStreamScanner scanner = new HtmlStreamScanner("<table id=\"results\">", null, "<tr class=\"row\">");
+        List<String> names = new ArrayList<>();
+        assertFalse(scanner.scan(new ChunkedReader(page(5), 5), PATTERN, collect(names, Integer.MAX_VALUE)));
+        assertTrue(names.isEmpty());
+    }
+
+    @Test
+    public void testFirstResultBeforeEnd() throws IOException {
+        String page = page(1000);
+        final ChunkedReader reader = new ChunkedReader(page, 1024);
+        HtmlStreamScanner scanner = new HtmlStreamScanner(null, null, "<tr class=\"row\">");
+
+        final int[] readAtFirstMatch = {-1};
+        final int[] matches = {0};
+        scanner.scan(reader, PATTERN, matcher -> {
+            if (readAtFirstMatch[0] == -1) {
+                readAtFirstMatch[0] = reader.position;
+            }
+            return ++matches[0] < 10;
+        });
+
+        assertEquals(10, matches[0]);
+        assertTrue("read: " + readAtFirstMatch[0], readAtFirstMatch[0] < 16 * 1024);
+        // stopped without reading the rest of the page
+        assertTrue("read: " + reader.position, reader.position < page.length() / 2);
+    }
+
+    @Test
+    public void testLargePage() throws IOException {
+        // records far from the start and the end, with more than a window of padding around
+        String page = padding(512 * 1024) + page(2000) + padding(512 * 1024);
+        HtmlStreamScanner scanner = new HtmlStreamScanner(null, null, "<tr class=\"row\">");
+
+        List<String> names = new ArrayList<>();
+        scanner.scan(new ChunkedReader(page, 8192), PATTERN, collect(names, Integer.MAX_VALUE));
+
+        assertEquals(2000, names.size());
+        assertEquals(regexNames(page), names);
+    }
+
+    private static String page(int rows) {
+        StringBuilder sb = new StringBuilder("<html><body><table>");
+        for (int i = 0; i < rows; i++) {
+            sb.append("<tr class=\"row\"><td>name ").append(i).append("</td><td>").append(i % 100).append("</td>");
+            sb.append("<td><a href=\"/details/").append(i).append("\">details</a></td></tr>\n");
+        }
+        sb.append("</table></body></html>");
+        return sb.toString();
+    }
+
+    private static String padding(int length) {
+        StringBuilder sb = new StringBuilder(length);
+        while (sb.length() < length) {
+            sb.append("<div class=\"ad\">lorem ipsum dolor sit amet</div>\n");
+        }
+        return sb.toString();
+    }
+
+    private static List<String> regexNames(String page) {
+        List<String> names = new ArrayList<>();
+        SearchMatcher matcher = SearchMatcher.from(PATTERN.matcher(page));
+        while (matcher.find()) {
+            names.add(matcher.group("name"));
+        }
+        return names;
+    }
+
+    private static HtmlStreamScanner.Listener collect(final List<String> names, final int max) {
+        return matcher -> {
+            names.add(matcher.group("name"));
+            return names.size() < max;
+        };
+    }
+
+    private static final class ChunkedReader extends Reader {
+
+        private final String text;
+        private final int chunk;
+        int position;
+
+        ChunkedReader(String text, int chunk) {
+            this.text = text;
+            this.chunk = chunk;
+        }
+
+        @Override
+        public int read(char[] cbuf, int off, int len) {
+            if (position >= text.length()) {
+                return -1;
+            }
+            int n = Math.min(Math.min(len, chunk), text.length() - position);
+            text.getChars(position, position + n, cbuf, off);
+            position += n;
+            return n;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class KeywordDetectorTest {
+
+    @Test
+    public void testDeltaFeeding() {
+        KeywordDetector detector = new KeywordDetector();
+        TestResult a = new TestResult("tpb", "frostwire tutorial.mp4");
+        TestResult b = new TestResult("tpb", "frostwire manual.pdf");
+        TestResult c = new TestResult("zooqle", "frostwire install.mp4");
+
+        List<SearchResult> results = new ArrayList<>(Arrays.asList(a, b));
+        detector.updateSearchResults(results);
+        assertEquals(2, count(detector, KeywordDetector.Feature.FILE_NAME, "frostwire"));
+
+        // same results again plus a new one, only the new one is counted
+        results.add(c);
+        detector.updateSearchResults(results);
+        detector.feedSearchResults(results);
+        assertEquals(3, count(detector, KeywordDetector.Feature.FILE_NAME, "frostwire"));
+        assertEquals(2, count(detector, KeywordDetector.Feature.FILE_EXTENSION, "mp4"));
+
+        // a filtered list without some of them starts over
+        detector.updateSearchResults(Arrays.asList(a, c));
+        assertEquals(2, count(detector, KeywordDetector.Feature.FILE_NAME, "frostwire"));
+        assertEquals(0, count(detector, KeywordDetector.Feature.FILE_NAME, "manual"));
+    }
+
+    private static int count(KeywordDetector detector, KeywordDetector.Feature feature, String keyword) {
+        List<Map.Entry<String, Integer>> histogram = detector.getFilteredHistograms().get(feature);
+        if (histogram != null) {
+            for (Map.Entry<String, Integer> e : histogram) {
+                if (e.getKey().equals(keyword)) {
+                    return e.getValue();
+                }
+            }
+        }
+        return 0;
+    }
+
+    private static final class TestResult extends AbstractFileSearchResult {
+
+        private final String source;
+        private final String filename;
+
+        TestResult(String source, String filename) {
+            this.source = source;
+            this.filename = filename;
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public long getSize() {
+            return 1;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return filename;
+        }
+
+        @Override
+        public String getDetailsUrl() {
+            return "http://" + source + ".test/" + filename;
+        }
+
+        @Override
+        public String getSource() {
+            return source;
+        }
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+import static com.frostwire.search.KeywordMatcherTest.BAN;
+
+/**
+ * Compares the indexOf loop of the desktop filter and the lowercased haystack of
+ * the pipeline with the compiled matcher, over 100k generated names. Not part
+ * of the unit tests, run its main.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class KeywordMatcherBenchmark {
+
+    public static void main(String[] args) {
+        final List<String> names = KeywordMatcherTest.corpus(100000);
+        final KeywordMatcher m = KeywordMatcher.compile(BAN);
+
+        final List<SearchResult> results = new ArrayList<>(names.size());
+        for (String name : names) {
+            results.add(new KeywordMatcherTest.TestResult(name));
+        }
+        final List<KeywordFilter> pipeline = new ArrayList<>();
+        for (String w : BAN.subList(0, 8)) {
+            pipeline.add(new KeywordFilter(false, w, null));
+        }
+
+        System.out.println("Matching " + BAN.size() + " keywords over " + names.size() + " names");
+        int expected = run("indexOf loop", () -> {
+            int n = 0;
+            for (String name : names) {
+                String canonical = name.toLowerCase(Locale.US);
+                for (int i = 0; i < BAN.size(); i++) {
+                    if (canonical.indexOf(BAN.get(i)) != -1) {
+                        n++;
+                        break;
+                    }
+                }
+            }
+            return n;
+        });
+        int actual = run("KeywordMatcher", () -> {
+            int n = 0;
+            for (String name : names) {
+                if (m.matchesAny(name)) {
+                    n++;
+                }
+            }
+            return n;
+        });
+        check(expected, actual);
+
+        System.out.println("Filter pipeline of " + pipeline.size() + " exclusions over " + results.size() + " results");
+        expected = run("rebuilt haystacks", () -> {
+            int n = 0;
+            for (SearchResult sr : results) {
+                String haystack = (sr.getSource() + " " + sr.getDisplayName() + "  " + sr.getDetailsUrl()).toLowerCase();
+                boolean pass = true;
+                for (KeywordFilter f : pipeline) {
+                    if (!f.accept(haystack)) {
+                        pass = false;
+                        break;
+                    }
+                }
+                if (pass) {
+                    n++;
+                }
+            }
+            return n;
+        });
+        actual = run("passesFilterPipeline", () -> {
+            int n = 0;
+            for (SearchResult sr : results) {
+                if (KeywordFilter.passesFilterPipeline(sr, pipeline)) {
+                    n++;
+                }
+            }
+            return n;
+        });
+        check(expected, actual);
+    }
+
+    private static int run(String name, Task task) {
+        int r = task.run(); // warm up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            check(r, task.run());
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println(String.format("  %-22s %8.2f ms (%d matched)", name, best / 1e6, r));
+        return r;
+    }
+
+    private static void check(int expected, int actual) {
+        if (expected != actual) {
+            throw new AssertionError(actual + " matched, expected " + expected);
+        }
+    }
+
+    private interface Task {
+        int run();
+    }
+}
@@ -0,0 +1,162 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class KeywordMatcherTest {
+
+    static final List<String> BAN = Arrays.asList(
+            "adult", "anal", "ass", "bisex", "boob", "bukkake", "blow", "blowjob", "bondage",
+            "cock", "cum", "crack", "cracked", "dick", "facial", "fetish", "gangbang", "hentai",
+            "horny", "incest", "keygen", "milf", "nipple", "orgy", "porn", "pedo", "rape", "sex",
+            "shaved", "slut", "slutty", "squirt", "stripper", "suck", "titty", "twat", "whore",
+            "xxx", "shaking orgasm", "orgasm", "teenfuns");
+
+    @Test
+    public void testMatch() {
+        KeywordMatcher m = KeywordMatcher.compile(Arrays.asList("he", "she", "his", "hers"));
+
+        BitSet found = m.match("USHERS");
+        assertTrue(found.get(0));
+        assertTrue(found.get(1));
+        assertFalse(found.get(2));
+        assertTrue(found.get(3));
+
+        assertTrue(m.matchesAny("a hiss"));
+        assertFalse(m.matchesAny("nothing to see"));
+        assertFalse(m.matchesAny(""));
+    }
+
+    @Test
+    public void testNonAscii() {
+        KeywordMatcher m = KeywordMatcher.compile(Arrays.asList("Ñandú", "über"));
+
+        assertTrue(m.matchesAny("el ñANDÚ corre"));
+        assertTrue(m.matchesAny("ÜBERLINGEN"));
+        assertFalse(m.matchesAny("nandu uber"));
+    }
+
+    @Test
+    public void testSameAsIndexOf() {
+        KeywordMatcher m = KeywordMatcher.compile(BAN);
+        for (String name : corpus(10000)) {
+            String lower = name.toLowerCase(Locale.US);
+            BitSet found = m.match(name);
+            boolean any = false;
+            for (int i = 0; i < BAN.size(); i++) {
+                boolean expected = lower.contains(BAN.get(i));
+                assertEquals(name + " / " + BAN.get(i), expected, found.get(i));
+                any |= expected;
+            }
+            assertEquals(any, m.matchesAny(name));
+        }
+    }
+
+    @Test
+    public void testPipeline() {
+        List<KeywordFilter> pipeline = new ArrayList<>();
+        pipeline.add(new KeywordFilter(true, "Athens", null));
+        pipeline.add(new KeywordFilter(false, "frostwire", null));
+
+        SearchResult sr = new TestResult("Timon of Athens");
+        assertTrue(KeywordFilter.passesFilterPipeline(sr, pipeline));
+
+        pipeline.add(new KeywordFilter(false, "timon", null));
+        assertFalse(KeywordFilter.passesFilterPipeline(sr, pipeline));
+    }
+
+    @Test
+    public void testAlternatingPipelines() {
+        List<KeywordFilter> athens = Arrays.asList(new KeywordFilter(true, "athens", null));
+        List<KeywordFilter> rome = Arrays.asList(new KeywordFilter(true, "rome", null));
+
+        SearchResult timon = new TestResult("Timon of Athens");
+        SearchResult titus = new TestResult("Titus Andronicus, Rome");
+        for (int i = 0; i < 3; i++) {
+            assertTrue(KeywordFilter.passesFilterPipeline(timon, athens));
+            assertFalse(KeywordFilter.passesFilterPipeline(timon, rome));
+            assertFalse(KeywordFilter.passesFilterPipeline(titus, athens));
+            assertTrue(KeywordFilter.passesFilterPipeline(titus, rome));
+        }
+    }
+
+    // names shaped like torrent and file titles, a few of them with banned words
+    static List<String> corpus(int size) {
+        String[] words = {"The", "Movie", "2017", "1080p", "BluRay", "x264", "Album", "Live", "Remastered",
+                "FLAC", "Season", "S01E02", "Complete", "Collection", "Deluxe", "Edition", "Ubuntu", "ISO",
+                "Documentary", "HDTV", "Classic", "Jazz", "Symphony", "Orchestra", "Greatest", "Hits",
+                "Assassin", "Classroom", "Passenger", "Essex", "Cocktail", "Scumbag", "Therapist", "Grape"};
+        Random r = new Random(0);
+        List<String> list = new ArrayList<>(size);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.setLength(0);
+            int n = 3 + r.nextInt(8);
+            for (int j = 0; j < n; j++) {
+                if (j > 0) {
+                    sb.append(r.nextBoolean() ? ' ' : '.');
+                }
+                if (r.nextInt(100) == 0) {
+                    sb.append(BAN.get(r.nextInt(BAN.size())).toUpperCase(Locale.US));
+                } else {
+                    sb.append(words[r.nextInt(words.length)]);
+                }
+            }
+            list.add(sb.toString());
+        }
+        return list;
+    }
+
+    static final class TestResult extends AbstractSearchResult {
+
+        private final String name;
+
+        TestResult(String name) {
+            this.name = name;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return name;
+        }
+
+        @Override
+        public String getDetailsUrl() {
+            return "http://example.com/details/" + name.hashCode();
+        }
+
+        @Override
+        public String getSource() {
+            return "Test";
+        }
+    }
+}
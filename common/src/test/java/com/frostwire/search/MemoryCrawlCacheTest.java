@@ -0,0 +1,289 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.frostwire.search;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class MemoryCrawlCacheTest {
+
+    @Test
+    public void testPutGetRemove() throws Exception {
+        TestCache backend = new TestCache();
+        MemoryCrawlCache cache = new MemoryCrawlCache(backend, 1024 * 1024);
+
+        cache.put("a", bytes("1"));
+        assertArrayEquals(bytes("1"), cache.get("a"));
+        assertEquals(1, cache.hits());
+
+        cache.remove("a");
+        assertNull(cache.get("a"));
+
+        waitFor(() -> cache.numEntries() == 0);
+        assertNull(cache.get("a"));
+        cache.shutdown();
+    }
+
+    @Test
+    public void testWriteThrough() throws Exception {
+        TestCache backend = new TestCache();
+        MemoryCrawlCache cache = new MemoryCrawlCache(backend, 1024 * 1024);
+
+        cache.put("a", bytes("1"));
+        waitFor(() -> cache.numEntries() == 1);
+        assertArrayEquals(bytes("1"), backend.get("a"));
+
+        // read from the backend and kept in memory
+        backend.map.put("b", bytes("2"));
+        assertArrayEquals(bytes("2"), cache.get("b"));
+        assertEquals(1, cache.misses());
+        assertArrayEquals(bytes("2"), cache.get("b"));
+        assertEquals(1, cache.misses());
+
+        cache.clear();
+        waitFor(() -> cache.numEntries() == 0);
+        assertNull(cache.get("a"));
+        cache.shutdown();
+    }
+
+    @Test
+    public void testEviction() {
+        TestCache backend = new TestCache();
+        // 16 segments of 100 bytes
+        MemoryCrawlCache cache = new MemoryCrawlCache(backend, 1600);
+
+        for (int i = 0; i < 1000; i++) {
+            cache.put("key" + i, new byte[50]);
+        }
+        assertTrue(cache.memorySizeInBytes() <= 1600);
+        assertTrue(cache.evictions() > 0);
+        assertEquals(cache.memoryNumEntries() * 50, cache.memorySizeInBytes());
+        cache.shutdown();
+    }
+
+    @Test
+    public void testPutWhileReadingBackend() throws Exception {
+        BlockingCache backend = new BlockingCache();
+        backend.map.put("a", bytes("old"));
+        MemoryCrawlCache cache = new MemoryCrawlCache(backend, 1024 * 1024);
+
+        Thread reader = backend.startRead(cache, "a");
+        cache.put("a", bytes("new"));
+        backend.release.countDown();
+        reader.join();
+
+        // the stale backend value must not replace the new one
+        assertArrayEquals(bytes("new"), cache.get("a"));
+        waitFor(() -> Arrays.equals(bytes("new"), backend.get("a")));
+        assertArrayEquals(bytes("new"), cache.get("a"));
+        cache.shutdown();
+    }
+
+    @Test
+    public void testRemoveWhileReadingBackend() throws Exception {
+        BlockingCache backend = new BlockingCache();
+        backend.map.put("a", bytes("old"));
+        MemoryCrawlCache cache = new MemoryCrawlCache(backend, 1024 * 1024);
+
+        Thread reader = backend.startRead(cache, "a");
+        cache.remove("a");
+        backend.release.countDown();
+        reader.join();
+
+        assertNull(cache.get("a"));
+        waitFor(() -> cache.numEntries() == 0);
+        assertNull(cache.get("a"));
+        cache.shutdown();
+    }
+
+    @Test
+    public void testGetWhileBackendClearPending() throws Exception {
+        BlockingClearCache backend = new BlockingClearCache();
+        backend.map.put("a", bytes("old"));
+        MemoryCrawlCache cache = new MemoryCrawlCache(backend, 1024 * 1024);
+
+        cache.clear();
+        assertTrue(backend.clearing.await(5, TimeUnit.SECONDS));
+        // the backend still has the row, it must not come back
+        assertNull(cache.get("a"));
+        cache.put("b", bytes("new"));
+        assertArrayEquals(bytes("new"), cache.get("b"));
+
+        backend.release.countDown();
+        waitFor(() -> cache.numEntries() == 1);
+        assertNull(cache.get("a"));
+        assertArrayEquals(bytes("new"), cache.get("b"));
+        cache.shutdown();
+    }
+
+    @Test
+    public void testConcurrentAccess() throws Exception {
+        TestCache backend = new TestCache();
+        MemoryCrawlCache cache = new MemoryCrawlCache(backend, 1024);
+        AtomicInteger wrongValues = new AtomicInteger();
+
+        Thread[] threads = new Thread[8];
+        for (int t = 0; t < threads.length; t++) {
+            final int n = t;
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 500; i++) {
+                    String key = "k" + ((i * 7 + n) % 50);
+                    if (i % 3 == 0) {
+                        cache.put(key, bytes(key));
+                    } else if (i % 11 == 0) {
+                        cache.remove(key);
+                    } else {
+                        byte[] data = cache.get(key);
+                        if (data != null && !Arrays.equals(bytes(key), data)) {
+                            wrongValues.incrementAndGet();
+                        }
+                    }
+                    cache.numEntries();
+                }
+            });
+            threads[t].start();
+        }
+        for (Thread t : threads) {
+            t.join();
+        }
+        cache.clear();
+        waitFor(() -> cache.numEntries() == 0);
+
+        assertEquals(0, wrongValues.get());
+        assertEquals(0, cache.numEntries());
+        cache.shutdown();
+    }
+
+    private static void waitFor(BooleanSupplier condition) throws InterruptedException {
+        // backend writes are applied in the background
+        long deadline = System.currentTimeMillis() + 5000;
+        while (!condition.getAsBoolean()) {
+            assertTrue("backend write not applied", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    private static byte[] bytes(String s) {
+        return s.getBytes();
+    }
+
+    // synchronized like the real backends
+    private static class TestCache implements CrawlCache {
+
+        final Map<String, byte[]> map = new HashMap<>();
+
+        @Override
+        public synchronized byte[] get(String key) {
+            return map.get(key);
+        }
+
+        @Override
+        public synchronized void put(String key, byte[] data) {
+            map.put(key, data);
+        }
+
+        @Override
+        public synchronized void remove(String key) {
+            map.remove(key);
+        }
+
+        @Override
+        public synchronized void clear() {
+            map.clear();
+        }
+
+        @Override
+        public synchronized long numEntries() {
+            return map.size();
+        }
+
+        @Override
+        public synchronized long sizeInBytes() {
+            long size = 0;
+            for (byte[] data : map.values()) {
+                size += data.length;
+            }
+            return size;
+        }
+    }
+
+    /**
+     * Blocks the first get after reading the value, until released.
+     */
+    private static final class BlockingCache extends TestCache {
+
+        final CountDownLatch reading = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public byte[] get(String key) {
+            // outside the lock, only the reading thread blocks
+            byte[] data = super.get(key);
+            if (reading.getCount() > 0) {
+                reading.countDown();
+                try {
+                    release.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            return data;
+        }
+
+        Thread startRead(final MemoryCrawlCache cache, final String key) throws InterruptedException {
+            final AtomicReference<byte[]> result = new AtomicReference<>();
+            Thread t = new Thread(() -> result.set(cache.get(key)));
+            t.start();
+            assertTrue(reading.await(5, TimeUnit.SECONDS));
+            return t;
+        }
+    }
+
+    /**
+     * Blocks the backend clear until released, the map is cleared after.
+     */
+    private static final class BlockingClearCache extends TestCache {
+
+        final CountDownLatch clearing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+
+        @Override
+        public void clear() {
+            clearing.countDown();
+            try {
+                release.await(5, TimeUnit.SECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            super.clear();
+        }
+    }
+}
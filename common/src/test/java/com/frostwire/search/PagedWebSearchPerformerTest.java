@@ -0,0 +1,226 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class PagedWebSearchPerformerTest {
+
+    @Test
+    public void testConcurrentPages() {
+        Counter counter = new Counter();
+        TestPerformer p = new TestPerformer("a.test", 8, 4, Integer.MAX_VALUE, 100, counter);
+
+        long start = System.currentTimeMillis();
+        p.perform();
+        long elapsed = System.currentTimeMillis() - start;
+
+        assertEquals(8, p.results.get());
+        assertEquals(8, p.requested.get());
+        assertEquals(4, counter.max.get());
+        assertTrue("elapsed: " + elapsed, elapsed < 600);
+    }
+
+    @Test
+    public void testSequentialByDefault() {
+        Counter counter = new Counter();
+        TestPerformer p = new TestPerformer("b.test", 3, 1, Integer.MAX_VALUE, 10, counter);
+        p.perform();
+
+        assertEquals(3, p.results.get());
+        assertEquals(1, counter.max.get());
+    }
+
+    @Test
+    public void testStopOnEmptyPage() {
+        Counter counter = new Counter();
+        TestPerformer p = new TestPerformer("c.test", 20, 2, 3, 50, counter);
+        p.perform();
+
+        assertEquals(3, p.results.get());
+        // the window can be ahead of the empty page
+        assertTrue("requested: " + p.requested.get(), p.requested.get() <= 5);
+    }
+
+    @Test
+    public void testFailedPageDoesNotStop() {
+        Counter counter = new Counter();
+        TestPerformer p = new TestPerformer("f.test", 6, 2, Integer.MAX_VALUE, 20, counter);
+        p.failedPage = 2;
+        p.perform();
+
+        assertEquals(5, p.results.get());
+        assertEquals(6, p.requested.get());
+    }
+
+    @Test
+    public void testStop() throws InterruptedException {
+        Counter counter = new Counter();
+        final TestPerformer p = new TestPerformer("d.test", 100, 2, Integer.MAX_VALUE, 100, counter);
+
+        Thread t = new Thread(p::perform);
+        t.start();
+        Thread.sleep(250);
+        p.stop();
+        t.join(1000);
+
+        assertFalse(t.isAlive());
+        assertTrue(p.requested.get() < 10);
+    }
+
+    @Test
+    public void testDomainLimit() throws InterruptedException {
+        Counter counter = new Counter();
+        List<Thread> threads = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            final TestPerformer p = new TestPerformer("e.test", 6, 4, Integer.MAX_VALUE, 50, counter);
+            Thread t = new Thread(p::perform);
+            threads.add(t);
+            t.start();
+        }
+        for (Thread t : threads) {
+            t.join(5000);
+        }
+
+        assertEquals(18, counter.total.get());
+        assertEquals(PagedWebSearchPerformer.MAX_PAGES_PER_DOMAIN, counter.max.get());
+    }
+
+    private static final class Counter {
+
+        final AtomicInteger current = new AtomicInteger();
+        final AtomicInteger max = new AtomicInteger();
+        final AtomicInteger total = new AtomicInteger();
+
+        void enter() {
+            int n = current.incrementAndGet();
+            max.accumulateAndGet(n, Math::max);
+            total.incrementAndGet();
+        }
+
+        void exit() {
+            current.decrementAndGet();
+        }
+    }
+
+    private static final class TestPerformer extends PagedWebSearchPerformer {
+
+        private final int concurrentPages;
+        private final int lastPage;
+        private final long delay;
+        private final Counter counter;
+
+        int failedPage;
+
+        final AtomicInteger requested = new AtomicInteger();
+        final AtomicInteger results = new AtomicInteger();
+
+        TestPerformer(String domainName, int pages, int concurrentPages, int lastPage, long delay, Counter counter) {
+            super(domainName, 1, "test", 1000, pages);
+            this.concurrentPages = concurrentPages;
+            this.lastPage = lastPage;
+            this.delay = delay;
+            this.counter = counter;
+
+            setListener(new SearchListener() {
+                @Override
+                public void onResults(long token, List<? extends SearchResult> list) {
+                    results.addAndGet(list.size());
+                }
+
+                @Override
+                public void onError(long token, SearchError error) {
+                }
+
+                @Override
+                public void onStopped(long token) {
+                }
+            });
+        }
+
+        @Override
+        protected int getMaxConcurrentPages() {
+            return concurrentPages;
+        }
+
+        @Override
+        protected List<? extends SearchResult> searchPage(int page) {
+            requested.incrementAndGet();
+            counter.enter();
+            try {
+                Thread.sleep(delay);
+            } catch (InterruptedException e) {
+                return null;
+            } finally {
+                counter.exit();
+            }
+            if (page == failedPage) {
+                throw new IllegalStateException("page " + page + " failed");
+            }
+            if (page > lastPage) {
+                return Collections.emptyList();
+            }
+            return Collections.singletonList(new TestResult(page));
+        }
+
+        @Override
+        protected String getUrl(int page, String encodedKeywords) {
+            return "http://" + getDomainName() + "/?q=" + encodedKeywords + "&page=" + page;
+        }
+
+        @Override
+        protected List<? extends SearchResult> searchPage(String page) {
+            return Collections.emptyList();
+        }
+    }
+
+    private static final class TestResult extends AbstractSearchResult {
+
+        private final int page;
+
+        TestResult(int page) {
+            this.page = page;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "page " + page;
+        }
+
+        @Override
+        public String getDetailsUrl() {
+            return "http://test/" + page;
+        }
+
+        @Override
+        public String getSource() {
+            return "Test";
+        }
+    }
+}
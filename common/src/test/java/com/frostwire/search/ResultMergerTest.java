@@ -0,0 +1,172 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.frostwire.search;
+
+import com.frostwire.search.torrent.AbstractTorrentSearchResult;
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class ResultMergerTest {
+
+    private static final String HASH = "0123456789abcdef0123456789abcdef01234567";
+
+    @Test
+    public void testMergeByHash() {
+        ResultMerger merger = new ResultMerger();
+        TestTorrent a = new TestTorrent("tpb", HASH, "Foo.mkv", 100, 10);
+        TestTorrent b = new TestTorrent("zooqle", HASH.toUpperCase(), "foo", 100, 25);
+        TestTorrent c = new TestTorrent("torlock", HASH, "Foo.mkv", 100, 5);
+        TestTorrent other = new TestTorrent("tpb", HASH.replace('0', '9'), "Foo.mkv", 100, 1);
+
+        assertEquals(Arrays.asList(a, other), merger.merge(Arrays.asList(a, other)));
+        assertNull(merger.get(a));
+
+        assertTrue(merger.merge(Arrays.asList(b, c)).isEmpty());
+
+        ResultMerger.Merge m = merger.get(b);
+        assertSame(a, m.getFirst());
+        assertEquals(Arrays.asList("tpb", "zooqle", "torlock"), m.getSources());
+        assertEquals(25, m.getSeeds());
+        assertEquals(3, m.getCount());
+        assertNull(merger.get(other));
+    }
+
+    @Test
+    public void testMergeByFilename() {
+        ResultMerger merger = new ResultMerger();
+        TestTorrent a = new TestTorrent("tpb", null, "Some.Movie.2018.mkv", 1000, 1);
+        TestTorrent b = new TestTorrent("zooqle", "", "some movie 2018 mkv", 1000, 2);
+        TestTorrent c = new TestTorrent("zooqle", "", "some movie 2018 mkv", 1001, 2);
+
+        List<SearchResult> list = merger.merge(Arrays.asList(a, b, c));
+        assertEquals(Arrays.<SearchResult>asList(a, c), list);
+        assertEquals(2, merger.get(a).getCount());
+    }
+
+    @Test
+    public void testPoll() {
+        ResultMerger merger = new ResultMerger();
+        TestTorrent a = new TestTorrent("tpb", HASH, "Foo.mkv", 100, 10);
+        TestTorrent b = new TestTorrent("zooqle", HASH, "Foo.mkv", 100, 20);
+        TestTorrent c = new TestTorrent("torlock", HASH, "Foo.mkv", 100, 5);
+        TestTorrent other = new TestTorrent("tpb", null, "Bar.mkv", 100, 1);
+
+        merger.merge(Arrays.asList(a, other));
+        assertTrue(merger.poll().isEmpty());
+
+        merger.merge(Arrays.asList(b));
+        merger.merge(Arrays.asList(c));
+        List<ResultMerger.Merge> changes = merger.poll();
+        assertEquals(1, changes.size());
+        assertSame(a, changes.get(0).getFirst());
+        assertEquals(3, changes.get(0).getCount());
+        assertEquals(20, changes.get(0).getSeeds());
+
+        // consumed
+        assertTrue(merger.poll().isEmpty());
+        assertNull(merger.get(other));
+    }
+
+    @Test
+    public void testCrawlOnce() {
+        ResultMerger merger = new ResultMerger();
+        TestTorrent a = new TestTorrent("tpb", HASH, "Foo.mkv", 100, 10);
+        TestTorrent b = new TestTorrent("zooqle", HASH, "Foo.mkv", 100, 10);
+        TestTorrent incomplete = new TestTorrent("torlock", HASH, "Foo.mkv", 100, 10);
+        incomplete.complete = false;
+
+        assertTrue(merger.crawl(a));
+        assertFalse(merger.crawl(b));
+        // the incomplete result is crawled for its details, not the same crawl
+        assertTrue(merger.crawl(incomplete));
+        assertFalse(merger.crawl(incomplete));
+
+        // and not merged, it's not sent to the listeners
+        assertEquals(1, merger.merge(Arrays.asList(incomplete)).size());
+    }
+
+    private static final class TestTorrent extends AbstractTorrentSearchResult {
+
+        private final String source;
+        private final String hash;
+        private final String filename;
+        private final long size;
+        private final int seeds;
+        boolean complete = true;
+
+        TestTorrent(String source, String hash, String filename, long size, int seeds) {
+            this.source = source;
+            this.hash = hash;
+            this.filename = filename;
+            this.size = size;
+            this.seeds = seeds;
+        }
+
+        @Override
+        public boolean isComplete() {
+            return complete;
+        }
+
+        @Override
+        public String getFilename() {
+            return filename;
+        }
+
+        @Override
+        public long getSize() {
+            return size;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return filename;
+        }
+
+        @Override
+        public String getDetailsUrl() {
+            return "http://" + source + ".test/" + filename;
+        }
+
+        @Override
+        public String getSource() {
+            return source;
+        }
+
+        @Override
+        public String getTorrentUrl() {
+            return "magnet:?xt=urn:btih:" + hash;
+        }
+
+        @Override
+        public int getSeeds() {
+            return seeds;
+        }
+
+        @Override
+        public String getHash() {
+            return hash;
+        }
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.frostwire.search;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+
+import static com.frostwire.search.SearchDomains.*;
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class SearchDomainsTest {
+
+    @Test
+    public void testHost() {
+        assertEquals("a.test", host("https://A.test/search?q=x"));
+        assertEquals("a.test", host("http://a.test:8080/"));
+        assertEquals("a.test", host("a.test"));
+        assertEquals("a.test", host("https://a.test"));
+    }
+
+    @Test
+    public void testSameDomain() {
+        SearchDomains domains = new SearchDomains();
+        assertSame(domains.get("https://b.test/x"), domains.get("http://b.test/y"));
+    }
+
+    @Test
+    public void testTimeout() {
+        Domain d = new SearchDomains().get("c.test");
+        assertEquals(10000, d.timeout(10000));
+
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            d.success(1000 + i * 100);
+        }
+        int timeout = d.timeout(10000);
+        // twice the p95, 1900ms within the histogram error, rounded up to the step
+        assertTrue("timeout: " + timeout, timeout > 2 * 1900 * 0.875 && timeout < 2 * 1900 * 1.125 + TIMEOUT_STEP);
+        assertEquals(0, timeout % TIMEOUT_STEP);
+
+        // never above the configured one
+        assertEquals(3000, d.timeout(3000));
+
+        Domain fast = new SearchDomains().get("d.test");
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            fast.success(10);
+        }
+        assertEquals(MIN_TIMEOUT, fast.timeout(10000));
+        assertEquals(1000, fast.timeout(1000));
+    }
+
+    @Test
+    public void testHeadersTimeout() {
+        Domain d = new SearchDomains().get("h.test");
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            d.success(4000);
+            d.headersSuccess(100);
+        }
+        // the full responses don't make the time to the headers longer, nor the other way
+        assertEquals(MIN_TIMEOUT, d.headersTimeout(10000));
+        assertEquals(8000, d.timeout(10000), 1000);
+    }
+
+    @Test
+    public void testTimedOut() {
+        Domain d = new SearchDomains().get("i.test");
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            d.success(100);
+        }
+        assertEquals(MIN_TIMEOUT, d.timeout(10000));
+
+        // the host got slower, the timeouts are samples too
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            d.timedOut(d.timeout(10000));
+            d.success(100);
+        }
+        assertTrue(d.timeout(10000) > MIN_TIMEOUT);
+        for (int i = 0; i < 2 * MIN_SAMPLES; i++) {
+            d.timedOut(d.timeout(10000));
+            d.success(100);
+        }
+        assertEquals(10000, d.timeout(10000));
+    }
+
+    @Test
+    public void testCancelledNotCounted() {
+        Domain d = new SearchDomains().get("j.test");
+        for (int i = 0; i < MIN_SAMPLES; i++) {
+            d.success(100);
+        }
+
+        // interrupted by the early stop of the search
+        for (int i = 0; i < 2 * MAX_FAILURES; i++) {
+            d.failed(new InterruptedIOException("interrupted"), MIN_TIMEOUT);
+            d.headersFailed(new InterruptedIOException("interrupted"), MIN_TIMEOUT);
+        }
+        Thread.currentThread().interrupt();
+        try {
+            for (int i = 0; i < 2 * MAX_FAILURES; i++) {
+                d.failed(new IOException("closed by interrupt"), MIN_TIMEOUT);
+            }
+        } finally {
+            Thread.interrupted();
+        }
+        assertTrue(d.allow());
+        assertEquals(MIN_TIMEOUT, d.timeout(10000));
+
+        // a real timeout is a sample and a failure
+        for (int i = 0; i < 2 * MIN_SAMPLES; i++) {
+            d.failed(new SocketTimeoutException(), 10000);
+        }
+        assertFalse(d.allow());
+        assertEquals(10000, d.timeout(10000));
+    }
+
+    @Test
+    public void testCircuit() {
+        Domain d = new SearchDomains().get("e.test");
+        long now = 1000000;
+
+        for (int i = 0; i < MAX_FAILURES - 1; i++) {
+            d.failure(now);
+            assertTrue(d.allow(now));
+        }
+        d.failure(now);
+        assertFalse(d.allow(now));
+        assertFalse(d.allow(now + BASE_BACKOFF_MILLIS - 1));
+        // late failures of requests made before opening
+        d.failure(now + 1);
+        assertTrue(d.allow(now + BASE_BACKOFF_MILLIS));
+
+        // first request after the back-off fails, twice as long
+        now += BASE_BACKOFF_MILLIS;
+        d.failure(now);
+        assertFalse(d.allow(now + 2 * BASE_BACKOFF_MILLIS - 1));
+        assertTrue(d.allow(now + 2 * BASE_BACKOFF_MILLIS));
+
+        // a success closes it
+        d.success(100);
+        now += 2 * BASE_BACKOFF_MILLIS;
+        d.failure(now);
+        assertTrue(d.allow(now));
+    }
+
+    @Test
+    public void testMaxBackoff() {
+        Domain d = new SearchDomains().get("f.test");
+        long now = 0;
+        for (int i = 0; i < 40; i++) {
+            d.failure(now);
+            while (!d.allow(now)) {
+                now += 1000;
+            }
+        }
+        d.failure(now);
+        assertTrue(d.allow(now + MAX_BACKOFF_MILLIS));
+    }
+
+    @Test
+    public void testFailedUrls() {
+        SearchDomains domains = new SearchDomains();
+        assertFalse(domains.isUrlFailed("http://g.test/1", 0));
+        domains.urlFailed("http://g.test/1", 0);
+        assertTrue(domains.isUrlFailed("http://g.test/1", FAILED_URL_LIFETIME - 1));
+        assertFalse(domains.isUrlFailed("http://g.test/1", FAILED_URL_LIFETIME));
+        assertFalse(domains.isUrlFailed("http://g.test/1", 0));
+    }
+}
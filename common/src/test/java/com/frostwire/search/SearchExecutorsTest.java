@@ -0,0 +1,133 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class SearchExecutorsTest {
+
+    @Test
+    public void testOrdinalOrderWhenBusy() throws InterruptedException {
+        ExecutorService threads = Executors.newCachedThreadPool();
+        SearchExecutors.BoundedPriorityExecutor executor = new SearchExecutors.BoundedPriorityExecutor(threads, 1);
+
+        final CountDownLatch blocker = new CountDownLatch(1);
+        final CountDownLatch done = new CountDownLatch(4);
+        final List<Integer> order = new CopyOnWriteArrayList<>();
+
+        executor.execute(new Task(0, () -> {
+            try {
+                blocker.await();
+            } catch (InterruptedException e) {
+                // ignore
+            }
+        }, order, done));
+        executor.execute(new Task(3, null, order, done));
+        executor.execute(new Task(1, null, order, done));
+        executor.execute(new Task(2, null, order, done));
+
+        assertEquals(3, executor.queued());
+        blocker.countDown();
+
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(Arrays.asList(0, 1, 2, 3), order);
+        threads.shutdown();
+    }
+
+    @Test
+    public void testMaxInFlight() throws InterruptedException {
+        ExecutorService threads = Executors.newCachedThreadPool();
+        final SearchExecutors.BoundedPriorityExecutor executor = new SearchExecutors.BoundedPriorityExecutor(threads, 8);
+
+        int n = 200;
+        final CountDownLatch done = new CountDownLatch(n);
+        final AtomicInteger running = new AtomicInteger();
+        final AtomicInteger maxRunning = new AtomicInteger();
+        final List<Integer> order = Collections.synchronizedList(new ArrayList<Integer>());
+
+        for (int i = 0; i < n; i++) {
+            executor.execute(new Task(i, () -> {
+                int r = running.incrementAndGet();
+                maxRunning.accumulateAndGet(r, Math::max);
+                try {
+                    Thread.sleep(2);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+                running.decrementAndGet();
+            }, order, done));
+        }
+
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        assertEquals(n, order.size());
+        assertTrue(maxRunning.get() <= 8);
+
+        // the slots are released right after the tasks count down
+        for (int i = 0; i < 100 && executor.inFlight() > 0; i++) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, executor.inFlight() + executor.queued());
+        threads.shutdown();
+    }
+
+    private static final class Task implements Runnable, Comparable<Task> {
+
+        private final int ordinal;
+        private final Runnable body;
+        private final List<Integer> order;
+        private final CountDownLatch done;
+
+        Task(int ordinal, Runnable body, List<Integer> order, CountDownLatch done) {
+            this.ordinal = ordinal;
+            this.body = body;
+            this.order = order;
+            this.done = done;
+        }
+
+        @Override
+        public void run() {
+            order.add(ordinal);
+            if (body != null) {
+                body.run();
+            }
+            done.countDown();
+        }
+
+        @Override
+        public int compareTo(Task o) {
+            return Integer.compare(ordinal, o.ordinal);
+        }
+    }
+}
@@ -0,0 +1,210 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import com.frostwire.licenses.License;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class SearchManagerTest {
+
+    @Test
+    public void testStoppedAfterAllCrawls() throws InterruptedException {
+        SearchManager manager = new SearchManager(Executors.newFixedThreadPool(4));
+        StoppedListener listener = new StoppedListener();
+        manager.setListener(listener);
+
+        int n = 500;
+        TestPerformer p1 = new TestPerformer(1, n, 0);
+        TestPerformer p2 = new TestPerformer(2, n, 0);
+        manager.perform(p1);
+        manager.perform(p2);
+
+        assertTrue(listener.await(2));
+        assertEquals(n, p1.crawled.get());
+        assertEquals(n, p2.crawled.get());
+
+        Thread.sleep(100);
+        assertEquals(1, listener.count(1));
+        assertEquals(1, listener.count(2));
+    }
+
+    @Test
+    public void testStopToken() throws InterruptedException {
+        SearchManager manager = new SearchManager(Executors.newFixedThreadPool(2));
+        StoppedListener listener = new StoppedListener();
+        manager.setListener(listener);
+
+        TestPerformer slow = new TestPerformer(1, 200, 20);
+        TestPerformer other = new TestPerformer(2, 10, 0);
+        manager.perform(slow);
+        manager.perform(other);
+
+        Thread.sleep(100);
+        manager.stop(1);
+
+        assertTrue(listener.await(2));
+        assertTrue(slow.crawled.get() < 200);
+        assertFalse(other.isStopped());
+        assertEquals(10, other.crawled.get());
+
+        Thread.sleep(100);
+        assertEquals(1, listener.count(1));
+        assertEquals(1, listener.count(2));
+    }
+
+    @Test
+    public void testMetrics() throws InterruptedException {
+        SearchMetrics.Engine engine = SearchMetrics.getInstance().engine("TestPerformer");
+        engine.reset();
+
+        SearchManager manager = new SearchManager(Executors.newFixedThreadPool(2));
+        StoppedListener listener = new StoppedListener();
+        manager.setListener(listener);
+
+        manager.perform(new TestPerformer(1, 20, 0));
+        manager.perform(new TestPerformer(2, 0, 0));
+        assertTrue(listener.await(2));
+
+        SearchMetrics.EngineSnapshot s = engine.snapshot();
+        assertEquals(2, s.searches);
+        // crawlable results are not complete, nothing is sent
+        assertEquals(0, s.results);
+        assertEquals(2, s.emptySearches);
+        assertEquals(2, s.yield.count);
+        assertEquals(0, s.firstResultTime.count);
+        assertTrue(SearchMetrics.getInstance().toJson().contains("\"TestPerformer\""));
+    }
+
+    private static final class StoppedListener implements SearchListener {
+
+        private final CountDownLatch latch = new CountDownLatch(2);
+        private final AtomicInteger[] stopped = {new AtomicInteger(), new AtomicInteger(), new AtomicInteger()};
+
+        @Override
+        public void onResults(long token, List<? extends SearchResult> results) {
+        }
+
+        @Override
+        public void onError(long token, SearchError error) {
+        }
+
+        @Override
+        public void onStopped(long token) {
+            stopped[(int) token].incrementAndGet();
+            latch.countDown();
+        }
+
+        boolean await(int seconds) throws InterruptedException {
+            return latch.await(seconds, TimeUnit.SECONDS);
+        }
+
+        int count(int token) {
+            return stopped[token].get();
+        }
+    }
+
+    private static final class TestPerformer extends AbstractSearchPerformer {
+
+        private final int numResults;
+        private final long crawlMillis;
+        final AtomicInteger crawled = new AtomicInteger();
+
+        TestPerformer(long token, int numResults, long crawlMillis) {
+            super(token);
+            this.numResults = numResults;
+            this.crawlMillis = crawlMillis;
+        }
+
+        @Override
+        public void perform() {
+            List<SearchResult> results = new ArrayList<>();
+            for (int i = 0; i < numResults; i++) {
+                results.add(new TestCrawlableResult());
+            }
+            onResults(results);
+        }
+
+        @Override
+        public void crawl(CrawlableSearchResult sr) {
+            if (crawlMillis > 0) {
+                try {
+                    Thread.sleep(crawlMillis);
+                } catch (InterruptedException e) {
+                    // ignore
+                }
+            }
+            crawled.incrementAndGet();
+        }
+    }
+
+    private static final class TestCrawlableResult implements CrawlableSearchResult {
+
+        @Override
+        public boolean isComplete() {
+            return false;
+        }
+
+        @Override
+        public String getDisplayName() {
+            return "test";
+        }
+
+        @Override
+        public String getDetailsUrl() {
+            return "http://test.com";
+        }
+
+        @Override
+        public long getCreationTime() {
+            return 0;
+        }
+
+        @Override
+        public String getSource() {
+            return "test";
+        }
+
+        @Override
+        public License getLicense() {
+            return null;
+        }
+
+        @Override
+        public String getThumbnailUrl() {
+            return null;
+        }
+
+        @Override
+        public int uid() {
+            return 0;
+        }
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+
+/**
+ * Compares the regex based sanitize and normalize with the current ones,
+ * over 100k generated names and a query of three tokens. Not part of the
+ * unit tests, run its main.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class SearchTextBenchmark {
+
+    public static void main(String[] args) {
+        final List<String> names = SearchTextTest.corpus(100000);
+        final List<String> tokens = SearchText.tokenize("D\u00E9j\u00E0 Live 2017");
+
+        System.out.println("Matching " + tokens + " over " + names.size() + " names");
+        int expected = run("regex", () -> {
+            int n = 0;
+            for (String name : names) {
+                String str = SearchTextTest.legacyNormalize(SearchTextTest.legacySanitize(name));
+                List<String> left = new LinkedList<>(tokens);
+                Iterator<String> it = left.iterator();
+                while (it.hasNext()) {
+                    if (str.contains(it.next())) {
+                        it.remove();
+                    }
+                }
+                if (left.isEmpty()) {
+                    n++;
+                }
+            }
+            return n;
+        });
+        int actual = run("SearchText", () -> {
+            int n = 0;
+            for (String name : names) {
+                String str = SearchText.normalize(SearchText.sanitize(name));
+                boolean all = true;
+                for (String t : tokens) {
+                    if (!str.contains(t)) {
+                        all = false;
+                        break;
+                    }
+                }
+                if (all) {
+                    n++;
+                }
+            }
+            return n;
+        });
+        check(expected, actual);
+    }
+
+    private static int run(String name, Task task) {
+        int r = task.run(); // warm up
+        long best = Long.MAX_VALUE;
+        for (int i = 0; i < 5; i++) {
+            long start = System.nanoTime();
+            check(r, task.run());
+            best = Math.min(best, System.nanoTime() - start);
+        }
+        System.out.println(String.format("  %-12s %8.2f ms (%d matched)", name, best / 1e6, r));
+        return r;
+    }
+
+    private static void check(int expected, int actual) {
+        if (expected != actual) {
+            throw new AssertionError(actual + " matched, expected " + expected);
+        }
+    }
+
+    private interface Task {
+        int run();
+    }
+}
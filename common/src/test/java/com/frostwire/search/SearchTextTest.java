@@ -0,0 +1,136 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.search;
+
+import com.frostwire.util.StringUtils;
+import org.junit.Test;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class SearchTextTest {
+
+    private static final String[] SAMPLES = {
+            "",
+            "   ",
+            "Simple Name",
+            "The.Movie.2017.1080p.BluRay.x264-GROUP[www.example.com].torrent",
+            "<b>Bold</b> &amp; <i>italic</i> (remix)",
+            "Beyonc\u00E9 - D\u00E9j\u00E0 Vu (Live @ Wembley)",
+            "\u00D1and\u00FA_\u00FCber__stra\u00DFe;;;test",
+            "\uFB01le \u2460 \uFF46\uFF55\uFF4C\uFF4C\uFF57\uFF49\uFF44\uFF54\uFF48",
+            "tab\tand\nnew line\r\nend ",
+            "unclosed <tag and & entity",
+            "multi\n<line\n> tag &x\n;",
+            "\u00D0\u00C0\u00C1\u00A1weird|#chars~{}*@^'=!,",
+            "archive.net/details/something.com",
+            "\u0001control\u0001",
+    };
+
+    @Test
+    public void testSanitize() {
+        for (String s : SAMPLES) {
+            assertEquals(s, legacySanitize(s), SearchText.sanitize(s));
+        }
+    }
+
+    @Test
+    public void testNormalize() {
+        for (String s : SAMPLES) {
+            assertEquals(s, legacyNormalize(s), SearchText.normalize(s));
+        }
+    }
+
+    @Test
+    public void testTokenize() {
+        for (String s : SAMPLES) {
+            assertEquals(s, new HashSet<>(legacyTokenize(s)), new HashSet<>(SearchText.tokenize(s)));
+        }
+    }
+
+    @Test
+    public void testSameAsLegacy() {
+        List<String> names = corpus(10000);
+        for (String name : names) {
+            assertEquals(name, legacyNormalize(legacySanitize(name)), SearchText.normalize(SearchText.sanitize(name)));
+        }
+    }
+
+    // mostly ASCII names with separators, some markup and some accents
+    static List<String> corpus(int size) {
+        String[] words = {"The", "Movie", "2017", "1080p", "BluRay", "x264", "Album", "Live", "Remastered",
+                "FLAC", "S01E02", "Complete", "Collection", "<b>Deluxe</b>", "Edition", "D\u00E9j\u00E0", "Vu", "Beyonc\u00E9",
+                "Se\u00F1or", "\u00C4rger", "Jazz", "Symphony", "&amp;", "[www.site.com]", "(remix)", "feat.", "mp3",
+                "Orchestra", "Greatest", "Hits", "file.torrent"};
+        String[] separators = {" ", ".", "_", " - ", "-", "  "};
+        Random r = new Random(0);
+        List<String> list = new ArrayList<>(size);
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < size; i++) {
+            sb.setLength(0);
+            int n = 2 + r.nextInt(9);
+            for (int j = 0; j < n; j++) {
+                if (j > 0) {
+                    sb.append(separators[r.nextInt(separators.length)]);
+                }
+                sb.append(words[r.nextInt(words.length)]);
+            }
+            list.add(sb.toString());
+        }
+        return list;
+    }
+
+    // the implementation the front ends used before SearchText
+
+    static String legacySanitize(String str) {
+        str = str.replaceAll("\\<.*?>", "");
+        str = str.replaceAll("\\&.*?\\;", "");
+        str = str.replaceAll("\\.torrent|www\\.|\\.com|\\.net|[\\\\\\/%_;\\-\\.\\(\\)\\[\\]\\n\\r\u00D0&~{}\\*@\\^'=!,\u00A1|#\u00C0\u00C1]", " ");
+        str = StringUtils.removeDoubleSpaces(str);
+        return str.trim();
+    }
+
+    static String legacyNormalize(String token) {
+        String norm = Normalizer.normalize(token, Normalizer.Form.NFKD);
+        norm = norm.replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
+        norm = norm.toLowerCase(Locale.US);
+        return norm;
+    }
+
+    private static List<String> legacyTokenize(String keywords) {
+        keywords = legacySanitize(keywords);
+        Set<String> tokens = new HashSet<>(Arrays.asList(keywords.toLowerCase(Locale.US).split(" ")));
+        Set<String> normalizedTokens = new HashSet<>();
+        for (String token : tokens) {
+            normalizedTokens.add(legacyNormalize(token));
+        }
+        return new ArrayList<>(normalizedTokens);
+    }
+}
@@ -20,9 +20,13 @@ package com.frostwire.search.filter;
 import com.frostwire.search.SearchResult;
 import org.junit.Test;
 
+import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
 import java.util.SortedMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -81,4 +85,155 @@ public class SearchTableTest {
         t.clear();
         assertTrue(b2.get());
     }
+
+    @Test
+    public void testEqualResultsNotDropped() {
+        SearchTable t = new SearchTable(0);
+        SearchView view = t.view(SearchFilter.NONE);
+
+        // NONE compares every result as equal
+        for (int i = 0; i < 10; i++) {
+            t.add(new TestSearchResult("a"));
+        }
+
+        SearchGroup group = view.groups().get(view.groups().firstKey());
+        assertEquals(10, group.size());
+        assertEquals(10, group.data().size());
+        assertEquals(10, view.size());
+    }
+
+    @Test
+    public void testGroupOrder() {
+        SearchTable t = new SearchTable(0);
+        SearchView view = t.view(new NameFilter(null));
+
+        t.add(new TestSearchResult("c"));
+        t.add(new TestSearchResult("a"));
+        SearchGroup group = view.groups().get(view.groups().firstKey());
+        assertEquals("DisplayName:a", group.data().get(0).getDisplayName());
+
+        t.add(new TestSearchResult("b"));
+        List<SearchResult> data = group.data();
+        assertEquals("DisplayName:a", data.get(0).getDisplayName());
+        assertEquals("DisplayName:b", data.get(1).getDisplayName());
+        assertEquals("DisplayName:c", data.get(2).getDisplayName());
+    }
+
+    @Test
+    public void testConcurrentAdd() throws Exception {
+        final int threads = 4;
+        final int batches = 200;
+        final int batchSize = 100;
+
+        final SearchTable t = new SearchTable(0);
+        SearchView view = t.view(SearchFilter.NONE);
+
+        final AtomicInteger added = new AtomicInteger();
+        view.setListener(new SearchViewListener() {
+            @Override
+            public void viewChanged(SearchView view) {
+            }
+
+            @Override
+            public void viewAdded(SearchView view, List<SearchResult> results) {
+                added.addAndGet(results.size());
+            }
+        });
+
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int i = 0; i < threads; i++) {
+            new Thread(() -> {
+                for (int b = 0; b < batches; b++) {
+                    List<SearchResult> l = new ArrayList<>(batchSize);
+                    for (int j = 0; j < batchSize; j++) {
+                        l.add(new TestSearchResult("r" + j));
+                    }
+                    t.add(l);
+                    // readers never block on the writers
+                    t.data().size();
+                }
+                done.countDown();
+            }).start();
+        }
+
+        // read while adding
+        while (done.getCount() > 0) {
+            List<SearchResult> data = t.data();
+            for (int i = 0; i < data.size(); i++) {
+                assertTrue(data.get(i) != null);
+            }
+        }
+        done.await();
+
+        int total = threads * batches * batchSize;
+        assertEquals(total, t.size());
+        assertEquals(total, t.data().size());
+        assertEquals(total, added.get());
+        assertEquals(total, view.size());
+    }
+
+    @Test
+    public void testFilterRefinement() {
+        SearchTable t = new SearchTable(0);
+        for (int i = 0; i < 100; i++) {
+            t.add(new TestSearchResult(i % 2 == 0 ? "even" + i : "odd" + i));
+        }
+
+        final AtomicInteger evaluated = new AtomicInteger();
+        SearchFilter base = SearchFilter.NONE;
+        SearchView view = t.view(base);
+        assertEquals(100, view.size());
+
+        SearchFilter even = new NameFilter("even") {
+            @Override
+            public boolean accept(SearchResult sr) {
+                evaluated.incrementAndGet();
+                return super.accept(sr);
+            }
+        };
+        SearchFilter refined = SearchFilters.add(base, even);
+        view.filter(refined);
+        assertEquals(50, view.size());
+        assertEquals(100, evaluated.get());
+
+        SearchFilter small = new NameFilter("even1");
+        SearchFilter narrower = SearchFilters.add(refined, small);
+        evaluated.set(0);
+        view.filter(narrower);
+        // only the rows left by the previous filter are evaluated
+        assertEquals(0, evaluated.get());
+        int n = view.size();
+        assertTrue(n > 0 && n < 50);
+
+        // going back keeps the accepted rows and evaluates the rest
+        view.filter(refined);
+        assertEquals(50, view.size());
+        assertEquals(100 - n, evaluated.get());
+    }
+
+    private static class NameFilter implements SearchFilter {
+
+        private static final Comparator<SearchResult> CMP = (o1, o2) -> o1.getDisplayName().compareTo(o2.getDisplayName());
+
+        private final String prefix;
+
+        NameFilter(String prefix) {
+            this.prefix = prefix;
+        }
+
+        @Override
+        public FilterKey key(SearchResult sr) {
+            return FilterKey.NULL;
+        }
+
+        @Override
+        public boolean accept(SearchResult sr) {
+            return prefix == null || sr.getDisplayName().startsWith("DisplayName:" + prefix);
+        }
+
+        @Override
+        public Comparator<SearchResult> comparator() {
+            return CMP;
+        }
+    }
 }
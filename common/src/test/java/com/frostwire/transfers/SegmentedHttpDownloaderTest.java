@@ -0,0 +1,212 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.transfers;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class SegmentedHttpDownloaderTest {
+
+    private static final int SIZE = 9 * 1024 * 1024 + 123;
+
+    private byte[] content;
+    private HttpServer server;
+    private String url;
+    private File dir;
+    private boolean ranges;
+    private boolean slowStart;
+    private AtomicInteger requests;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[SIZE];
+        new Random(0).nextBytes(content);
+        ranges = true;
+        slowStart = false;
+        requests = new AtomicInteger();
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/file", this::serve);
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/file";
+
+        dir = File.createTempFile("segmented", "test");
+        dir.delete();
+        dir.mkdirs();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        server.stop(0);
+        FileUtils.deleteDirectory(dir);
+    }
+
+    @Test
+    public void testDownload() throws IOException {
+        File file = new File(dir, "file.bin");
+        AtomicLong received = new AtomicLong();
+
+        SegmentedHttpDownloader d = new SegmentedHttpDownloader(url, file, received::addAndGet);
+        assertTrue(d.download(false));
+
+        assertEquals(SIZE, received.get());
+        assertArrayEquals(content, FileUtils.readFileToByteArray(file));
+        assertFalse(SegmentedHttpDownloader.mapFile(file).exists());
+    }
+
+    @Test
+    public void testSplitSlowSegment() throws IOException {
+        // the first connection is slow, the others take over halves of its range
+        slowStart = true;
+        File file = new File(dir, "file.bin");
+        AtomicLong received = new AtomicLong();
+
+        SegmentedHttpDownloader d = new SegmentedHttpDownloader(url, file, received::addAndGet);
+        assertTrue(d.download(false));
+
+        // the probe, the first ranges and at least one split
+        assertTrue("requests: " + requests.get(), requests.get() > 1 + SegmentedHttpDownloader.MAX_CONNECTIONS);
+        assertEquals(SIZE, received.get());
+        assertArrayEquals(content, FileUtils.readFileToByteArray(file));
+    }
+
+    @Test
+    public void testResume() throws IOException {
+        File file = new File(dir, "file.bin");
+        final AtomicLong received = new AtomicLong();
+
+        SegmentedHttpDownloader d = new SegmentedHttpDownloader(url, file, length -> {
+            if (received.addAndGet(length) > SIZE / 2) {
+                throw new RuntimeException("stop");
+            }
+        });
+        try {
+            d.download(false);
+            fail("download should be interrupted");
+        } catch (RuntimeException e) {
+            assertEquals("stop", e.getMessage());
+        }
+        assertTrue(SegmentedHttpDownloader.mapFile(file).exists());
+
+        AtomicLong resumed = new AtomicLong();
+        d = new SegmentedHttpDownloader(url, file, resumed::addAndGet);
+        assertTrue(d.download(true));
+
+        assertArrayEquals(content, FileUtils.readFileToByteArray(file));
+        assertTrue(resumed.get() < SIZE);
+    }
+
+    @Test
+    public void testResumePartialFileWithoutMap() throws IOException {
+        File file = new File(dir, "file.bin");
+        int partial = 3 * 1024 * 1024;
+        FileUtils.writeByteArrayToFile(file, Arrays.copyOf(content, partial));
+
+        AtomicLong received = new AtomicLong();
+        SegmentedHttpDownloader d = new SegmentedHttpDownloader(url, file, received::addAndGet);
+        assertTrue(d.download(true));
+
+        assertEquals(SIZE - partial, received.get());
+        assertArrayEquals(content, FileUtils.readFileToByteArray(file));
+    }
+
+    @Test
+    public void testCancel() throws IOException {
+        File file = new File(dir, "file.bin");
+        final AtomicLong received = new AtomicLong();
+        final SegmentedHttpDownloader[] d = new SegmentedHttpDownloader[1];
+
+        d[0] = new SegmentedHttpDownloader(url, file, length -> {
+            if (received.addAndGet(length) > SIZE / 2) {
+                d[0].cancel();
+                // the transfer deletes the map while the connections are still running
+                SegmentedHttpDownloader.mapFile(file).delete();
+            }
+        });
+        try {
+            d[0].download(false);
+            fail("download should be cancelled");
+        } catch (IOException e) {
+            // expected
+        }
+        assertFalse(SegmentedHttpDownloader.mapFile(file).exists());
+    }
+
+    @Test
+    public void testNoRanges() throws IOException {
+        ranges = false;
+        File file = new File(dir, "file.bin");
+
+        SegmentedHttpDownloader d = new SegmentedHttpDownloader(url, file, length -> {
+        });
+        assertFalse(d.download(false));
+        assertFalse(file.exists());
+    }
+
+    private void serve(HttpExchange exchange) throws IOException {
+        requests.incrementAndGet();
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        int start = 0;
+        int end = SIZE - 1;
+        if (ranges && range != null && range.startsWith("bytes=")) {
+            String[] parts = range.substring(6).split("-", -1);
+            start = Integer.parseInt(parts[0]);
+            if (!parts[1].isEmpty()) {
+                end = Math.min(end, Integer.parseInt(parts[1]));
+            }
+            exchange.getResponseHeaders().add("Content-Range", "bytes " + start + "-" + end + "/" + SIZE);
+            exchange.sendResponseHeaders(206, end - start + 1);
+        } else {
+            exchange.sendResponseHeaders(200, SIZE);
+        }
+        try (OutputStream out = exchange.getResponseBody()) {
+            if (slowStart && start == 0) {
+                for (int i = start; i <= end; i += 16 * 1024) {
+                    out.write(content, i, Math.min(16 * 1024, end - i + 1));
+                    out.flush();
+                    Thread.sleep(5);
+                }
+            } else {
+                out.write(content, start, end - start + 1);
+            }
+        } catch (IOException e) {
+            // client went away
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
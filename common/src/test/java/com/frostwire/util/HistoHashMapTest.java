@@ -0,0 +1,126 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.util;
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class HistoHashMapTest {
+
+    @Test
+    public void testHistogram() {
+        HistoHashMap<String> h = new HistoHashMap<>();
+        assertEquals(0, h.get("a"));
+        assertTrue(h.histogram().isEmpty());
+
+        h.update("a");
+        h.update("b");
+        h.update("b");
+        h.update("c");
+        h.update("b");
+        assertEquals(2, h.update("a"));
+
+        List<Map.Entry<String, Integer>> list = h.histogram();
+        assertEquals(3, list.size());
+        assertEquals("b", list.get(0).getKey());
+        assertEquals(3, (int) list.get(0).getValue());
+        assertEquals("a", list.get(1).getKey());
+        assertEquals("c", list.get(2).getKey());
+        assertEquals(3, h.getKeyCount());
+        assertEquals(6, h.getTotalCount());
+
+        // nothing changed, same snapshot
+        assertSame(list, h.histogram());
+
+        h.reset();
+        assertEquals(0, h.getKeyCount());
+        assertEquals(0, h.getTotalCount());
+        assertTrue(h.histogram().isEmpty());
+        assertEquals(1, (int) list.get(2).getValue());
+    }
+
+    @Test
+    public void testTopK() {
+        Random r = new Random(7);
+        HistoHashMap<Integer> h = new HistoHashMap<>(10);
+        Map<Integer, Integer> counts = new HashMap<>();
+        for (int i = 0; i < 20000; i++) {
+            // skewed, with keys moving in and out of the top
+            int key = i < 10000 ? r.nextInt(50) : 25 + r.nextInt(100) / (1 + r.nextInt(4));
+            h.update(key);
+            Integer n = counts.get(key);
+            counts.put(key, n == null ? 1 : n + 1);
+
+            if (i % 97 == 0) {
+                assertTop(counts, h.histogram(), 10);
+            }
+        }
+        assertTop(counts, h.histogram(), 10);
+        assertEquals(20000, h.getTotalCount());
+    }
+
+    @Test
+    public void testConcurrentUpdates() throws InterruptedException {
+        final HistoHashMap<Integer> h = new HistoHashMap<>(5);
+        final int threads = 4;
+        final int updates = 50000;
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            new Thread(() -> {
+                for (int i = 0; i < updates; i++) {
+                    h.update(i % 20);
+                }
+                done.countDown();
+            }).start();
+        }
+        while (done.getCount() > 0) {
+            h.histogram();
+        }
+        done.await();
+
+        assertEquals(threads * updates, h.getTotalCount());
+        List<Map.Entry<Integer, Integer>> list = h.histogram();
+        assertEquals(5, list.size());
+        for (Map.Entry<Integer, Integer> e : list) {
+            assertEquals(threads * updates / 20, (int) e.getValue());
+        }
+    }
+
+    private static void assertTop(Map<Integer, Integer> counts, List<Map.Entry<Integer, Integer>> top, int k) {
+        List<Integer> expected = new ArrayList<>(counts.values());
+        expected.sort((a, b) -> b - a);
+        assertEquals(Math.min(k, expected.size()), top.size());
+        for (int i = 0; i < top.size(); i++) {
+            // ties can be in any order, the counts can't
+            assertEquals(expected.get(i), top.get(i).getValue());
+            assertEquals(counts.get(top.get(i).getKey()), top.get(i).getValue());
+        }
+    }
+}
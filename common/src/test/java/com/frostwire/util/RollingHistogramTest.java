@@ -0,0 +1,74 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.frostwire.util;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class RollingHistogramTest {
+
+    @Test
+    public void testBuckets() {
+        int last = -1;
+        for (long v = 0; v < 100000; v++) {
+            int b = RollingHistogram.bucket(v);
+            assertTrue(b == last || b == last + 1);
+            assertTrue(RollingHistogram.lowerBound(b) <= v);
+            assertTrue(v < RollingHistogram.lowerBound(b + 1));
+            last = b;
+        }
+    }
+
+    @Test
+    public void testPercentiles() {
+        RollingHistogram h = new RollingHistogram(60000, 6);
+        for (int i = 1; i <= 1000; i++) {
+            h.record(i, 0);
+        }
+
+        RollingHistogram.Snapshot s = h.snapshot(0);
+        assertEquals(1000, s.count);
+        assertEquals(500, s.mean);
+        assertEquals(1000, s.max);
+        assertEquals(500, s.p50, 500 * 0.125);
+        assertEquals(900, s.p90, 900 * 0.125);
+        assertEquals(990, s.p99, 990 * 0.125);
+    }
+
+    @Test
+    public void testRolling() {
+        RollingHistogram h = new RollingHistogram(60000, 6);
+        h.record(5, 0);
+        h.record(7, 15000);
+
+        assertEquals(2, h.snapshot(59999).count);
+        // the first slot expired
+        assertEquals(1, h.snapshot(60000).count);
+        assertEquals(7, h.snapshot(60000).max);
+        assertEquals(0, h.snapshot(80000).count);
+
+        // reuses the slot of the first value
+        h.record(1, 120000);
+        assertEquals(1, h.snapshot(120000).count);
+        assertEquals(1, h.snapshot(120000).max);
+    }
+}
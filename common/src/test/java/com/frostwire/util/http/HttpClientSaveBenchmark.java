@@ -0,0 +1,126 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.util.http;
+
+import com.frostwire.util.ThreadPool;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * Loopback benchmark of the save paths, prints throughput and bytes allocated
+ * by the saving thread. Not part of the unit tests, run its main.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class HttpClientSaveBenchmark {
+
+    private static final int SIZE = 32 * 1024 * 1024;
+    private static final int ROUNDS = 3;
+
+    public static void main(String[] args) throws IOException {
+        final byte[] content = new byte[SIZE];
+        new Random(0).nextBytes(content);
+
+        HttpServer server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/file", exchange -> {
+            exchange.sendResponseHeaders(200, SIZE);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+        });
+        server.start();
+        final String url = "http://127.0.0.1:" + server.getAddress().getPort() + "/file";
+        final File file = File.createTempFile("save", "benchmark");
+
+        try {
+            HttpClient.HttpClientListener listener = new HttpClient.HttpClientListenerAdapter() {
+                @Override
+                public void onData(HttpClient client, byte[] buffer, int offset, int length) {
+                }
+            };
+
+            final JdkHttpClient jdk = new JdkHttpClient();
+            jdk.setListener(listener);
+            final OKHTTPClient ok = new OKHTTPClient(new ThreadPool("OkHttpClient-benchmark", 1, 1, 5, new LinkedBlockingQueue<>(), true));
+            ok.setListener(listener);
+
+            System.out.println("Saving " + SIZE / (1024 * 1024) + "MB over loopback, best of " + ROUNDS);
+            run("4KB stream loop", () -> legacySave(url, file));
+            run("JdkHttpClient.save", () -> jdk.save(url, file));
+            run("OKHTTPClient.save", () -> ok.save(url, file));
+        } finally {
+            server.stop(0);
+            file.delete();
+        }
+    }
+
+    private static void run(String name, Save save) throws IOException {
+        save.run(); // warm up
+
+        long bestNanos = Long.MAX_VALUE;
+        long bestAllocated = Long.MAX_VALUE;
+        for (int i = 0; i < ROUNDS; i++) {
+            long allocated = allocatedBytes();
+            long start = System.nanoTime();
+            save.run();
+            bestNanos = Math.min(bestNanos, System.nanoTime() - start);
+            bestAllocated = Math.min(bestAllocated, allocatedBytes() - allocated);
+        }
+
+        double mbs = (SIZE / (1024.0 * 1024.0)) / (bestNanos / 1e9);
+        System.out.println(String.format("  %-20s %8.1f MB/s %10d KB allocated", name, mbs, bestAllocated / 1024));
+    }
+
+    private static long allocatedBytes() {
+        java.lang.management.ThreadMXBean bean = ManagementFactory.getThreadMXBean();
+        if (bean instanceof com.sun.management.ThreadMXBean) {
+            return ((com.sun.management.ThreadMXBean) bean).getThreadAllocatedBytes(Thread.currentThread().getId());
+        }
+        return 0;
+    }
+
+    // the save loop as it was before pooled buffers
+    private static void legacySave(String url, File file) throws IOException {
+        HttpURLConnection conn = (HttpURLConnection) new URL(url).openConnection();
+        try (InputStream in = conn.getInputStream(); FileOutputStream fos = new FileOutputStream(file)) {
+            byte[] b = new byte[4096];
+            int n;
+            while ((n = in.read(b, 0, b.length)) != -1) {
+                fos.write(b, 0, n);
+            }
+        } finally {
+            conn.disconnect();
+        }
+    }
+
+    private interface Save {
+        void run() throws IOException;
+    }
+}
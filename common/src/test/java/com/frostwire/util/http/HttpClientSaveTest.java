@@ -0,0 +1,102 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.util.http;
+
+import com.frostwire.util.ThreadPool;
+import com.sun.net.httpserver.HttpServer;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Random;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class HttpClientSaveTest {
+
+    private static final int SIZE = 4 * 1024 * 1024 + 123;
+
+    private byte[] content;
+    private HttpServer server;
+    private String url;
+    private File file;
+
+    @Before
+    public void setUp() throws IOException {
+        content = new byte[SIZE];
+        new Random(0).nextBytes(content);
+
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/file", exchange -> {
+            exchange.sendResponseHeaders(200, SIZE);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(content);
+            }
+        });
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort() + "/file";
+
+        file = File.createTempFile("save", "test");
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+        file.delete();
+    }
+
+    @Test
+    public void testJdkSave() throws IOException {
+        testSave(new JdkHttpClient());
+    }
+
+    @Test
+    public void testOkHttpSave() throws IOException {
+        testSave(new OKHTTPClient(new ThreadPool("OkHttpClient-test", 1, 1, 5, new LinkedBlockingQueue<>(), true)));
+    }
+
+    private void testSave(HttpClient client) throws IOException {
+        final AtomicLong received = new AtomicLong();
+        client.setListener(new HttpClient.HttpClientListenerAdapter() {
+            @Override
+            public void onData(HttpClient client, byte[] buffer, int offset, int length) {
+                received.addAndGet(length);
+            }
+        });
+
+        client.save(url, file);
+        assertEquals(SIZE, received.get());
+        assertArrayEquals(content, FileUtils.readFileToByteArray(file));
+
+        // overwritten, not appended
+        client.save(url, file);
+        assertEquals(2L * SIZE, received.get());
+        assertArrayEquals(content, FileUtils.readFileToByteArray(file));
+    }
+}
@@ -0,0 +1,97 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.frostwire.util.http;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.Reader;
+import java.net.InetSocketAddress;
+import java.nio.charset.Charset;
+
+import static org.junit.Assert.*;
+
+/**
+ * @author gubatron
+ * @author aldenml
+ */
+public class JdkHttpClientTest {
+
+    private static final String TEXT = "Se\u00F1or Beyonc\u00E9 \u00C4rger";
+
+    private HttpServer server;
+    private String url;
+
+    @Before
+    public void setUp() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        server.createContext("/latin1", exchange -> respond(exchange, "text/html; charset=ISO-8859-1", "ISO-8859-1"));
+        server.createContext("/quoted", exchange -> respond(exchange, "text/html;charset=\"windows-1252\"", "windows-1252"));
+        server.createContext("/none", exchange -> respond(exchange, "text/html", "UTF-8"));
+        server.createContext("/unknown", exchange -> respond(exchange, "text/html; charset=x-no-such-charset", "UTF-8"));
+        server.start();
+        url = "http://127.0.0.1:" + server.getAddress().getPort();
+    }
+
+    @After
+    public void tearDown() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testOpenReaderCharset() throws IOException {
+        JdkHttpClient client = new JdkHttpClient();
+        assertEquals(TEXT, read(client, "/latin1"));
+        assertEquals(TEXT, read(client, "/quoted"));
+        assertEquals(TEXT, read(client, "/none"));
+        assertEquals(TEXT, read(client, "/unknown"));
+    }
+
+    @Test
+    public void testCharset() {
+        assertEquals(Charset.forName("UTF-8"), JdkHttpClient.charset(null));
+        assertEquals(Charset.forName("UTF-8"), JdkHttpClient.charset("text/html"));
+        assertEquals(Charset.forName("ISO-8859-1"), JdkHttpClient.charset("text/html; CHARSET=iso-8859-1"));
+        assertEquals(Charset.forName("UTF-8"), JdkHttpClient.charset("text/html; charset="));
+    }
+
+    private String read(JdkHttpClient client, String path) throws IOException {
+        StringBuilder sb = new StringBuilder();
+        try (Reader reader = client.openReader(url + path, 5000, null, null, null, null)) {
+            char[] buffer = new char[1024];
+            int n;
+            while ((n = reader.read(buffer)) != -1) {
+                sb.append(buffer, 0, n);
+            }
+        }
+        return sb.toString();
+    }
+
+    private static void respond(HttpExchange exchange, String contentType, String charset) throws IOException {
+        byte[] data = TEXT.getBytes(charset);
+        exchange.getResponseHeaders().add("Content-Type", contentType);
+        exchange.sendResponseHeaders(200, data.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(data);
+        }
+    }
+}
@@ -107,6 +107,15 @@ public class Playlist extends LibraryDatabaseEntity {
         }
     }
 
+    /**
+     * Saves the items in a single database transaction, see {@link PlaylistItem#save(boolean)}.
+     */
+    public synchronized void saveItems(List<PlaylistItem> items, boolean updateStarred) {
+        if (db != null) {
+            PlaylistItemDB.saveAll(db, items, updateStarred);
+        }
+    }
+
     public synchronized void delete() {
         if (db != null) {
             PlaylistDB.delete(db, this);
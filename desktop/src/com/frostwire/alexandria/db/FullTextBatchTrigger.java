@@ -0,0 +1,55 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.alexandria.db;
+
+import org.h2.fulltext.FullTextLucene;
+
+import java.sql.Connection;
+import java.sql.SQLException;
+
+/**
+ * Full text trigger installed by {@link LibraryDatabase} for the duration of a batch.
+ * <p>
+ * It indexes the rows like the H2 one, but that one commits and reopens the Lucene
+ * index for every single row. Here nothing is committed until the trigger is
+ * dropped at the end of the batch, closing the index writer.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class FullTextBatchTrigger extends FullTextLucene.FullTextTrigger {
+
+    @Override
+    public void fire(Connection conn, Object[] oldRow, Object[] newRow) throws SQLException {
+        if (oldRow != null) {
+            delete(oldRow, false);
+        }
+        if (newRow != null) {
+            insert(newRow, false);
+        }
+    }
+
+    @Override
+    public void remove() {
+        try {
+            close();
+        } catch (SQLException e) {
+            e.printStackTrace();
+        }
+    }
+}
@@ -19,12 +19,15 @@ package com.frostwire.alexandria.db;
 
 import com.frostwire.alexandria.Playlist;
 import com.frostwire.alexandria.PlaylistItem;
+import org.h2.fulltext.FullTextLucene;
 
 import java.io.File;
 import java.sql.*;
 import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 public class LibraryDatabase {
 
@@ -34,6 +37,8 @@ public class LibraryDatabase {
     private static final int LIBRARY_DATABASE_VERSION = 4;
 
     static final String STARRED_TABLE_NAME_DO_NOT_TRANSLATE_THIS = "starred";
+
+    private static final String FULL_TEXT_TRIGGER = "PUBLIC.FTL_PLAYLISTITEMS";
     
     private final String _name;
     private Connection _connection;
@@ -112,6 +117,86 @@ public class LibraryDatabase {
         return OBJECT_INVALID_ID;
     }
 
+    /**
+     * Runs the statements in order in a single transaction. Every distinct statement
+     * is prepared once and consecutive runs of the same update are sent as a JDBC batch.
+     * The full text index is committed once at the end instead of once per row.
+     *
+     * @param statements {statementSql, arguments} pairs, like the ones passed to
+     *                   {@link #insert(String, Object...)} and {@link #update(String, Object...)}
+     * @return the generated id of every INSERT, in order, or null if the transaction was rolled back
+     */
+    public synchronized int[] batch(List<Object[]> statements) {
+        if (isClosed()) {
+            return null;
+        }
+
+        List<Integer> ids = new ArrayList<>();
+        Map<String, PreparedStatement> prepared = new HashMap<>();
+
+        setFullTextTrigger(_connection, FullTextBatchTrigger.class);
+        try {
+            _connection.setAutoCommit(false);
+
+            PreparedStatement pending = null;
+            for (Object[] sqlAndValues : statements) {
+                String sql = (String) sqlAndValues[0];
+                boolean insert = sql.toUpperCase().startsWith("INSERT");
+                PreparedStatement statement = prepare(prepared, sql, insert ? Statement.RETURN_GENERATED_KEYS : Statement.NO_GENERATED_KEYS);
+
+                if (pending != null && pending != statement) {
+                    pending.executeBatch();
+                    pending = null;
+                }
+
+                setArguments(statement, (Object[]) sqlAndValues[1]);
+                if (insert) {
+                    statement.executeUpdate();
+                    try (ResultSet keys = statement.getGeneratedKeys()) {
+                        ids.add(keys.next() ? keys.getInt(1) : OBJECT_INVALID_ID);
+                    }
+                } else {
+                    statement.addBatch();
+                    pending = statement;
+                }
+            }
+            if (pending != null) {
+                pending.executeBatch();
+            }
+
+            _connection.commit();
+
+            int[] result = new int[ids.size()];
+            for (int i = 0; i < result.length; i++) {
+                result[i] = ids.get(i);
+            }
+            return result;
+        } catch (Exception e) {
+            e.printStackTrace();
+            try {
+                _connection.rollback();
+            } catch (SQLException e2) {
+                e2.printStackTrace();
+            }
+            return null;
+        } finally {
+            for (PreparedStatement statement : prepared.values()) {
+                try {
+                    statement.close();
+                } catch (SQLException e) {
+                    e.printStackTrace();
+                }
+            }
+            try {
+                _connection.setAutoCommit(true);
+            } catch (SQLException e) {
+                e.printStackTrace();
+            }
+            // dropping the batch trigger commits the full text index
+            setFullTextTrigger(_connection, FullTextLucene.FullTextTrigger.class);
+        }
+    }
+
     public synchronized void close() {
         if (isClosed()) {
             return;
@@ -214,11 +299,32 @@ public class LibraryDatabase {
                     connection = openConnection(path, name, false);
                 }
             }
+
+            if (connection != null) {
+                restoreFullTextTrigger(connection);
+            }
         }
         
         return connection;
     }
 
+    private PreparedStatement prepare(Map<String, PreparedStatement> statements, String statementSql, int autoGeneratedKeys) throws SQLException {
+        PreparedStatement statement = statements.get(statementSql);
+        if (statement == null) {
+            statement = _connection.prepareStatement(statementSql, autoGeneratedKeys);
+            statements.put(statementSql, statement);
+        }
+        return statement;
+    }
+
+    private static void setArguments(PreparedStatement statement, Object[] arguments) throws SQLException {
+        if (arguments != null) {
+            for (int i = 0; i < arguments.length; i++) {
+                statement.setObject(i + 1, arguments[i]);
+            }
+        }
+    }
+
     private List<List<Object>> convertResultSetToList(ResultSet resultSet) throws SQLException {
         ResultSetMetaData meta = resultSet.getMetaData();
         int numColumns = meta.getColumnCount();
@@ -306,6 +412,21 @@ public class LibraryDatabase {
         update(connection, "CALL FTL_CREATE_INDEX('PUBLIC', 'PLAYLISTITEMS', 'FILEPATH, TRACKTITLE, TRACKARTIST, TRACKALBUM, TRACKGENRE, TRACKYEAR')");
     }
 
+    private void setFullTextTrigger(final Connection connection, Class<?> triggerClass) {
+        update(connection, "DROP TRIGGER IF EXISTS " + FULL_TEXT_TRIGGER);
+        update(connection, "CREATE TRIGGER " + FULL_TEXT_TRIGGER + " AFTER INSERT, UPDATE, DELETE, ROLLBACK ON PUBLIC.PLAYLISTITEMS FOR EACH ROW CALL \"" + triggerClass.getName() + "\"");
+    }
+
+    /**
+     * Puts back the H2 full text trigger if the application died in the middle of a batch.
+     */
+    private void restoreFullTextTrigger(final Connection connection) {
+        List<List<Object>> result = query(connection, "SELECT JAVA_CLASS FROM INFORMATION_SCHEMA.TRIGGERS WHERE TRIGGER_SCHEMA = 'PUBLIC' AND TRIGGER_NAME = 'FTL_PLAYLISTITEMS'");
+        if (result.size() > 0 && FullTextBatchTrigger.class.getName().equals(result.get(0).get(0))) {
+            setFullTextTrigger(connection, FullTextLucene.FullTextTrigger.class);
+        }
+    }
+
     private void setupPlaylistIndexes(final Connection connection) {
         
         // add new column
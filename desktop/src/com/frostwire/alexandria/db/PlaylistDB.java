@@ -36,21 +36,23 @@ public class PlaylistDB {
             return;
         }
 
+        List<Object[]> statements = new ArrayList<>();
+
         if (obj.getId() == LibraryDatabase.OBJECT_NOT_SAVED_ID) {
             int id = db.insert("INSERT INTO Playlists (name, description) VALUES (LEFT(?, 500), LEFT(?, 10000))", obj.getName(), obj.getDescription());
             obj.setId(id);
         } else {
-            db.update("DELETE FROM PlaylistItems WHERE playlistId = ?", obj.getId());
-            Object[] statementObjects = createPlaylistUpdateStatement(obj);
-            db.update((String) statementObjects[0], (Object[]) statementObjects[1]);
+            // in the same transaction as the items, deleting them one commit at a time is slow
+            statements.add(new Object[] { "DELETE FROM PlaylistItems WHERE playlistId = ?", new Object[] { obj.getId() } });
+            statements.add(createPlaylistUpdateStatement(obj));
         }
         
         List<PlaylistItem> items = new ArrayList<>(obj.getItems());
 
         for (PlaylistItem item : items) {
             item.setId(LibraryDatabase.OBJECT_NOT_SAVED_ID);
-            item.save();
         }
+        PlaylistItemDB.saveAll(db, statements, items, false);
     }
 
     public static void delete(LibraryDatabase db, Playlist obj) {
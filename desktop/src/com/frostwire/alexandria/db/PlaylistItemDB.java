@@ -22,7 +22,9 @@ import com.frostwire.alexandria.Playlist;
 import com.frostwire.alexandria.PlaylistItem;
 
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 public class PlaylistItemDB {
 
@@ -98,6 +100,59 @@ public class PlaylistItemDB {
         }
     }
 
+    /**
+     * Same as calling {@link #save(LibraryDatabase, PlaylistItem, boolean)} for every
+     * item, but in a single transaction. Only the starred items update the starred
+     * state of the other items with the same file.
+     */
+    public static void saveAll(LibraryDatabase db, List<PlaylistItem> items, boolean updateStarred) {
+        saveAll(db, new ArrayList<Object[]>(), items, updateStarred);
+    }
+
+    /**
+     * @param statements {sql, values} pairs to run first in the same transaction
+     */
+    static void saveAll(LibraryDatabase db, List<Object[]> statements, List<PlaylistItem> items, boolean updateStarred) {
+        List<PlaylistItem> inserted = new ArrayList<>();
+        Set<String> starredPaths = null;
+
+        for (PlaylistItem obj : items) {
+            if (obj.getId() == LibraryDatabase.OBJECT_INVALID_ID || obj.getPlaylist() == null) {
+                continue;
+            }
+            if (obj.getId() == LibraryDatabase.OBJECT_NOT_SAVED_ID) {
+                if (starredPaths == null) {
+                    starredPaths = getStarredPaths(db);
+                }
+                obj.setStarred(starredPaths.contains(obj.getFilePath()) || obj.isStarred());
+                if (obj.isStarred()) {
+                    starredPaths.add(obj.getFilePath());
+                }
+                inserted.add(obj);
+                statements.add(createPlaylistItemInsert(obj));
+            } else {
+                statements.add(createPlaylistItemUpdate(obj));
+            }
+        }
+        // after the inserts, so consecutive updates go in a single JDBC batch
+        if (updateStarred) {
+            for (PlaylistItem obj : items) {
+                if (obj.isStarred() && obj.getId() != LibraryDatabase.OBJECT_INVALID_ID && obj.getPlaylist() != null) {
+                    statements.add(updateStarred(obj));
+                }
+            }
+        }
+
+        if (statements.isEmpty()) {
+            return;
+        }
+
+        int[] ids = db.batch(statements);
+        for (int i = 0; i < inserted.size(); i++) {
+            inserted.get(i).setId(ids != null ? ids[i] : LibraryDatabase.OBJECT_INVALID_ID);
+        }
+    }
+
     public static void delete(LibraryDatabase db, PlaylistItem obj) {
         db.update("DELETE FROM PlaylistItems WHERE playlistItemId = ?", obj.getId());
     }
@@ -145,6 +200,15 @@ public class PlaylistItemDB {
         return new Object[] { sql, values };
     }
     
+    private static Set<String> getStarredPaths(LibraryDatabase db) {
+        List<List<Object>> result = db.query("SELECT DISTINCT filePath FROM PlaylistItems WHERE starred = TRUE");
+        Set<String> paths = new HashSet<>(result.size());
+        for (List<Object> row : result) {
+            paths.add((String) row.get(0));
+        }
+        return paths;
+    }
+
     private static boolean isStarred(LibraryDatabase db, PlaylistItem item) {
         List<List<Object>> result = db
                 .query("SELECT starred FROM PlaylistItems WHERE filePath = ? LIMIT 1", item.getFilePath());
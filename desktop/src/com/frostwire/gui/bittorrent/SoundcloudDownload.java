@@ -22,7 +22,7 @@ import com.frostwire.gui.player.MediaPlayer;
 import com.frostwire.mp3.ID3Wrapper;
 import com.frostwire.mp3.ID3v1Tag;
 import com.frostwire.mp3.ID3v23Tag;
-import com.frostwire.mp3.Mp3File;
+import com.frostwire.mp3.Mp3TagWriter;
 import com.frostwire.search.soundcloud.SoundcloudSearchResult;
 import com.frostwire.transfers.TransferState;
 import com.frostwire.util.HttpClientFactory;
@@ -205,8 +205,6 @@ public class SoundcloudDownload extends HttpBTDownload {
         try {
             byte[] imageBytes = HttpClientFactory.getInstance(HttpClientFactory.HttpContext.DOWNLOAD).getBytes(sr.getThumbnailUrl());
 
-            Mp3File mp3 = new Mp3File(mp3Filename);
-
             ID3Wrapper newId3Wrapper = new ID3Wrapper(new ID3v1Tag(), new ID3v23Tag());
 
             newId3Wrapper.setAlbum(sr.getUsername() + ": " + sr.getDisplayName() + " via SoundCloud.com");
@@ -216,10 +214,7 @@ public class SoundcloudDownload extends HttpBTDownload {
             newId3Wrapper.setUrl(sr.getDetailsUrl());
             newId3Wrapper.getId3v2Tag().setPadding(true);
 
-            mp3.setId3v1Tag(newId3Wrapper.getId3v1Tag());
-            mp3.setId3v2Tag(newId3Wrapper.getId3v2Tag());
-
-            mp3.save(mp3outputFilename);
+            Mp3TagWriter.save(mp3Filename, mp3outputFilename, newId3Wrapper.getId3v2Tag(), newId3Wrapper.getId3v1Tag());
 
             return true;
         } catch (Throwable e) {
@@ -1,6 +1,6 @@
 /*
  * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
- * Copyright (c) 2011-2014, FrostWire(R). All rights reserved.
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
  *
  * This program is free software: you can redistribute it and/or modify
  * it under the terms of the GNU General Public License as published by
@@ -18,6 +18,7 @@
 
 package com.frostwire.gui.filters;
 
+import com.frostwire.search.KeywordMatcher;
 import com.limegroup.gnutella.gui.search.UISearchResult;
 
 import java.util.ArrayList;
@@ -38,6 +39,9 @@ public class KeywordFilter implements SearchFilter {
     /** INVARIANT: strings in ban contain only lowercase */
     private List<String> ban = new ArrayList<String>();
 
+    /** compiled from ban on first use, null after any change */
+    private volatile KeywordMatcher matcher;
+
     /** 
      * @modifies this
      * @effects bans the given phrase.  Capitalization does not matter.
@@ -46,6 +50,7 @@ public class KeywordFilter implements SearchFilter {
         String canonical = phrase.toLowerCase(Locale.US);
         if (!ban.contains(canonical)) {
             ban.add(canonical);
+            matcher = null;
         }
     }
 
@@ -122,12 +127,11 @@ public class KeywordFilter implements SearchFilter {
      * Returns true if phrase matches any of the entries in ban.
      */
     protected boolean matches(String phrase) {
-        String canonical = phrase.toLowerCase(Locale.US);
-        for (int i = 0; i < ban.size(); i++) {
-            String badWord = ban.get(i);
-            if (canonical.indexOf(badWord) != -1)
-                return true;
+        KeywordMatcher m = matcher;
+        if (m == null) {
+            m = KeywordMatcher.compile(ban);
+            matcher = m;
         }
-        return false;
+        return m.matchesAny(phrase);
     }
 }
@@ -0,0 +1,797 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.frostwire.gui.library;
+
+import com.frostwire.search.SearchText;
+import com.frostwire.util.Logger;
+import org.limewire.util.CommonUtils;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.FileVisitOption;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * In memory index of the files under the library directories, used by the
+ * library search instead of walking the disk on every keystroke.
+ * <p>
+ * Every file is kept with its path normalized once, and the alphanumeric words
+ * of those paths point back to the files, so a query only looks at the files
+ * sharing a word with it. The words are found by their trigrams, a query part
+ * can match anywhere in a word. The index follows the disk with a {@link WatchService},
+ * is reconciled against a full scan from time to time (watch events can be lost,
+ * and only so many directories are watched) and is saved in the settings
+ * directory to avoid the first scan on startup.
+ * <p>
+ * A directory is indexed the first time it's asked for, until the scan is done
+ * the search methods return null and the caller should walk the disk.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class LibraryIndex {
+
+    private static final Logger LOG = Logger.getLogger(LibraryIndex.class);
+
+    private static final int INDEX_MAGIC = 0x46574c49;
+    private static final int INDEX_VERSION = 1;
+    private static final long RECONCILE_INTERVAL_MINUTES = 10;
+    private static final long SAVE_INTERVAL_SECONDS = 30;
+    private static final int GRAM_LENGTH = 3;
+
+    // the JDK polls every watched directory where there are no native events (macOS)
+    private static final int MAX_WATCHED_DIRECTORIES = 1024;
+
+    private static LibraryIndex instance;
+
+    private final File indexFile;
+    private final int maxWatchedDirectories;
+    private final ScheduledExecutorService executor;
+
+    // guarded by lock
+    private final TreeMap<String, Entry> entries;
+    private final TreeMap<String, Set<Entry>> words;
+    private final Map<String, Set<String>> grams;
+    private final ReadWriteLock lock;
+
+    // guarded by roots
+    private final Map<File, Boolean> roots;
+
+    private final Map<WatchKey, Path> watchKeys;
+    private WatchService watchService;
+
+    // word lookups of the last query, typing usually extends it
+    private final Object cacheLock;
+    private Map<String, List<String>> lastLookups;
+
+    private volatile boolean dirty;
+    private volatile boolean stopped;
+
+    LibraryIndex(File indexFile) {
+        this(indexFile, MAX_WATCHED_DIRECTORIES);
+    }
+
+    LibraryIndex(File indexFile, int maxWatchedDirectories) {
+        this.indexFile = indexFile;
+        this.maxWatchedDirectories = maxWatchedDirectories;
+        this.executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "LibraryIndex");
+            t.setDaemon(true);
+            t.setPriority(Thread.MIN_PRIORITY);
+            return t;
+        });
+        this.entries = new TreeMap<>();
+        this.words = new TreeMap<>();
+        this.grams = new HashMap<>();
+        this.lock = new ReentrantReadWriteLock();
+        this.roots = new HashMap<>();
+        this.cacheLock = new Object();
+        this.lastLookups = Collections.emptyMap();
+        this.watchKeys = Collections.synchronizedMap(new HashMap<>());
+
+        executor.execute(this::start);
+        executor.scheduleWithFixedDelay(this::reconcile, RECONCILE_INTERVAL_MINUTES, RECONCILE_INTERVAL_MINUTES, TimeUnit.MINUTES);
+        executor.scheduleWithFixedDelay(this::saveIfDirty, SAVE_INTERVAL_SECONDS, SAVE_INTERVAL_SECONDS, TimeUnit.SECONDS);
+    }
+
+    public static synchronized LibraryIndex instance() {
+        if (instance == null) {
+            instance = new LibraryIndex(new File(CommonUtils.getUserSettingsDir(), "library.index"));
+        }
+        return instance;
+    }
+
+    /**
+     * Saves the index if it changed and stops watching, safe to call even if
+     * the index was never used.
+     */
+    public static void shutdown() {
+        LibraryIndex index;
+        synchronized (LibraryIndex.class) {
+            index = instance;
+        }
+        if (index != null) {
+            index.stop();
+        }
+    }
+
+    /**
+     * Same normalization applied to the indexed paths, see {@link SearchText#normalize(String)}.
+     */
+    public static String normalize(String s) {
+        return SearchText.normalize(s);
+    }
+
+    /**
+     * Returns the files under {@code dir} whose normalized absolute path contains
+     * every space separated token of the normalized query.
+     *
+     * @return null if the directory is not indexed yet
+     */
+    public List<File> search(File dir, String query) {
+        String prefix = rootPrefix(dir);
+        if (prefix == null) {
+            return null;
+        }
+
+        String[] tokens = normalize(query).trim().split(" +");
+
+        lock.readLock().lock();
+        try {
+            Collection<Entry> candidates = candidates(tokens);
+            if (candidates == null) {
+                candidates = under(prefix).values();
+            }
+
+            List<File> results = new ArrayList<>();
+            for (Entry e : candidates) {
+                if (e.path.startsWith(prefix) && e.matches(tokens)) {
+                    results.add(e.file);
+                }
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all the files under {@code dir}.
+     *
+     * @return null if the directory is not indexed yet
+     */
+    public List<File> files(File dir) {
+        String prefix = rootPrefix(dir);
+        if (prefix == null) {
+            return null;
+        }
+
+        lock.readLock().lock();
+        try {
+            List<File> results = new ArrayList<>();
+            for (Entry e : under(prefix).values()) {
+                results.add(e.file);
+            }
+            return results;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the normalized absolute path of an indexed file, or null if the file
+     * is not in the index.
+     */
+    public String normalizedPath(File file) {
+        lock.readLock().lock();
+        try {
+            Entry e = entries.get(file.getAbsolutePath());
+            return e != null ? e.normalized : null;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the prefix of the paths under dir if it's indexed, otherwise the
+     * scan of dir is scheduled and null returned.
+     */
+    private String rootPrefix(File dir) {
+        if (dir == null || stopped) {
+            return null;
+        }
+        dir = dir.getAbsoluteFile();
+
+        synchronized (roots) {
+            for (Map.Entry<File, Boolean> root : roots.entrySet()) {
+                if (root.getValue() && isAncestor(root.getKey(), dir)) {
+                    return prefix(dir);
+                }
+            }
+            if (roots.containsKey(dir)) {
+                return null;
+            }
+            roots.put(dir, Boolean.FALSE);
+        }
+
+        final File root = dir;
+        executor.execute(() -> build(root));
+        return null;
+    }
+
+    private static boolean isAncestor(File ancestor, File file) {
+        for (File f = file; f != null; f = f.getParentFile()) {
+            if (f.equals(ancestor)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static String prefix(File dir) {
+        String path = dir.getAbsolutePath();
+        return path.endsWith(File.separator) ? path : path + File.separator;
+    }
+
+    private SortedMap<String, Entry> under(String prefix) {
+        return entries.subMap(prefix, prefix + Character.MAX_VALUE);
+    }
+
+    /**
+     * Looks up the files sharing a word with the most selective alphanumeric part
+     * of the tokens, they still need to be checked against the whole query.
+     *
+     * @return null if the query has no alphanumeric part
+     */
+    private Collection<Entry> candidates(String[] tokens) {
+        Map<String, List<String>> lookups = new HashMap<>();
+        List<String> best = null;
+        int bestCount = Integer.MAX_VALUE;
+        for (String token : tokens) {
+            for (String part : words(token)) {
+                if (lookups.containsKey(part)) {
+                    continue;
+                }
+                List<String> matching = matchingWords(part);
+                lookups.put(part, matching);
+
+                int count = 0;
+                for (String word : matching) {
+                    count += words.get(word).size();
+                }
+                if (count < bestCount) {
+                    best = matching;
+                    bestCount = count;
+                }
+            }
+        }
+        if (best == null) {
+            return null;
+        }
+
+        synchronized (cacheLock) {
+            lastLookups = lookups;
+        }
+
+        Set<Entry> candidates = new HashSet<>(bestCount);
+        for (String word : best) {
+            candidates.addAll(words.get(word));
+        }
+        return candidates;
+    }
+
+    /**
+     * Distinct words containing part, only the words sharing its rarest trigram
+     * are checked, or the previous lookups narrowed while the user keeps typing.
+     */
+    private List<String> matchingWords(String part) {
+        Collection<String> source = null;
+        synchronized (cacheLock) {
+            for (Map.Entry<String, List<String>> e : lastLookups.entrySet()) {
+                if (part.contains(e.getKey()) && (source == null || e.getValue().size() < source.size())) {
+                    source = e.getValue();
+                }
+            }
+        }
+        for (int i = 0; i + GRAM_LENGTH <= part.length(); i++) {
+            Set<String> set = grams.get(part.substring(i, i + GRAM_LENGTH));
+            if (set == null) {
+                return new ArrayList<>();
+            }
+            if (source == null || set.size() < source.size()) {
+                source = set;
+            }
+        }
+        if (source == null) {
+            // shorter than a trigram
+            source = words.keySet();
+        }
+
+        List<String> result = new ArrayList<>();
+        for (String word : source) {
+            if (word.contains(part)) {
+                result.add(word);
+            }
+        }
+        return result;
+    }
+
+    private static List<String> words(String s) {
+        List<String> list = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean alnum = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (alnum && start == -1) {
+                start = i;
+            } else if (!alnum && start != -1) {
+                list.add(s.substring(start, i));
+                start = -1;
+            }
+        }
+        return list;
+    }
+
+    private void add(Path path) {
+        String p = path.toAbsolutePath().toString();
+        lock.writeLock().lock();
+        try {
+            if (entries.containsKey(p)) {
+                return;
+            }
+            Entry e = new Entry(new File(p));
+            entries.put(p, e);
+            for (String word : words(e.normalized)) {
+                Set<Entry> set = words.get(word);
+                if (set == null) {
+                    set = new HashSet<>();
+                    words.put(word, set);
+                    addGrams(word);
+                    wordsChanged();
+                }
+                set.add(e);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+        dirty = true;
+    }
+
+    /**
+     * Removes the file and, if it was a directory, everything under it.
+     */
+    private void remove(String path) {
+        lock.writeLock().lock();
+        try {
+            List<Entry> removed = new ArrayList<>();
+            Entry e = entries.get(path);
+            if (e != null) {
+                removed.add(e);
+            }
+            removed.addAll(under(prefix(new File(path))).values());
+
+            for (Entry r : removed) {
+                entries.remove(r.path);
+                for (String word : words(r.normalized)) {
+                    Set<Entry> set = words.get(word);
+                    if (set != null && set.remove(r) && set.isEmpty()) {
+                        words.remove(word);
+                        removeGrams(word);
+                        wordsChanged();
+                    }
+                }
+            }
+            if (!removed.isEmpty()) {
+                dirty = true;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // called with the write lock held
+    private void addGrams(String word) {
+        for (int i = 0; i + GRAM_LENGTH <= word.length(); i++) {
+            String gram = word.substring(i, i + GRAM_LENGTH);
+            Set<String> set = grams.get(gram);
+            if (set == null) {
+                set = new HashSet<>();
+                grams.put(gram, set);
+            }
+            set.add(word);
+        }
+    }
+
+    // called with the write lock held
+    private void removeGrams(String word) {
+        for (int i = 0; i + GRAM_LENGTH <= word.length(); i++) {
+            String gram = word.substring(i, i + GRAM_LENGTH);
+            Set<String> set = grams.get(gram);
+            if (set != null && set.remove(word) && set.isEmpty()) {
+                grams.remove(gram);
+            }
+        }
+    }
+
+    // called with the write lock held
+    private void wordsChanged() {
+        synchronized (cacheLock) {
+            lastLookups = Collections.emptyMap();
+        }
+    }
+
+    private void start() {
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            Thread t = new Thread(this::watch, "LibraryIndex-watcher");
+            t.setDaemon(true);
+            t.start();
+        } catch (Throwable e) {
+            LOG.warn("Unable to watch library directories, relying on periodic scans", e);
+        }
+
+        List<File> loaded = load();
+        if (loaded != null && !loaded.isEmpty()) {
+            synchronized (roots) {
+                for (File root : loaded) {
+                    roots.put(root, Boolean.TRUE);
+                }
+            }
+            // catch up with the changes made while we were not running
+            reconcile();
+        }
+    }
+
+    private void build(File root) {
+        if (stopped) {
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Set<String> found = scan(root);
+        if (found == null) {
+            synchronized (roots) {
+                roots.remove(root);
+            }
+            return;
+        }
+        synchronized (roots) {
+            roots.put(root, Boolean.TRUE);
+        }
+        LOG.info("Indexed " + found.size() + " files under " + root + " in " + (System.currentTimeMillis() - start) + "ms");
+        save();
+    }
+
+    /**
+     * Walks the root adding the files missing in the index and watching every
+     * directory, hidden files and directories are skipped like the library does.
+     *
+     * @return the paths found, null if root is not a readable directory
+     */
+    private Set<String> scan(File root) {
+        if (!root.isDirectory()) {
+            return null;
+        }
+        final Set<String> found = new HashSet<>();
+        try {
+            Files.walkFileTree(root.toPath(), EnumSet.of(FileVisitOption.FOLLOW_LINKS), Integer.MAX_VALUE, new SimpleFileVisitor<Path>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    if (stopped) {
+                        return FileVisitResult.TERMINATE;
+                    }
+                    if (!dir.equals(root.toPath()) && isHidden(dir)) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    register(dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                    if (attrs.isRegularFile() && !isHidden(file)) {
+                        found.add(file.toAbsolutePath().toString());
+                        add(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) throws IOException {
+                    // unreadable entries and symbolic link loops
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            LOG.warn("Error scanning library directory " + root, e);
+            return null;
+        }
+        return found;
+    }
+
+    private static boolean isHidden(Path path) {
+        try {
+            return Files.isHidden(path);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    void reconcile() {
+        List<File> ready = new ArrayList<>();
+        synchronized (roots) {
+            for (Map.Entry<File, Boolean> root : roots.entrySet()) {
+                if (root.getValue()) {
+                    ready.add(root.getKey());
+                }
+            }
+        }
+
+        for (File root : ready) {
+            if (stopped) {
+                return;
+            }
+            Set<String> found = scan(root);
+            if (found == null) {
+                found = Collections.emptySet();
+            }
+
+            List<String> gone = new ArrayList<>();
+            lock.readLock().lock();
+            try {
+                for (String path : under(prefix(root)).keySet()) {
+                    if (!found.contains(path) && !isUnderOtherRoot(path, root, ready)) {
+                        gone.add(path);
+                    }
+                }
+            } finally {
+                lock.readLock().unlock();
+            }
+            for (String path : gone) {
+                remove(path);
+            }
+        }
+        saveIfDirty();
+    }
+
+    // a nested root could still have files that are hidden from the outer scan
+    private static boolean isUnderOtherRoot(String path, File root, List<File> roots) {
+        for (File r : roots) {
+            if (!r.equals(root) && path.startsWith(prefix(r)) && !isAncestor(r, root)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void register(Path dir) {
+        WatchService ws = watchService;
+        if (ws == null) {
+            return;
+        }
+        if (watchKeys.size() >= maxWatchedDirectories) {
+            // the periodic scan will do, the directory could be watched already
+            return;
+        }
+        try {
+            WatchKey key = dir.register(ws, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_DELETE);
+            watchKeys.put(key, dir);
+        } catch (Throwable e) {
+            // too many watches or the directory is gone, the periodic scan will do
+            LOG.debug("Unable to watch " + dir + ": " + e.getMessage());
+        }
+    }
+
+    private void watch() {
+        while (!stopped) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException | ClosedWatchServiceException e) {
+                return;
+            }
+
+            Path dir = watchKeys.get(key);
+            for (WatchEvent<?> event : key.pollEvents()) {
+                if (event.kind() == StandardWatchEventKinds.OVERFLOW) {
+                    executor.execute(this::reconcile);
+                    continue;
+                }
+                if (dir == null) {
+                    continue;
+                }
+                final Path child = dir.resolve((Path) event.context());
+                if (event.kind() == StandardWatchEventKinds.ENTRY_DELETE) {
+                    remove(child.toAbsolutePath().toString());
+                } else if (Files.isDirectory(child)) {
+                    // a moved in directory comes with its content, and new files
+                    // can be created before it's watched
+                    if (!isHidden(child)) {
+                        executor.execute(() -> scan(child.toFile()));
+                    }
+                } else if (Files.isRegularFile(child) && !isHidden(child)) {
+                    add(child);
+                }
+            }
+
+            if (!key.reset()) {
+                watchKeys.remove(key);
+            }
+        }
+    }
+
+    void stop() {
+        stopped = true;
+        try {
+            if (watchService != null) {
+                watchService.close();
+            }
+        } catch (IOException e) {
+            // ignore
+        }
+        executor.shutdownNow();
+        saveIfDirty();
+    }
+
+    private void saveIfDirty() {
+        if (dirty) {
+            save();
+        }
+    }
+
+    private synchronized void save() {
+        List<File> ready = new ArrayList<>();
+        synchronized (roots) {
+            for (Map.Entry<File, Boolean> root : roots.entrySet()) {
+                if (root.getValue()) {
+                    ready.add(root.getKey());
+                }
+            }
+        }
+
+        dirty = false;
+        File temp = new File(indexFile.getAbsolutePath() + ".tmp");
+        try {
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(temp)));
+            try {
+                out.writeInt(INDEX_MAGIC);
+                out.writeInt(INDEX_VERSION);
+                out.writeInt(ready.size());
+                for (File root : ready) {
+                    out.writeUTF(root.getAbsolutePath());
+                }
+                lock.readLock().lock();
+                try {
+                    out.writeInt(entries.size());
+                    for (String path : entries.keySet()) {
+                        out.writeUTF(path);
+                    }
+                } finally {
+                    lock.readLock().unlock();
+                }
+            } finally {
+                out.close();
+            }
+            if (indexFile.exists() && !indexFile.delete()) {
+                LOG.warn("Unable to replace library index: " + indexFile);
+                return;
+            }
+            if (!temp.renameTo(indexFile)) {
+                LOG.warn("Unable to rename library index: " + temp);
+            }
+        } catch (IOException e) {
+            dirty = true;
+            LOG.warn("Error saving library index: " + indexFile, e);
+        }
+    }
+
+    /**
+     * @return the indexed roots, null if there is no usable index file
+     */
+    private List<File> load() {
+        if (!indexFile.exists()) {
+            return null;
+        }
+        try {
+            DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(indexFile)));
+            try {
+                if (in.readInt() != INDEX_MAGIC || in.readInt() != INDEX_VERSION) {
+                    return null;
+                }
+                int count = in.readInt();
+                List<File> loaded = new ArrayList<>(count);
+                for (int i = 0; i < count; i++) {
+                    loaded.add(new File(in.readUTF()));
+                }
+                count = in.readInt();
+                for (int i = 0; i < count; i++) {
+                    add(new File(in.readUTF()).toPath());
+                }
+                dirty = false;
+                return loaded;
+            } finally {
+                in.close();
+            }
+        } catch (Throwable e) {
+            LOG.warn("Error loading library index, starting over: " + indexFile, e);
+            lock.writeLock().lock();
+            try {
+                entries.clear();
+                words.clear();
+                grams.clear();
+                wordsChanged();
+            } finally {
+                lock.writeLock().unlock();
+            }
+            return null;
+        }
+    }
+
+    private static final class Entry {
+
+        final File file;
+        final String path;
+        final String normalized;
+
+        Entry(File file) {
+            this.file = file;
+            this.path = file.getAbsolutePath();
+            this.normalized = normalize(path);
+        }
+
+        boolean matches(String[] tokens) {
+            for (String token : tokens) {
+                if (!normalized.contains(token)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+}
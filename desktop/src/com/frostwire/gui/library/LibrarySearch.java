@@ -42,7 +42,6 @@ import java.awt.event.FocusEvent;
 import java.awt.event.FocusListener;
 import java.io.File;
 import java.io.FileFilter;
-import java.text.Normalizer;
 import java.util.*;
 import java.util.List;
 
@@ -353,6 +352,18 @@ public class LibrarySearch extends JPanel {
                 return;
             }
 
+            List<File> indexed;
+            if (directoryHolder instanceof SavedFilesDirectoryHolder) {
+                indexed = LibraryIndex.instance().search(haystackDir, _query);
+            } else {
+                indexed = LibraryIndex.instance().files(haystackDir);
+            }
+            if (indexed != null) {
+                search(haystackDir, indexed, excludeFiles, exludedSubFolders);
+                return;
+            }
+
+            // not indexed yet, walk the disk meanwhile
             final List<File> directories = new ArrayList<File>();
             final List<File> results = new ArrayList<File>();
             SearchFileFilter searchFilter = new SearchFileFilter(_query);
@@ -407,6 +418,56 @@ public class LibrarySearch extends JPanel {
             }
         }
 
+        /**
+         * Filters the files found by the library index like the disk walk does.
+         */
+        private void search(File haystackDir, List<File> indexed, Set<File> excludeFiles, Set<File> exludedSubFolders) {
+            final List<File> results = new ArrayList<File>();
+
+            for (File file : indexed) {
+                if (canceled) {
+                    return;
+                }
+
+                if (excludeFiles.contains(file) || isInExcludedFolder(haystackDir, file, exludedSubFolders)) {
+                    continue;
+                }
+
+                if (directoryHolder instanceof SavedFilesDirectoryHolder || directoryHolder.accept(file)) {
+                    results.add(file);
+                }
+            }
+
+            //Stop search if the user selected another item in the library tree
+            DirectoryHolder currentDirectoryHolder = LibraryMediator.instance().getLibraryExplorer().getSelectedDirectoryHolder();
+            if (!directoryHolder.equals(currentDirectoryHolder)) {
+                return;
+            }
+
+            Runnable r = new Runnable() {
+                public void run() {
+                    LibraryMediator.instance().addFilesToLibraryTable(results);
+
+                    if (directoryHolder instanceof SavedFilesDirectoryHolder) {
+                        LibraryFilesTableMediator.instance().resetAudioPlayerFileView();
+                    }
+                }
+            };
+            GUIMediator.safeInvokeLater(r);
+        }
+
+        private boolean isInExcludedFolder(File haystackDir, File file, Set<File> exludedSubFolders) {
+            if (exludedSubFolders.isEmpty()) {
+                return false;
+            }
+            for (File parent = file.getParentFile(); parent != null && !parent.equals(haystackDir); parent = parent.getParentFile()) {
+                if (exludedSubFolders.contains(parent)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
         private void search(List<File> cache) {
             if (canceled) {
                 return;
@@ -446,12 +507,18 @@ public class LibrarySearch extends JPanel {
         }
     }
 
-    private static final class SearchFileFilter implements FileFilter {
+    static final class SearchFileFilter implements FileFilter {
 
         private final String[] _tokens;
+        private final LibraryIndex index;
 
         public SearchFileFilter(String query) {
-            _tokens = StringUtils.removeDoubleSpaces(normalize(query)).split(" ");
+            this(query, LibraryIndex.instance());
+        }
+
+        SearchFileFilter(String query, LibraryIndex index) {
+            _tokens = StringUtils.removeDoubleSpaces(LibraryIndex.normalize(query)).split(" ");
+            this.index = index;
         }
 
         public boolean accept(File pathname) {
@@ -473,7 +540,10 @@ public class LibrarySearch extends JPanel {
                 return true;
             }
 
-            String name = normalize(pathname.getAbsolutePath());
+            String name = index.normalizedPath(pathname);
+            if (name == null) {
+                name = LibraryIndex.normalize(pathname.getAbsolutePath());
+            }
 
             for (String token : _tokens) {
                 if (!name.contains(token)) {
@@ -483,14 +553,6 @@ public class LibrarySearch extends JPanel {
 
             return true;
         }
-
-        private String normalize(String token) {
-            String norm = Normalizer.normalize(token, Normalizer.Form.NFKD);
-            norm = norm.replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
-            norm = norm.toLowerCase(Locale.US);
-
-            return norm;
-        }
     }
 
     private final class SearchPlaylistItemsRunnable extends SearchRunnable {
@@ -58,6 +58,8 @@ public class LibraryUtils {
 
     private static final ExecutorService executor;
 
+    private static final int IMPORT_BATCH_SIZE = 100;
+
     static {
         executor = ExecutorsHelper.newProcessingQueue("LibraryUtils-Executor");
     }
@@ -66,51 +68,65 @@ public class LibraryUtils {
         return executor;
     }
 
-    private static void addPlaylistItem(Playlist playlist, File file) {
-        addPlaylistItem(playlist, file, playlist.isStarred(), -1);
-    }
+    /**
+     * Adds the files to the playlist at index, or at the end if index is -1. The items
+     * are saved in batches of {@link #IMPORT_BATCH_SIZE}, each one in a single transaction.
+     */
+    private static void addPlaylistItems(Playlist playlist, List<File> files, boolean starred, int index) {
+        List<PlaylistItem> items = playlist.getItems();
+        boolean append = index == -1 || index >= items.size();
+        int position = append ? items.size() : index;
+
+        List<PlaylistItem> batch = new ArrayList<>(IMPORT_BATCH_SIZE);
+        for (int i = 0; i < files.size() && !playlist.isDeleted(); i++) {
+            File file = files.get(i);
+            try {
+                LibraryMediator.instance().getLibrarySearch().pushStatus(I18n.tr("Importing") + " " + file.getName());
+                TagsData mt = new TagsReader(file).parse();
+                PlaylistItem item = playlist.newItem(
+                        file.getAbsolutePath(),
+                        file.getName(),
+                        file.length(),
+                        FilenameUtils.getExtension(file.getName()),
+                        mt.getTitle(),
+                        mt.getDuration(),
+                        mt.getArtist(),
+                        mt.getAlbum(),
+                        "",// TODO: cover art path
+                        mt.getBitrate(),
+                        mt.getComment(),
+                        mt.getGenre(),
+                        mt.getTrack(),
+                        mt.getYear(),
+                        starred || playlist.isStarred());
+                items.add(position, item);
+                position++;
+                item.setSortIndexByTrackNumber(position); // 1-based
+                batch.add(item);
+            } finally {
+                LibraryMediator.instance().getLibrarySearch().revertStatus();
+            }
 
-    private static void addPlaylistItem(Playlist playlist, File file, boolean starred, int index) {
-        try {
-            LibraryMediator.instance().getLibrarySearch().pushStatus(I18n.tr("Importing") + " " + file.getName());
-            TagsData mt = new TagsReader(file).parse();
-            PlaylistItem item = playlist.newItem(
-                    file.getAbsolutePath(),
-                    file.getName(),
-                    file.length(),
-                    FilenameUtils.getExtension(file.getName()),
-                    mt.getTitle(),
-                    mt.getDuration(),
-                    mt.getArtist(),
-                    mt.getAlbum(),
-                    "",// TODO: cover art path
-                    mt.getBitrate(),
-                    mt.getComment(),
-                    mt.getGenre(),
-                    mt.getTrack(),
-                    mt.getYear(),
-                    starred || playlist.isStarred());
-            List<PlaylistItem> items = playlist.getItems();
-            if (index != -1 && index < items.size()) {
-                // insert item
-                items.add(index, item);
-                // update all sort indexes from insertion point onwards
-                for (int i = index; i < items.size(); i++) {
-                    PlaylistItem curItem = items.get(i);
-                    curItem.setSortIndexByTrackNumber(i+1);
-                    curItem.save();
+            if (batch.size() == IMPORT_BATCH_SIZE || i == files.size() - 1) {
+                playlist.saveItems(batch, true);
+                batch.clear();
+                if (isPlaylistSelected(playlist)) {
+                    // refresh UI
+                    LibraryMediator.instance().getLibraryPlaylists().refreshSelection();
                 }
-            } else {
-                items.add(item);
-                item.setSortIndexByTrackNumber(items.size()); // fall back index would be it being the last track.
-                item.save(item.isStarred());
             }
+        }
+
+        if (!append && !playlist.isDeleted()) {
+            // update the sort indexes of the items after the insertion point
+            List<PlaylistItem> moved = new ArrayList<>(items.subList(position, items.size()));
+            for (int i = 0; i < moved.size(); i++) {
+                moved.get(i).setSortIndexByTrackNumber(position + i + 1);
+            }
+            playlist.saveItems(moved, false);
             if (isPlaylistSelected(playlist)) {
-                // refresh UI
                 LibraryMediator.instance().getLibraryPlaylists().refreshSelection();
             }
-        } finally {
-            LibraryMediator.instance().getLibrarySearch().revertStatus();
         }
     }
 
@@ -458,29 +474,36 @@ public class LibraryUtils {
     }
 
     private static void addToPlaylist(Playlist playlist, List<? extends AbstractLibraryTableDataLine<?>> lines) {
-        for (int i = 0; i < lines.size() && !playlist.isDeleted(); i++) {
-            AbstractLibraryTableDataLine<?> line = lines.get(i);
+        List<File> files = new ArrayList<>(lines.size());
+        for (AbstractLibraryTableDataLine<?> line : lines) {
             if (MediaPlayer.isPlayableFile(line.getFile())) {
-                LibraryUtils.addPlaylistItem(playlist, line.getFile());
+                files.add(line.getFile());
             }
         }
+        addPlaylistItems(playlist, files, playlist.isStarred(), -1);
     }
 
     private static void addToPlaylist(Playlist playlist, File[] files, boolean starred, Set<File> ignore) {
         addToPlaylist(playlist, files, starred || playlist.isStarred(), -1, ignore);
     }
 
-    private static int addToPlaylist(Playlist playlist, File[] files, boolean starred, int index, Set<File> ignore) {
-        int count = 0;
-        for (int i = 0; i < files.length && !playlist.isDeleted(); i++) {
-            if (MediaPlayer.isPlayableFile(files[i]) && !ignore.contains(files[i])) {
-                LibraryUtils.addPlaylistItem(playlist, files[i], playlist.isStarred() || starred, index + count);
-                count++;
-            } else if (files[i].isDirectory()) {
-                count += addToPlaylist(playlist, files[i].listFiles(), playlist.isStarred() || starred, index + count, ignore);
+    private static void addToPlaylist(Playlist playlist, File[] files, boolean starred, int index, Set<File> ignore) {
+        List<File> playableFiles = new ArrayList<>();
+        collectPlayableFiles(files, ignore, playableFiles);
+        addPlaylistItems(playlist, playableFiles, playlist.isStarred() || starred, index);
+    }
+
+    private static void collectPlayableFiles(File[] files, Set<File> ignore, List<File> playableFiles) {
+        if (files == null) {
+            return;
+        }
+        for (File file : files) {
+            if (MediaPlayer.isPlayableFile(file) && !ignore.contains(file)) {
+                playableFiles.add(file);
+            } else if (file.isDirectory()) {
+                collectPlayableFiles(file.listFiles(), ignore, playableFiles);
             }
         }
-        return count;
     }
 
     private static void addToPlaylist(Playlist playlist, PlaylistItem[] playlistItems) {
@@ -491,14 +514,16 @@ public class LibraryUtils {
         List<PlaylistItem> items = playlist.getItems();
         if (index != -1 && index <= items.size()) {
             List<Integer> toRemove = new ArrayList<>(playlistItems.length);
+            List<PlaylistItem> added = new ArrayList<>(playlistItems.length);
             for (int i = 0; i < playlistItems.length && !playlist.isDeleted(); i++) {
                 toRemove.add(playlistItems[i].getId());
                 playlistItems[i].setId(LibraryDatabase.OBJECT_NOT_SAVED_ID);
                 playlistItems[i].setPlaylist(playlist);
                 items.add(index + i, playlistItems[i]);
                 playlistItems[i].setStarred(starred || playlist.isStarred());
-                playlistItems[i].save();
+                added.add(playlistItems[i]);
             }
+            playlist.saveItems(added, false);
             for (int i = 0; i < toRemove.size() && !playlist.isDeleted(); i++) {
                 int id = toRemove.get(i);
                 for (int j = 0; j < items.size() && !playlist.isDeleted(); j++) {
@@ -513,16 +538,18 @@ public class LibraryUtils {
             for (int i = 0; i < items.size(); i++) {
                 PlaylistItem item = items.get(i);
                 item.setSortIndexByTrackNumber(i + 1); // set index 1-based
-                item.save();
             }
+            playlist.saveItems(new ArrayList<>(items), false);
         } else {
+            List<PlaylistItem> added = new ArrayList<>(playlistItems.length);
             for (int i = 0; i < playlistItems.length && !playlist.isDeleted(); i++) {
                 items.add(playlistItems[i]);
                 playlistItems[i].setSortIndexByTrackNumber(items.size()); // set sort index to be at the end (1-based)
                 playlistItems[i].setStarred(playlistItems[i].isStarred() || starred || playlist.isStarred());
                 playlistItems[i].setPlaylist(playlist);
-                playlistItems[i].save();
+                added.add(playlistItems[i]);
             }
+            playlist.saveItems(added, false);
         }
     }
 
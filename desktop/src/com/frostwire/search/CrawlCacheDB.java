@@ -29,6 +29,7 @@ import com.limegroup.gnutella.settings.SearchSettings;
 import org.apache.commons.io.FileUtils;
 import org.apache.commons.lang3.StringUtils;
 
+import java.io.File;
 import java.io.IOException;
 
 /**
@@ -50,7 +51,7 @@ public final class CrawlCacheDB {
 
     private static final String DATABASE_NAME = "crawldb";
 
-    private static final int DATABASE_VERSION = 1;
+    private static final int DATABASE_VERSION = 2;
 
     private static final String TABLE_NAME = "CacheData";
 
@@ -108,6 +109,104 @@ public final class CrawlCacheDB {
         return db.insert(TABLE_NAME, "", values);
     }
 
+    /**
+     * Inserts or replaces the data for the given key, the key column is unique.
+     *
+     * @param key  the key
+     * @param data the data
+     */
+    void merge(String key, byte[] data) {
+        Long now = System.currentTimeMillis() / 1000;
+
+        SQLiteDatabase db = databaseHelper.getWritableDatabase();
+
+        db.execSQL("MERGE INTO " + TABLE_NAME + " (" + Columns.KEY + ", " + Columns.DATA + ", " + Columns.DATA_SIZE + ", " + Columns.DATE_ADDED + ") KEY (" + Columns.KEY + ") VALUES (?, ?, ?, ?)",
+                new Object[]{key, data, (long) data.length, now});
+    }
+
+    /**
+     * Returns the size of the data stored for the given key, or -1 if there is no such key.
+     */
+    long dataSize(String key) {
+        long size = -1;
+
+        Cursor c = null;
+
+        try {
+            c = query(new String[]{Columns.DATA_SIZE}, Columns.KEY + " = ?", new String[]{key}, null);
+
+            if (c != null && c.moveToNext()) {
+                size = c.getLong(c.getColumnIndex(Columns.DATA_SIZE));
+            }
+        } finally {
+            if (c != null) {
+                c.close();
+            }
+        }
+
+        return size;
+    }
+
+    /**
+     * Returns the number of entries and the total size of the data as
+     * a two elements array. This performs a full aggregate and it's only
+     * meant to initialize or recalibrate the cache counters.
+     */
+    long[] stats() {
+        long[] r = new long[]{0, 0};
+
+        Cursor c = null;
+
+        try {
+            SQLiteDatabase db = databaseHelper.getReadableDatabase();
+            c = db.rawQueryWithFactory(null, "SELECT COUNT(*), COALESCE(SUM(" + Columns.DATA_SIZE + "), 0) FROM " + TABLE_NAME, new String[]{}, TABLE_NAME);
+
+            if (c != null && c.moveToNext()) {
+                r[0] = c.getLong(1);
+                r[1] = c.getLong(2);
+            }
+        } finally {
+            if (c != null) {
+                c.close();
+            }
+        }
+
+        return r;
+    }
+
+    /**
+     * Finds the smallest dateAdded value such that removing every entry
+     * added at or before it frees at least the requested number of bytes.
+     *
+     * @param bytes the number of bytes to free
+     * @return the dateAdded cutoff, or -1 if the table is empty
+     */
+    long dateAddedCutoff(long bytes) {
+        long cutoff = -1;
+
+        Cursor c = null;
+
+        try {
+            c = query(new String[]{Columns.DATE_ADDED, Columns.DATA_SIZE}, "", new String[]{}, Columns.DATE_ADDED + " ASC");
+
+            long freed = 0;
+            while (c != null && freed < bytes && c.moveToNext()) {
+                cutoff = c.getLong(c.getColumnIndex(Columns.DATE_ADDED));
+                freed += c.getLong(c.getColumnIndex(Columns.DATA_SIZE));
+            }
+        } finally {
+            if (c != null) {
+                c.close();
+            }
+        }
+
+        return cutoff;
+    }
+
+    int deleteAddedUntil(long dateAdded) {
+        return delete(Columns.DATE_ADDED + " <= ?", new String[]{String.valueOf(dateAdded)});
+    }
+
     public int delete(String where, String[] whereArgs) {
         SQLiteDatabase db = databaseHelper.getWritableDatabase();
 
@@ -139,6 +238,7 @@ public final class CrawlCacheDB {
         public static final String ID = "id";
         static final String KEY = "key";
         public static final String DATA = "data";
+        static final String DATA_SIZE = "dataSize";
         static final String DATE_ADDED = "dateAdded";
     }
 
@@ -162,12 +262,26 @@ public final class CrawlCacheDB {
                 }
             }
 
+            // the database version is part of the folder name, previous
+            // versions are never upgraded, just removed
+            for (int v = 1; v < DATABASE_VERSION; v++) {
+                File oldFolder = new File(new Context().getDatabasePath(DATABASE_NAME).getAbsolutePath() + "." + v);
+                if (oldFolder.exists()) {
+                    try {
+                        FileUtils.deleteDirectory(oldFolder);
+                    } catch (IOException e) {
+                        LOG.warn("Unable to delete old crawl cache database version " + v);
+                    }
+                }
+            }
+
             db.execSQL("SET IGNORECASE TRUE");
 
-            db.execSQL("CREATE TABLE " + TABLE_NAME + " (" + Columns.ID + " INTEGER IDENTITY," + Columns.KEY + " VARCHAR," + Columns.DATA + " BINARY," + Columns.DATE_ADDED + " BIGINT" + ");");
+            db.execSQL("CREATE TABLE " + TABLE_NAME + " (" + Columns.ID + " INTEGER IDENTITY," + Columns.KEY + " VARCHAR NOT NULL," + Columns.DATA + " BINARY," + Columns.DATA_SIZE + " BIGINT," + Columns.DATE_ADDED + " BIGINT" + ");");
 
             db.execSQL("CREATE INDEX idx_" + TABLE_NAME + "_" + Columns.ID + " ON " + TABLE_NAME + " (" + Columns.ID + ")");
-            db.execSQL("CREATE INDEX idx_" + TABLE_NAME + "_" + Columns.KEY + " ON " + TABLE_NAME + " (" + Columns.KEY + ")");
+            db.execSQL("CREATE UNIQUE INDEX idx_" + TABLE_NAME + "_" + Columns.KEY + " ON " + TABLE_NAME + " (" + Columns.KEY + ")");
+            db.execSQL("CREATE INDEX idx_" + TABLE_NAME + "_" + Columns.DATE_ADDED + " ON " + TABLE_NAME + " (" + Columns.DATE_ADDED + ")");
         }
 
         @Override
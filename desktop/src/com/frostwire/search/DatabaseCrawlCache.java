@@ -17,30 +17,65 @@
 
 package com.frostwire.search;
 
-import com.frostwire.content.ContentValues;
 import com.frostwire.database.Cursor;
 import com.frostwire.search.CrawlCacheDB.Columns;
 import com.frostwire.util.Logger;
+import com.frostwire.util.ThreadPool;
 import com.limegroup.gnutella.settings.SearchSettings;
 
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
 /**
- * 
- * @author gubatron
- * @author aldenml
- *
+ * Crawl cache backed by the H2 crawl database.
+ * <p>
+ * Keys are unique (puts are upserts), and a background eviction pass
+ * removes the oldest entries when they exceed the max age or when
+ * the total data size goes over the max size budget.
  */
 public class DatabaseCrawlCache implements CrawlCache {
 
     private static final Logger LOG = Logger.getLogger(DatabaseCrawlCache.class);
 
-    private CrawlCacheDB db;
+    private static final long EVICTION_INTERVAL = 60 * 60 * 1000; // 1 hour
+
+    // evict down to this fraction of the max size, to avoid an eviction pass per put
+    private static final double EVICTION_LOW_WATERMARK = 0.9;
+
+    private final CrawlCacheDB db;
+
+    private final long maxSize;
+    private final long maxAge;
+
+    private final AtomicLong numEntries;
+    private final AtomicLong sizeInBytes;
+
+    private final ExecutorService evictor;
+    private final AtomicBoolean evicting;
+    private long lastEviction;
+
+    /**
+     * @param maxSize the budget in bytes for the total data size
+     * @param maxAge  the max age of an entry in seconds
+     */
+    public DatabaseCrawlCache(long maxSize, long maxAge) {
+        this.db = CrawlCacheDB.instance();
+        this.maxSize = maxSize;
+        this.maxAge = maxAge;
+
+        long[] stats = db.stats();
+        this.numEntries = new AtomicLong(stats[0]);
+        this.sizeInBytes = new AtomicLong(stats[1]);
 
-    public DatabaseCrawlCache() {
-        db = CrawlCacheDB.instance();
+        this.evictor = ThreadPool.newThreadPool("CrawlCache-evictor", 1, true);
+        this.evicting = new AtomicBoolean(false);
+
+        evictAsync();
     }
 
     @Override
-    public byte[] get(String key) {
+    public synchronized byte[] get(String key) {
         byte[] data = null;
 
         Cursor c = null;
@@ -68,28 +103,43 @@ public class DatabaseCrawlCache implements CrawlCache {
     }
 
     @Override
-    public void put(String key, byte[] data) {
+    public synchronized void put(String key, byte[] data) {
         if (SearchSettings.SMART_SEARCH_ENABLED.getValue()) {
             try {
-                ContentValues values = new ContentValues();
+                long oldSize = db.dataSize(key);
 
-                values.put(Columns.KEY, key);
-                values.put(Columns.DATA, data);
+                db.merge(key, data);
 
-                db.insert(values);
+                if (oldSize < 0) {
+                    numEntries.incrementAndGet();
+                    sizeInBytes.addAndGet(data.length);
+                } else {
+                    sizeInBytes.addAndGet(data.length - oldSize);
+                }
             } catch (Throwable e) {
                 LOG.warn("Error putting value to crawl cache: " + e.getMessage());
             }
+
+            if (sizeInBytes.get() > maxSize || System.currentTimeMillis() - lastEviction > EVICTION_INTERVAL) {
+                evictAsync();
+            }
         }
     }
 
     @Override
-    public void remove(String key) {
+    public synchronized void remove(String key) {
         try {
-            String where = Columns.KEY + " = ?";
-            String[] whereArgs = new String[] { key };
+            long oldSize = db.dataSize(key);
 
-            db.delete(where, whereArgs);
+            if (oldSize >= 0) {
+                String where = Columns.KEY + " = ?";
+                String[] whereArgs = new String[] { key };
+
+                if (db.delete(where, whereArgs) > 0) {
+                    numEntries.decrementAndGet();
+                    sizeInBytes.addAndGet(-oldSize);
+                }
+            }
         } catch (Throwable e) {
             LOG.warn("Error deleting value from crawl cache: " + e.getMessage());
         }
@@ -99,6 +149,8 @@ public class DatabaseCrawlCache implements CrawlCache {
     public synchronized void clear() {
         try {
             db.truncate();
+            numEntries.set(0);
+            sizeInBytes.set(0);
         } catch (Throwable e) {
             LOG.warn("Error deleting crawl cache: " + e.getMessage(), e);
         }
@@ -106,35 +158,48 @@ public class DatabaseCrawlCache implements CrawlCache {
 
     @Override
     public long numEntries() {
-        long size = 0;
-
-        Cursor c = null;
+        return numEntries.get();
+    }
 
-        try {
+    @Override
+    public long sizeInBytes() {
+        return sizeInBytes.get();
+    }
 
-            String[] columns = new String[] { Columns.ID };
-            String where = "";
-            String[] whereArgs = new String[] {};
+    private void evictAsync() {
+        if (evicting.compareAndSet(false, true)) {
+            evictor.execute(() -> {
+                try {
+                    evict();
+                } catch (Throwable e) {
+                    LOG.warn("Error evicting crawl cache entries", e);
+                } finally {
+                    evicting.set(false);
+                }
+            });
+        }
+    }
 
-            c = db.query(columns, where, whereArgs, null);
+    private synchronized void evict() {
+        lastEviction = System.currentTimeMillis();
 
-            if (c != null) {
-                size = c.getCount();
-            }
+        if (db.deleteAddedUntil(lastEviction / 1000 - maxAge) > 0) {
+            recalibrate();
+        }
 
-        } catch (Exception e) {
-            LOG.warn("Failed to get num of shared files", e);
-        } finally {
-            if (c != null) {
-                c.close();
+        if (sizeInBytes.get() > maxSize) {
+            long cutoff = db.dateAddedCutoff(sizeInBytes.get() - (long) (maxSize * EVICTION_LOW_WATERMARK));
+            if (cutoff >= 0) {
+                int n = db.deleteAddedUntil(cutoff);
+                LOG.info("Evicted " + n + " crawl cache entries to stay under " + maxSize + " bytes");
+                recalibrate();
             }
         }
-
-        return size;
     }
 
-    @Override
-    public long sizeInBytes() {
-        return db.sizeInBytes();
+    private void recalibrate() {
+        long[] stats = db.stats();
+        numEntries.set(stats[0]);
+        sizeInBytes.set(stats[1]);
     }
 }
@@ -1,5 +1,6 @@
 package com.limegroup.gnutella.gui;
 
+import com.frostwire.gui.library.LibraryIndex;
 import com.frostwire.gui.player.MediaPlayer;
 import com.frostwire.util.Logger;
 import com.frostwire.uxstats.UXStats;
@@ -55,6 +56,7 @@ final class Finalizer {
                     SearchMediator.instance().shutdown();
                     //LOG.info("MediaPlayer stopping...");
                     MediaPlayer.instance().stop();
+                    LibraryIndex.shutdown();
                     //LOG.info("BugManager stopping...");
                     BugManager.instance().shutdown();
                     sleep(3000);
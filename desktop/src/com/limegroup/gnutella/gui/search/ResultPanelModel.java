@@ -17,9 +17,13 @@ package com.limegroup.gnutella.gui.search;
 
 import com.limegroup.gnutella.gui.tables.AbstractTableMediator;
 import com.limegroup.gnutella.gui.tables.BasicDataLineModel;
+import com.limegroup.gnutella.gui.tables.IndexedList;
 import com.limegroup.gnutella.gui.tables.LimeTableColumn;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 
 /** 
@@ -42,9 +46,20 @@ class ResultPanelModel extends BasicDataLineModel<SearchResultDataLine, UISearch
     protected final SearchTableColumns COLUMNS = new SearchTableColumns();
 
     /**
-     * HashMap for quick access to indexes based on SHA1 info.
+     * HashMap for quick access to lines based on SHA1 info, the row of
+     * a line is found in log(n) time by the list.
      */
-    private final Map<String, Integer> _indexes = new HashMap<>();
+    private final Map<String, SearchResultDataLine> _indexes = new HashMap<>();
+
+    /**
+     * The same object as _list, with log(n) inserts and row lookups.
+     */
+    private final IndexedList<SearchResultDataLine> _rows = new IndexedList<>();
+
+    /**
+     * Lines added since beginBatch(), null if not in a batch.
+     */
+    private List<SearchResultDataLine> _batch;
 
     private int _numResults;
 
@@ -53,6 +68,7 @@ class ResultPanelModel extends BasicDataLineModel<SearchResultDataLine, UISearch
      */
     ResultPanelModel() {
         super(SearchResultDataLine.class);
+        _list = _rows;
     }
 
     /**
@@ -105,7 +121,6 @@ class ResultPanelModel extends BasicDataLineModel<SearchResultDataLine, UISearch
             _indexes.remove(sha1);
         super.remove(row);
         _numResults -= 1;
-        remapIndexes(row);
     }
 
     /**
@@ -137,10 +152,86 @@ class ResultPanelModel extends BasicDataLineModel<SearchResultDataLine, UISearch
         _numResults += 1;
         String sha1 = tl.getHash();
         if (sha1 != null)
-            _indexes.put(sha1, row);
-        int addedAt = super.add(tl, row);
-        remapIndexes(addedAt + 1);
-        return addedAt;
+            _indexes.put(sha1, tl);
+        if (_batch != null) {
+            _rows.add(row, tl);
+            _batch.add(tl);
+            return row;
+        }
+        return super.add(tl, row);
+    }
+
+    /**
+     * Finds the insert position walking down the tree instead of
+     * a binary search over the rows.
+     */
+    public int getSortedPosition(SearchResultDataLine dl) {
+        return _rows.insertionPoint(dl, this);
+    }
+
+    /**
+     * Starts adding a batch of lines, the insert events are held
+     * until {@link #endBatch()}.
+     */
+    void beginBatch() {
+        if (_batch == null) {
+            _batch = new ArrayList<>();
+        }
+    }
+
+    /**
+     * Fires the inserts of the lines added since {@link #beginBatch()},
+     * one event per run of consecutive rows. The events go in ascending
+     * order of row, so listeners see the same shifts as if every line
+     * had been inserted at its final position.
+     */
+    void endBatch() {
+        List<SearchResultDataLine> batch = _batch;
+        _batch = null;
+        if (batch == null || batch.isEmpty()) {
+            return;
+        }
+
+        int[] rows = new int[batch.size()];
+        int n = 0;
+        for (SearchResultDataLine line : batch) {
+            int row = _rows.indexOf(line);
+            if (row != -1) {
+                rows[n++] = row;
+            }
+        }
+        Arrays.sort(rows, 0, n);
+
+        int i = 0;
+        while (i < n) {
+            int j = i;
+            while (j + 1 < n && rows[j + 1] == rows[j] + 1) {
+                j++;
+            }
+            fireTableRowsInserted(rows[i], rows[j]);
+            i = j + 1;
+        }
+    }
+
+    /**
+     * Replaces all the lines with the given ones, sorting them if this model
+     * is sorted. No event is fired, the caller should fire a data change.
+     */
+    protected void setLines(List<SearchResultDataLine> lines) {
+        _indexes.clear();
+        _rows.clear();
+
+        _rows.addAll(lines);
+        if (isSorted()) {
+            _rows.sort(this);
+        }
+
+        _numResults = lines.size();
+        for (SearchResultDataLine tl : lines) {
+            String sha1 = tl.getHash();
+            if (sha1 != null)
+                _indexes.put(sha1, tl);
+        }
     }
 
     /**
@@ -154,16 +245,6 @@ class ResultPanelModel extends BasicDataLineModel<SearchResultDataLine, UISearch
             return super.getRow(tl);
     }
 
-    /** 
-     * Overrides the default sort to maintain the indexes HashMap,
-     * according to the current sort column and order.
-     */
-    protected void doResort() {
-        super.doResort();
-        _indexes.clear(); // it's easier & quicker to just clear & re-input
-        remapIndexes(0);
-    }
-
     /**
      * Does nothing -- lines need no cleanup.
      */
@@ -180,27 +261,6 @@ class ResultPanelModel extends BasicDataLineModel<SearchResultDataLine, UISearch
         super.clear();
     }
 
-    /**
-     * Remaps the indexes, starting at 'start' and going to the end of
-     * the list.  This is needed for when rows are added to the middle of
-     * the list to maintain the correct rows per objects.
-     */
-    private void remapIndexes(int start) {
-        remapIndexes(start, getRowCount());
-    }
-
-    /**
-     * Remaps the indexes, starting at 'start' and going to 'end'.
-     * This is useful for when we move a row from end to start or vice versa.
-     */
-    private void remapIndexes(int start, int end) {
-        for (int i = start; i < end; i++) {
-            String sha1 = getHash(i);
-            if (sha1 != null)
-                _indexes.put(sha1, i);
-        }
-    }
-
     /**
      * Gets the SHA1 URN for a row.
      */
@@ -223,11 +283,11 @@ class ResultPanelModel extends BasicDataLineModel<SearchResultDataLine, UISearch
      * Fast match -- lookup in the table.
      */
     private int fastMatch(String sha1) {
-        Integer idx = _indexes.get(sha1);
-        if (idx == null)
+        SearchResultDataLine line = _indexes.get(sha1);
+        if (line == null)
             return -1;
         else
-            return idx.intValue();
+            return _rows.indexOf(line);
     }
 
     public int getTotalResults() {
@@ -3,6 +3,7 @@ package com.limegroup.gnutella.gui.search;
 import com.frostwire.gui.filters.TableLineFilter;
 
 import javax.swing.*;
+import java.util.List;
 import java.util.Map;
 
 class SearchEngineFilter implements TableLineFilter<SearchResultDataLine> {
@@ -14,12 +15,19 @@ class SearchEngineFilter implements TableLineFilter<SearchResultDataLine> {
     }
 
     public boolean allow(SearchResultDataLine node) {
-        boolean result = false;
-        final SearchEngine searchEngine = node.getSearchEngine();
-        JCheckBox box = engineCheckboxes.get(searchEngine);
-        if (box != null) {
-            result = searchEngine.isEnabled() && box.isEnabled() && box.isSelected();
+        return allow(node.getSearchEngines());
+    }
+
+    /**
+     * A merged line is allowed if any of the engines that returned it is selected.
+     */
+    boolean allow(List<SearchEngine> searchEngines) {
+        for (SearchEngine searchEngine : searchEngines) {
+            JCheckBox box = engineCheckboxes.get(searchEngine);
+            if (box != null && searchEngine.isEnabled() && box.isEnabled() && box.isSelected()) {
+                return true;
+            }
         }
-        return result;
+        return false;
     }
 }
\ No newline at end of file
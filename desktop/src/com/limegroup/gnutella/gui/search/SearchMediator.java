@@ -36,7 +36,6 @@ import org.limewire.util.I18NConvert;
 import org.limewire.util.StringUtils;
 
 import javax.swing.*;
-import java.text.Normalizer;
 import java.util.*;
 
 /**
@@ -45,11 +44,9 @@ import java.util.*;
  * the various search packages and simplifies the responsibilities of the
  * underlying classes.
  */
-@SuppressWarnings("RegExpRedundantEscape")
 public final class SearchMediator {
 
     public static final Logger LOG = Logger.getLogger(SearchMediator.class);
-    private final long MAX_CRAWLCACHE_SIZE = 250*1000*1024;
 
     /**
      * Query text is valid.
@@ -132,13 +129,9 @@ public final class SearchMediator {
 
         new Thread(() -> {
             try {
-                DatabaseCrawlCache databaseCrawlCache = new DatabaseCrawlCache();
-                if (databaseCrawlCache.sizeInBytes() > MAX_CRAWLCACHE_SIZE) {
-                    LOG.info("SearchMediator() - reseting crawl cache, too big");
-                    databaseCrawlCache.clear();
-                    databaseCrawlCache = new DatabaseCrawlCache();
-                    LOG.info("SearchMediator() - crawl cache reset successful");
-                }
+                long maxSize = SearchSettings.CRAWL_CACHE_MAX_SIZE_MB.getValue() * 1024L * 1024L;
+                long maxAge = SearchSettings.CRAWL_CACHE_MAX_AGE_DAYS.getValue() * 24L * 60 * 60;
+                DatabaseCrawlCache databaseCrawlCache = new DatabaseCrawlCache(maxSize, maxAge);
                 CrawlPagedWebSearchPerformer.setCache(databaseCrawlCache);
             } catch (Throwable t) {
                 LOG.error("could not set database crawl cache", t);
@@ -270,107 +263,6 @@ public final class SearchMediator {
         }
     }
 
-    private List<SearchResult> filter(List<SearchResult> results, List<String> searchTokens) {
-        List<SearchResult> list;
-
-        if (searchTokens == null || searchTokens.isEmpty()) {
-            list = Collections.emptyList();
-        } else {
-            list = filter2(results, searchTokens);
-        }
-
-        return list;
-    }
-
-    private List<SearchResult> filter2(List<? extends SearchResult> results, List<String> searchTokens) {
-        List<SearchResult> list = new LinkedList<>();
-
-        try {
-            for (SearchResult sr : results) {
-                if (sr instanceof CrawledSearchResult) {
-                    // special case for youtube
-                    if (filter(new LinkedList<>(searchTokens), sr)) {
-                        list.add(sr);
-                    }
-                } else {
-                    list.add(sr);
-                }
-            }
-        } catch (Throwable e) {
-            // possible NPE due to cancel search or some inner error in search results, ignore it and cleanup list
-            list.clear();
-        }
-
-        return list;
-    }
-
-    private boolean filter(List<String> tokens, SearchResult sr) {
-        StringBuilder sb = new StringBuilder();
-
-        sb.append(sr.getDisplayName());
-        if (sr instanceof CrawledSearchResult) {
-            sb.append(((CrawledSearchResult) sr).getParent().getDisplayName());
-        }
-
-        if (sr instanceof FileSearchResult) {
-            sb.append(((FileSearchResult) sr).getFilename());
-        }
-
-        String str = sanitize(sb.toString());
-        str = normalize(str);
-
-        Iterator<String> it = tokens.iterator();
-        while (it.hasNext()) {
-            String token = it.next();
-            if (str.contains(token)) {
-                it.remove();
-            }
-        }
-
-        return tokens.isEmpty();
-    }
-
-    private static String stripHtml(String str) {
-        str = str.replaceAll("\\<.*?>", "");
-        str = str.replaceAll("\\&.*?\\;", "");
-        return str;
-    }
-
-    private String sanitize(String str) {
-        str = stripHtml(str);
-        str = str.replaceAll("\\.torrent|www\\.|\\.com|\\.net|[\\\\\\/%_;\\-\\.\\(\\)\\[\\]\\n\\rÐ&~{}\\*@\\^'=!,¡|#ÀÁ]", " ");
-        str = StringUtils.removeDoubleSpaces(str);
-
-        return str.trim();
-    }
-
-    private List<String> tokenize(String keywords) {
-        keywords = sanitize(keywords);
-
-        Set<String> tokens = new HashSet<>(Arrays.asList(keywords.toLowerCase(Locale.US).split(" ")));
-
-        return new ArrayList<>(normalizeTokens(tokens));
-    }
-
-    private Set<String> normalizeTokens(Set<String> tokens) {
-        Set<String> normalizedTokens = new HashSet<>();
-
-        for (String token : tokens) {
-            String norm = normalize(token);
-            normalizedTokens.add(norm);
-        }
-
-        return normalizedTokens;
-    }
-
-    private String normalize(String token) {
-        String norm = Normalizer.normalize(token, Normalizer.Form.NFKD);
-        norm = norm.replaceAll("\\p{InCombiningDiacriticalMarks}+", "");
-        norm = norm.toLowerCase(Locale.US);
-
-        return norm;
-    }
-
     private static void updateSearchIcon(final long token, final boolean active) {
         GUIMediator.safeInvokeAndWait(() -> {
             SearchResultMediator trp = getResultPanelForGUID(token);
@@ -411,7 +303,7 @@ public final class SearchMediator {
      * standard query string, and XML query string.
      */
     private static SearchResultMediator addResultTab(long token, SearchInformation info) {
-        List<String> searchTokens = instance().tokenize(info.getQuery());
+        List<String> searchTokens = SearchText.tokenize(info.getQuery());
         return getSearchResultDisplayer().addResultTab(token, searchTokens, info);
     }
 
@@ -547,8 +439,7 @@ public final class SearchMediator {
         final SearchResultMediator rp = getResultPanelForGUID(token);
 
         if (rp != null && !rp.isStopped()) {
-            @SuppressWarnings("unchecked")
-            List<SearchResult> filtered = filter((List<SearchResult>) results, rp.getSearchTokens());
+            List<SearchResult> filtered = SearchText.filter(results, rp.getSearchTokens());
 
             if (filtered != null && !filtered.isEmpty()) {
 
@@ -562,11 +453,13 @@ public final class SearchMediator {
                 GUIMediator.safeInvokeAndWait(() -> {
                     try {
                         SearchFilter filter = getSearchFilterFactory().createFilter();
+                        List<UISearchResult> allowed = new ArrayList<>(uiResults.size());
                         for (UISearchResult sr : uiResults) {
                             if (filter.allow(sr)) {
-                                getSearchResultDisplayer().addQueryResult(token, sr, rp);
+                                allowed.add(sr);
                             }
                         }
+                        getSearchResultDisplayer().addQueryResults(token, allowed, rp);
                     } catch (Exception e) {
                         LOG.error("Error adding search result to UI", e);
                     }
@@ -579,6 +472,8 @@ public final class SearchMediator {
         SearchResultMediator rp = getResultPanelForGUID(token);
         if (rp != null) {
             updateSearchIcon(token, false);
+            // the copies merged after the last refresh
+            GUIMediator.safeInvokeLater(() -> rp.updateMerges(token));
             rp.setToken(0); // to identify that the search is stopped (needs refactor)
         }
     }
@@ -16,6 +16,7 @@
 package com.limegroup.gnutella.gui.search;
 
 import com.frostwire.gui.bittorrent.BTDownloadMediator;
+import com.frostwire.search.ResultMerger;
 import com.limegroup.gnutella.gui.GUIMediator;
 import com.limegroup.gnutella.gui.IconManager;
 import com.limegroup.gnutella.gui.tables.AbstractDataLine;
@@ -24,6 +25,7 @@ import com.limegroup.gnutella.gui.tables.SizeHolder;
 import org.apache.commons.io.FilenameUtils;
 
 import javax.swing.*;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Date;
 import java.util.List;
@@ -59,6 +61,9 @@ public final class SearchResultDataLine extends AbstractDataLine<UISearchResult>
     private SearchResultActionsHolder actionsHolder;
     private SearchResultNameHolder name;
     private String seeds;
+    private int seedsCount;
+    private int mergeCount;
+    private List<SearchEngine> searchEngines;
     private Icon icon;
     private SizeHolder size;
     private SourceHolder source;
@@ -78,10 +83,48 @@ public final class SearchResultDataLine extends AbstractDataLine<UISearchResult>
         addedOn = sr.getCreationTime() > 0 ? new Date(sr.getCreationTime()) : null;
         actionsHolder = new SearchResultActionsHolder(sr);
         name = new SearchResultNameHolder(sr);
-        seeds = RESULT.getSeeds() <= 0 || !(RESULT instanceof TorrentUISearchResult) ? "" : String.valueOf(RESULT.getSeeds());
+        setSeeds(RESULT.getSeeds());
         icon = getIcon();
         size = new SizeHolder(getSize());
         source = new SourceHolder(RESULT);
+        mergeCount = 1;
+        searchEngines = Collections.singletonList(sr.getSearchEngine());
+    }
+
+    /**
+     * Shows the sources and the seeds of the copies of this result merged
+     * by the search, returns true if the line changed.
+     */
+    boolean merge(ResultMerger.Merge merge) {
+        if (merge == null || merge.getCount() == mergeCount) {
+            return false;
+        }
+        mergeCount = merge.getCount();
+        setSeeds(merge.getSeeds());
+        source = new SourceHolder(RESULT, merge.getSources());
+        searchEngines = engines(RESULT.getSearchEngine(), merge.getSources());
+        return true;
+    }
+
+    /**
+     * The engine of the result followed by the other engines found in the
+     * merged sources.
+     */
+    static List<SearchEngine> engines(SearchEngine first, List<String> sources) {
+        List<SearchEngine> list = new ArrayList<>(sources.size() + 1);
+        list.add(first);
+        for (String source : sources) {
+            SearchEngine se = source != null ? SearchEngine.getSearchEngineByName(source) : null;
+            if (se != null && !list.contains(se)) {
+                list.add(se);
+            }
+        }
+        return list;
+    }
+
+    private void setSeeds(int n) {
+        seedsCount = n;
+        seeds = n <= 0 || !(RESULT instanceof TorrentUISearchResult) ? "" : String.valueOf(n);
     }
 
     /**
@@ -265,7 +308,7 @@ public final class SearchResultDataLine extends AbstractDataLine<UISearchResult>
     }
 
     public int getSeeds() {
-        return RESULT.getSeeds();
+        return seedsCount;
     }
 
     public String getHash() {
@@ -275,4 +318,11 @@ public final class SearchResultDataLine extends AbstractDataLine<UISearchResult>
     public SearchEngine getSearchEngine() {
         return RESULT.getSearchEngine();
     }
+
+    /**
+     * The engines that returned this result or one of its merged copies.
+     */
+    public List<SearchEngine> getSearchEngines() {
+        return searchEngines;
+    }
 }
\ No newline at end of file
@@ -295,32 +295,24 @@ public final class SearchResultDisplayer implements RefreshListener {
     }
 
     /**
-     * If i rp is no longer the i'th panel of this, returns silently. Otherwise
-     * adds line to rp under the given group. Updates the count on the tab in
-     * this and restarts the spinning lime.
+     * If rp is no longer a panel of this, returns silently. Otherwise
+     * adds the lines to rp at once. Updates the count on the tab in this.
      */
-    void addQueryResult(long token, UISearchResult line, SearchResultMediator rp) {
-        if (rp.isStopped()) {
+    void addQueryResults(long token, List<UISearchResult> lines, SearchResultMediator rp) {
+        if (rp.isStopped() || lines.isEmpty()) {
             return;
         }
 
-        //Actually add the line.   Must obtain rp's monitor first.
-        if (!rp.matches(token))//GUID of rp!=replyGuid
+        if (!rp.matches(token))
             throw new IllegalArgumentException("guids don't match");
 
-        rp.add(line);
+        rp.add(lines);
 
-        int resultPanelIndex;
-        // Search for the ResultPanel to verify it exists.
-        resultPanelIndex = entries.indexOf(rp);
-
-        // If we couldn't find it, silently exit.
+        int resultPanelIndex = entries.indexOf(rp);
         if (resultPanelIndex == -1) {
             return;
         }
 
-        //Update index on tab.  Don't forget to add 1 since line hasn't
-        //actually been added!
         tabbedPane.setTitleAt(resultPanelIndex, titleOf(rp));
     }
 
@@ -518,7 +510,8 @@ public final class SearchResultDisplayer implements RefreshListener {
 
     /**
      * Every second, redraw only the tab portion of the TabbedPane
-     * and determine if we should stop the lime spinning.
+     * and determine if we should stop the lime spinning. The shown
+     * results are updated with the copies merged by their search.
      */
     public void refresh() {
         if (tabbedPane.isVisible() && tabbedPane.isShowing()) {
@@ -539,6 +532,11 @@ public final class SearchResultDisplayer implements RefreshListener {
                 Rectangle allTabs = new Rectangle(allBounds.x, allBounds.y, allBounds.width, compBounds.y - 1);
                 tabbedPane.repaint(allTabs);
             }
+
+            SearchResultMediator rp = getSelectedResultPanel();
+            if (rp != null) {
+                rp.updateMerges(rp.getToken());
+            }
         }
     }
 
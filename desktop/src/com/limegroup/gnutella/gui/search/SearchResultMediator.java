@@ -534,6 +534,16 @@ public final class SearchResultMediator extends AbstractTableMediator<TableRowFi
         return token;
     }
 
+    /**
+     * Shows the sources and seeds of the copies of the results merged by
+     * the search with the given token.
+     */
+    void updateMerges(long token) {
+        if (token != 0 && DATA_MODEL.merge(token)) {
+            refresh();
+        }
+    }
+
     /**
      * Gets all currently selected TableLines.
      *
@@ -861,4 +871,55 @@ public final class SearchResultMediator extends AbstractTableMediator<TableRowFi
 
         schemaBox.updateCounters(o);
     }
+
+    /**
+     * Adds a batch of results with a single round of table events,
+     * keeping the selected lines selected.
+     */
+    void add(List<UISearchResult> results) {
+        if (TABLE.isEditing()) {
+            TABLE.getCellEditor().cancelCellEditing();
+        }
+
+        int[] rows = TABLE.getSelectedRows();
+        SearchResultDataLine[] selected = new SearchResultDataLine[rows.length];
+        boolean inView = false;
+        for (int i = 0; i < rows.length; i++) {
+            selected[i] = DATA_MODEL.get(rows[i]);
+            inView |= TABLE.isRowVisible(rows[i]);
+        }
+
+        boolean sorted = SETTINGS.REAL_TIME_SORT.getValue() && DATA_MODEL.isSorted();
+        DATA_MODEL.beginBatch();
+        try {
+            for (UISearchResult o : results) {
+                if (sorted) {
+                    DATA_MODEL.addSorted(o);
+                } else {
+                    DATA_MODEL.add(o);
+                }
+                schemaBox.updateCounters(o);
+            }
+        } finally {
+            DATA_MODEL.endBatch();
+        }
+
+        // inserting next to a selected row extends the selection, restore it
+        if (selected.length > 0) {
+            TABLE.clearSelection();
+            int first = -1;
+            for (SearchResultDataLine line : selected) {
+                int row = DATA_MODEL.getRow(line);
+                if (row != -1) {
+                    TABLE.addRowSelectionInterval(row, row);
+                    if (first == -1) {
+                        first = row;
+                    }
+                }
+            }
+            if (inView && first != -1) {
+                TABLE.ensureRowVisible(first);
+            }
+        }
+    }
 }
@@ -2,6 +2,8 @@ package com.limegroup.gnutella.gui.search;
 
 import com.limegroup.gnutella.gui.tables.AbstractTableMediator;
 
+import java.util.List;
+
 /**
  * Holds the data for a search result's Source.
  * @author gubatron
@@ -15,9 +17,18 @@ public class SourceHolder implements Comparable<SourceHolder> {
     private final String sourceURL;
     
     public SourceHolder(UISearchResult uiSearchResult) {
+        this(uiSearchResult, null);
+    }
+
+    /**
+     * @param sources the sources of the copies merged into this result, the
+     *                ones other than the result's own are shown as a count
+     */
+    public SourceHolder(UISearchResult uiSearchResult, List<String> sources) {
         this.uiSearchResult = uiSearchResult;
         this.sourceName = uiSearchResult.getSource();
-        this.sourceNameHTML = "<html><div width=\"1000000px\"><nobr><a href=\"#\">" + sourceName + "</a></nobr></div></html>";
+        int others = sources != null ? sources.size() - (sources.contains(sourceName) ? 1 : 0) : 0;
+        this.sourceNameHTML = "<html><div width=\"1000000px\"><nobr><a href=\"#\">" + sourceName + "</a>" + (others > 0 ? " +" + others : "") + "</nobr></div></html>";
         this.sourceURL  = uiSearchResult.getSearchResult().getDetailsUrl();
     }
 
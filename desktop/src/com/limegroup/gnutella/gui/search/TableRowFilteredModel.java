@@ -16,10 +16,13 @@
 package com.limegroup.gnutella.gui.search;
 
 import com.frostwire.gui.filters.TableLineFilter;
+import com.frostwire.search.ResultMerger;
+import com.frostwire.search.SearchManager;
+import com.frostwire.search.SearchResult;
 import com.limegroup.gnutella.settings.SearchSettings;
 
 import java.util.ArrayList;
-import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -50,6 +53,13 @@ public class TableRowFilteredModel extends ResultPanelModel {
      */
     protected final List<SearchResultDataLine> HIDDEN;
 
+    /**
+     * The shown and filtered out lines by their search result, the merges
+     * polled before their line was added wait in UNMATCHED.
+     */
+    private final Map<SearchResult, SearchResultDataLine> LINES;
+    private final Map<SearchResult, ResultMerger.Merge> UNMATCHED;
+
     private int _numResults;
 
     /**
@@ -64,6 +74,8 @@ public class TableRowFilteredModel extends ResultPanelModel {
 
         FILTER = f;
         HIDDEN = new ArrayList<>();
+        LINES = new IdentityHashMap<>();
+        UNMATCHED = new IdentityHashMap<>();
         _numResults = 0;
     }
 
@@ -80,10 +92,14 @@ public class TableRowFilteredModel extends ResultPanelModel {
      * Determines whether or not this line should be added.
      */
     public int add(SearchResultDataLine tl, int row) {
+        SearchResult sr = tl.getSearchResult().getSearchResult();
+        tl.merge(UNMATCHED.remove(sr));
+
         boolean isNotJunk = junkFilter.allow(tl);
         boolean allow = allow(tl);
 
         if (isNotJunk || !SearchSettings.hideJunk()) {
+            LINES.put(sr, tl);
             if (allow) {
                 return super.add(tl, row);
             } else {
@@ -102,6 +118,8 @@ public class TableRowFilteredModel extends ResultPanelModel {
     protected void simpleClear() {
         _numResults = 0;
         HIDDEN.clear();
+        LINES.clear();
+        UNMATCHED.clear();
         super.simpleClear();
     }
     
@@ -109,9 +127,17 @@ public class TableRowFilteredModel extends ResultPanelModel {
     public void clear() {
         _numResults = 0;
         HIDDEN.clear();
+        LINES.clear();
+        UNMATCHED.clear();
         super.clear();
     }
 
+    @Override
+    public void remove(int row) {
+        LINES.remove(get(row).getSearchResult().getSearchResult());
+        super.remove(row);
+    }
+
     /**
      * Notification that the filters have changed.
      */
@@ -140,52 +166,62 @@ public class TableRowFilteredModel extends ResultPanelModel {
 
     /**
      * Rebuilds the internal map to denote a new filter.
+     * <p>
+     * The lines are filtered in one pass and the visible ones are set
+     * sorted in a single step, instead of being added one at a time.
      */
     private void rebuild() {
-        List<SearchResultDataLine> existing = new ArrayList<>(_list);
-        List<SearchResultDataLine> hidden = new ArrayList<>(HIDDEN);
-        simpleClear();
-
-        // For stuff in _list, we can just re-add the DataLines as-is.
-        if (isSorted()) {
-            for (int i = 0; i < existing.size(); i++) {
-                addSorted(existing.get(i));
-            }
-        } else {
-            for (int i = 0; i < existing.size(); i++) {
-                add(existing.get(i));
-            }
-        }
+        List<SearchResultDataLine> lines = new ArrayList<>(_list.size() + HIDDEN.size());
+        lines.addAll(_list);
+        lines.addAll(HIDDEN);
 
-        // Merge the hidden TableLines
-        Map<String, SearchResultDataLine> mergeMap = new HashMap<>();
-        for (int i = 0; i < hidden.size(); i++) {
-            SearchResultDataLine tl = hidden.get(i);
-            //SearchResult sr = tl.getInitializeObject();
-            //String urn = sr.getHash();
+        _numResults = 0;
+        HIDDEN.clear();
 
-            if (isSorted()) {
-                addSorted(tl);
+        List<SearchResultDataLine> visible = new ArrayList<>(lines.size());
+        boolean hideJunk = SearchSettings.hideJunk();
+        for (SearchResultDataLine tl : lines) {
+            if (junkFilter.allow(tl) || !hideJunk) {
+                if (allow(tl)) {
+                    visible.add(tl);
+                } else {
+                    HIDDEN.add(tl);
+                    _numResults += 1;
+                }
             } else {
-                add(tl);
+                LINES.remove(tl.getSearchResult().getSearchResult());
+                _numResults += 1;
             }
-
-            //            TableLine tableLine = mergeMap.get(urn);
-            //            if (tableLine == null) {
-            //                mergeMap.put(urn, tl); // re-use TableLines
-            //            } else {
-            //                tableLine.addNewResult(sr, METADATA);
-            //            }
         }
 
-        // And add them
-        if (isSorted()) {
-            for (SearchResultDataLine line : mergeMap.values())
-                addSorted(line);
-        } else {
-            for (SearchResultDataLine line : mergeMap.values())
-                add(line);
+        setLines(visible);
+    }
+
+    /**
+     * Updates the lines, shown or filtered out, whose results got other
+     * copies merged since the last call, showing the ones the filter now
+     * allows. Returns true if any changed.
+     */
+    boolean merge(long token) {
+        boolean changed = false;
+        for (ResultMerger.Merge m : SearchManager.getInstance().pollMerges(token)) {
+            SearchResultDataLine line = LINES.get(m.getFirst());
+            if (line != null) {
+                boolean allowed = allow(line);
+                if (line.merge(m)) {
+                    changed = true;
+                    // another engine or more seeds can only let a hidden line in
+                    if (!allowed && allow(line) && HIDDEN.remove(line)) {
+                        _numResults -= 1;
+                        super.add(line, isSorted() ? getSortedPosition(line) : getRowCount());
+                    }
+                }
+            } else {
+                // the line could be on its way to the table
+                UNMATCHED.put(m.getFirst(), m);
+            }
         }
+        return changed;
     }
 
     public int getFilteredResults() {
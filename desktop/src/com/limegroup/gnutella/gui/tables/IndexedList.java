@@ -0,0 +1,340 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ *
+ * You should have received a copy of the GNU General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package com.limegroup.gnutella.gui.tables;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.Map;
+import java.util.Random;
+import java.util.RandomAccess;
+
+/**
+ * A list backed by a balanced tree (an implicit treap) where every node knows
+ * the size of its subtree. Inserting, removing and getting at any index take
+ * O(log n), and so does {@link #indexOf(Object)}, since every element is mapped
+ * to its node and the index is counted walking up to the root.
+ * <p>
+ * Elements are looked up by identity, the same instance can't be in the list
+ * more than once. Not thread safe, like the rest of the table models.
+ *
+ * @author gubatron
+ * @author aldenml
+ */
+public final class IndexedList<E> extends AbstractList<E> implements RandomAccess {
+
+    private final Map<Object, Node<E>> nodes;
+    private final Random random;
+
+    private Node<E> root;
+
+    public IndexedList() {
+        this.nodes = new IdentityHashMap<>();
+        this.random = new Random();
+    }
+
+    @Override
+    public E get(int index) {
+        return node(index).value;
+    }
+
+    @Override
+    public E set(int index, E element) {
+        Node<E> n = node(index);
+        E old = n.value;
+        if (old == element) {
+            return old;
+        }
+        checkNew(element);
+        nodes.remove(old);
+        n.value = element;
+        nodes.put(element, n);
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size(root);
+    }
+
+    @Override
+    public void add(int index, E element) {
+        if (index < 0 || index > size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+        checkNew(element);
+
+        Node<E> n = new Node<>(element, random.nextInt());
+        nodes.put(element, n);
+
+        Node<E>[] lr = split(root, index);
+        root = merge(merge(lr[0], n), lr[1]);
+        root.parent = null;
+        modCount++;
+    }
+
+    @Override
+    public E remove(int index) {
+        Node<E> n = node(index);
+
+        Node<E>[] lr = split(root, index);
+        Node<E>[] mr = split(lr[1], 1);
+        root = merge(lr[0], mr[1]);
+        if (root != null) {
+            root.parent = null;
+        }
+
+        nodes.remove(n.value);
+        modCount++;
+        return n.value;
+    }
+
+    @Override
+    public void clear() {
+        root = null;
+        nodes.clear();
+        modCount++;
+    }
+
+    @Override
+    public boolean contains(Object o) {
+        return nodes.containsKey(o);
+    }
+
+    /**
+     * Returns the index of the element, looked up by identity.
+     */
+    @Override
+    public int indexOf(Object o) {
+        Node<E> n = nodes.get(o);
+        if (n == null) {
+            return -1;
+        }
+
+        int index = size(n.left);
+        while (n.parent != null) {
+            if (n == n.parent.right) {
+                index += size(n.parent.left) + 1;
+            }
+            n = n.parent;
+        }
+        return index;
+    }
+
+    @Override
+    public int lastIndexOf(Object o) {
+        return indexOf(o);
+    }
+
+    @Override
+    public boolean addAll(Collection<? extends E> c) {
+        if (c.isEmpty()) {
+            return false;
+        }
+        if (root != null) {
+            return super.addAll(c);
+        }
+        @SuppressWarnings("unchecked")
+        E[] arr = (E[]) c.toArray();
+        build(arr);
+        return true;
+    }
+
+    @Override
+    public Object[] toArray() {
+        Object[] arr = new Object[size()];
+        fill(root, arr, 0);
+        return arr;
+    }
+
+    /**
+     * Sorts the list and rebuilds the tree from the sorted elements, O(n log n).
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public void sort(Comparator<? super E> c) {
+        E[] arr = (E[]) toArray();
+        Arrays.sort(arr, c);
+        build(arr);
+    }
+
+    /**
+     * Returns the index where the key should be inserted to keep the list
+     * sorted, after any element equal to it.
+     */
+    public int insertionPoint(E key, Comparator<? super E> c) {
+        int index = 0;
+        Node<E> n = root;
+        while (n != null) {
+            if (c.compare(key, n.value) < 0) {
+                n = n.left;
+            } else {
+                index += size(n.left) + 1;
+                n = n.right;
+            }
+        }
+        return index;
+    }
+
+    private void build(E[] arr) {
+        nodes.clear();
+
+        // heap ordered priorities, parents are built before their children
+        int[] priorities = new int[arr.length];
+        for (int i = 0; i < priorities.length; i++) {
+            priorities[i] = random.nextInt();
+        }
+        Arrays.sort(priorities);
+
+        int[] next = {priorities.length - 1};
+        root = build(arr, 0, arr.length, priorities, next);
+        if (root != null) {
+            root.parent = null;
+        }
+        modCount++;
+    }
+
+    private Node<E> build(E[] arr, int from, int to, int[] priorities, int[] next) {
+        if (from >= to) {
+            return null;
+        }
+        int mid = (from + to) >>> 1;
+        E element = arr[mid];
+        checkNew(element);
+        Node<E> n = new Node<>(element, priorities[next[0]--]);
+        nodes.put(element, n);
+
+        n.left = build(arr, from, mid, priorities, next);
+        n.right = build(arr, mid + 1, to, priorities, next);
+        update(n);
+        return n;
+    }
+
+    private void checkNew(E element) {
+        if (nodes.containsKey(element)) {
+            throw new IllegalArgumentException("Element already in the list: " + element);
+        }
+    }
+
+    private Node<E> node(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("index: " + index + ", size: " + size());
+        }
+        Node<E> n = root;
+        while (true) {
+            int left = size(n.left);
+            if (index < left) {
+                n = n.left;
+            } else if (index == left) {
+                return n;
+            } else {
+                index -= left + 1;
+                n = n.right;
+            }
+        }
+    }
+
+    // splits in [0, index) and [index, size)
+    @SuppressWarnings("unchecked")
+    private static <E> Node<E>[] split(Node<E> n, int index) {
+        if (n == null) {
+            return new Node[]{null, null};
+        }
+        int left = size(n.left);
+        if (index <= left) {
+            Node<E>[] lr = split(n.left, index);
+            n.left = lr[1];
+            update(n);
+            lr[1] = n;
+            if (lr[0] != null) {
+                lr[0].parent = null;
+            }
+            return lr;
+        } else {
+            Node<E>[] lr = split(n.right, index - left - 1);
+            n.right = lr[0];
+            update(n);
+            lr[0] = n;
+            if (lr[1] != null) {
+                lr[1].parent = null;
+            }
+            return lr;
+        }
+    }
+
+    private static <E> Node<E> merge(Node<E> a, Node<E> b) {
+        if (a == null) {
+            return b;
+        }
+        if (b == null) {
+            return a;
+        }
+        if (a.priority > b.priority) {
+            a.right = merge(a.right, b);
+            update(a);
+            return a;
+        } else {
+            b.left = merge(a, b.left);
+            update(b);
+            return b;
+        }
+    }
+
+    private static <E> void update(Node<E> n) {
+        n.size = 1 + size(n.left) + size(n.right);
+        if (n.left != null) {
+            n.left.parent = n;
+        }
+        if (n.right != null) {
+            n.right.parent = n;
+        }
+    }
+
+    private static int size(Node<?> n) {
+        return n != null ? n.size : 0;
+    }
+
+    private static int fill(Node<?> n, Object[] arr, int i) {
+        while (n != null) {
+            i = fill(n.left, arr, i);
+            arr[i++] = n.value;
+            n = n.right;
+        }
+        return i;
+    }
+
+    private static final class Node<E> {
+
+        E value;
+        final int priority;
+
+        Node<E> left;
+        Node<E> right;
+        Node<E> parent;
+        int size;
+
+        Node(E value, int priority) {
+            this.value = value;
+            this.priority = priority;
+            this.size = 1;
+        }
+    }
+}
@@ -308,5 +308,15 @@ public final class SearchSettings extends LimeProps {
 	
 	public static final BooleanSetting SMART_SEARCH_ENABLED = FACTORY.createBooleanSetting("SMART_SEARCH_ENABLED", true);
 	
+	/**
+	 * The max size in megabytes of the crawl cache data, oldest entries are evicted first.
+	 */
+	public static final IntSetting CRAWL_CACHE_MAX_SIZE_MB = FACTORY.createIntSetting("CRAWL_CACHE_MAX_SIZE_MB", 250);
+	
+	/**
+	 * The max age in days of a crawl cache entry.
+	 */
+	public static final IntSetting CRAWL_CACHE_MAX_AGE_DAYS = FACTORY.createIntSetting("CRAWL_CACHE_MAX_AGE_DAYS", 30);
+	
     public static final BooleanSetting SHOW_DETAIL_PAGE_AFTER_DOWNLOAD_START = FACTORY.createBooleanSetting("SHOW_DETAIL_PAGE_AFTER_DOWNLOAD_START", false);
 }
@@ -0,0 +1,245 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.gui.library;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Builds a {@link LibraryIndex} over a temporary directory and checks its
+ * answers against the disk, and its searches against the
+ * {@link LibrarySearch.SearchFileFilter} used when walking the disk.
+ */
+public final class LibraryIndexTest {
+
+    private static final String[] QUERIES = {
+            "", "beatles", "beat", "eat", "be", "come tog", "abbey mp3", "cancion", "CANCI\u00d3N",
+            "2018", "report-2018", "pdf", "zzz", "mp3 zzz", "q"
+    };
+
+    public static void main(String[] args) throws Exception {
+        testBuildAndSearch();
+        testWatchEvents();
+        testReconcile();
+        testSaveAndLoad();
+        System.out.println("-done-");
+    }
+
+    private static void testBuildAndSearch() throws Exception {
+        Path root = createLibrary();
+        LibraryIndex index = new LibraryIndex(new File(root.toFile(), ".library.index"));
+        try {
+            File dir = root.toFile();
+            check(index.files(dir) == null, "files before the scan");
+            waitFor(() -> index.files(dir) != null, "scan of " + dir);
+
+            checkFiles(index, root);
+            checkSearches(index, root);
+
+            File sub = new File(dir, "Music");
+            check(files(root.resolve("Music")).equals(new HashSet<>(index.files(sub))), "files of a subdirectory");
+            check(index.normalizedPath(new File(dir, "docs/report-2018.pdf")) != null, "normalized path");
+            check(index.normalizedPath(new File(dir, ".hidden/x.mp3")) == null, "hidden file indexed");
+        } finally {
+            index.stop();
+            delete(root);
+        }
+    }
+
+    private static void testWatchEvents() throws Exception {
+        Path root = createLibrary();
+        LibraryIndex index = new LibraryIndex(new File(root.toFile(), ".library.index"));
+        try {
+            File dir = root.toFile();
+            waitFor(() -> index.files(dir) != null, "scan of " + dir);
+
+            Path file = createFile(root.resolve("Music/New Song.mp3"));
+            waitFor(() -> index.search(dir, "new song").size() == 1, "created file");
+
+            Files.delete(file);
+            waitFor(() -> index.search(dir, "new song").isEmpty(), "deleted file");
+
+            createFile(root.resolve("Moved In/Album/Track One.mp3"));
+            waitFor(() -> index.search(dir, "track one").size() == 1, "created directory");
+
+            delete(root.resolve("Moved In"));
+            waitFor(() -> index.search(dir, "track one").isEmpty(), "deleted directory");
+
+            checkFiles(index, root);
+            checkSearches(index, root);
+        } finally {
+            index.stop();
+            delete(root);
+        }
+    }
+
+    private static void testReconcile() throws Exception {
+        Path root = createLibrary();
+        // nothing is watched, the changes are only seen by the scans
+        LibraryIndex index = new LibraryIndex(new File(root.toFile(), ".library.index"), 0);
+        try {
+            File dir = root.toFile();
+            waitFor(() -> index.files(dir) != null, "scan of " + dir);
+
+            createFile(root.resolve("Music/Late Addition.mp3"));
+            Files.delete(root.resolve("docs/report-2018.pdf"));
+            delete(root.resolve("M\u00fasica"));
+            index.reconcile();
+
+            check(index.search(dir, "late addition").size() == 1, "added file after reconcile");
+            check(index.search(dir, "report").isEmpty(), "removed file after reconcile");
+            check(index.search(dir, "cancion").isEmpty(), "removed directory after reconcile");
+            checkFiles(index, root);
+            checkSearches(index, root);
+        } finally {
+            index.stop();
+            delete(root);
+        }
+    }
+
+    private static void testSaveAndLoad() throws Exception {
+        Path root = createLibrary();
+        File indexFile = new File(root.toFile(), ".library.index");
+        File dir = root.toFile();
+
+        LibraryIndex index = new LibraryIndex(indexFile);
+        try {
+            waitFor(() -> index.files(dir) != null, "scan of " + dir);
+            createFile(root.resolve("docs/notes.txt"));
+            waitFor(() -> index.search(dir, "notes").size() == 1, "created file");
+        } finally {
+            index.stop();
+        }
+        check(indexFile.isFile(), "index file not saved");
+
+        // changes made while not running
+        Files.delete(root.resolve("docs/notes.txt"));
+        createFile(root.resolve("docs/offline.txt"));
+
+        LibraryIndex loaded = new LibraryIndex(indexFile);
+        try {
+            // normalizedPath doesn't schedule a scan, only the load can add them
+            File report = new File(dir, "docs/report-2018.pdf");
+            waitFor(() -> loaded.normalizedPath(report) != null, "load of " + indexFile);
+            waitFor(() -> loaded.normalizedPath(new File(dir, "docs/offline.txt")) != null, "file added while stopped");
+            waitFor(() -> loaded.normalizedPath(new File(dir, "docs/notes.txt")) == null, "file removed while stopped");
+            check(loaded.files(dir) != null, "loaded root not indexed");
+            checkFiles(loaded, root);
+            checkSearches(loaded, root);
+        } finally {
+            loaded.stop();
+            delete(root);
+        }
+    }
+
+    private static Path createLibrary() throws IOException {
+        Path root = Files.createTempDirectory("libraryindex");
+        createFile(root.resolve("Music/The Beatles/Abbey Road/01 Come Together.mp3"));
+        createFile(root.resolve("Music/The Beatles/Abbey Road/cover.jpg"));
+        createFile(root.resolve("Music/Beat It.mp3"));
+        createFile(root.resolve("M\u00fasica/Canci\u00f3n de Cuna.mp3"));
+        createFile(root.resolve("docs/report-2018.pdf"));
+        createFile(root.resolve("docs/.secret.txt"));
+        createFile(root.resolve(".hidden/x.mp3"));
+        for (int i = 0; i < 50; i++) {
+            createFile(root.resolve("Torrents/Pack " + (i % 5) + "/file " + i + ".txt"));
+        }
+        return root;
+    }
+
+    private static Path createFile(Path file) throws IOException {
+        Files.createDirectories(file.getParent());
+        return Files.write(file, new byte[]{1});
+    }
+
+    private static void checkFiles(LibraryIndex index, Path root) throws IOException {
+        Set<File> expected = files(root);
+        Set<File> actual = new HashSet<>(index.files(root.toFile()));
+        check(expected.equals(actual), "files " + actual + " != " + expected);
+    }
+
+    private static void checkSearches(LibraryIndex index, Path root) throws IOException {
+        Set<File> files = files(root);
+        for (String query : QUERIES) {
+            LibrarySearch.SearchFileFilter filter = new LibrarySearch.SearchFileFilter(query, index);
+            Set<File> expected = new HashSet<>();
+            for (File f : files) {
+                if (filter.accept(f, false)) {
+                    expected.add(f);
+                }
+            }
+            Set<File> actual = new HashSet<>(index.search(root.toFile(), query));
+            check(expected.equals(actual), "search '" + query + "' " + actual + " != " + expected);
+        }
+    }
+
+    /**
+     * The regular files under root, without the hidden ones like the index.
+     */
+    private static Set<File> files(Path root) throws IOException {
+        try (Stream<Path> s = Files.walk(root)) {
+            return s.filter(p -> Files.isRegularFile(p) && !isHidden(root, p))
+                    .map(p -> p.toAbsolutePath().toFile())
+                    .collect(Collectors.toSet());
+        }
+    }
+
+    private static boolean isHidden(Path root, Path p) {
+        for (Path name : root.relativize(p)) {
+            if (name.toString().startsWith(".")) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void delete(Path path) throws IOException {
+        List<Path> paths;
+        try (Stream<Path> s = Files.walk(path)) {
+            paths = s.sorted(Comparator.reverseOrder()).collect(Collectors.toCollection(ArrayList::new));
+        }
+        for (Path p : paths) {
+            Files.delete(p);
+        }
+    }
+
+    private static void waitFor(BooleanSupplier condition, String what) throws InterruptedException {
+        // the scans and the watch events are handled in the background
+        long deadline = System.currentTimeMillis() + 20000;
+        while (!condition.getAsBoolean()) {
+            check(System.currentTimeMillis() < deadline, "timeout waiting for " + what);
+            Thread.sleep(20);
+        }
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new AssertionError(what);
+        }
+    }
+}
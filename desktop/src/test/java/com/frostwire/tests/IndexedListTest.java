@@ -0,0 +1,155 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.frostwire.tests;
+
+import com.limegroup.gnutella.gui.tables.IndexedList;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Applies random inserts, removes, sets and sorts to an {@link IndexedList}
+ * and to an {@link ArrayList}, checking after every step that get, indexOf
+ * and contains give the same answers.
+ */
+public final class IndexedListTest {
+
+    private static final Comparator<Item> BY_KEY = Comparator.comparingInt(i -> i.key);
+
+    public static void main(String[] args) {
+        for (long seed = 0; seed < 20; seed++) {
+            run(seed, 2000);
+        }
+        testAddAllAndInsertionPoint();
+        testDuplicates();
+        System.out.println("-done-");
+    }
+
+    private static void run(long seed, int steps) {
+        Random r = new Random(seed);
+        IndexedList<Item> list = new IndexedList<>();
+        List<Item> expected = new ArrayList<>();
+        List<Item> removed = new ArrayList<>();
+
+        for (int step = 0; step < steps; step++) {
+            int op = r.nextInt(100);
+            if (op < 45 || expected.isEmpty()) {
+                int index = r.nextInt(expected.size() + 1);
+                Item item = new Item(r.nextInt(1000));
+                list.add(index, item);
+                expected.add(index, item);
+            } else if (op < 80) {
+                int index = r.nextInt(expected.size());
+                Item a = list.remove(index);
+                Item b = expected.remove(index);
+                check(a == b, seed, step, "remove(" + index + ")");
+                removed.add(a);
+            } else if (op < 95) {
+                int index = r.nextInt(expected.size());
+                Item item = new Item(r.nextInt(1000));
+                Item a = list.set(index, item);
+                Item b = expected.set(index, item);
+                check(a == b, seed, step, "set(" + index + ")");
+                removed.add(a);
+            } else if (op < 98) {
+                list.sort(BY_KEY);
+                expected.sort(BY_KEY);
+            } else {
+                list.clear();
+                expected.clear();
+            }
+
+            compare(list, expected, removed, seed, step);
+        }
+    }
+
+    private static void compare(IndexedList<Item> list, List<Item> expected, List<Item> removed, long seed, int step) {
+        check(list.size() == expected.size(), seed, step, "size " + list.size() + " != " + expected.size());
+        check(Arrays.equals(list.toArray(), expected.toArray()), seed, step, "toArray");
+        for (int i = 0; i < expected.size(); i++) {
+            Item item = expected.get(i);
+            check(list.get(i) == item, seed, step, "get(" + i + ")");
+            check(list.indexOf(item) == i, seed, step, "indexOf(" + item + ")");
+            check(list.contains(item), seed, step, "contains(" + item + ")");
+        }
+        for (Item item : removed) {
+            boolean in = expected.contains(item);
+            check(list.contains(item) == in, seed, step, "contains removed " + item);
+            check(in || list.indexOf(item) == -1, seed, step, "indexOf removed " + item);
+        }
+    }
+
+    private static void testAddAllAndInsertionPoint() {
+        Random r = new Random(0);
+        List<Item> items = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            items.add(new Item(r.nextInt(100)));
+        }
+        items.sort(BY_KEY);
+
+        IndexedList<Item> list = new IndexedList<>();
+        list.addAll(items);
+        compare(list, items, new ArrayList<>(), 0, 0);
+
+        for (int i = 0; i < 200; i++) {
+            Item key = new Item(r.nextInt(110) - 5);
+            int expected = 0;
+            while (expected < items.size() && items.get(expected).key <= key.key) {
+                expected++;
+            }
+            check(list.insertionPoint(key, BY_KEY) == expected, 0, i, "insertionPoint(" + key + ")");
+        }
+    }
+
+    private static void testDuplicates() {
+        IndexedList<Item> list = new IndexedList<>();
+        Item item = new Item(1);
+        list.add(item);
+        try {
+            list.add(item);
+            throw new AssertionError("the same instance was added twice");
+        } catch (IllegalArgumentException e) {
+            // expected
+        }
+        check(list.size() == 1, 0, 0, "size after duplicate");
+    }
+
+    private static void check(boolean condition, long seed, int step, String what) {
+        if (!condition) {
+            throw new AssertionError("seed: " + seed + ", step: " + step + ", " + what);
+        }
+    }
+
+    // distinct instances with the same key, the list looks them up by identity
+    private static final class Item {
+
+        final int key;
+
+        Item(int key) {
+            this.key = key;
+        }
+
+        @Override
+        public String toString() {
+            return key + "@" + Integer.toHexString(System.identityHashCode(this));
+        }
+    }
+}
@@ -0,0 +1,90 @@
+/*
+ * Created by Angel Leon (@gubatron), Alden Torres (aldenml)
+ * Copyright (c) 2011-2018, FrostWire(R). All rights reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *      http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.limegroup.gnutella.gui.search;
+
+import javax.swing.*;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Checks that a line merged from several engines is shown while any of
+ * them is selected in the search options.
+ */
+public final class SearchEngineFilterTest {
+
+    public static void main(String[] args) {
+        SearchEngine tpb = SearchEngine.getSearchEngineByName("TPB");
+        SearchEngine zooqle = SearchEngine.getSearchEngineByName("Zooqle");
+        boolean tpbEnabled = tpb.isEnabled();
+        boolean zooqleEnabled = zooqle.isEnabled();
+        tpb.getEnabledSetting().setValue(true);
+        zooqle.getEnabledSetting().setValue(true);
+        try {
+            testEngines(tpb, zooqle);
+            testAllow(tpb, zooqle);
+        } finally {
+            tpb.getEnabledSetting().setValue(tpbEnabled);
+            zooqle.getEnabledSetting().setValue(zooqleEnabled);
+        }
+        System.out.println("-done-");
+    }
+
+    private static void testEngines(SearchEngine tpb, SearchEngine zooqle) {
+        List<SearchEngine> engines = SearchResultDataLine.engines(tpb, Arrays.asList("TPB", "Zooqle", "unknown", null, "Zooqle"));
+        check(engines.equals(Arrays.asList(tpb, zooqle)), "merged engines " + engines);
+    }
+
+    private static void testAllow(SearchEngine tpb, SearchEngine zooqle) {
+        Map<SearchEngine, JCheckBox> boxes = new HashMap<>();
+        JCheckBox tpbBox = new JCheckBox("TPB", true);
+        JCheckBox zooqleBox = new JCheckBox("Zooqle", true);
+        boxes.put(tpb, tpbBox);
+        boxes.put(zooqle, zooqleBox);
+        SearchEngineFilter filter = new SearchEngineFilter(boxes);
+
+        List<SearchEngine> single = Collections.singletonList(tpb);
+        List<SearchEngine> merged = Arrays.asList(tpb, zooqle);
+
+        check(filter.allow(single), "single line, engine selected");
+        check(filter.allow(merged), "merged line, both selected");
+
+        // the first copy came from TPB, Zooqle returned it too
+        tpbBox.setSelected(false);
+        check(!filter.allow(single), "single line, engine unselected");
+        check(filter.allow(merged), "merged line, other engine selected");
+
+        zooqleBox.setSelected(false);
+        check(!filter.allow(merged), "merged line, no engine selected");
+
+        tpbBox.setSelected(true);
+        zooqleBox.setEnabled(false);
+        check(filter.allow(merged), "merged line, first engine selected");
+        tpbBox.setSelected(false);
+        zooqleBox.setSelected(true);
+        check(!filter.allow(merged), "merged line, selected box disabled");
+    }
+
+    private static void check(boolean condition, String what) {
+        if (!condition) {
+            throw new AssertionError(what);
+        }
+    }
+}